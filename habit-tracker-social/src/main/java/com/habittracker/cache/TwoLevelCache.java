@@ -0,0 +1,172 @@
+package com.habittracker.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Two-Level Cache
+ *
+ * Caffeine near-cache (L1) in front of a shared Redis cache (L2). Reads try L1
+ * first and only go over the network on a local miss. Evictions and clears remove
+ * the entry from both levels and are broadcast so every other node drops its L1
+ * copy as well.
+ *
+ * Cached values are mutable entities, so L1 keeps them in their serialized (L2)
+ * form and every hit deserializes a fresh instance: a caller that modifies what it
+ * got back cannot change what the next caller sees. Strings, numbers and booleans
+ * are immutable and kept as they are.
+ *
+ * Puts are not broadcast: they only happen when populating after a miss, and
+ * every write path that changes a cached value evicts it.
+ */
+public class TwoLevelCache implements Cache {
+
+    /**
+     * Tells other nodes to drop an L1 entry (key) or the whole L1 cache (null key)
+     */
+    @FunctionalInterface
+    public interface InvalidationPublisher {
+        void publish(String cacheName, String key);
+    }
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> local;
+    private final Cache remote;
+    private final InvalidationPublisher publisher;
+    private final RedisSerializer<Object> serializer;
+
+    public TwoLevelCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> local, Cache remote,
+            InvalidationPublisher publisher, RedisSerializer<Object> serializer) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.publisher = publisher;
+        this.serializer = serializer;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        Object value = readLocal(localKey);
+        if (value != null) {
+            return new SimpleValueWrapper(value);
+        }
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper != null && wrapper.get() != null) {
+            writeLocal(localKey, wrapper.get());
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper == null) {
+            return null;
+        }
+        Object value = wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        Object value = readLocal(localKey);
+        if (value != null) {
+            return (T) value;
+        }
+        T loaded = remote.get(key, valueLoader);
+        if (loaded != null) {
+            writeLocal(localKey, loaded);
+        }
+        return loaded;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        if (value != null) {
+            writeLocal(localKey(key), value);
+        } else {
+            local.invalidate(localKey(key));
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        local.invalidate(localKey(key));
+        publisher.publish(name, localKey(key));
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.invalidateAll();
+        publisher.publish(name, null);
+    }
+
+    /**
+     * Drop an L1 entry after another node evicted it
+     */
+    void evictLocal(String key) {
+        if (key == null) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(key);
+        }
+    }
+
+    private Object readLocal(String localKey) {
+        Object stored = local.getIfPresent(localKey);
+        if (stored instanceof SerializedValue serialized) {
+            try {
+                return serializer.deserialize(serialized.bytes());
+            } catch (SerializationException e) {
+                local.invalidate(localKey);
+                return null;
+            }
+        }
+        return stored;
+    }
+
+    private void writeLocal(String localKey, Object value) {
+        if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+            local.put(localKey, value);
+            return;
+        }
+        try {
+            local.put(localKey, new SerializedValue(serializer.serialize(value)));
+        } catch (SerializationException e) {
+            // Not representable; L2 stays the only copy
+            local.invalidate(localKey);
+        }
+    }
+
+    private record SerializedValue(byte[] bytes) {
+    }
+
+    // Redis keys are strings too, so a key means the same thing on every node
+    private static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+}
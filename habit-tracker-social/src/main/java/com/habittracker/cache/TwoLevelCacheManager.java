@@ -0,0 +1,132 @@
+package com.habittracker.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Two-Level Cache Manager
+ *
+ * Wraps the Redis cache manager so every named cache gets a bounded Caffeine
+ * near-cache sized from TwoLevelCacheProperties. Evictions are broadcast on a
+ * Redis pub/sub channel as "nodeId|cacheName[|key]"; each node drops the matching
+ * L1 entry (or the whole L1 cache when no key is given) and ignores its own messages.
+ * Purely local caches outside this manager can join the same channel through
+ * registerLocalCache and broadcastEviction.
+ */
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(TwoLevelCacheManager.class);
+
+    private final CacheManager remoteCacheManager;
+    private final StringRedisTemplate redisTemplate;
+    private final TwoLevelCacheProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final RedisSerializer<Object> valueSerializer;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Consumer<String>> localCaches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager remoteCacheManager, StringRedisTemplate redisTemplate,
+            TwoLevelCacheProperties properties, MeterRegistry meterRegistry, RedisSerializer<Object> valueSerializer) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.valueSerializer = valueSerializer;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoLevelCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache remote = remoteCacheManager.getCache(name);
+        if (remote == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, cacheName -> createCache(cacheName, remote));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private TwoLevelCache createCache(String name, Cache remote) {
+        TwoLevelCacheProperties.CacheSpec spec = properties.specFor(name);
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> local = Caffeine.newBuilder()
+                .maximumSize(spec.getLocalMaxSize())
+                .expireAfterWrite(spec.getLocalTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, name + ".local");
+        return new TwoLevelCache(name, local, remote, this::publish, valueSerializer);
+    }
+
+    /**
+     * Receive invalidations for a cache that only lives in this process; the evictor
+     * gets the key, or null to clear everything
+     */
+    public void registerLocalCache(String cacheName, Consumer<String> evictor) {
+        localCaches.put(cacheName, evictor);
+    }
+
+    /**
+     * Tell every other node to drop an entry of a local cache registered under the same name
+     */
+    public void broadcastEviction(String cacheName, String key) {
+        publish(cacheName, key);
+    }
+
+    void publish(String cacheName, String key) {
+        String message = key == null ? nodeId + "|" + cacheName : nodeId + "|" + cacheName + "|" + key;
+        try {
+            redisTemplate.convertAndSend(properties.getInvalidationChannel(), message);
+        } catch (RuntimeException e) {
+            // Other nodes fall back to their L1 TTL
+            logger.warn("Failed to broadcast invalidation for cache {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    /**
+     * Invalidation received from another node
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        String key = parts.length == 3 ? parts[2] : null;
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache != null) {
+            cache.evictLocal(key);
+        }
+        Consumer<String> localCache = localCaches.get(parts[1]);
+        if (localCache != null) {
+            localCache.accept(key);
+        }
+    }
+
+    String getNodeId() {
+        return nodeId;
+    }
+}
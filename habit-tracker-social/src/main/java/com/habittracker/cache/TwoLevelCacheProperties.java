@@ -0,0 +1,50 @@
+package com.habittracker.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Two-Level Cache Properties
+ *
+ * Per-cache sizing for the Caffeine near-cache (L1) and TTL for the Redis cache (L2),
+ * bound from app.cache.*. Caches without an entry use the defaults.
+ */
+@ConfigurationProperties(prefix = "app.cache")
+public class TwoLevelCacheProperties {
+
+    private String invalidationChannel = "cache:invalidation";
+    private CacheSpec defaults = new CacheSpec();
+    private Map<String, CacheSpec> caches = new HashMap<>();
+
+    public CacheSpec specFor(String cacheName) {
+        return caches.getOrDefault(cacheName, defaults);
+    }
+
+    public String getInvalidationChannel() { return invalidationChannel; }
+    public void setInvalidationChannel(String invalidationChannel) { this.invalidationChannel = invalidationChannel; }
+
+    public CacheSpec getDefaults() { return defaults; }
+    public void setDefaults(CacheSpec defaults) { this.defaults = defaults; }
+
+    public Map<String, CacheSpec> getCaches() { return caches; }
+    public void setCaches(Map<String, CacheSpec> caches) { this.caches = caches; }
+
+    public static class CacheSpec {
+
+        private long localMaxSize = 10000;
+        private Duration localTtl = Duration.ofSeconds(60);
+        private Duration redisTtl = Duration.ofHours(1);
+
+        public long getLocalMaxSize() { return localMaxSize; }
+        public void setLocalMaxSize(long localMaxSize) { this.localMaxSize = localMaxSize; }
+
+        public Duration getLocalTtl() { return localTtl; }
+        public void setLocalTtl(Duration localTtl) { this.localTtl = localTtl; }
+
+        public Duration getRedisTtl() { return redisTtl; }
+        public void setRedisTtl(Duration redisTtl) { this.redisTtl = redisTtl; }
+    }
+}
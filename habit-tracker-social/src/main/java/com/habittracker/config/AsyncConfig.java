@@ -0,0 +1,46 @@
+package com.habittracker.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Asynchronous Processing Configuration
+ *
+ * Bounded worker pools for background work that must not run on request threads.
+ * Pools are exposed as beans so Actuator publishes executor.* metrics for them.
+ */
+@Configuration
+public class AsyncConfig {
+
+    @Value("${app.completion-pipeline.core-pool-size:4}")
+    private int corePoolSize;
+
+    @Value("${app.completion-pipeline.max-pool-size:8}")
+    private int maxPoolSize;
+
+    @Value("${app.completion-pipeline.queue-capacity:1000}")
+    private int queueCapacity;
+
+    /**
+     * Worker pool for the post-completion pipeline.
+     * When the queue is full, submissions are rejected (AbortPolicy) and the event
+     * stays PENDING in the database for the re-drive poller to pick up later.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor completionPipelineExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("completion-pipeline-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,6 +1,9 @@
 package com.habittracker.config;
 
-import org.springframework.cache.CacheManager;
+import com.habittracker.cache.TwoLevelCacheManager;
+import com.habittracker.cache.TwoLevelCacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -8,48 +11,70 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
-import java.time.Duration;
-
 /**
  * Redis Caching Configuration
  * 
- * Configures Redis as the caching layer for frequently accessed data
- * Provides significant performance improvements for read-heavy operations
+ * Configures a two-level cache: a bounded in-process Caffeine near-cache in front
+ * of Redis, with evictions broadcast over Redis pub/sub so every node stays coherent.
+ * Per-cache sizes and TTLs come from app.cache.* (TwoLevelCacheProperties).
  */
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(TwoLevelCacheProperties.class)
 public class CacheConfig {
 
     /**
-     * Configure Redis Cache Manager with custom TTL settings
+     * Two-level cache manager (Caffeine L1 + Redis L2)
      */
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+            StringRedisTemplate stringRedisTemplate,
+            TwoLevelCacheProperties cacheProperties,
+            MeterRegistry meterRegistry) {
+        // Shared with the near-cache, which keeps values in the same form
+        GenericJackson2JsonRedisSerializer valueSerializer = new GenericJackson2JsonRedisSerializer();
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-                // Default TTL: 1 hour
-                .entryTtl(Duration.ofHours(1))
+                // Default TTL
+                .entryTtl(cacheProperties.getDefaults().getRedisTtl())
                 // Serialize keys as strings
                 .serializeKeysWith(
                         RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
                 // Serialize values as JSON
                 .serializeValuesWith(
-                        RedisSerializationContext.SerializationPair.fromSerializer(
-                                new GenericJackson2JsonRedisSerializer()))
+                        RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer))
                 // Don't cache null values
                 .disableCachingNullValues();
 
-        return RedisCacheManager.builder(connectionFactory)
-                .cacheDefaults(config)
-                // Custom TTL for specific caches
-                .withCacheConfiguration("users", config.entryTtl(Duration.ofMinutes(30)))
-                .withCacheConfiguration("habits", config.entryTtl(Duration.ofMinutes(15)))
-                .withCacheConfiguration("friendships", config.entryTtl(Duration.ofMinutes(10)))
-                .withCacheConfiguration("notifications", config.entryTtl(Duration.ofMinutes(5)))
-                .build();
+        RedisCacheManager.RedisCacheManagerBuilder builder = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(config);
+        // Custom TTL for specific caches
+        cacheProperties.getCaches().forEach((name, spec) ->
+                builder.withCacheConfiguration(name, config.entryTtl(spec.getRedisTtl())));
+        RedisCacheManager redisCacheManager = builder.build();
+        redisCacheManager.afterPropertiesSet();
+
+        return new TwoLevelCacheManager(redisCacheManager, stringRedisTemplate, cacheProperties, meterRegistry,
+                valueSerializer);
+    }
+
+    /**
+     * Subscribes the cache manager to invalidations published by other nodes
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+            TwoLevelCacheManager cacheManager,
+            TwoLevelCacheProperties cacheProperties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(cacheProperties.getInvalidationChannel()));
+        return container;
     }
 
     /**
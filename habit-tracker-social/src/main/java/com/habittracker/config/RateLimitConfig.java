@@ -0,0 +1,68 @@
+package com.habittracker.config;
+
+import com.habittracker.security.LocalRateLimitBucketStore;
+import com.habittracker.security.RateLimitBucketStore;
+import com.habittracker.security.RateLimitProperties;
+import com.habittracker.security.RedisRateLimitBucketStore;
+import io.github.bucket4j.distributed.ExpirationAfterWriteStrategy;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.redis.lettuce.cas.LettuceBasedProxyManager;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.time.Duration;
+
+/**
+ * Rate Limit Configuration
+ *
+ * Chooses the bucket store from app.rate-limit.store: LOCAL keeps buckets per node,
+ * REDIS shares them across nodes using a dedicated Lettuce connection with a short
+ * command timeout, falling back to local buckets when Redis is slow or down.
+ */
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+
+    @Bean
+    public RateLimitBucketStore rateLimitBucketStore(RateLimitProperties properties,
+            ObjectProvider<StatefulRedisConnection<String, byte[]>> rateLimitRedisConnection,
+            MeterRegistry meterRegistry) {
+        LocalRateLimitBucketStore localStore = new LocalRateLimitBucketStore(properties.getLocalMaxSize());
+        if (properties.getStore() != RateLimitProperties.StoreType.REDIS) {
+            return localStore;
+        }
+
+        ProxyManager<String> proxyManager = LettuceBasedProxyManager.builderFor(rateLimitRedisConnection.getObject())
+                // Keep a bucket in Redis only until it would have refilled anyway
+                .withExpirationStrategy(ExpirationAfterWriteStrategy.basedOnTimeForRefillingBucketUpToMax(
+                        Duration.ofSeconds(10)))
+                .build();
+        return new RedisRateLimitBucketStore(proxyManager, localStore, properties.getRedis(), meterRegistry);
+    }
+
+    /**
+     * Connection used only for rate limiting, so its timeout does not affect other Redis users
+     */
+    @Bean(destroyMethod = "close")
+    @Lazy
+    public StatefulRedisConnection<String, byte[]> rateLimitRedisConnection(
+            LettuceConnectionFactory connectionFactory, RateLimitProperties properties) {
+        if (!(connectionFactory.getRequiredNativeClient() instanceof RedisClient client)) {
+            throw new IllegalStateException("Redis rate limiting requires a standalone Redis connection");
+        }
+        StatefulRedisConnection<String, byte[]> connection =
+                client.connect(RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE));
+        connection.setTimeout(properties.getRedis().getTimeout());
+        return connection;
+    }
+}
@@ -0,0 +1,34 @@
+package com.habittracker.config;
+
+import com.habittracker.websocket.BackpressureSubProtocolWebSocketHandler;
+import com.habittracker.websocket.OutboundBackpressure;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+
+/**
+ * WebSocket Broker Configuration
+ *
+ * Takes the place of @EnableWebSocketMessageBroker so the STOMP handler can be
+ * swapped for one that applies OutboundBackpressure to each session. Broker,
+ * endpoint, transport and channel settings still come from WebSocketConfig.
+ */
+@Configuration
+public class WebSocketBrokerConfiguration extends DelegatingWebSocketMessageBrokerConfiguration {
+
+    @Autowired
+    private OutboundBackpressure outboundBackpressure;
+
+    @Bean
+    @Override
+    public WebSocketHandler subProtocolWebSocketHandler(
+            @Qualifier("clientInboundChannel") AbstractSubscribableChannel clientInboundChannel,
+            @Qualifier("clientOutboundChannel") AbstractSubscribableChannel clientOutboundChannel) {
+        return new BackpressureSubProtocolWebSocketHandler(clientInboundChannel, clientOutboundChannel,
+                outboundBackpressure);
+    }
+}
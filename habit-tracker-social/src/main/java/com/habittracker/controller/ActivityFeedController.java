@@ -1,5 +1,6 @@
 package com.habittracker.controller;
 
+import com.habittracker.dto.CursorPage;
 import com.habittracker.model.ActivityFeed;
 import com.habittracker.model.ActivityType;
 import com.habittracker.model.User;
@@ -38,6 +39,30 @@ public class ActivityFeedController {
         return ResponseEntity.ok(feed);
     }
 
+    /**
+     * Get friend activity feed (cursor-based, for infinite scroll)
+     */
+    @GetMapping("/feed/cursor")
+    public ResponseEntity<CursorPage<ActivityFeed>> getFriendActivityFeedPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(activityFeedService.getFriendActivityFeed(user.getId(), cursor, limit));
+    }
+
+    /**
+     * Get user's own activity feed (cursor-based)
+     */
+    @GetMapping("/feed/{userId}/cursor")
+    public ResponseEntity<CursorPage<ActivityFeed>> getUserActivityFeedPage(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            Authentication authentication) {
+        return ResponseEntity.ok(activityFeedService.getUserActivityFeed(userId, cursor, limit));
+    }
+
     /**
      * Get user's own activity feed
      */
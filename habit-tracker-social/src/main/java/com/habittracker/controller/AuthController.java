@@ -1,5 +1,6 @@
 package com.habittracker.controller;
 
+import com.habittracker.dto.ChangePasswordRequest;
 import com.habittracker.dto.JwtResponse;
 import com.habittracker.dto.LoginRequest;
 import com.habittracker.dto.UserDTO;
@@ -79,4 +80,28 @@ public class AuthController {
 
         return ResponseEntity.ok("User registered successfully!");
     }
+
+    @Operation(summary = "Change password", description = "Change the current user's password and revoke all their tokens")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Password changed, log in again"),
+            @ApiResponse(responseCode = "401", description = "Current password is incorrect")
+    })
+    @PostMapping("/password")
+    public ResponseEntity<?> changePassword(@Valid @RequestBody ChangePasswordRequest request,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        userService.changePassword(user.getId(), request.getCurrentPassword(), request.getNewPassword());
+        return ResponseEntity.ok("Password changed successfully! Please log in again.");
+    }
+
+    @Operation(summary = "Log out everywhere", description = "Revoke every token issued to the current user")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "All sessions logged out")
+    })
+    @PostMapping("/logout-all")
+    public ResponseEntity<?> logoutAll(Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        userService.revokeTokens(user.getId());
+        return ResponseEntity.ok("Logged out of all sessions!");
+    }
 }
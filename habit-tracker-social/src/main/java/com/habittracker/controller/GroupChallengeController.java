@@ -1,5 +1,7 @@
 package com.habittracker.controller;
 
+import com.habittracker.dto.ChallengeLeaderboardEntry;
+import com.habittracker.dto.TeamLeaderboardEntry;
 import com.habittracker.model.*;
 import com.habittracker.service.GroupChallengeService;
 import com.habittracker.service.UserService;
@@ -108,6 +110,18 @@ public class GroupChallengeController {
         return ResponseEntity.ok(participation);
     }
 
+    /**
+     * Leave a challenge
+     */
+    @PostMapping("/{id}/leave")
+    public ResponseEntity<Void> leaveChallenge(
+            @PathVariable Long id,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        challengeService.leaveChallenge(id, user.getId());
+        return ResponseEntity.ok().build();
+    }
+
     /**
      * Invite a friend to challenge
      */
@@ -136,12 +150,36 @@ public class GroupChallengeController {
         return ResponseEntity.ok(leaderboard);
     }
 
+    /**
+     * Get the top participants of the live leaderboard
+     */
+    @GetMapping("/{id}/leaderboard/top")
+    public ResponseEntity<List<ChallengeLeaderboardEntry>> getTopParticipants(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "10") int limit) {
+        int boundedLimit = Math.max(1, Math.min(limit, 100));
+        return ResponseEntity.ok(challengeService.getTopParticipants(id, boundedLimit));
+    }
+
+    /**
+     * Get the participants ranked around the current user
+     */
+    @GetMapping("/{id}/leaderboard/around-me")
+    public ResponseEntity<List<ChallengeLeaderboardEntry>> getParticipantsAroundMe(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "5") int radius,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        int boundedRadius = Math.max(0, Math.min(radius, 50));
+        return ResponseEntity.ok(challengeService.getParticipantsAround(id, user.getId(), boundedRadius));
+    }
+
     /**
      * Get team leaderboard
      */
     @GetMapping("/{id}/leaderboard/teams")
-    public ResponseEntity<List<Object[]>> getTeamLeaderboard(@PathVariable Long id) {
-        List<Object[]> teamLeaderboard = challengeService.getTeamLeaderboard(id);
+    public ResponseEntity<List<TeamLeaderboardEntry>> getTeamLeaderboard(@PathVariable Long id) {
+        List<TeamLeaderboardEntry> teamLeaderboard = challengeService.getTeamLeaderboard(id);
         return ResponseEntity.ok(teamLeaderboard);
     }
 
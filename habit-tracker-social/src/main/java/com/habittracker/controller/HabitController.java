@@ -1,5 +1,6 @@
 package com.habittracker.controller;
 
+import com.habittracker.dto.CursorPage;
 import com.habittracker.dto.HabitDTO;
 import com.habittracker.model.Habit;
 import com.habittracker.model.HabitCompletion;
@@ -62,7 +63,7 @@ public class HabitController {
     public ResponseEntity<Habit> updateHabit(@PathVariable Long id, @Valid @RequestBody HabitDTO habitDTO,
             Authentication authentication) {
         User user = (User) authentication.getPrincipal();
-        Optional<Habit> habitOpt = habitService.findById(id);
+        Optional<Habit> habitOpt = habitService.findByIdForUpdate(id);
 
         if (habitOpt.isEmpty() || !habitOpt.get().getUser().getId().equals(user.getId())) {
             return ResponseEntity.notFound().build();
@@ -123,4 +124,19 @@ public class HabitController {
         Page<HabitCompletion> completions = habitService.getHabitCompletions(id, pageable);
         return ResponseEntity.ok(completions);
     }
+
+    @GetMapping("/{id}/completions/cursor")
+    public ResponseEntity<CursorPage<HabitCompletion>> getHabitCompletionsPage(@PathVariable Long id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        Optional<Habit> habit = habitService.findById(id);
+
+        if (habit.isEmpty() || !habit.get().getUser().getId().equals(user.getId())) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(habitService.getHabitCompletions(id, cursor, limit));
+    }
 }
@@ -1,13 +1,17 @@
 package com.habittracker.controller;
 
+import com.habittracker.dto.CursorPage;
+import com.habittracker.dto.NotificationSummary;
 import com.habittracker.model.Notification;
 import com.habittracker.model.User;
 import com.habittracker.service.NotificationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -17,6 +21,10 @@ public class NotificationController {
     @Autowired
     private NotificationService notificationService;
 
+    /**
+     * Unbounded; kept for existing clients. Use /cursor.
+     */
+    @Deprecated
     @GetMapping
     public ResponseEntity<List<Notification>> getNotifications(Authentication authentication) {
         User user = (User) authentication.getPrincipal();
@@ -24,6 +32,19 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
 
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<NotificationSummary>> getNotificationsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(notificationService.getUserNotifications(user.getId(), cursor, limit));
+    }
+
+    /**
+     * Unbounded; kept for existing clients. Use /unread/cursor.
+     */
+    @Deprecated
     @GetMapping("/unread")
     public ResponseEntity<List<Notification>> getUnreadNotifications(Authentication authentication) {
         User user = (User) authentication.getPrincipal();
@@ -31,6 +52,15 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
 
+    @GetMapping("/unread/cursor")
+    public ResponseEntity<CursorPage<NotificationSummary>> getUnreadNotificationsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(notificationService.getUnreadNotifications(user.getId(), cursor, limit));
+    }
+
     @GetMapping("/count")
     public ResponseEntity<Long> getUnreadCount(Authentication authentication) {
         User user = (User) authentication.getPrincipal();
@@ -44,6 +74,18 @@ public class NotificationController {
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/read")
+    public ResponseEntity<Integer> markAsRead(@RequestBody List<Long> ids, Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(notificationService.markAsRead(user.getId(), ids));
+    }
+
+    @PostMapping("/read-up-to/{id}")
+    public ResponseEntity<Integer> markAsReadUpTo(@PathVariable Long id, Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(notificationService.markAsReadUpTo(user.getId(), id));
+    }
+
     @PostMapping("/read-all")
     public ResponseEntity<?> markAllAsRead(Authentication authentication) {
         User user = (User) authentication.getPrincipal();
@@ -51,6 +93,24 @@ public class NotificationController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Bulk delete by ids, or everything created before a timestamp
+     */
+    @DeleteMapping
+    public ResponseEntity<Integer> deleteNotifications(
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        if ((ids == null) == (before == null)) {
+            throw new IllegalArgumentException("Specify either ids or before");
+        }
+        int deleted = ids != null
+                ? notificationService.deleteNotifications(user.getId(), ids)
+                : notificationService.deleteNotificationsBefore(user.getId(), before);
+        return ResponseEntity.ok(deleted);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteNotification(@PathVariable Long id, Authentication authentication) {
         notificationService.deleteNotification(id);
@@ -28,11 +28,9 @@ public class UserController {
     public ResponseEntity<User> updateProfile(@RequestBody UserDTO userDTO, Authentication authentication) {
         User user = (User) authentication.getPrincipal();
 
-        user.setFirstName(userDTO.getFirstName());
-        user.setLastName(userDTO.getLastName());
-        user.setEmail(userDTO.getEmail());
-
-        User updatedUser = userService.updateUser(user);
+        // The principal is a cached, shared instance: update a freshly loaded copy instead
+        User updatedUser = userService.updateProfile(user.getId(), userDTO.getFirstName(),
+                userDTO.getLastName(), userDTO.getEmail());
         return ResponseEntity.ok(updatedUser);
     }
 
@@ -1,44 +1,68 @@
 package com.habittracker.controller;
 
+import java.security.Principal;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 
+import com.habittracker.dto.NotificationEvent;
+import com.habittracker.dto.NotificationSummary;
 import com.habittracker.model.Notification;
 import com.habittracker.model.User;
 import com.habittracker.service.NotificationService;
+import com.habittracker.websocket.ClusterMessageRelay;
+import com.habittracker.websocket.WebSocketSessionRegistry;
 
 @Controller
 public class WebSocketController {
 
+    private static final int RECENT_LIMIT = 20;
+
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private ClusterMessageRelay messageRelay;
+
     @MessageMapping("/notifications")
     @SendTo("/topic/notifications")
-    public List<Notification> getNotifications() {
+    public List<NotificationSummary> getNotifications() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth != null && auth.getPrincipal() instanceof User) {
             User user = (User) auth.getPrincipal();
-            return notificationService.getUserNotifications(user.getId());
+            // First page only; older notifications are paged over REST
+            return notificationService.getUserNotifications(user.getId(), null, RECENT_LIMIT).getItems();
         }
         return List.of();
     }
 
+    /**
+     * Reconnecting client sends the last "seq" header it saw; the missed frames and
+     * a status are sent back on the user's queues (see ClusterMessageRelay.resume)
+     */
+    @MessageMapping("/resume")
+    public void resume(@Payload Long lastSeq, Principal principal) {
+        Long userId = WebSocketSessionRegistry.userIdOf(principal);
+        if (userId != null && lastSeq != null) {
+            messageRelay.resume(userId, lastSeq);
+        }
+    }
+
     public void sendNotificationToUser(Long userId, Notification notification) {
         messagingTemplate.convertAndSendToUser(
             userId.toString(), 
             "/queue/notifications", 
-            notification
+            NotificationEvent.from(notification)
         );
     }
 
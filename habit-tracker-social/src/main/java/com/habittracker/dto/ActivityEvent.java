@@ -0,0 +1,28 @@
+package com.habittracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.habittracker.model.ActivityFeed;
+import com.habittracker.model.ActivityType;
+import com.habittracker.model.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Real-time friend activity pushed over WebSocket
+ *
+ * Carries the author's id and username instead of the User entity.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ActivityEvent(Long id, Long userId, String username, ActivityType type, String habitName,
+        Integer streakCount, String description, LocalDateTime createdAt) {
+
+    /**
+     * The activity's user must be loaded (as it is right after the activity is created)
+     */
+    public static ActivityEvent from(ActivityFeed activity) {
+        User user = activity.getUser();
+        return new ActivityEvent(activity.getId(), user.getId(), user.getUsername(), activity.getActivityType(),
+                activity.getHabitName(), activity.getStreakCount(), activity.getDescription(),
+                activity.getCreatedAt());
+    }
+}
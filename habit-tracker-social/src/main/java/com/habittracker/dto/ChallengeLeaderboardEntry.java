@@ -0,0 +1,37 @@
+package com.habittracker.dto;
+
+/**
+ * One row of a challenge leaderboard
+ *
+ * Participants with the same completion count share a rank.
+ */
+public class ChallengeLeaderboardEntry {
+
+    private Long userId;
+    private String username;
+    private int completionCount;
+    private int rank;
+
+    // Constructors
+    public ChallengeLeaderboardEntry() {}
+
+    public ChallengeLeaderboardEntry(Long userId, String username, int completionCount, int rank) {
+        this.userId = userId;
+        this.username = username;
+        this.completionCount = completionCount;
+        this.rank = rank;
+    }
+
+    // Getters and Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public int getCompletionCount() { return completionCount; }
+    public void setCompletionCount(int completionCount) { this.completionCount = completionCount; }
+
+    public int getRank() { return rank; }
+    public void setRank(int rank) { this.rank = rank; }
+}
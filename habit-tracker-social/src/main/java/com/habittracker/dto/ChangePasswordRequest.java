@@ -0,0 +1,29 @@
+package com.habittracker.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+public class ChangePasswordRequest {
+    
+    @NotBlank
+    private String currentPassword;
+    
+    @NotBlank
+    @Size(min = 6, max = 100)
+    private String newPassword;
+    
+    // Constructors
+    public ChangePasswordRequest() {}
+    
+    public ChangePasswordRequest(String currentPassword, String newPassword) {
+        this.currentPassword = currentPassword;
+        this.newPassword = newPassword;
+    }
+    
+    // Getters and Setters
+    public String getCurrentPassword() { return currentPassword; }
+    public void setCurrentPassword(String currentPassword) { this.currentPassword = currentPassword; }
+    
+    public String getNewPassword() { return newPassword; }
+    public void setNewPassword(String newPassword) { this.newPassword = newPassword; }
+}
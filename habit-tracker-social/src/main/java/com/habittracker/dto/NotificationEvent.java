@@ -0,0 +1,21 @@
+package com.habittracker.dto;
+
+import com.habittracker.model.Notification;
+import com.habittracker.model.NotificationType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Real-time notification pushed over WebSocket
+ *
+ * Built from the saved entity's own columns only, so pushing never touches the lazy
+ * user association.
+ */
+public record NotificationEvent(Long id, NotificationType type, String title, String message,
+        LocalDateTime createdAt) {
+
+    public static NotificationEvent from(Notification notification) {
+        return new NotificationEvent(notification.getId(), notification.getType(), notification.getTitle(),
+                notification.getMessage(), notification.getCreatedAt());
+    }
+}
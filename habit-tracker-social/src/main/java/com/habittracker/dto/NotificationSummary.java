@@ -0,0 +1,60 @@
+package com.habittracker.dto;
+
+import com.habittracker.model.Notification;
+import com.habittracker.model.NotificationStatus;
+import com.habittracker.model.NotificationType;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of a notification listing
+ *
+ * Read with a JPQL constructor expression, so listings never load the entity or
+ * its user association.
+ */
+public class NotificationSummary {
+
+    private Long id;
+    private NotificationType type;
+    private String title;
+    private String message;
+    private NotificationStatus status;
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public NotificationSummary() {}
+
+    public NotificationSummary(Long id, NotificationType type, String title, String message,
+            NotificationStatus status, LocalDateTime createdAt) {
+        this.id = id;
+        this.type = type;
+        this.title = title;
+        this.message = message;
+        this.status = status;
+        this.createdAt = createdAt;
+    }
+
+    public static NotificationSummary from(Notification notification) {
+        return new NotificationSummary(notification.getId(), notification.getType(), notification.getTitle(),
+                notification.getMessage(), notification.getStatus(), notification.getCreatedAt());
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public NotificationType getType() { return type; }
+    public void setType(NotificationType type) { this.type = type; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public NotificationStatus getStatus() { return status; }
+    public void setStatus(NotificationStatus status) { this.status = status; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,55 @@
+package com.habittracker.dto;
+
+import com.habittracker.model.NotificationType;
+
+/**
+ * Title, message and type of a notification, shared by every recipient of a fan-out
+ */
+public class NotificationTemplate {
+
+    private final String title;
+    private final String message;
+    private final NotificationType type;
+
+    public NotificationTemplate(String title, String message, NotificationType type) {
+        this.title = title;
+        this.message = message;
+        this.type = type;
+    }
+
+    public static NotificationTemplate friendCompletedHabit(String friendName, String habitName) {
+        return new NotificationTemplate("Friend Activity! 🎯",
+                String.format("%s just completed '%s'!", friendName, habitName),
+                NotificationType.FRIEND_COMPLETED_HABIT);
+    }
+
+    /**
+     * Several friends' completions coalesced into one notification
+     */
+    public static NotificationTemplate friendsCompletedHabits(String lastFriendName, int otherFriends) {
+        return new NotificationTemplate("Friend Activity! 🎯",
+                String.format("%s and %d %s completed habits!", lastFriendName, otherFriends,
+                        otherFriends == 1 ? "other" : "others"),
+                NotificationType.FRIEND_COMPLETED_HABIT);
+    }
+
+    public static NotificationTemplate friendsActiveToday(int friendCount) {
+        return new NotificationTemplate("Friends Are Active! 🔥",
+                String.format("%d of your friends completed habits today. Don't get left behind!", friendCount),
+                NotificationType.FRIENDS_ACTIVE_TODAY);
+    }
+
+    public static NotificationTemplate friendStreakMilestone(String friendName, String habitName,
+            Integer streakCount) {
+        return new NotificationTemplate("Friend Milestone! 🏆",
+                String.format("%s reached a %d-day streak for '%s'! Send them encouragement!",
+                        friendName, streakCount, habitName),
+                NotificationType.FRIEND_STREAK_MILESTONE);
+    }
+
+    public String getTitle() { return title; }
+
+    public String getMessage() { return message; }
+
+    public NotificationType getType() { return type; }
+}
@@ -0,0 +1,37 @@
+package com.habittracker.dto;
+
+/**
+ * One row of a challenge team leaderboard
+ *
+ * Teams with the same completion total share a rank.
+ */
+public class TeamLeaderboardEntry {
+
+    private String teamName;
+    private int totalCompletions;
+    private int memberCount;
+    private int rank;
+
+    // Constructors
+    public TeamLeaderboardEntry() {}
+
+    public TeamLeaderboardEntry(String teamName, int totalCompletions, int memberCount, int rank) {
+        this.teamName = teamName;
+        this.totalCompletions = totalCompletions;
+        this.memberCount = memberCount;
+        this.rank = rank;
+    }
+
+    // Getters and Setters
+    public String getTeamName() { return teamName; }
+    public void setTeamName(String teamName) { this.teamName = teamName; }
+
+    public int getTotalCompletions() { return totalCompletions; }
+    public void setTotalCompletions(int totalCompletions) { this.totalCompletions = totalCompletions; }
+
+    public int getMemberCount() { return memberCount; }
+    public void setMemberCount(int memberCount) { this.memberCount = memberCount; }
+
+    public int getRank() { return rank; }
+    public void setRank(int rank) { this.rank = rank; }
+}
@@ -0,0 +1,18 @@
+package com.habittracker.event;
+
+/**
+ * Published when a habit completion and its CompletionEvent row have been
+ * written; listeners pick it up once the surrounding transaction commits.
+ */
+public class CompletionRecordedEvent {
+
+    private final Long completionEventId;
+
+    public CompletionRecordedEvent(Long completionEventId) {
+        this.completionEventId = completionEventId;
+    }
+
+    public Long getCompletionEventId() {
+        return completionEventId;
+    }
+}
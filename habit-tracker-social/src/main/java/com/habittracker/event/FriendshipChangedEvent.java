@@ -0,0 +1,24 @@
+package com.habittracker.event;
+
+/**
+ * Published when a friendship between two users is created or removed;
+ * caches of either user's friend set are refreshed once the transaction commits.
+ */
+public class FriendshipChangedEvent {
+
+    private final Long userId;
+    private final Long otherUserId;
+
+    public FriendshipChangedEvent(Long userId, Long otherUserId) {
+        this.userId = userId;
+        this.otherUserId = otherUserId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getOtherUserId() {
+        return otherUserId;
+    }
+}
@@ -0,0 +1,18 @@
+package com.habittracker.event;
+
+/**
+ * Published when a user's profile, roles or token version change, or the user is
+ * deleted; cached authentication principals are dropped once the transaction commits.
+ */
+public class UserChangedEvent {
+
+    private final Long userId;
+
+    public UserChangedEvent(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
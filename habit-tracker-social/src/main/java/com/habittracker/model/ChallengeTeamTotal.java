@@ -0,0 +1,81 @@
+package com.habittracker.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Challenge Team Total Entity
+ *
+ * Running completion total and member count of one team in a group challenge,
+ * kept up to date as participants join, leave and complete
+ */
+@Entity
+@Table(name = "challenge_team_totals", uniqueConstraints = @UniqueConstraint(columnNames = { "challenge_id",
+        "team_name" }))
+public class ChallengeTeamTotal {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "challenge_id", nullable = false)
+    private Long challengeId;
+
+    @Column(name = "team_name", nullable = false, length = 100)
+    private String teamName;
+
+    @Column(name = "total_completions", nullable = false)
+    private Integer totalCompletions = 0;
+
+    @Column(name = "member_count", nullable = false)
+    private Integer memberCount = 0;
+
+    // Constructors
+    public ChallengeTeamTotal() {
+    }
+
+    public ChallengeTeamTotal(Long challengeId, String teamName) {
+        this.challengeId = challengeId;
+        this.teamName = teamName;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getChallengeId() {
+        return challengeId;
+    }
+
+    public void setChallengeId(Long challengeId) {
+        this.challengeId = challengeId;
+    }
+
+    public String getTeamName() {
+        return teamName;
+    }
+
+    public void setTeamName(String teamName) {
+        this.teamName = teamName;
+    }
+
+    public Integer getTotalCompletions() {
+        return totalCompletions;
+    }
+
+    public void setTotalCompletions(Integer totalCompletions) {
+        this.totalCompletions = totalCompletions;
+    }
+
+    public Integer getMemberCount() {
+        return memberCount;
+    }
+
+    public void setMemberCount(Integer memberCount) {
+        this.memberCount = memberCount;
+    }
+}
@@ -0,0 +1,124 @@
+package com.habittracker.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+/**
+ * Completion Event Entity
+ *
+ * Durable record of a habit completion that still has post-completion work
+ * (streak, activity feed, notifications, real-time fan-out) to run.
+ * Written in the same transaction as the HabitCompletion itself.
+ */
+@Entity
+@Table(name = "completion_events")
+public class CompletionEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Column(name = "completion_id", nullable = false)
+    private Long completionId;
+
+    @NotNull
+    @Column(name = "habit_id", nullable = false)
+    private Long habitId;
+
+    @NotNull
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @NotNull
+    @Column(name = "completion_date", nullable = false)
+    private LocalDateTime completionDate;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private CompletionStage stage = CompletionStage.STREAK;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private CompletionEventStatus status = CompletionEventStatus.PENDING;
+
+    @Column(name = "activity_id")
+    private Long activityId;
+
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Constructors
+    public CompletionEvent() {}
+
+    public CompletionEvent(HabitCompletion completion, Long userId) {
+        this.completionId = completion.getId();
+        this.habitId = completion.getHabit().getId();
+        this.userId = userId;
+        this.completionDate = completion.getCompletionDate();
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getCompletionId() { return completionId; }
+    public void setCompletionId(Long completionId) { this.completionId = completionId; }
+
+    public Long getHabitId() { return habitId; }
+    public void setHabitId(Long habitId) { this.habitId = habitId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public LocalDateTime getCompletionDate() { return completionDate; }
+    public void setCompletionDate(LocalDateTime completionDate) { this.completionDate = completionDate; }
+
+    public CompletionStage getStage() { return stage; }
+    public void setStage(CompletionStage stage) { this.stage = stage; }
+
+    public CompletionEventStatus getStatus() { return status; }
+    public void setStatus(CompletionEventStatus status) { this.status = status; }
+
+    public Long getActivityId() { return activityId; }
+    public void setActivityId(Long activityId) { this.activityId = activityId; }
+
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,5 @@
+package com.habittracker.model;
+
+public enum CompletionEventStatus {
+    PENDING, PROCESSING, COMPLETED, FAILED
+}
@@ -0,0 +1,17 @@
+package com.habittracker.model;
+
+/**
+ * Stages of the post-completion pipeline, in execution order
+ */
+public enum CompletionStage {
+    STREAK,
+    COMPETITIONS,
+    ACTIVITY_FEED,
+    NOTIFICATIONS,
+    REALTIME,
+    DONE;
+
+    public CompletionStage next() {
+        return this == DONE ? DONE : values()[ordinal() + 1];
+    }
+}
@@ -51,6 +51,10 @@ public class User implements UserDetails {
     private boolean accountNonExpired = true;
     private boolean accountNonLocked = true;
     private boolean credentialsNonExpired = true;
+
+    // Embedded in issued JWTs; bumping it revokes every outstanding token
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion = 0;
     
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Set<Habit> habits;
@@ -144,6 +148,9 @@ public class User implements UserDetails {
     public void setAccountNonExpired(boolean accountNonExpired) { this.accountNonExpired = accountNonExpired; }
     public void setAccountNonLocked(boolean accountNonLocked) { this.accountNonLocked = accountNonLocked; }
     public void setCredentialsNonExpired(boolean credentialsNonExpired) { this.credentialsNonExpired = credentialsNonExpired; }
+
+    public int getTokenVersion() { return tokenVersion; }
+    public void setTokenVersion(int tokenVersion) { this.tokenVersion = tokenVersion; }
     
     public Set<Habit> getHabits() { return habits; }
     public void setHabits(Set<Habit> habits) { this.habits = habits; }
@@ -4,7 +4,9 @@ import com.habittracker.model.ActivityFeed;
 import com.habittracker.model.ActivityType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -40,6 +42,11 @@ public interface ActivityFeedRepository extends JpaRepository<ActivityFeed, Long
             @Param("endDate") LocalDateTime endDate,
             Pageable pageable);
 
+    // activity_feed is partitioned and has no foreign key to users (V16)
+    @Modifying
+    @Query("DELETE FROM ActivityFeed a WHERE a.user.id = :userId")
+    int bulkDeleteByUserId(@Param("userId") Long userId);
+
     // Count activities for a user
     Long countByUserId(Long userId);
 
@@ -47,4 +54,26 @@ public interface ActivityFeedRepository extends JpaRepository<ActivityFeed, Long
     @Query("SELECT COUNT(a) FROM ActivityFeed a WHERE a.user.id IN :friendIds AND a.createdAt >= :startOfDay")
     Long countFriendActivitiesToday(@Param("friendIds") List<Long> friendIds,
             @Param("startOfDay") LocalDateTime startOfDay);
+
+    // Count activities from friends
+    @Query("SELECT COUNT(a) FROM ActivityFeed a WHERE a.user.id IN :friendIds")
+    Long countByFriendIds(@Param("friendIds") List<Long> friendIds);
+
+    // Newest (id, createdAt) pairs from friends, used to rebuild a cached timeline
+    @Query("SELECT a.id, a.createdAt FROM ActivityFeed a WHERE a.user.id IN :friendIds ORDER BY a.createdAt DESC")
+    List<Object[]> findTimelineEntriesByFriendIds(@Param("friendIds") List<Long> friendIds, Pageable pageable);
+
+    // Keyset page of friend activities strictly after the cursor (createdAt DESC, id DESC)
+    @Query("SELECT a FROM ActivityFeed a WHERE a.user.id IN :friendIds AND (a.createdAt < :createdAt OR (a.createdAt = :createdAt AND a.id < :id)) ORDER BY a.createdAt DESC, a.id DESC")
+    Slice<ActivityFeed> findFriendFeedAfter(@Param("friendIds") List<Long> friendIds,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable);
+
+    // Keyset page of one user's activities strictly after the cursor
+    @Query("SELECT a FROM ActivityFeed a WHERE a.user.id = :userId AND (a.createdAt < :createdAt OR (a.createdAt = :createdAt AND a.id < :id)) ORDER BY a.createdAt DESC, a.id DESC")
+    Slice<ActivityFeed> findUserFeedAfter(@Param("userId") Long userId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable);
 }
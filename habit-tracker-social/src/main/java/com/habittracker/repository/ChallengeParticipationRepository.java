@@ -4,10 +4,13 @@ import com.habittracker.model.ChallengeParticipation;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,11 +32,9 @@ public interface ChallengeParticipationRepository extends JpaRepository<Challeng
     Page<ChallengeParticipation> findLeaderboardByChallengeId(@Param("challengeId") Long challengeId,
             Pageable pageable);
 
-    // Get team leaderboard (aggregated by team)
-    @Query("SELECT p.teamName, SUM(p.completionCount) as total FROM ChallengeParticipation p " +
-            "WHERE p.challenge.id = :challengeId AND p.teamName IS NOT NULL " +
-            "GROUP BY p.teamName ORDER BY total DESC")
-    List<Object[]> findTeamLeaderboardByChallengeId(@Param("challengeId") Long challengeId);
+    // Participants of several challenges with their users, for batched notifications
+    @Query("SELECT p FROM ChallengeParticipation p JOIN FETCH p.user WHERE p.challenge.id IN :challengeIds")
+    List<ChallengeParticipation> findWithUserByChallengeIdIn(@Param("challengeIds") Collection<Long> challengeIds);
 
     // Count participants in a challenge
     Long countByChallengeId(Long challengeId);
@@ -43,4 +44,27 @@ public interface ChallengeParticipationRepository extends JpaRepository<Challeng
             "WHERE p.challenge.id = :challengeId AND p.completionCount > " +
             "(SELECT p2.completionCount FROM ChallengeParticipation p2 WHERE p2.challenge.id = :challengeId AND p2.user.id = :userId)")
     Integer findUserRankInChallenge(@Param("challengeId") Long challengeId, @Param("userId") Long userId);
+
+    // Active challenges a user's completion on this date counts toward
+    @Query("SELECT p.challenge.id FROM ChallengeParticipation p WHERE p.user.id = :userId " +
+            "AND p.challenge.status = 'ACTIVE' AND p.challenge.startDate <= :date AND p.challenge.endDate >= :date")
+    List<Long> findActiveChallengeIdsByUserId(@Param("userId") Long userId, @Param("date") LocalDate date);
+
+    // Atomic increment without loading the row
+    @Modifying
+    @Query("UPDATE ChallengeParticipation p SET p.completionCount = p.completionCount + 1 " +
+            "WHERE p.challenge.id = :challengeId AND p.user.id = :userId")
+    int incrementCompletionCount(@Param("challengeId") Long challengeId, @Param("userId") Long userId);
+
+    // (userId, completionCount) of every participant, for rebuilding the Redis leaderboard
+    @Query("SELECT p.user.id, p.completionCount FROM ChallengeParticipation p WHERE p.challenge.id = :challengeId")
+    List<Object[]> findCompletionCountsByChallengeId(@Param("challengeId") Long challengeId);
+
+    // Materialise the rank column (ties share a rank) in one statement
+    @Modifying
+    @Query(value = "UPDATE challenge_participation cp JOIN (" +
+            "SELECT id, RANK() OVER (ORDER BY completion_count DESC) AS new_rank " +
+            "FROM challenge_participation WHERE challenge_id = :challengeId) r ON r.id = cp.id " +
+            "SET cp.`rank` = r.new_rank", nativeQuery = true)
+    int applyRanks(@Param("challengeId") Long challengeId);
 }
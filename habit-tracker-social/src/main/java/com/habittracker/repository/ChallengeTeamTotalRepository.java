@@ -0,0 +1,42 @@
+package com.habittracker.repository;
+
+import com.habittracker.model.ChallengeTeamTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ChallengeTeamTotalRepository extends JpaRepository<ChallengeTeamTotal, Long> {
+
+    // Teams that still have members, highest total first
+    @Query("SELECT t FROM ChallengeTeamTotal t WHERE t.challengeId = :challengeId AND t.memberCount > 0 " +
+            "ORDER BY t.totalCompletions DESC, t.teamName ASC")
+    List<ChallengeTeamTotal> findLeaderboardByChallengeId(@Param("challengeId") Long challengeId);
+
+    // Create the team row on its first member
+    @Modifying
+    @Query(value = "INSERT INTO challenge_team_totals (challenge_id, team_name, total_completions, member_count) " +
+            "VALUES (:challengeId, :teamName, 0, 1) " +
+            "ON DUPLICATE KEY UPDATE member_count = member_count + 1", nativeQuery = true)
+    int addMember(@Param("challengeId") Long challengeId, @Param("teamName") String teamName);
+
+    // A leaving member takes their completions with them
+    @Modifying
+    @Query("UPDATE ChallengeTeamTotal t SET t.memberCount = t.memberCount - 1, " +
+            "t.totalCompletions = t.totalCompletions - :completions " +
+            "WHERE t.challengeId = :challengeId AND t.teamName = :teamName")
+    int removeMember(@Param("challengeId") Long challengeId, @Param("teamName") String teamName,
+            @Param("completions") int completions);
+
+    // Add one completion to the participant's team, if they are on one
+    @Modifying
+    @Query(value = "UPDATE challenge_team_totals t JOIN challenge_participation p " +
+            "ON p.challenge_id = t.challenge_id AND p.team_name = t.team_name " +
+            "SET t.total_completions = t.total_completions + 1 " +
+            "WHERE p.challenge_id = :challengeId AND p.user_id = :userId", nativeQuery = true)
+    int incrementForParticipant(@Param("challengeId") Long challengeId, @Param("userId") Long userId);
+}
@@ -2,17 +2,36 @@ package com.habittracker.repository;
 
 import com.habittracker.model.CompetitionParticipant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CompetitionParticipantRepository extends JpaRepository<CompetitionParticipant, Long> {
+
+    // Completions and active days per habit owner inside the competition window
+    String COMPLETIONS_BY_USER = "SELECT h.user_id, COUNT(*) AS completions, "
+            + "COUNT(DISTINCT DATE(hc.completion_date)) AS active_days "
+            + "FROM habit_completions hc JOIN habits h ON h.id = hc.habit_id "
+            + "WHERE hc.habit_id = :habitId AND hc.completion_date >= :startDate AND hc.completion_date <= :endDate "
+            + "GROUP BY h.user_id";
+
+    // Writes score and rank (ties share a rank) for every participant of a competition in one statement
+    String APPLY_SCORES = "UPDATE competition_participants cp JOIN ("
+            + "SELECT s.id, s.score, RANK() OVER (ORDER BY s.score DESC) AS new_rank FROM (";
+    String APPLY_SCORES_END = ") s) r ON r.id = cp.id SET cp.score = r.score, cp.`rank` = r.new_rank";
     
     List<CompetitionParticipant> findByCompetitionIdOrderByScoreDesc(Long competitionId);
+
+    // Participants of several competitions with their users, for batched notifications
+    @Query("SELECT cp FROM CompetitionParticipant cp JOIN FETCH cp.user WHERE cp.competition.id IN :competitionIds")
+    List<CompetitionParticipant> findWithUserByCompetitionIdIn(@Param("competitionIds") Collection<Long> competitionIds);
     
     List<CompetitionParticipant> findByUserId(Long userId);
     
@@ -25,4 +44,49 @@ public interface CompetitionParticipantRepository extends JpaRepository<Competit
     List<CompetitionParticipant> findActiveCompetitionsByUserId(@Param("userId") Long userId);
     
     boolean existsByCompetitionIdAndUserId(Long competitionId, Long userId);
+
+    @Modifying
+    @Query(value = APPLY_SCORES
+            + "SELECT p.id, COALESCE(st.current_streak, 0) AS score FROM competition_participants p "
+            + "LEFT JOIN streaks st ON st.habit_id = :habitId AND st.user_id = p.user_id "
+            + "WHERE p.competition_id = :competitionId"
+            + APPLY_SCORES_END, nativeQuery = true)
+    int applyStreakScores(@Param("competitionId") Long competitionId, @Param("habitId") Long habitId);
+
+    @Modifying
+    @Query(value = APPLY_SCORES
+            + "SELECT p.id, COALESCE(c.completions, 0) AS score FROM competition_participants p "
+            + "LEFT JOIN (" + COMPLETIONS_BY_USER + ") c ON c.user_id = p.user_id "
+            + "WHERE p.competition_id = :competitionId"
+            + APPLY_SCORES_END, nativeQuery = true)
+    int applyCompletionCountScores(@Param("competitionId") Long competitionId,
+            @Param("habitId") Long habitId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+
+    // Consistency: percentage of elapsed competition days with at least one completion
+    @Modifying
+    @Query(value = APPLY_SCORES
+            + "SELECT p.id, LEAST(100, COALESCE(c.active_days, 0) * 100 DIV :elapsedDays) AS score "
+            + "FROM competition_participants p "
+            + "LEFT JOIN (" + COMPLETIONS_BY_USER + ") c ON c.user_id = p.user_id "
+            + "WHERE p.competition_id = :competitionId"
+            + APPLY_SCORES_END, nativeQuery = true)
+    int applyConsistencyScores(@Param("competitionId") Long competitionId,
+            @Param("habitId") Long habitId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("elapsedDays") long elapsedDays);
+
+    // Re-rank from the stored scores
+    @Modifying
+    @Query(value = APPLY_SCORES
+            + "SELECT p.id, p.score FROM competition_participants p WHERE p.competition_id = :competitionId"
+            + APPLY_SCORES_END, nativeQuery = true)
+    int applyRanks(@Param("competitionId") Long competitionId);
+
+    @Modifying
+    @Query("UPDATE CompetitionParticipant cp SET cp.score = :score WHERE cp.competition.id = :competitionId AND cp.user.id = :userId")
+    int updateScore(@Param("competitionId") Long competitionId, @Param("userId") Long userId,
+            @Param("score") int score);
 }
@@ -2,6 +2,7 @@ package com.habittracker.repository;
 
 import com.habittracker.model.Competition;
 import com.habittracker.model.CompetitionType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -22,8 +23,8 @@ public interface CompetitionRepository extends JpaRepository<Competition, Long>
     @Query("SELECT c FROM Competition c WHERE c.isActive = true AND c.startDate <= :now AND c.endDate >= :now")
     List<Competition> findActiveCompetitionsByDate(@Param("now") LocalDateTime now);
     
-    @Query("SELECT c FROM Competition c WHERE c.isActive = true AND c.endDate < :now")
-    List<Competition> findExpiredCompetitions(@Param("now") LocalDateTime now);
+    @Query("SELECT c FROM Competition c WHERE c.isActive = true AND c.endDate < :now ORDER BY c.endDate ASC, c.id ASC")
+    List<Competition> findExpiredCompetitions(@Param("now") LocalDateTime now, Pageable pageable);
     
     @Query("SELECT c FROM Competition c WHERE c.habit.id = :habitId AND c.isActive = true")
     List<Competition> findActiveCompetitionsByHabitId(@Param("habitId") Long habitId);
@@ -0,0 +1,33 @@
+package com.habittracker.repository;
+
+import com.habittracker.model.CompletionEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CompletionEventRepository extends JpaRepository<CompletionEvent, Long> {
+
+    // Ids of pending events whose next attempt is due (oldest first)
+    @Query("SELECT e.id FROM CompletionEvent e WHERE e.status = 'PENDING' AND e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt ASC")
+    List<Long> findDueEventIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Claim a pending event for processing; returns 0 if another worker already holds it
+    @Modifying
+    @Query("UPDATE CompletionEvent e SET e.status = 'PROCESSING', e.updatedAt = :now WHERE e.id = :id AND e.status = 'PENDING'")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Release events left in PROCESSING by a worker that died mid-flight
+    @Modifying
+    @Query("UPDATE CompletionEvent e SET e.status = 'PENDING' WHERE e.status = 'PROCESSING' AND e.updatedAt < :cutoff")
+    int releaseStaleClaims(@Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT COUNT(e) FROM CompletionEvent e WHERE e.status = 'PENDING'")
+    Long countPending();
+}
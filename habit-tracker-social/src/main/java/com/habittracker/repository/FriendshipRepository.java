@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +23,21 @@ public interface FriendshipRepository extends JpaRepository<Friendship, Long> {
     @Query("SELECT f FROM Friendship f WHERE (f.requester.id = :userId OR f.addressee.id = :userId) AND f.status = 'ACCEPTED'")
     List<Friendship> findAcceptedFriendshipsByUserId(@Param("userId") Long userId);
     
+    // Ids of the other side of every accepted friendship, in either direction (no entity hydration)
+    @Query("SELECT CASE WHEN f.requester.id = :userId THEN f.addressee.id ELSE f.requester.id END FROM Friendship f WHERE (f.requester.id = :userId OR f.addressee.id = :userId) AND f.status = 'ACCEPTED'")
+    List<Long> findAcceptedFriendIds(@Param("userId") Long userId);
+    
+    // (recipient id, number of their friends with a completion since :since), by recipient id after :afterId
+    @Query(value = "SELECT r.recipient_id, COUNT(DISTINCT r.friend_id) FROM ("
+            + "SELECT requester_id AS recipient_id, addressee_id AS friend_id FROM friendships WHERE status = 'ACCEPTED' "
+            + "UNION ALL SELECT addressee_id, requester_id FROM friendships WHERE status = 'ACCEPTED') r "
+            + "JOIN (SELECT DISTINCT h.user_id FROM habit_completions hc JOIN habits h ON h.id = hc.habit_id "
+            + "WHERE hc.completion_date >= :since) active ON active.user_id = r.friend_id "
+            + "WHERE r.recipient_id > :afterId "
+            + "GROUP BY r.recipient_id ORDER BY r.recipient_id LIMIT :limit", nativeQuery = true)
+    List<Object[]> countActiveFriendsSince(@Param("since") LocalDateTime since, @Param("afterId") long afterId,
+            @Param("limit") int limit);
+    
     @Query("SELECT f FROM Friendship f WHERE f.addressee.id = :userId AND f.status = 'PENDING'")
     List<Friendship> findPendingFriendRequestsByUserId(@Param("userId") Long userId);
     
@@ -29,13 +29,15 @@ public interface GroupChallengeRepository extends JpaRepository<GroupChallenge,
     @Query("SELECT gc FROM GroupChallenge gc JOIN gc.participants p WHERE p.user.id = :userId ORDER BY gc.startDate DESC")
     Page<GroupChallenge> findByParticipantUserId(@Param("userId") Long userId, Pageable pageable);
 
-    // Find pending challenges that should start today
-    @Query("SELECT gc FROM GroupChallenge gc WHERE gc.status = 'PENDING' AND gc.startDate <= :today")
-    List<GroupChallenge> findPendingChallengesReadyToStart(@Param("today") LocalDate today);
-
-    // Find active challenges that should end today
-    @Query("SELECT gc FROM GroupChallenge gc WHERE gc.status = 'ACTIVE' AND gc.endDate <= :today")
-    List<GroupChallenge> findActiveChallengesReadyToEnd(@Param("today") LocalDate today);
+    // Find a batch of pending challenges that should start today, most overdue first
+    @Query("SELECT gc FROM GroupChallenge gc WHERE gc.status = 'PENDING' AND gc.startDate <= :today " +
+            "ORDER BY gc.startDate ASC, gc.id ASC")
+    List<GroupChallenge> findPendingChallengesReadyToStart(@Param("today") LocalDate today, Pageable pageable);
+
+    // Find a batch of active challenges that should end today, most overdue first
+    @Query("SELECT gc FROM GroupChallenge gc WHERE gc.status = 'ACTIVE' AND gc.endDate <= :today " +
+            "ORDER BY gc.endDate ASC, gc.id ASC")
+    List<GroupChallenge> findActiveChallengesReadyToEnd(@Param("today") LocalDate today, Pageable pageable);
 
     // Count active challenges for a user
     @Query("SELECT COUNT(gc) FROM GroupChallenge gc JOIN gc.participants p WHERE p.user.id = :userId AND gc.status = 'ACTIVE'")
@@ -3,6 +3,7 @@ package com.habittracker.repository;
 import com.habittracker.model.HabitCompletion;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -16,6 +17,10 @@ public interface HabitCompletionRepository extends JpaRepository<HabitCompletion
 
     List<HabitCompletion> findByHabitIdOrderByCompletionDateDesc(Long habitId);
 
+    // Completion timestamps only (no entity hydration), newest first
+    @Query("SELECT hc.completionDate FROM HabitCompletion hc WHERE hc.habit.id = :habitId ORDER BY hc.completionDate DESC")
+    List<LocalDateTime> findCompletionDatesByHabitId(@Param("habitId") Long habitId);
+
     // Paginated version
     Page<HabitCompletion> findByHabitIdOrderByCompletionDateDesc(Long habitId, Pageable pageable);
 
@@ -29,8 +34,21 @@ public interface HabitCompletionRepository extends JpaRepository<HabitCompletion
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
 
+    // Number of distinct calendar days with at least one completion
+    @Query(value = "SELECT COUNT(DISTINCT DATE(completion_date)) FROM habit_completions WHERE habit_id = :habitId AND completion_date >= :startDate AND completion_date <= :endDate", nativeQuery = true)
+    long countActiveDaysByHabitIdAndDateRange(@Param("habitId") Long habitId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+
     @Query("SELECT hc FROM HabitCompletion hc WHERE hc.habit.user.id = :userId AND hc.completionDate >= :startDate AND hc.completionDate <= :endDate ORDER BY hc.completionDate DESC")
     List<HabitCompletion> findByUserIdAndDateRange(@Param("userId") Long userId,
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
+
+    // Keyset page of completions strictly after the cursor (completionDate DESC, id DESC)
+    @Query("SELECT hc FROM HabitCompletion hc WHERE hc.habit.id = :habitId AND (hc.completionDate < :completionDate OR (hc.completionDate = :completionDate AND hc.id < :id)) ORDER BY hc.completionDate DESC, hc.id DESC")
+    Slice<HabitCompletion> findByHabitIdAfter(@Param("habitId") Long habitId,
+            @Param("completionDate") LocalDateTime completionDate,
+            @Param("id") Long id,
+            Pageable pageable);
 }
@@ -0,0 +1,90 @@
+package com.habittracker.repository;
+
+import com.habittracker.model.NotificationStatus;
+import com.habittracker.model.NotificationType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk notification inserts
+ *
+ * notifications uses IDENTITY ids, so Hibernate inserts them one statement at a time.
+ * This writes up to batchSize rows per multi-row INSERT and returns the generated
+ * ids in row order.
+ */
+@Repository
+public class NotificationJdbcRepository {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO notifications (user_id, title, message, type, status, created_at) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?)";
+    private static final int COLUMNS = 6;
+
+    public record Row(Long userId, String title, String message, NotificationType type) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public NotificationJdbcRepository(JdbcTemplate jdbcTemplate,
+            @Value("${app.notifications.insert-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Insert UNREAD notifications created at the given time
+     *
+     * @return generated ids, in the order of rows
+     */
+    public List<Long> insertAll(List<Row> rows, LocalDateTime createdAt) {
+        List<Long> ids = new ArrayList<>(rows.size());
+        Timestamp timestamp = Timestamp.valueOf(createdAt);
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<Row> chunk = rows.subList(from, Math.min(rows.size(), from + batchSize));
+            ids.addAll(insertChunk(chunk, timestamp));
+        }
+        return ids;
+    }
+
+    private List<Long> insertChunk(List<Row> chunk, Timestamp createdAt) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + chunk.size() * (ROW.length() + 2))
+                .append(INSERT_PREFIX);
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? ROW : ", " + ROW);
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS);
+            int index = 1;
+            for (Row row : chunk) {
+                ps.setLong(index, row.userId());
+                ps.setString(index + 1, row.title());
+                ps.setString(index + 2, row.message());
+                ps.setString(index + 3, row.type().name());
+                ps.setString(index + 4, NotificationStatus.UNREAD.name());
+                ps.setTimestamp(index + 5, createdAt);
+                index += COLUMNS;
+            }
+            return ps;
+        }, keyHolder);
+
+        List<Long> ids = new ArrayList<>(chunk.size());
+        for (Map<String, Object> keys : keyHolder.getKeyList()) {
+            ids.add(((Number) keys.values().iterator().next()).longValue());
+        }
+        return ids;
+    }
+}
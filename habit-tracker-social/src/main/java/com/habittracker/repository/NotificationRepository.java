@@ -1,13 +1,19 @@
 package com.habittracker.repository;
 
+import com.habittracker.dto.NotificationSummary;
 import com.habittracker.model.Notification;
 import com.habittracker.model.NotificationStatus;
 import com.habittracker.model.NotificationType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -21,7 +27,71 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     
     @Query("SELECT COUNT(n) FROM Notification n WHERE n.user.id = :userId AND n.status = 'UNREAD'")
     Long countUnreadNotificationsByUserId(@Param("userId") Long userId);
+
+    // Unread counts for several users; users without unread notifications are absent
+    @Query("SELECT n.user.id, COUNT(n) FROM Notification n WHERE n.user.id IN :userIds AND n.status = 'UNREAD' GROUP BY n.user.id")
+    List<Object[]> countUnreadNotificationsByUserIdIn(@Param("userIds") Collection<Long> userIds);
     
     @Query("SELECT n FROM Notification n WHERE n.user.id = :userId AND n.status = 'UNREAD' ORDER BY n.createdAt DESC")
     List<Notification> findUnreadNotificationsByUserId(@Param("userId") Long userId);
+    
+    // Set-based bulk operations: one statement, no entity hydration
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.status = 'READ', n.readAt = :readAt WHERE n.user.id = :userId AND n.status = 'UNREAD'")
+    int markAllAsReadByUserId(@Param("userId") Long userId, @Param("readAt") LocalDateTime readAt);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.status = 'READ', n.readAt = :readAt WHERE n.user.id = :userId AND n.id IN :ids AND n.status = 'UNREAD'")
+    int markAsReadByUserIdAndIdIn(@Param("userId") Long userId, @Param("ids") Collection<Long> ids,
+            @Param("readAt") LocalDateTime readAt);
+
+    // Ids grow with creation time, so this reads everything up to and including the given notification
+    @Modifying
+    @Query("UPDATE Notification n SET n.status = 'READ', n.readAt = :readAt WHERE n.user.id = :userId AND n.id <= :id AND n.status = 'UNREAD'")
+    int markAsReadByUserIdUpToId(@Param("userId") Long userId, @Param("id") Long id,
+            @Param("readAt") LocalDateTime readAt);
+
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.user.id = :userId AND n.id IN :ids AND n.status = 'UNREAD'")
+    long countUnreadByUserIdAndIdIn(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.user.id = :userId AND n.id IN :ids")
+    int bulkDeleteByUserIdAndIdIn(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.user.id = :userId AND n.createdAt < :before AND n.status = 'UNREAD'")
+    long countUnreadByUserIdCreatedBefore(@Param("userId") Long userId, @Param("before") LocalDateTime before);
+
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.user.id = :userId AND n.createdAt < :before")
+    int bulkDeleteByUserIdCreatedBefore(@Param("userId") Long userId, @Param("before") LocalDateTime before);
+
+    // notifications is partitioned and has no foreign key to users (V16)
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.user.id = :userId")
+    int bulkDeleteByUserId(@Param("userId") Long userId);
+
+    // Keyset page of notifications strictly after the cursor (createdAt DESC, id DESC)
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) ORDER BY n.createdAt DESC, n.id DESC")
+    Slice<Notification> findByUserIdAfter(@Param("userId") Long userId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable);
+
+    // Keyset pages of listing projections; n.user.id reads the foreign key column, no join
+    @Query("SELECT new com.habittracker.dto.NotificationSummary(n.id, n.type, n.title, n.message, n.status, n.createdAt) "
+            + "FROM Notification n WHERE n.user.id = :userId AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) "
+            + "ORDER BY n.createdAt DESC, n.id DESC")
+    Slice<NotificationSummary> findSummariesByUserIdAfter(@Param("userId") Long userId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable);
+
+    @Query("SELECT new com.habittracker.dto.NotificationSummary(n.id, n.type, n.title, n.message, n.status, n.createdAt) "
+            + "FROM Notification n WHERE n.user.id = :userId AND n.status = 'UNREAD' AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) "
+            + "ORDER BY n.createdAt DESC, n.id DESC")
+    Slice<NotificationSummary> findUnreadSummariesByUserIdAfter(@Param("userId") Long userId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable);
 }
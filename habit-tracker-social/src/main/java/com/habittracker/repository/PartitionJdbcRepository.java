@@ -0,0 +1,106 @@
+package com.habittracker.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Partition maintenance for monthly RANGE COLUMNS(created_at) tables
+ *
+ * Reads the layout from information_schema and issues the partition DDL. Table and
+ * partition names are interpolated into statements, so both are checked against a
+ * plain identifier pattern first.
+ */
+@Repository
+public class PartitionJdbcRepository {
+
+    public static final String FUTURE_PARTITION = "p_future";
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z0-9_]+");
+
+    /**
+     * A partition holding rows with created_at before upperBound (null for MAXVALUE)
+     */
+    public record Partition(String name, LocalDate upperBound) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PartitionJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Partitions of a table in range order; empty if the table is not partitioned
+     */
+    public List<Partition> findPartitions(String table) {
+        return jdbcTemplate.query(
+                "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS "
+                        + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL "
+                        + "ORDER BY PARTITION_ORDINAL_POSITION",
+                (rs, i) -> new Partition(rs.getString(1), parseUpperBound(rs.getString(2))),
+                table);
+    }
+
+    public LocalDateTime findOldestCreatedAt(String table, String partition) {
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM " + identifier(table)
+                + " PARTITION (" + identifier(partition) + ")", Timestamp.class);
+        return oldest == null ? null : oldest.toLocalDateTime();
+    }
+
+    /**
+     * Carve the month starting at monthStart off the front of p_future; only moves
+     * rows if p_future has any
+     */
+    public void splitFuturePartition(String table, LocalDate monthStart) {
+        jdbcTemplate.execute("ALTER TABLE " + identifier(table) + " REORGANIZE PARTITION " + FUTURE_PARTITION
+                + " INTO (PARTITION " + monthlyPartitionName(monthStart) + " VALUES LESS THAN ('"
+                + monthStart.plusMonths(1) + "'), PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE))");
+    }
+
+    /**
+     * Stream every row of one partition, ordered by user, newest first within a user
+     */
+    public void streamPartition(String table, String partition, RowCallbackHandler handler) {
+        String sql = "SELECT * FROM " + identifier(table) + " PARTITION (" + identifier(partition) + ")"
+                + " ORDER BY user_id, created_at DESC, id DESC";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            // Row-by-row streaming in MySQL Connector/J rather than buffering the partition
+            ps.setFetchSize(Integer.MIN_VALUE);
+            return ps;
+        }, handler);
+    }
+
+    public void dropPartition(String table, String partition) {
+        jdbcTemplate.execute("ALTER TABLE " + identifier(table) + " DROP PARTITION " + identifier(partition));
+    }
+
+    public static String monthlyPartitionName(LocalDate monthStart) {
+        return String.format("p%04d%02d", monthStart.getYear(), monthStart.getMonthValue());
+    }
+
+    // PARTITION_DESCRIPTION is MAXVALUE or a quoted literal such as '2024-02-01 00:00:00'
+    private static LocalDate parseUpperBound(String description) {
+        if (description == null || description.equalsIgnoreCase("MAXVALUE")) {
+            return null;
+        }
+        return LocalDate.parse(description.replace("'", "").substring(0, 10));
+    }
+
+    private static String identifier(String name) {
+        if (!IDENTIFIER.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid identifier: " + name);
+        }
+        return name;
+    }
+}
@@ -0,0 +1,31 @@
+package com.habittracker.repository;
+
+import com.habittracker.model.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    // Create an unowned lease row the first time a job runs
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO scheduler_leases (name, owner, lease_until) VALUES (:name, NULL, NOW(3))",
+            nativeQuery = true)
+    int createIfAbsent(@Param("name") String name);
+
+    // Take the lease if it is free or expired, or extend it if already held; 1 row = held
+    @Modifying
+    @Query(value = "UPDATE scheduler_leases SET owner = :owner, " +
+            "lease_until = TIMESTAMPADD(MICROSECOND, :durationMs * 1000, NOW(3)) " +
+            "WHERE name = :name AND (owner IS NULL OR owner = :owner OR lease_until < NOW(3))",
+            nativeQuery = true)
+    int tryAcquire(@Param("name") String name, @Param("owner") String owner, @Param("durationMs") long durationMs);
+
+    @Modifying
+    @Query(value = "UPDATE scheduler_leases SET owner = NULL, lease_until = NOW(3) WHERE name = :name AND owner = :owner",
+            nativeQuery = true)
+    int release(@Param("name") String name, @Param("owner") String owner);
+}
@@ -0,0 +1,45 @@
+package com.habittracker.scheduler;
+
+import com.habittracker.service.NotificationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Friends Digest Scheduler
+ *
+ * Sends the daily FRIENDS_ACTIVE_TODAY digest. Every node fires on the cron; the
+ * node that takes the "friends-digest" lease sends it, and the lease outlives the
+ * run so the others skip that day.
+ */
+@Component
+public class FriendsDigestScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(FriendsDigestScheduler.class);
+
+    static final String LEASE_NAME = "friends-digest";
+
+    @Autowired
+    private SchedulerLeaseManager leaseManager;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Value("${app.notifications.digest.lease-ms:3600000}")
+    private long leaseMs = 3600000;
+
+    @Scheduled(cron = "${app.notifications.digest.cron:0 0 20 * * *}")
+    public void sendDigest() {
+        if (!leaseManager.tryAcquire(LEASE_NAME, Duration.ofMillis(leaseMs))) {
+            return;
+        }
+        int sent = notificationService.sendFriendsActiveDigest(LocalDate.now().atStartOfDay());
+        logger.info("Friends-active digest sent to {} users", sent);
+    }
+}
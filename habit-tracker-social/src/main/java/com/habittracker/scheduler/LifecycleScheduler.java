@@ -0,0 +1,183 @@
+package com.habittracker.scheduler;
+
+import com.habittracker.model.Competition;
+import com.habittracker.model.GroupChallenge;
+import com.habittracker.service.CompetitionService;
+import com.habittracker.service.GroupChallengeService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Lifecycle Scheduler
+ *
+ * Starts and ends group challenges and ends expired competitions. Runs on the one
+ * node holding the "lifecycle" lease; each transition kind is processed in batches
+ * of batch-size, each batch in its own transaction, up to max-batches per run, and
+ * the lease is renewed before every batch.
+ *
+ * Metrics: lifecycle.transitions (count per kind), lifecycle.lag.seconds (how
+ * overdue the oldest item seen by the last run was), lifecycle.run (run duration)
+ * and lifecycle.leader (1 on the node holding the lease).
+ */
+@Component
+public class LifecycleScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(LifecycleScheduler.class);
+
+    static final String LEASE_NAME = "lifecycle";
+
+    enum Transition {
+        CHALLENGE_START("challenge.start"),
+        CHALLENGE_END("challenge.end"),
+        COMPETITION_END("competition.end");
+
+        private final String tag;
+
+        Transition(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    @Autowired
+    private SchedulerLeaseManager leaseManager;
+
+    @Autowired
+    private GroupChallengeService challengeService;
+
+    @Autowired
+    private CompetitionService competitionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.lifecycle.batch-size:100}")
+    private int batchSize = 100;
+
+    @Value("${app.lifecycle.max-batches:50}")
+    private int maxBatches = 50;
+
+    @Value("${app.lifecycle.lease-ms:120000}")
+    private long leaseMs = 120000;
+
+    private final Map<Transition, Counter> transitionCounters = new EnumMap<>(Transition.class);
+    private final Map<Transition, AtomicLong> lagSeconds = new EnumMap<>(Transition.class);
+    private final AtomicLong leader = new AtomicLong();
+    private Timer runTimer;
+
+    @PostConstruct
+    void registerMetrics() {
+        for (Transition transition : Transition.values()) {
+            transitionCounters.put(transition, Counter.builder("lifecycle.transitions")
+                    .description("Challenges and competitions moved to their next lifecycle state")
+                    .tag("kind", transition.tag)
+                    .register(meterRegistry));
+            AtomicLong lag = new AtomicLong();
+            lagSeconds.put(transition, lag);
+            Gauge.builder("lifecycle.lag.seconds", lag, AtomicLong::get)
+                    .description("How long the most overdue item seen by the last run had been due")
+                    .tag("kind", transition.tag)
+                    .register(meterRegistry);
+        }
+        Gauge.builder("lifecycle.leader", leader, AtomicLong::get)
+                .description("1 if this node holds the lifecycle lease")
+                .register(meterRegistry);
+        runTimer = Timer.builder("lifecycle.run")
+                .description("Duration of lifecycle runs on the lease holder")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.lifecycle.interval-ms:60000}")
+    public void run() {
+        if (!holdLease()) {
+            return;
+        }
+        runTimer.record(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDate today = now.toLocalDate();
+            drain(Transition.CHALLENGE_START, size -> challengeService.startPendingChallenges(today, size),
+                    (GroupChallenge c) -> c.getStartDate().atStartOfDay(), now);
+            drain(Transition.CHALLENGE_END, size -> challengeService.endActiveChallenges(today, size),
+                    (GroupChallenge c) -> c.getEndDate().atStartOfDay(), now);
+            drain(Transition.COMPETITION_END, size -> competitionService.endExpiredCompetitions(now, size),
+                    Competition::getEndDate, now);
+        });
+    }
+
+    /**
+     * Process batches until one comes back short, the run's batch budget is spent or
+     * the lease is lost
+     */
+    <T> int drain(Transition transition, IntFunction<List<T>> batch, Function<T, LocalDateTime> dueAt,
+            LocalDateTime now) {
+        int processed = 0;
+        for (int i = 0; i < maxBatches; i++) {
+            if (i > 0 && !holdLease()) {
+                break;
+            }
+            List<T> items;
+            try {
+                items = batch.apply(batchSize);
+            } catch (RuntimeException e) {
+                logger.error("Lifecycle batch {} failed: {}", transition.tag, e.getMessage(), e);
+                break;
+            }
+            if (i == 0) {
+                // Batches are ordered most overdue first
+                lagSeconds.get(transition).set(items.isEmpty() ? 0
+                        : Math.max(0, Duration.between(dueAt.apply(items.get(0)), now).getSeconds()));
+            }
+            processed += items.size();
+            transitionCounters.get(transition).increment(items.size());
+            if (items.size() < batchSize) {
+                break;
+            }
+        }
+        if (processed > 0) {
+            logger.info("Lifecycle {}: {} transitioned", transition.tag, processed);
+        }
+        return processed;
+    }
+
+    private boolean holdLease() {
+        boolean held;
+        try {
+            held = leaseManager.tryAcquire(LEASE_NAME, Duration.ofMillis(leaseMs));
+        } catch (RuntimeException e) {
+            logger.warn("Could not acquire lifecycle lease: {}", e.getMessage());
+            held = false;
+        }
+        leader.set(held ? 1 : 0);
+        return held;
+    }
+
+    @PreDestroy
+    void releaseLease() {
+        if (leader.get() == 1) {
+            try {
+                leaseManager.release(LEASE_NAME);
+            } catch (RuntimeException e) {
+                logger.warn("Could not release lifecycle lease: {}", e.getMessage());
+            }
+        }
+    }
+}
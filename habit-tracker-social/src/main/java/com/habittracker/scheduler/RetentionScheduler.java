@@ -0,0 +1,52 @@
+package com.habittracker.scheduler;
+
+import com.habittracker.service.RetentionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Retention Scheduler
+ *
+ * Runs partition maintenance for notifications and activity_feed once a day on the
+ * node that takes the "retention" lease. Archives are written to that node's local
+ * disk, so production deployments point archive-dir at shared storage.
+ */
+@Component
+public class RetentionScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetentionScheduler.class);
+
+    static final String LEASE_NAME = "retention";
+
+    @Autowired
+    private SchedulerLeaseManager leaseManager;
+
+    @Autowired
+    private RetentionService retentionService;
+
+    @Value("${app.retention.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.retention.lease-ms:3600000}")
+    private long leaseMs = 3600000;
+
+    @Scheduled(cron = "${app.retention.cron:0 30 3 * * *}")
+    public void run() {
+        if (!enabled || !leaseManager.tryAcquire(LEASE_NAME, Duration.ofMillis(leaseMs))) {
+            return;
+        }
+        try {
+            int expired = retentionService.maintain(LocalDate.now());
+            logger.info("Retention run expired {} partitions", expired);
+        } catch (RuntimeException e) {
+            logger.error("Retention run failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.habittracker.scheduler;
+
+import com.habittracker.repository.SchedulerLeaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Scheduler Lease Manager
+ *
+ * Database-backed leases (scheduler_leases) so a scheduled job runs on one node at
+ * a time. The holder renews its lease on every run; if it dies, another node takes
+ * over once the lease expires. Each call commits on its own so the lease is visible
+ * to other nodes immediately.
+ */
+@Component
+public class SchedulerLeaseManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchedulerLeaseManager.class);
+
+    @Autowired
+    private SchedulerLeaseRepository leaseRepository;
+
+    private final String nodeId = hostName() + ":" + UUID.randomUUID();
+
+    /**
+     * Acquire or renew the named lease
+     *
+     * @return true if this node holds the lease for the given duration
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean tryAcquire(String name, Duration duration) {
+        leaseRepository.createIfAbsent(name);
+        return leaseRepository.tryAcquire(name, nodeId, duration.toMillis()) == 1;
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void release(String name) {
+        if (leaseRepository.release(name, nodeId) == 1) {
+            logger.info("Released scheduler lease {}", name);
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
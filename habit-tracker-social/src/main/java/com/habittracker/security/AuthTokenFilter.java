@@ -1,12 +1,16 @@
 package com.habittracker.security;
 
 import com.habittracker.service.UserService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -14,44 +18,105 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 
+/**
+ * Authenticates requests carrying a Bearer JWT.
+ *
+ * Tokens are verified with a single parse. Versioned tokens (uid/tv claims) resolve
+ * their principal through the PrincipalCache and take their authorities from the
+ * roles claim, so the database is only read on a cache miss.
+ *
+ * Tokens without those claims cannot be revoked, so they are rejected unless they
+ * were issued before app.security.unversioned-token-cutoff (set to the deploy time
+ * while older tokens are still in circulation); clients then have to log in again.
+ */
 public class AuthTokenFilter extends OncePerRequestFilter {
-    
+
     @Autowired
     private JwtUtils jwtUtils;
-    
+
     @Autowired
     private UserService userService;
-    
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Value("${app.security.unversioned-token-cutoff:}")
+    private String unversionedTokenCutoff;
+
     @Override
-    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
                                   FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-                
-                UserDetails userDetails = userService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication = 
-                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+            if (jwt != null) {
+                jwtUtils.parseClaims(jwt).ifPresent(claims -> authenticate(claims, request));
             }
         } catch (Exception e) {
             logger.error("Cannot set user authentication: {}", e);
         }
-        
+
         filterChain.doFilter(request, response);
     }
-    
+
+    private void authenticate(Claims claims, HttpServletRequest request) {
+        Object userId = claims.get(JwtUtils.CLAIM_USER_ID);
+        Object tokenVersion = claims.get(JwtUtils.CLAIM_TOKEN_VERSION);
+        if (userId instanceof Number id && tokenVersion instanceof Number version) {
+            principalCache.get(id.longValue(), version.intValue()).ifPresent(user ->
+                    setAuthentication(user, authorities(claims), request));
+            return;
+        }
+
+        if (!issuedBeforeCutoff(claims)) {
+            logger.debug("Rejecting unversioned token for " + claims.getSubject());
+            return;
+        }
+        UserDetails userDetails = userService.loadUserByUsername(claims.getSubject());
+        setAuthentication(userDetails, userDetails.getAuthorities(), request);
+    }
+
+    private void setAuthentication(UserDetails principal, Collection<? extends GrantedAuthority> authorities,
+                                   HttpServletRequest request) {
+        UsernamePasswordAuthenticationToken authentication =
+            new UsernamePasswordAuthenticationToken(principal, null, authorities);
+        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+
+    private boolean issuedBeforeCutoff(Claims claims) {
+        Date issuedAt = claims.getIssuedAt();
+        if (!StringUtils.hasText(unversionedTokenCutoff) || issuedAt == null) {
+            return false;
+        }
+        return issuedAt.toInstant().isBefore(Instant.parse(unversionedTokenCutoff));
+    }
+
+    private static List<GrantedAuthority> authorities(Claims claims) {
+        Object roles = claims.get(JwtUtils.CLAIM_ROLES);
+        if (!(roles instanceof Collection<?> values)) {
+            return List.of();
+        }
+        List<GrantedAuthority> authorities = new ArrayList<>(values.size());
+        for (Object role : values) {
+            authorities.add(new SimpleGrantedAuthority(String.valueOf(role)));
+        }
+        return authorities;
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
-        
+
         if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
             return headerAuth.substring(7);
         }
-        
+
         return null;
     }
 }
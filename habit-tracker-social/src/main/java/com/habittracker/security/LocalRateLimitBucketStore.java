@@ -0,0 +1,62 @@
+package com.habittracker.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.local.LocalBucketBuilder;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Per-JVM bucket store: one bounded Caffeine cache of buckets per tier.
+ *
+ * Each node enforces its own budget, so behind a load balancer the effective limit
+ * is N times the configured one. Also used as the fallback of the Redis store.
+ */
+public class LocalRateLimitBucketStore implements RateLimitBucketStore {
+
+    private final Map<RateLimitTier, Cache<String, Bucket>> caches = new EnumMap<>(RateLimitTier.class);
+
+    public LocalRateLimitBucketStore(long maxSize) {
+        for (RateLimitTier tier : RateLimitTier.values()) {
+            // A bucket idle for a whole period would be full again anyway
+            caches.put(tier, Caffeine.newBuilder()
+                    .expireAfterAccess(tier.getPeriod())
+                    .maximumSize(maxSize)
+                    .build());
+        }
+    }
+
+    @Override
+    public ConsumptionProbe tryConsume(RateLimitTier tier, String key) {
+        return resolve(tier, key).tryConsumeAndReturnRemaining(1);
+    }
+
+    @Override
+    public long getAvailableTokens(RateLimitTier tier, String key) {
+        return resolve(tier, key).getAvailableTokens();
+    }
+
+    @Override
+    public void reset(String key) {
+        caches.values().forEach(cache -> cache.invalidate(key));
+    }
+
+    @Override
+    public void resetAll() {
+        caches.values().forEach(Cache::invalidateAll);
+    }
+
+    private Bucket resolve(RateLimitTier tier, String key) {
+        return caches.get(tier).get(key, k -> {
+            LocalBucketBuilder builder = Bucket.builder();
+            for (Bandwidth bandwidth : tier.getConfiguration().getBandwidths()) {
+                builder.addLimit(bandwidth);
+            }
+            return builder.build();
+        });
+    }
+}
@@ -0,0 +1,99 @@
+package com.habittracker.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.habittracker.cache.TwoLevelCacheManager;
+import com.habittracker.event.UserChangedEvent;
+import com.habittracker.model.User;
+import com.habittracker.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Principal Cache
+ *
+ * In-process cache of authenticated principals keyed by user id, so requests
+ * carrying a versioned JWT are authenticated without a user lookup. A token whose
+ * version no longer matches the cached user's (revoked) resolves to empty; so does
+ * one for a user who is gone or disabled, and that answer is cached too.
+ *
+ * When a UserChangedEvent commits the entry is dropped here and the user id is
+ * broadcast on the cache invalidation channel, so every node stops accepting
+ * revoked tokens right away; the TTL only bounds staleness if a broadcast is lost.
+ * Cached principals are shared between requests and must be treated as read-only.
+ */
+@Component
+public class PrincipalCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TwoLevelCacheManager cacheManager;
+
+    @Value("${app.security.principal-cache.max-size:50000}")
+    private long maxSize = 50000;
+
+    @Value("${app.security.principal-cache.ttl-seconds:300}")
+    private long ttlSeconds = 300;
+
+    static final String CACHE_NAME = "authPrincipals";
+
+    private Cache<Long, Optional<User>> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        cacheManager.registerLocalCache(CACHE_NAME, key -> {
+            if (key == null) {
+                cache.invalidateAll();
+            } else {
+                cache.invalidate(Long.valueOf(key));
+            }
+        });
+    }
+
+    /**
+     * Principal for a token issued to the given user at the given token version
+     */
+    public Optional<User> get(long userId, int tokenVersion) {
+        Optional<User> user = cache.get(userId, this::load);
+        if (user.isPresent() && user.get().getTokenVersion() < tokenVersion) {
+            // Token issued after this entry was cached; the invalidation has not arrived yet
+            cache.invalidate(userId);
+            user = cache.get(userId, this::load);
+        }
+        return user.filter(principal -> principal.getTokenVersion() == tokenVersion);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        invalidate(event.getUserId());
+        cacheManager.broadcastEviction(CACHE_NAME, String.valueOf(event.getUserId()));
+    }
+
+    public void invalidate(Long userId) {
+        cache.invalidate(userId);
+    }
+
+    private Optional<User> load(Long userId) {
+        return userRepository.findById(userId).filter(User::isEnabled);
+    }
+}
@@ -0,0 +1,27 @@
+package com.habittracker.security;
+
+import io.github.bucket4j.ConsumptionProbe;
+
+/**
+ * Where rate limit buckets live: in this JVM (LocalRateLimitBucketStore) or shared
+ * by all nodes (RedisRateLimitBucketStore). Selected by app.rate-limit.store.
+ */
+public interface RateLimitBucketStore {
+
+    /**
+     * Try to take one token from the key's bucket for the given tier
+     */
+    ConsumptionProbe tryConsume(RateLimitTier tier, String key);
+
+    long getAvailableTokens(RateLimitTier tier, String key);
+
+    /**
+     * Drop the buckets of one key in every tier
+     */
+    void reset(String key);
+
+    /**
+     * Drop every bucket this store can reach
+     */
+    void resetAll();
+}
@@ -1,5 +1,6 @@
 package com.habittracker.security;
 
+import io.github.bucket4j.ConsumptionProbe;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -44,22 +45,22 @@ public class RateLimitFilter extends OncePerRequestFilter {
 
         if (requestPath.startsWith("/api/auth/")) {
             // Stricter limit for authentication endpoints
-            allowed = rateLimitService.tryConsumeAuth(clientIp);
+            ConsumptionProbe probe = rateLimitService.tryConsumeAndReturnRemaining(RateLimitTier.AUTH, clientIp);
+            allowed = probe.isConsumed();
             limitType = "auth";
 
             if (allowed) {
                 // Add rate limit headers
-                long remaining = rateLimitService.getAvailableAuthTokens(clientIp);
-                addRateLimitHeaders(response, 5, remaining, 900); // 15 minutes = 900 seconds
+                addRateLimitHeaders(response, 5, probe.getRemainingTokens(), 900); // 15 minutes = 900 seconds
             }
         } else if (requestPath.startsWith("/api/")) {
             // General API rate limit
-            allowed = rateLimitService.tryConsumeApi(clientIp);
+            ConsumptionProbe probe = rateLimitService.tryConsumeAndReturnRemaining(RateLimitTier.API, clientIp);
+            allowed = probe.isConsumed();
             limitType = "api";
 
             if (allowed) {
-                long remaining = rateLimitService.getAvailableApiTokens(clientIp);
-                addRateLimitHeaders(response, 100, remaining, 60); // 1 minute = 60 seconds
+                addRateLimitHeaders(response, 100, probe.getRemainingTokens(), 60); // 1 minute = 60 seconds
             }
         }
 
@@ -0,0 +1,86 @@
+package com.habittracker.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Rate Limit Properties
+ *
+ * Bucket store selection and tuning, bound from app.rate-limit.*
+ */
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    public enum StoreType { LOCAL, REDIS }
+
+    private StoreType store = StoreType.LOCAL;
+    private long localMaxSize = 100000;
+    private Redis redis = new Redis();
+
+    public StoreType getStore() { return store; }
+    public void setStore(StoreType store) { this.store = store; }
+
+    public long getLocalMaxSize() { return localMaxSize; }
+    public void setLocalMaxSize(long localMaxSize) { this.localMaxSize = localMaxSize; }
+
+    public Redis getRedis() { return redis; }
+    public void setRedis(Redis redis) { this.redis = redis; }
+
+    public static class Redis {
+
+        private String keyPrefix = "rate-limit:";
+        // Commands slower than this count as failures and fall back to local buckets
+        private Duration timeout = Duration.ofMillis(50);
+        // How long to stay on local buckets after a failure before trying Redis again
+        private Duration retryAfter = Duration.ofSeconds(10);
+        private long proxyCacheMaxSize = 100000;
+        private Prefetch prefetch = new Prefetch();
+
+        public String getKeyPrefix() { return keyPrefix; }
+        public void setKeyPrefix(String keyPrefix) { this.keyPrefix = keyPrefix; }
+
+        public Duration getTimeout() { return timeout; }
+        public void setTimeout(Duration timeout) { this.timeout = timeout; }
+
+        public Duration getRetryAfter() { return retryAfter; }
+        public void setRetryAfter(Duration retryAfter) { this.retryAfter = retryAfter; }
+
+        public long getProxyCacheMaxSize() { return proxyCacheMaxSize; }
+        public void setProxyCacheMaxSize(long proxyCacheMaxSize) { this.proxyCacheMaxSize = proxyCacheMaxSize; }
+
+        public Prefetch getPrefetch() { return prefetch; }
+        public void setPrefetch(Prefetch prefetch) { this.prefetch = prefetch; }
+    }
+
+    /**
+     * Local token prefetch: a node may consume up to maxUnsynchronizedTokens (or for up
+     * to maxUnsynchronizedTimeout) before syncing with Redis, trading that much
+     * per-node overshoot for fewer round trips. Only applied to the listed tiers.
+     */
+    public static class Prefetch {
+
+        private boolean enabled = false;
+        private long maxUnsynchronizedTokens = 10;
+        private Duration maxUnsynchronizedTimeout = Duration.ofMillis(500);
+        private Set<RateLimitTier> tiers = EnumSet.of(RateLimitTier.API);
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public long getMaxUnsynchronizedTokens() { return maxUnsynchronizedTokens; }
+        public void setMaxUnsynchronizedTokens(long maxUnsynchronizedTokens) {
+            this.maxUnsynchronizedTokens = maxUnsynchronizedTokens;
+        }
+
+        public Duration getMaxUnsynchronizedTimeout() { return maxUnsynchronizedTimeout; }
+        public void setMaxUnsynchronizedTimeout(Duration maxUnsynchronizedTimeout) {
+            this.maxUnsynchronizedTimeout = maxUnsynchronizedTimeout;
+        }
+
+        public Set<RateLimitTier> getTiers() { return tiers; }
+        public void setTiers(Set<RateLimitTier> tiers) { this.tiers = tiers; }
+    }
+}
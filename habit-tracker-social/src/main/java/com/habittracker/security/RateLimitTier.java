@@ -0,0 +1,40 @@
+package com.habittracker.security;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+
+import java.time.Duration;
+
+/**
+ * Rate limit tiers and their token bucket limits
+ *
+ * - AUTH: 5 requests per 15 minutes
+ * - API: 100 requests per minute
+ * - HEAVY_OPERATION: 10 requests per minute
+ */
+public enum RateLimitTier {
+
+    AUTH(5, Duration.ofMinutes(15)),
+    API(100, Duration.ofMinutes(1)),
+    HEAVY_OPERATION(10, Duration.ofMinutes(1));
+
+    private final long capacity;
+    private final Duration period;
+    private final BucketConfiguration configuration;
+
+    RateLimitTier(long capacity, Duration period) {
+        this.capacity = capacity;
+        this.period = period;
+        // Refill the whole capacity at once at the end of each period
+        this.configuration = BucketConfiguration.builder()
+                .addLimit(Bandwidth.classic(capacity, Refill.intervally(capacity, period)))
+                .build();
+    }
+
+    public long getCapacity() { return capacity; }
+
+    public Duration getPeriod() { return period; }
+
+    public BucketConfiguration getConfiguration() { return configuration; }
+}
@@ -0,0 +1,126 @@
+package com.habittracker.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.RemoteBucketBuilder;
+import io.github.bucket4j.distributed.proxy.optimization.DelayParameters;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bucket store shared by all nodes through Redis.
+ *
+ * Bucket state is kept in Redis and updated with Bucket4j's compare-and-swap protocol
+ * over a Lettuce connection, so the configured budget holds across the cluster. Tiers
+ * listed under prefetch consume locally and sync with Redis in batches.
+ *
+ * Any Redis error or command timeout falls back to the local buckets, and Redis is
+ * not retried until retry-after has passed, so a slow Redis costs at most one
+ * timeout per retry window instead of one per request.
+ */
+public class RedisRateLimitBucketStore implements RateLimitBucketStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisRateLimitBucketStore.class);
+
+    private final ProxyManager<String> proxyManager;
+    private final RateLimitBucketStore fallback;
+    private final RateLimitProperties.Redis properties;
+    private final Counter fallbackCounter;
+
+    // Bucket proxies hold the prefetch state, so they are reused across requests
+    private final Cache<String, Bucket> proxies;
+
+    private volatile long redisRetryAt = 0;
+
+    public RedisRateLimitBucketStore(ProxyManager<String> proxyManager, RateLimitBucketStore fallback,
+            RateLimitProperties.Redis properties, MeterRegistry meterRegistry) {
+        this.proxyManager = proxyManager;
+        this.fallback = fallback;
+        this.properties = properties;
+        this.proxies = Caffeine.newBuilder()
+                .maximumSize(properties.getProxyCacheMaxSize())
+                .build();
+        this.fallbackCounter = Counter.builder("rate.limit.redis.fallback")
+                .description("Rate limit checks served by local buckets because Redis was unavailable")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ConsumptionProbe tryConsume(RateLimitTier tier, String key) {
+        return withFallback(tier, key, bucket -> bucket.tryConsumeAndReturnRemaining(1),
+                () -> fallback.tryConsume(tier, key));
+    }
+
+    @Override
+    public long getAvailableTokens(RateLimitTier tier, String key) {
+        return withFallback(tier, key, Bucket::getAvailableTokens,
+                () -> fallback.getAvailableTokens(tier, key));
+    }
+
+    @Override
+    public void reset(String key) {
+        for (RateLimitTier tier : RateLimitTier.values()) {
+            String redisKey = redisKey(tier, key);
+            proxies.invalidate(redisKey);
+            try {
+                proxyManager.removeProxy(redisKey);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to reset rate limit bucket {}: {}", redisKey, e.getMessage());
+            }
+        }
+        fallback.reset(key);
+    }
+
+    /**
+     * Drops this node's proxies and local buckets; shared buckets in Redis
+     * expire on their own once they have refilled.
+     */
+    @Override
+    public void resetAll() {
+        proxies.invalidateAll();
+        fallback.resetAll();
+    }
+
+    private <T> T withFallback(RateLimitTier tier, String key, Function<Bucket, T> action,
+            Supplier<T> local) {
+        if (System.currentTimeMillis() < redisRetryAt) {
+            fallbackCounter.increment();
+            return local.get();
+        }
+        try {
+            return action.apply(resolve(tier, key));
+        } catch (RuntimeException e) {
+            redisRetryAt = System.currentTimeMillis() + properties.getRetryAfter().toMillis();
+            fallbackCounter.increment();
+            logger.warn("Redis rate limiting unavailable, using local buckets for {}: {}",
+                    properties.getRetryAfter(), e.getMessage());
+            return local.get();
+        }
+    }
+
+    private Bucket resolve(RateLimitTier tier, String key) {
+        String redisKey = redisKey(tier, key);
+        return proxies.get(redisKey, k -> {
+            RemoteBucketBuilder<String> builder = proxyManager.builder();
+            RateLimitProperties.Prefetch prefetch = properties.getPrefetch();
+            if (prefetch.isEnabled() && prefetch.getTiers().contains(tier)) {
+                builder = builder.withOptimization(Optimizations.delaying(new DelayParameters(
+                        prefetch.getMaxUnsynchronizedTokens(), prefetch.getMaxUnsynchronizedTimeout())));
+            }
+            return builder.build(k, tier.getConfiguration());
+        });
+    }
+
+    private String redisKey(RateLimitTier tier, String key) {
+        return properties.getKeyPrefix() + tier.name().toLowerCase() + ":" + key;
+    }
+}
@@ -1,19 +1,31 @@
 package com.habittracker.service;
 
+import com.habittracker.dto.CursorPage;
+import com.habittracker.dto.NotificationTemplate;
 import com.habittracker.model.ActivityFeed;
 import com.habittracker.model.ActivityType;
 import com.habittracker.model.User;
 import com.habittracker.repository.ActivityFeedRepository;
 import com.habittracker.repository.UserRepository;
+import com.habittracker.util.PageCursor;
 import com.habittracker.websocket.NotificationWebSocketHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -37,18 +49,25 @@ public class ActivityFeedService {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private FeedTimelineService feedTimelineService;
+
+    @Autowired
+    private FriendGraph friendGraph;
+
+    @Autowired
+    private ColdArchive coldArchive;
+
     /**
      * Create a new activity
      */
     public ActivityFeed createActivity(User user, ActivityType activityType, String description) {
         ActivityFeed activity = new ActivityFeed(user, activityType, description);
         ActivityFeed savedActivity = activityFeedRepository.save(activity);
+        feedTimelineService.append(savedActivity);
 
         // Send real-time update to friends via WebSocket
-        List<User> friends = userRepository.findFriendsByUserId(user.getId());
-        for (User friend : friends) {
-            webSocketHandler.sendFriendActivity(friend.getId(), savedActivity);
-        }
+        webSocketHandler.sendFriendActivity(friendGraph.getFriendIds(user.getId()), savedActivity);
 
         return savedActivity;
     }
@@ -57,19 +76,40 @@ public class ActivityFeedService {
      * Create activity for habit completion
      */
     public ActivityFeed createHabitCompletionActivity(User user, String habitName) {
+        ActivityFeed savedActivity = recordHabitCompletionActivity(user, habitName);
+        notifyFriendsOfHabitCompletion(savedActivity);
+        pushActivityToFriends(savedActivity);
+        return savedActivity;
+    }
+
+    /**
+     * Persist a habit completion activity without any friend fan-out
+     * (completion pipeline: ACTIVITY_FEED stage)
+     */
+    public ActivityFeed recordHabitCompletionActivity(User user, String habitName) {
         String description = String.format("%s completed '%s'", user.getUsername(), habitName);
         ActivityFeed activity = new ActivityFeed(user, ActivityType.HABIT_COMPLETED, habitName, description);
         ActivityFeed savedActivity = activityFeedRepository.save(activity);
+        feedTimelineService.append(savedActivity);
+        return savedActivity;
+    }
 
-        // Notify friends via WebSocket and push notifications
-        List<User> friends = userRepository.findFriendsByUserId(user.getId());
-        for (User friend : friends) {
-            webSocketHandler.sendFriendActivity(friend.getId(), savedActivity);
-            // Send social proof notification
-            notificationService.createFriendCompletedHabitNotification(friend, user.getUsername(), habitName);
-        }
+    /**
+     * Send social proof notifications to the author's friends
+     * (completion pipeline: NOTIFICATIONS stage)
+     */
+    public void notifyFriendsOfHabitCompletion(ActivityFeed activity) {
+        User user = activity.getUser();
+        notificationService.queueFriendCompletedHabitNotifications(friendGraph.getFriendIds(user.getId()),
+                user.getUsername(), activity.getHabitName());
+    }
 
-        return savedActivity;
+    /**
+     * Push an activity to the author's friends over WebSocket
+     * (completion pipeline: REALTIME stage)
+     */
+    public void pushActivityToFriends(ActivityFeed activity) {
+        webSocketHandler.sendFriendActivity(friendGraph.getFriendIds(activity.getUser().getId()), activity);
     }
 
     /**
@@ -83,14 +123,14 @@ public class ActivityFeedService {
         activity.setStreakCount(streakCount);
 
         ActivityFeed savedActivity = activityFeedRepository.save(activity);
+        feedTimelineService.append(savedActivity);
 
         // Notify friends via WebSocket and push notifications
-        List<User> friends = userRepository.findFriendsByUserId(user.getId());
-        for (User friend : friends) {
-            webSocketHandler.sendFriendActivity(friend.getId(), savedActivity);
-            // Send streak milestone notification
-            notificationService.createFriendStreakMilestoneNotification(
-                    friend, user.getUsername(), habitName, streakCount);
+        List<Long> friendIds = friendGraph.getFriendIds(user.getId());
+        webSocketHandler.sendFriendActivity(friendIds, savedActivity);
+        if (!friendIds.isEmpty()) {
+            notificationService.createNotifications(friendIds,
+                    NotificationTemplate.friendStreakMilestone(user.getUsername(), habitName, streakCount));
         }
 
         return savedActivity;
@@ -98,13 +138,21 @@ public class ActivityFeedService {
 
     /**
      * Get friend activity feed (paginated)
+     *
+     * Pages within the cached window are served from the reader's Redis timeline;
+     * deeper pages, custom sorts and Redis outages use the SQL query.
      */
     public Page<ActivityFeed> getFriendActivityFeed(Long userId, Pageable pageable) {
-        List<User> friends = userRepository.findFriendsByUserId(userId);
-        List<Long> friendIds = friends.stream()
-                .map(User::getId)
-                .collect(Collectors.toList());
+        if (pageable.getSort().isUnsorted() && feedTimelineService.covers(pageable)) {
+            Optional<List<Long>> activityIds = feedTimelineService.readPage(userId, pageable.getOffset(),
+                    pageable.getPageSize());
+            if (activityIds.isPresent()) {
+                return PageableExecutionUtils.getPage(loadInOrder(activityIds.get()), pageable,
+                        () -> countTimeline(userId));
+            }
+        }
 
+        List<Long> friendIds = friendGraph.getFriendIds(userId);
         if (friendIds.isEmpty()) {
             return Page.empty(pageable);
         }
@@ -112,6 +160,85 @@ public class ActivityFeedService {
         return activityFeedRepository.findByFriendIdsOrderByCreatedAtDesc(friendIds, pageable);
     }
 
+    private List<ActivityFeed> loadInOrder(List<Long> activityIds) {
+        if (activityIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, ActivityFeed> byId = activityFeedRepository.findAllById(activityIds).stream()
+                .collect(Collectors.toMap(ActivityFeed::getId, Function.identity()));
+        // Activities deleted since they were fanned out are skipped
+        return activityIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private long countTimeline(Long userId) {
+        // Capped or merged timelines can't be counted from Redis alone
+        return feedTimelineService.cachedTotal(userId).orElseGet(() ->
+                activityFeedRepository.countByFriendIds(friendGraph.getFriendIds(userId)));
+    }
+
+    /**
+     * Get friend activity feed (keyset pagination, no total count)
+     */
+    public CursorPage<ActivityFeed> getFriendActivityFeed(Long userId, String cursor, int limit) {
+        PageCursor position = PageCursor.decode(cursor);
+        List<Long> friendIds = friendGraph.getFriendIds(userId);
+        if (friendIds.isEmpty()) {
+            return new CursorPage<>(Collections.emptyList(), null, false);
+        }
+
+        Slice<ActivityFeed> slice = activityFeedRepository.findFriendFeedAfter(friendIds,
+                position.getTimestamp(), position.getId(), PageCursor.limit(limit));
+        return CursorPage.of(slice, activity -> new PageCursor(activity.getCreatedAt(), activity.getId()));
+    }
+
+    /**
+     * Get user's own activity feed (keyset pagination, no total count); once the
+     * table runs out the pages continue into the cold archive
+     */
+    public CursorPage<ActivityFeed> getUserActivityFeed(Long userId, String cursor, int limit) {
+        PageCursor position = PageCursor.decode(cursor);
+        Pageable pageable = PageCursor.limit(limit);
+        Slice<ActivityFeed> slice = activityFeedRepository.findUserFeedAfter(userId,
+                position.getTimestamp(), position.getId(), pageable);
+        if (!slice.hasNext()) {
+            slice = withArchived(slice, userId, position, pageable);
+        }
+        return CursorPage.of(slice, activity -> new PageCursor(activity.getCreatedAt(), activity.getId()));
+    }
+
+    private Slice<ActivityFeed> withArchived(Slice<ActivityFeed> slice, Long userId, PageCursor position,
+            Pageable pageable) {
+        List<ActivityFeed> items = new ArrayList<>(slice.getContent());
+        PageCursor from = items.isEmpty() ? position
+                : new PageCursor(items.get(items.size() - 1).getCreatedAt(), items.get(items.size() - 1).getId());
+        int remaining = pageable.getPageSize() - items.size();
+        // One extra row tells whether another page follows
+        List<Map<String, Object>> archived = coldArchive.readUserHistory(RetentionService.ACTIVITY_FEED, userId,
+                from.getTimestamp(), from.getId(), remaining + 1);
+        if (archived.isEmpty()) {
+            return slice;
+        }
+        for (Map<String, Object> row : archived.subList(0, Math.min(remaining, archived.size()))) {
+            items.add(toActivity(row));
+        }
+        return new SliceImpl<>(items, pageable, archived.size() > remaining);
+    }
+
+    private static ActivityFeed toActivity(Map<String, Object> row) {
+        User user = new User();
+        user.setId(((Number) row.get("user_id")).longValue());
+        ActivityFeed activity = new ActivityFeed(user, ActivityType.valueOf((String) row.get("activity_type")),
+                (String) row.get("habit_name"), (String) row.get("description"));
+        activity.setId(((Number) row.get("id")).longValue());
+        Object streakCount = row.get("streak_count");
+        activity.setStreakCount(streakCount == null ? null : ((Number) streakCount).intValue());
+        activity.setCreatedAt(ColdArchive.dateTime(row.get("created_at")));
+        return activity;
+    }
+
     /**
      * Get user's own activity feed
      */
@@ -123,10 +250,7 @@ public class ActivityFeedService {
      * Get friend activity feed filtered by type
      */
     public Page<ActivityFeed> getFriendActivityFeedByType(Long userId, ActivityType activityType, Pageable pageable) {
-        List<User> friends = userRepository.findFriendsByUserId(userId);
-        List<Long> friendIds = friends.stream()
-                .map(User::getId)
-                .collect(Collectors.toList());
+        List<Long> friendIds = friendGraph.getFriendIds(userId);
 
         if (friendIds.isEmpty()) {
             return Page.empty(pageable);
@@ -144,10 +268,7 @@ public class ActivityFeedService {
             LocalDateTime startDate,
             LocalDateTime endDate,
             Pageable pageable) {
-        List<User> friends = userRepository.findFriendsByUserId(userId);
-        List<Long> friendIds = friends.stream()
-                .map(User::getId)
-                .collect(Collectors.toList());
+        List<Long> friendIds = friendGraph.getFriendIds(userId);
 
         if (friendIds.isEmpty()) {
             return Page.empty(pageable);
@@ -161,10 +282,7 @@ public class ActivityFeedService {
      * Get count of friend activities today
      */
     public Long getFriendActivitiesCountToday(Long userId) {
-        List<User> friends = userRepository.findFriendsByUserId(userId);
-        List<Long> friendIds = friends.stream()
-                .map(User::getId)
-                .collect(Collectors.toList());
+        List<Long> friendIds = friendGraph.getFriendIds(userId);
 
         if (friendIds.isEmpty()) {
             return 0L;
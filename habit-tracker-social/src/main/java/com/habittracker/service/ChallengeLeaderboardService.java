@@ -0,0 +1,296 @@
+package com.habittracker.service;
+
+import com.habittracker.dto.ChallengeLeaderboardEntry;
+import com.habittracker.model.ChallengeParticipation;
+import com.habittracker.model.User;
+import com.habittracker.repository.ChallengeParticipationRepository;
+import com.habittracker.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Challenge Leaderboard Service
+ *
+ * Live challenge leaderboards as Redis sorted sets, challenge:leaderboard:{challengeId},
+ * with user ids as members scored by completion count. A completion is one atomic
+ * ZINCRBY after commit instead of a rewrite of every participant's rank; ranks are
+ * derived at read time (1 + members with a higher count, so ties share a rank).
+ *
+ * Leaderboards are rebuilt from challenge_participation on first read and expire
+ * after ttl-minutes, which also bounds drift from a completion that raced a rebuild.
+ * Increments only apply to a leaderboard that is already loaded. The stored rank
+ * column is materialised periodically for challenges that changed, and at the end
+ * of a challenge. Redis failures fall back to SQL.
+ *
+ * Rank, top-N and around-me reads all come from the same sorted set, so every node
+ * answers them from the same state; a rank is ZSCORE plus ZCOUNT, O(log n).
+ */
+@Service
+public class ChallengeLeaderboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChallengeLeaderboardService.class);
+
+    static final String KEY_PREFIX = "challenge:leaderboard:";
+
+    // Keeps a loaded leaderboard without participants from looking cold; scored below everyone
+    static final String LOADED_MARKER = "-";
+    private static final double MARKER_SCORE = -1;
+
+    // KEYS = leaderboard, ARGV = delta, user id, ttl seconds
+    private static final RedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end\n" +
+            "redis.call('ZINCRBY', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[3])\n" +
+            "return 1", Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ChallengeParticipationRepository participationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.challenges.leaderboard.ttl-minutes:60}")
+    private long ttlMinutes = 60;
+
+    private final Set<Long> changedChallenges = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Register a new participant once the surrounding transaction commits
+     */
+    public void recordJoin(Long challengeId, User user) {
+        recordProgress(challengeId, user.getId(), 0);
+    }
+
+    /**
+     * Apply a change to a participant's completion count once the surrounding
+     * transaction commits (delta 0 registers a new participant)
+     */
+    public void recordProgress(Long challengeId, Long userId, int delta) {
+        afterCommit(() -> {
+            changedChallenges.add(challengeId);
+            try {
+                redisTemplate.execute(INCREMENT_SCRIPT, Collections.singletonList(key(challengeId)),
+                        String.valueOf(delta), String.valueOf(userId), String.valueOf(ttl().getSeconds()));
+            } catch (RuntimeException e) {
+                logger.warn("Failed to update leaderboard of challenge {}: {}", challengeId, e.getMessage());
+                evict(challengeId);
+            }
+        });
+    }
+
+    /**
+     * Drop a participant once the surrounding transaction commits
+     */
+    public void recordLeave(Long challengeId, Long userId) {
+        afterCommit(() -> {
+            changedChallenges.add(challengeId);
+            try {
+                redisTemplate.opsForZSet().remove(key(challengeId), String.valueOf(userId));
+            } catch (RuntimeException e) {
+                logger.warn("Failed to update leaderboard of challenge {}: {}", challengeId, e.getMessage());
+                evict(challengeId);
+            }
+        });
+    }
+
+    /**
+     * Rank of a participant, or null if they are not in the challenge
+     */
+    public Integer getRank(Long challengeId, Long userId) {
+        try {
+            ensureLoaded(challengeId);
+            Double score = redisTemplate.opsForZSet().score(key(challengeId), String.valueOf(userId));
+            return score == null ? null : rankOfScore(challengeId, score);
+        } catch (RuntimeException e) {
+            logger.warn("Leaderboard read failed for challenge {}, using SQL: {}", challengeId, e.getMessage());
+            return participationRepository.findUserRankInChallenge(challengeId, userId);
+        }
+    }
+
+    /**
+     * Top participants by completion count
+     */
+    public List<ChallengeLeaderboardEntry> getTop(Long challengeId, int limit) {
+        try {
+            ensureLoaded(challengeId);
+            return toEntries(challengeId, 0,
+                    redisTemplate.opsForZSet().reverseRangeWithScores(key(challengeId), 0, limit - 1));
+        } catch (RuntimeException e) {
+            logger.warn("Leaderboard read failed for challenge {}, using SQL: {}", challengeId, e.getMessage());
+            return topFromDatabase(challengeId, limit);
+        }
+    }
+
+    /**
+     * Participants ranked just above and below a user, the user included
+     */
+    public List<ChallengeLeaderboardEntry> getAround(Long challengeId, Long userId, int radius) {
+        try {
+            ensureLoaded(challengeId);
+            Long position = redisTemplate.opsForZSet().reverseRank(key(challengeId), String.valueOf(userId));
+            if (position == null) {
+                return Collections.emptyList();
+            }
+            long from = Math.max(0, position - radius);
+            return toEntries(challengeId, from,
+                    redisTemplate.opsForZSet().reverseRangeWithScores(key(challengeId), from, position + radius));
+        } catch (RuntimeException e) {
+            logger.warn("Leaderboard read failed for challenge {}: {}", challengeId, e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Write ranks of challenges that changed since the last run to the rank column
+     */
+    @Scheduled(fixedDelayString = "${app.challenges.rank-materialize-interval-ms:60000}")
+    public void materializeChangedRanks() {
+        for (Long challengeId : new ArrayList<>(changedChallenges)) {
+            changedChallenges.remove(challengeId);
+            try {
+                materializeRanks(challengeId);
+            } catch (RuntimeException e) {
+                changedChallenges.add(challengeId);
+                logger.warn("Failed to materialise ranks of challenge {}: {}", challengeId, e.getMessage());
+            }
+        }
+    }
+
+    public void materializeRanks(Long challengeId) {
+        transactionTemplate.executeWithoutResult(status -> participationRepository.applyRanks(challengeId));
+    }
+
+    public void evict(Long challengeId) {
+        try {
+            redisTemplate.delete(key(challengeId));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to drop leaderboard of challenge {}: {}", challengeId, e.getMessage());
+        }
+    }
+
+    private void ensureLoaded(Long challengeId) {
+        String key = key(challengeId);
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+            return;
+        }
+        Set<TypedTuple<String>> members = new HashSet<>();
+        members.add(new DefaultTypedTuple<>(LOADED_MARKER, MARKER_SCORE));
+        for (Object[] row : participationRepository.findCompletionCountsByChallengeId(challengeId)) {
+            members.add(new DefaultTypedTuple<>(String.valueOf(row[0]), ((Number) row[1]).doubleValue()));
+        }
+        redisTemplate.opsForZSet().add(key, members);
+        redisTemplate.expire(key, ttl());
+    }
+
+    private int rankOfScore(Long challengeId, double score) {
+        Long higher = redisTemplate.opsForZSet().count(key(challengeId), Math.nextUp(score), Double.POSITIVE_INFINITY);
+        return (higher == null ? 0 : higher.intValue()) + 1;
+    }
+
+    /**
+     * Rank a window of the leaderboard that starts at position from. The first score
+     * may be shared with entries above the window, so its rank is counted; after
+     * that a new score ranks at its position.
+     */
+    private List<ChallengeLeaderboardEntry> toEntries(Long challengeId, long from, Set<TypedTuple<String>> tuples) {
+        if (tuples == null || tuples.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<TypedTuple<String>> ranked = tuples.stream()
+                .filter(tuple -> !LOADED_MARKER.equals(tuple.getValue()))
+                .collect(Collectors.toList());
+        if (ranked.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, String> usernames = usernames(ranked.stream()
+                .map(tuple -> Long.valueOf(tuple.getValue()))
+                .collect(Collectors.toList()));
+
+        List<ChallengeLeaderboardEntry> entries = new ArrayList<>(ranked.size());
+        int rank = rankOfScore(challengeId, ranked.get(0).getScore());
+        double previousScore = ranked.get(0).getScore();
+        for (int i = 0; i < ranked.size(); i++) {
+            TypedTuple<String> tuple = ranked.get(i);
+            if (tuple.getScore() != previousScore) {
+                rank = (int) from + i + 1;
+                previousScore = tuple.getScore();
+            }
+            Long userId = Long.valueOf(tuple.getValue());
+            entries.add(new ChallengeLeaderboardEntry(userId, usernames.get(userId), tuple.getScore().intValue(),
+                    rank));
+        }
+        return entries;
+    }
+
+    private List<ChallengeLeaderboardEntry> topFromDatabase(Long challengeId, int limit) {
+        List<ChallengeParticipation> rows = participationRepository
+                .findLeaderboardByChallengeId(challengeId, PageRequest.of(0, limit)).getContent();
+        List<ChallengeLeaderboardEntry> entries = new ArrayList<>(rows.size());
+        int rank = 1;
+        for (int i = 0; i < rows.size(); i++) {
+            ChallengeParticipation row = rows.get(i);
+            if (i > 0 && !row.getCompletionCount().equals(rows.get(i - 1).getCompletionCount())) {
+                rank = i + 1;
+            }
+            entries.add(new ChallengeLeaderboardEntry(row.getUser().getId(), row.getUser().getUsername(),
+                    row.getCompletionCount(), rank));
+        }
+        return entries;
+    }
+
+    private Map<Long, String> usernames(List<Long> userIds) {
+        return userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, User::getUsername));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private Duration ttl() {
+        return Duration.ofMinutes(ttlMinutes);
+    }
+
+    static String key(Long challengeId) {
+        return KEY_PREFIX + challengeId;
+    }
+}
@@ -0,0 +1,71 @@
+package com.habittracker.service;
+
+import com.habittracker.dto.TeamLeaderboardEntry;
+import com.habittracker.model.ChallengeTeamTotal;
+import com.habittracker.repository.ChallengeTeamTotalRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Challenge Team Leaderboard Service
+ *
+ * Keeps per-team running totals (challenge_team_totals) in step with joins, leaves
+ * and completions, so the team leaderboard reads one row per team instead of
+ * aggregating every participant. The leaderboard is cached ("teamLeaderboards");
+ * membership changes evict it, completions are picked up when the short TTL expires.
+ */
+@Service
+@Transactional
+public class ChallengeTeamLeaderboardService {
+
+    @Autowired
+    private ChallengeTeamTotalRepository teamTotalRepository;
+
+    @CacheEvict(value = "teamLeaderboards", key = "#challengeId")
+    public void onMemberJoined(Long challengeId, String teamName) {
+        if (teamName != null) {
+            teamTotalRepository.addMember(challengeId, teamName);
+        }
+    }
+
+    @CacheEvict(value = "teamLeaderboards", key = "#challengeId")
+    public void onMemberLeft(Long challengeId, String teamName, int completions) {
+        if (teamName != null) {
+            teamTotalRepository.removeMember(challengeId, teamName, completions);
+        }
+    }
+
+    public void onCompletion(Long challengeId, Long userId) {
+        teamTotalRepository.incrementForParticipant(challengeId, userId);
+    }
+
+    /**
+     * Teams ranked by completion total
+     */
+    @Cacheable(value = "teamLeaderboards", key = "#challengeId")
+    @Transactional(readOnly = true)
+    public List<TeamLeaderboardEntry> getTeamLeaderboard(Long challengeId) {
+        List<ChallengeTeamTotal> totals = teamTotalRepository.findLeaderboardByChallengeId(challengeId);
+        List<TeamLeaderboardEntry> entries = new ArrayList<>(totals.size());
+        int rank = 0;
+        for (int i = 0; i < totals.size(); i++) {
+            ChallengeTeamTotal total = totals.get(i);
+            if (i == 0 || !total.getTotalCompletions().equals(totals.get(i - 1).getTotalCompletions())) {
+                rank = i + 1;
+            }
+            entries.add(new TeamLeaderboardEntry(total.getTeamName(), total.getTotalCompletions(),
+                    total.getMemberCount(), rank));
+        }
+        return entries;
+    }
+
+    @CacheEvict(value = "teamLeaderboards", key = "#challengeId")
+    public void evict(Long challengeId) {
+    }
+}
@@ -0,0 +1,363 @@
+package com.habittracker.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold Archive
+ *
+ * Compressed files holding the partitions retention has dropped:
+ * {archive-dir}/{table}/{yyyy-MM}.jsonl.gz, one JSON object per row. Rows are
+ * grouped by user and each user's rows are a separate gzip member, newest first;
+ * {yyyy-MM}.idx maps user id to the member's offset and length, so one user's
+ * history is read by decompressing only their member. The .gz file as a whole is
+ * still a valid gzip stream (zcat reads all of it).
+ *
+ * A month is visible to readers once its .idx file exists; both files are written
+ * under temporary names and moved into place on commit.
+ *
+ * Whichever node runs retention writes the archive, but every node serves reads
+ * from it, so archive-dir must be one volume mounted by all nodes (NFS, EFS and the
+ * like). This is enforced at startup: the first node writes a random id to
+ * {archive-dir}/.archive-id and registers it in Redis, and a node whose archive-dir
+ * holds a different id, or none, refuses to start.
+ */
+@Component
+public class ColdArchive {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColdArchive.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final TypeReference<LinkedHashMap<String, Object>> ROW_TYPE = new TypeReference<>() {
+    };
+
+    private static final String DATA_SUFFIX = ".jsonl.gz";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    static final String ARCHIVE_ID_FILE = ".archive-id";
+    static final String ARCHIVE_ID_KEY = "retention:archive-id";
+
+    private final Path archiveDir;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    // Per-month user index, keyed by index file
+    private final Cache<Path, Map<Long, long[]>> indexes = Caffeine.newBuilder()
+            .maximumSize(64)
+            .build();
+
+    public ColdArchive(@Value("${app.retention.archive-dir:./archive}") String archiveDir) {
+        this.archiveDir = Paths.get(archiveDir);
+    }
+
+    /**
+     * Refuse to start on a node whose archive-dir is not the volume the other nodes use
+     */
+    @PostConstruct
+    void verifySharedVolume() throws IOException {
+        String registered;
+        try {
+            registered = redisTemplate.opsForValue().get(ARCHIVE_ID_KEY);
+        } catch (RuntimeException e) {
+            logger.warn("Could not verify that archive {} is shared, Redis unavailable: {}", archiveDir,
+                    e.getMessage());
+            return;
+        }
+        String local = readArchiveId();
+        if (registered == null) {
+            if (local == null) {
+                local = createArchiveId();
+            }
+            registered = Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(ARCHIVE_ID_KEY, local))
+                    ? local : redisTemplate.opsForValue().get(ARCHIVE_ID_KEY);
+        }
+        if (!registered.equals(local)) {
+            throw new IllegalStateException("app.retention.archive-dir " + archiveDir.toAbsolutePath()
+                    + " is not the archive volume shared by the other nodes (expected " + ARCHIVE_ID_FILE
+                    + " " + registered + ", found " + local + "); mount the shared volume there");
+        }
+    }
+
+    private String readArchiveId() throws IOException {
+        Path idFile = archiveDir.resolve(ARCHIVE_ID_FILE);
+        return Files.exists(idFile) ? Files.readString(idFile, StandardCharsets.UTF_8).trim() : null;
+    }
+
+    private String createArchiveId() throws IOException {
+        Files.createDirectories(archiveDir);
+        String id = UUID.randomUUID().toString();
+        try {
+            Files.writeString(archiveDir.resolve(ARCHIVE_ID_FILE), id, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE_NEW);
+            return id;
+        } catch (FileAlreadyExistsException e) {
+            // Another node on the same volume got there first
+            return readArchiveId();
+        }
+    }
+
+    /**
+     * Start writing a month of a table; rows must be appended grouped by user
+     */
+    public ArchiveWriter openWriter(String table, YearMonth month) throws IOException {
+        Path dir = archiveDir.resolve(table);
+        Files.createDirectories(dir);
+        return new ArchiveWriter(dir.resolve(month + DATA_SUFFIX), dir.resolve(month + INDEX_SUFFIX));
+    }
+
+    /**
+     * Up to limit archived rows of one user strictly older than the (createdAt, id)
+     * position, newest first
+     */
+    public List<Map<String, Object>> readUserHistory(String table, Long userId, LocalDateTime beforeCreatedAt,
+            Long beforeId, int limit) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (YearMonth month : archivedMonths(table)) {
+            if (rows.size() >= limit) {
+                break;
+            }
+            if (month.atDay(1).atStartOfDay().isAfter(beforeCreatedAt)) {
+                continue;
+            }
+            for (Map<String, Object> row : readMember(table, month, userId)) {
+                LocalDateTime createdAt = dateTime(row.get("created_at"));
+                long id = ((Number) row.get("id")).longValue();
+                boolean older = createdAt.isBefore(beforeCreatedAt)
+                        || (createdAt.isEqual(beforeCreatedAt) && id < beforeId);
+                if (older) {
+                    rows.add(row);
+                    if (rows.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Archived months of a table, newest first
+     */
+    public List<YearMonth> archivedMonths(String table) {
+        Path dir = archiveDir.resolve(table);
+        if (!Files.isDirectory(dir)) {
+            return Collections.emptyList();
+        }
+        List<YearMonth> months = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(INDEX_SUFFIX))
+                    .forEach(name -> months.add(YearMonth.parse(name.substring(0, name.length() - INDEX_SUFFIX.length()))));
+        } catch (IOException e) {
+            logger.warn("Failed to list archive {}: {}", dir, e.getMessage());
+        }
+        months.sort(Collections.reverseOrder());
+        return months;
+    }
+
+    public static LocalDateTime dateTime(Object value) {
+        return value == null ? null : LocalDateTime.parse((String) value);
+    }
+
+    private List<Map<String, Object>> readMember(String table, YearMonth month, Long userId) {
+        Path dir = archiveDir.resolve(table);
+        long[] member = indexes.get(dir.resolve(month + INDEX_SUFFIX), ColdArchive::loadIndex).get(userId);
+        if (member == null) {
+            return Collections.emptyList();
+        }
+        byte[] compressed = new byte[(int) member[1]];
+        try (RandomAccessFile file = new RandomAccessFile(dir.resolve(month + DATA_SUFFIX).toFile(), "r")) {
+            file.seek(member[0]);
+            file.readFully(compressed);
+            List<Map<String, Object>> rows = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(new ByteArrayInputStream(compressed)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    rows.add(objectMapper.readValue(line, ROW_TYPE));
+                }
+            }
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archived " + table + " for " + month, e);
+        }
+    }
+
+    private static Map<Long, long[]> loadIndex(Path indexFile) {
+        Map<Long, long[]> index = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(" ");
+                index.put(Long.valueOf(fields[0]), new long[] { Long.parseLong(fields[1]), Long.parseLong(fields[2]) });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archive index " + indexFile, e);
+        }
+        return index;
+    }
+
+    /**
+     * Writes one month of a table; nothing becomes visible until commit()
+     */
+    public class ArchiveWriter implements Closeable {
+
+        private final Path dataFile;
+        private final Path indexFile;
+        private final Path dataTemp;
+        private final Path indexTemp;
+        private final CountingOutputStream out;
+        private final Writer index;
+
+        private Long currentUserId;
+        private long memberStart;
+        private GZIPOutputStream member;
+        private long rowCount;
+        private boolean committed;
+
+        private ArchiveWriter(Path dataFile, Path indexFile) throws IOException {
+            this.dataFile = dataFile;
+            this.indexFile = indexFile;
+            this.dataTemp = dataFile.resolveSibling(dataFile.getFileName() + TEMP_SUFFIX);
+            this.indexTemp = indexFile.resolveSibling(indexFile.getFileName() + TEMP_SUFFIX);
+            this.out = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(dataTemp)));
+            this.index = Files.newBufferedWriter(indexTemp, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Append a row (column name -> JDBC value); timestamps are stored as ISO strings
+         */
+        public void append(Long userId, Map<String, Object> row) throws IOException {
+            if (!userId.equals(currentUserId)) {
+                finishMember();
+                currentUserId = userId;
+                memberStart = out.count;
+                member = new GZIPOutputStream(new MemberOutputStream(out));
+            }
+            Map<String, Object> values = new LinkedHashMap<>();
+            row.forEach((column, value) -> values.put(column, value instanceof Timestamp timestamp
+                    ? timestamp.toLocalDateTime().toString()
+                    : value instanceof LocalDateTime dateTime ? dateTime.toString() : value));
+            member.write(objectMapper.writeValueAsBytes(values));
+            member.write('\n');
+            rowCount++;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        public void commit() throws IOException {
+            finishMember();
+            out.close();
+            index.close();
+            Files.move(dataTemp, dataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(indexTemp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            indexes.invalidate(indexFile);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                out.close();
+                index.close();
+                Files.deleteIfExists(dataTemp);
+                Files.deleteIfExists(indexTemp);
+            }
+        }
+
+        private void finishMember() throws IOException {
+            if (member == null) {
+                return;
+            }
+            member.finish();
+            member.close();
+            index.write(currentUserId + " " + memberStart + " " + (out.count - memberStart) + "\n");
+            member = null;
+        }
+    }
+
+    /**
+     * Passes a gzip member's bytes through without closing the file when the member ends
+     */
+    private static class MemberOutputStream extends FilterOutputStream {
+
+        MemberOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
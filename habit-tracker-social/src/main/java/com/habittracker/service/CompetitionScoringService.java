@@ -0,0 +1,196 @@
+package com.habittracker.service;
+
+import com.habittracker.model.Competition;
+import com.habittracker.model.CompetitionType;
+import com.habittracker.model.Streak;
+import com.habittracker.repository.CompetitionParticipantRepository;
+import com.habittracker.repository.CompetitionRepository;
+import com.habittracker.repository.HabitCompletionRepository;
+import com.habittracker.repository.StreakRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Competition Scoring Service
+ *
+ * Scores competitions with set-based queries instead of per-participant lookups:
+ * - STREAK: the participant's current streak on the competition habit
+ * - COMPLETION_COUNT: completions of the habit inside the competition window
+ * - CONSISTENCY: % of elapsed competition days with at least one completion
+ * CUSTOM competitions are scored externally; only their ranks are refreshed.
+ *
+ * A full refresh writes every score and rank in one UPDATE. Completions update
+ * just the completing participant's score; their competitions are marked dirty once
+ * the score has committed and re-ranked in one statement each by the periodic rank
+ * flush. Dirty marks live in memory, so every active competition is re-ranked once
+ * at startup to cover marks lost with the previous process.
+ */
+@Service
+public class CompetitionScoringService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompetitionScoringService.class);
+
+    @Autowired
+    private CompetitionRepository competitionRepository;
+
+    @Autowired
+    private CompetitionParticipantRepository participantRepository;
+
+    @Autowired
+    private HabitCompletionRepository completionRepository;
+
+    @Autowired
+    private StreakRepository streakRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final Set<Long> dirtyCompetitions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Recompute every participant's score and rank
+     */
+    @Transactional
+    public void refreshCompetition(Long competitionId) {
+        competitionRepository.findById(competitionId).ifPresent(competition -> {
+            applyScores(competition, LocalDateTime.now());
+            dirtyCompetitions.remove(competitionId);
+        });
+    }
+
+    /**
+     * Update the completing user's score in every active competition on the habit
+     * (completion pipeline: COMPETITIONS stage)
+     */
+    @Transactional
+    public void onHabitCompleted(Long habitId, Long userId, LocalDateTime completionDate) {
+        for (Competition competition : competitionRepository.findActiveCompetitionsByHabitId(habitId)) {
+            if (competition.getType() == CompetitionType.CUSTOM
+                    || completionDate.isBefore(competition.getStartDate())
+                    || completionDate.isAfter(competition.getEndDate())) {
+                continue;
+            }
+            int score = scoreFor(competition, habitId, userId, LocalDateTime.now());
+            if (participantRepository.updateScore(competition.getId(), userId, score) > 0) {
+                Long competitionId = competition.getId();
+                // A flush before commit would rank the old scores and clear the mark
+                afterCommit(() -> dirtyCompetitions.add(competitionId));
+            }
+        }
+    }
+
+    /**
+     * Re-rank every active competition on the next flush
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void markActiveCompetitionsDirty() {
+        try {
+            for (Competition competition : competitionRepository.findActiveCompetitionsByDate(LocalDateTime.now())) {
+                dirtyCompetitions.add(competition.getId());
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to load active competitions for re-ranking: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Re-rank competitions whose scores changed since the last flush
+     */
+    @Scheduled(fixedDelayString = "${app.competitions.rank-flush-interval-ms:10000}")
+    public void flushRanks() {
+        List<Long> competitionIds = new ArrayList<>(dirtyCompetitions);
+        for (Long competitionId : competitionIds) {
+            dirtyCompetitions.remove(competitionId);
+            try {
+                transactionTemplate.executeWithoutResult(status -> participantRepository.applyRanks(competitionId));
+            } catch (RuntimeException e) {
+                dirtyCompetitions.add(competitionId);
+                logger.warn("Failed to re-rank competition {}: {}", competitionId, e.getMessage());
+            }
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void applyScores(Competition competition, LocalDateTime now) {
+        Long competitionId = competition.getId();
+        Long habitId = competition.getHabit().getId();
+        LocalDateTime windowEnd = windowEnd(competition, now);
+        switch (competition.getType()) {
+            case STREAK:
+                participantRepository.applyStreakScores(competitionId, habitId);
+                break;
+            case COMPLETION_COUNT:
+                participantRepository.applyCompletionCountScores(competitionId, habitId,
+                        competition.getStartDate(), windowEnd);
+                break;
+            case CONSISTENCY:
+                participantRepository.applyConsistencyScores(competitionId, habitId,
+                        competition.getStartDate(), windowEnd, elapsedDays(competition, now));
+                break;
+            default:
+                participantRepository.applyRanks(competitionId);
+                break;
+        }
+    }
+
+    int scoreFor(Competition competition, Long habitId, Long userId, LocalDateTime now) {
+        LocalDateTime windowEnd = windowEnd(competition, now);
+        switch (competition.getType()) {
+            case STREAK:
+                return streakRepository.findByHabitIdAndUserId(habitId, userId)
+                        .map(Streak::getCurrentStreak)
+                        .orElse(0);
+            case COMPLETION_COUNT:
+                return completionRepository.countCompletionsByHabitIdAndDateRange(habitId,
+                        competition.getStartDate(), windowEnd).intValue();
+            case CONSISTENCY:
+                long activeDays = completionRepository.countActiveDaysByHabitIdAndDateRange(habitId,
+                        competition.getStartDate(), windowEnd);
+                return (int) Math.min(100, activeDays * 100 / elapsedDays(competition, now));
+            default:
+                return 0;
+        }
+    }
+
+    private static LocalDateTime windowEnd(Competition competition, LocalDateTime now) {
+        return now.isBefore(competition.getEndDate()) ? now : competition.getEndDate();
+    }
+
+    /**
+     * Calendar days the competition has been running, counting the current day
+     */
+    static long elapsedDays(Competition competition, LocalDateTime now) {
+        LocalDateTime end = windowEnd(competition, now);
+        long days = Duration.between(competition.getStartDate().toLocalDate().atStartOfDay(),
+                end.toLocalDate().atStartOfDay()).toDays() + 1;
+        return Math.max(1, days);
+    }
+}
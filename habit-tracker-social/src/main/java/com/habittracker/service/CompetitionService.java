@@ -4,14 +4,18 @@ import com.habittracker.model.*;
 import com.habittracker.repository.CompetitionRepository;
 import com.habittracker.repository.CompetitionParticipantRepository;
 import com.habittracker.repository.HabitRepository;
-import com.habittracker.repository.StreakRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -27,7 +31,7 @@ public class CompetitionService {
     private HabitRepository habitRepository;
     
     @Autowired
-    private StreakRepository streakRepository;
+    private CompetitionScoringService scoringService;
     
     @Autowired
     private NotificationService notificationService;
@@ -87,75 +91,53 @@ public class CompetitionService {
     }
     
     public void updateCompetitionScores(Long competitionId) {
+        scoringService.refreshCompetition(competitionId);
+    }
+    
+    public void endCompetition(Long competitionId) {
         Optional<Competition> competitionOpt = competitionRepository.findById(competitionId);
         if (competitionOpt.isEmpty()) {
             return;
         }
         
         Competition competition = competitionOpt.get();
-        List<CompetitionParticipant> participants = participantRepository.findByCompetitionIdOrderByScoreDesc(competitionId);
-        
-        for (CompetitionParticipant participant : participants) {
-            int score = calculateScore(competition, participant.getUser().getId());
-            participant.setScore(score);
-        }
-        
-        // Sort by score and update ranks
-        participants.sort((p1, p2) -> Integer.compare(p2.getScore(), p1.getScore()));
-        
-        for (int i = 0; i < participants.size(); i++) {
-            participants.get(i).setRank(i + 1);
-        }
+        competition.setActive(false);
+        competitionRepository.save(competition);
         
-        participantRepository.saveAll(participants);
+        // Final scores and ranks before announcing them
+        scoringService.refreshCompetition(competitionId);
+        notifyParticipants(List.of(competition));
     }
     
-    private int calculateScore(Competition competition, Long userId) {
-        switch (competition.getType()) {
-            case STREAK:
-                return calculateStreakScore(competition.getHabit().getId(), userId);
-            case COMPLETION_COUNT:
-                return calculateCompletionScore(competition.getHabit().getId(), userId);
-            case CONSISTENCY:
-                return calculateConsistencyScore(competition.getHabit().getId(), userId);
-            default:
-                return 0;
+    /**
+     * End one batch of competitions whose end date has passed
+     *
+     * @return the competitions ended, most overdue first
+     */
+    public List<Competition> endExpiredCompetitions(LocalDateTime now, int batchSize) {
+        List<Competition> expired = competitionRepository.findExpiredCompetitions(now, PageRequest.of(0, batchSize));
+        for (Competition competition : expired) {
+            competition.setActive(false);
+            scoringService.refreshCompetition(competition.getId());
         }
+        notifyParticipants(expired);
+        return expired;
     }
     
-    private int calculateStreakScore(Long habitId, Long userId) {
-        Optional<Streak> streakOpt = streakRepository.findByHabitIdAndUserId(habitId, userId);
-        return streakOpt.map(Streak::getCurrentStreak).orElse(0);
-    }
-    
-    private int calculateCompletionScore(Long habitId, Long userId) {
-        // This would need to be implemented based on habit completions
-        // For now, returning a placeholder
-        return 0;
-    }
-    
-    private int calculateConsistencyScore(Long habitId, Long userId) {
-        // This would need to be implemented based on consistency metrics
-        // For now, returning a placeholder
-        return 0;
-    }
-    
-    public void endCompetition(Long competitionId) {
-        Optional<Competition> competitionOpt = competitionRepository.findById(competitionId);
-        if (competitionOpt.isEmpty()) {
+    // Notify participants about competition end, as one batch
+    private void notifyParticipants(List<Competition> competitions) {
+        if (competitions.isEmpty()) {
             return;
         }
-        
-        Competition competition = competitionOpt.get();
-        competition.setActive(false);
-        competitionRepository.save(competition);
-        
-        // Notify participants about competition end
-        List<CompetitionParticipant> participants = participantRepository.findByCompetitionIdOrderByScoreDesc(competitionId);
-        for (CompetitionParticipant participant : participants) {
+        Map<Long, Competition> byId = competitions.stream()
+                .collect(Collectors.toMap(Competition::getId, Function.identity()));
+        List<Notification> notifications = new ArrayList<>();
+        for (CompetitionParticipant participant : participantRepository.findWithUserByCompetitionIdIn(byId.keySet())) {
+            Competition competition = byId.get(participant.getCompetition().getId());
             String message = String.format("Competition '%s' has ended! You ranked #%d", 
                                          competition.getName(), participant.getRank());
-            notificationService.createNotification(participant.getUser(), "Competition Ended", message, NotificationType.SYSTEM);
+            notifications.add(new Notification(participant.getUser(), "Competition Ended", message, NotificationType.SYSTEM));
         }
+        notificationService.createNotifications(notifications);
     }
 }
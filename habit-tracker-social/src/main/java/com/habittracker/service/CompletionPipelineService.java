@@ -0,0 +1,264 @@
+package com.habittracker.service;
+
+import com.habittracker.event.CompletionRecordedEvent;
+import com.habittracker.model.ActivityFeed;
+import com.habittracker.model.CompletionEvent;
+import com.habittracker.model.CompletionEventStatus;
+import com.habittracker.model.CompletionStage;
+import com.habittracker.model.Habit;
+import com.habittracker.repository.ActivityFeedRepository;
+import com.habittracker.repository.CompletionEventRepository;
+import com.habittracker.repository.HabitRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Completion Pipeline Service
+ *
+ * Drives the post-completion work for a habit completion as a sequence of stages
+ * (streak update, competition scores and challenge leaderboards, activity feed
+ * write, friend notifications, WebSocket fan-out).
+ * Each stage commits in its own transaction together with the event's stage pointer,
+ * so a failed stage is retried with backoff without repeating the stages before it.
+ *
+ * Events are dispatched to the bounded completionPipelineExecutor right after the
+ * request transaction commits; anything rejected or left behind by a crash is
+ * picked up again by the re-drive poller.
+ */
+@Service
+public class CompletionPipelineService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompletionPipelineService.class);
+
+    @Autowired
+    private CompletionEventRepository eventRepository;
+
+    @Autowired
+    private HabitRepository habitRepository;
+
+    @Autowired
+    private ActivityFeedRepository activityFeedRepository;
+
+    @Autowired
+    private StreakService streakService;
+
+    @Autowired
+    private CompetitionScoringService competitionScoringService;
+
+    @Autowired
+    private GroupChallengeService groupChallengeService;
+
+    @Autowired
+    private ActivityFeedService activityFeedService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("completionPipelineExecutor")
+    private TaskExecutor executor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.completion-pipeline.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    @Value("${app.completion-pipeline.retry-backoff-ms:2000}")
+    private long retryBackoffMs = 2000;
+
+    @Value("${app.completion-pipeline.redrive-batch-size:100}")
+    private int redriveBatchSize = 100;
+
+    @Value("${app.completion-pipeline.stale-claim-timeout-ms:300000}")
+    private long staleClaimTimeoutMs = 300000;
+
+    private Counter rejectedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    void registerMetrics() {
+        rejectedCounter = Counter.builder("completion.pipeline.rejected")
+                .description("Dispatches rejected because the worker queue was full")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("completion.pipeline.failed")
+                .description("Events that exhausted all retry attempts")
+                .register(meterRegistry);
+        Gauge.builder("completion.pipeline.pending", eventRepository, CompletionEventRepository::countPending)
+                .description("Completion events waiting to be processed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Hand a freshly recorded completion to the worker pool once its transaction has committed
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onCompletionRecorded(CompletionRecordedEvent event) {
+        dispatch(event.getCompletionEventId());
+    }
+
+    /**
+     * Submit an event to the worker pool
+     *
+     * @return false if the pool is saturated (the event stays PENDING for the poller)
+     */
+    public boolean dispatch(Long eventId) {
+        try {
+            executor.execute(() -> process(eventId));
+            return true;
+        } catch (TaskRejectedException e) {
+            rejectedCounter.increment();
+            logger.warn("Completion pipeline saturated, deferring event {}", eventId);
+            return false;
+        }
+    }
+
+    /**
+     * Re-drive events that are due for (re)processing and release claims
+     * held by workers that never finished
+     */
+    @Scheduled(fixedDelayString = "${app.completion-pipeline.redrive-interval-ms:5000}")
+    public void redriveDueEvents() {
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status ->
+                eventRepository.releaseStaleClaims(now.minus(Duration.ofMillis(staleClaimTimeoutMs))));
+
+        List<Long> dueIds = eventRepository.findDueEventIds(now, PageRequest.of(0, redriveBatchSize));
+        for (Long eventId : dueIds) {
+            if (!dispatch(eventId)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Run the remaining stages of an event, stopping at the first failure
+     */
+    public void process(Long eventId) {
+        Integer claimed = transactionTemplate.execute(status -> eventRepository.claim(eventId, LocalDateTime.now()));
+        if (claimed == null || claimed == 0) {
+            return; // Already being processed elsewhere, or finished
+        }
+
+        CompletionEvent event = eventRepository.findById(eventId).orElse(null);
+        if (event == null) {
+            return;
+        }
+
+        while (event.getStage() != CompletionStage.DONE) {
+            CompletionStage stage = event.getStage();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                final CompletionEvent current = event;
+                event = transactionTemplate.execute(status -> {
+                    runStage(current, stage);
+                    current.setStage(stage.next());
+                    if (current.getStage() == CompletionStage.DONE) {
+                        current.setStatus(CompletionEventStatus.COMPLETED);
+                    }
+                    return eventRepository.save(current);
+                });
+                sample.stop(stageTimer(stage, "success"));
+            } catch (RuntimeException e) {
+                sample.stop(stageTimer(stage, "failure"));
+                scheduleRetry(eventId, stage, e);
+                return;
+            }
+        }
+    }
+
+    private void runStage(CompletionEvent event, CompletionStage stage) {
+        switch (stage) {
+            case STREAK:
+                streakService.updateStreak(loadHabit(event), event.getCompletionDate());
+                break;
+            case COMPETITIONS:
+                competitionScoringService.onHabitCompleted(event.getHabitId(), event.getUserId(),
+                        event.getCompletionDate());
+                groupChallengeService.onHabitCompleted(event.getUserId(), event.getCompletionDate().toLocalDate());
+                break;
+            case ACTIVITY_FEED:
+                Habit habit = loadHabit(event);
+                ActivityFeed activity = activityFeedService.recordHabitCompletionActivity(habit.getUser(),
+                        habit.getName());
+                event.setActivityId(activity.getId());
+                break;
+            case NOTIFICATIONS:
+                activityFeedService.notifyFriendsOfHabitCompletion(loadActivity(event));
+                break;
+            case REALTIME:
+                activityFeedService.pushActivityToFriends(loadActivity(event));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void scheduleRetry(Long eventId, CompletionStage stage, RuntimeException cause) {
+        transactionTemplate.executeWithoutResult(status -> eventRepository.findById(eventId).ifPresent(event -> {
+            int attempts = event.getAttempts() + 1;
+            event.setAttempts(attempts);
+            event.setLastError(truncate(stage + ": " + cause.getMessage()));
+            if (attempts >= maxAttempts) {
+                event.setStatus(CompletionEventStatus.FAILED);
+                failedCounter.increment();
+                logger.error("Completion event {} failed at stage {} after {} attempts", eventId, stage, attempts,
+                        cause);
+            } else {
+                event.setStatus(CompletionEventStatus.PENDING);
+                event.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(backoffMillis(attempts))));
+                logger.warn("Completion event {} failed at stage {} (attempt {}), will retry: {}", eventId, stage,
+                        attempts, cause.getMessage());
+            }
+            eventRepository.save(event);
+        }));
+    }
+
+    /**
+     * Exponential backoff, capped at 64x the base delay
+     */
+    long backoffMillis(int attempts) {
+        return retryBackoffMs << Math.min(attempts - 1, 6);
+    }
+
+    private Habit loadHabit(CompletionEvent event) {
+        return habitRepository.findById(event.getHabitId())
+                .orElseThrow(() -> new IllegalStateException("Habit not found: " + event.getHabitId()));
+    }
+
+    private ActivityFeed loadActivity(CompletionEvent event) {
+        return activityFeedRepository.findById(event.getActivityId())
+                .orElseThrow(() -> new IllegalStateException("Activity not found: " + event.getActivityId()));
+    }
+
+    private Timer stageTimer(CompletionStage stage, String outcome) {
+        return Timer.builder("completion.pipeline.stage")
+                .tag("stage", stage.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private String truncate(String message) {
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
@@ -0,0 +1,424 @@
+package com.habittracker.service;
+
+import com.habittracker.event.FriendshipChangedEvent;
+import com.habittracker.model.ActivityFeed;
+import com.habittracker.repository.ActivityFeedRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Feed Timeline Service
+ *
+ * Materialised friend activity timelines in Redis, using a hybrid push/pull model.
+ *
+ * Push: an ordinary author's new activity is written to the sorted set
+ * feed:timeline:{readerId} of every reader (activity ids scored by creation time,
+ * capped at max-size entries).
+ *
+ * Pull: authors with more readers than high-fanout-threshold are recorded in
+ * feed:high-fanout-authors and only write to their own feed:outbox:{authorId}.
+ * Readers keep the list of high-fanout friends they follow in feed:pull:{readerId},
+ * and at read time those outboxes are k-way merged with the reader's timeline.
+ * This keeps the cost of one completion bounded by the threshold, however many
+ * readers its author has.
+ *
+ * The pull key doubles as the "timeline is warm" marker: timelines are only
+ * appended to while it exists, and both are rebuilt from the database on first
+ * read. Redis failures are logged and reported as a miss so callers fall back to SQL.
+ */
+@Service
+public class FeedTimelineService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedTimelineService.class);
+
+    static final String TIMELINE_PREFIX = "feed:timeline:";
+    static final String PULL_PREFIX = "feed:pull:";
+    static final String OUTBOX_PREFIX = "feed:outbox:";
+    static final String HIGH_FANOUT_AUTHORS_KEY = "feed:high-fanout-authors";
+
+    // KEYS = (sorted set, warm marker) pairs, ARGV = score, activity id, max size, ttl seconds
+    private static final RedisScript<Long> APPEND_SCRIPT = new DefaultRedisScript<>(
+            "local appended = 0\n" +
+            "for i = 1, #KEYS, 2 do\n" +
+            "  if redis.call('EXISTS', KEYS[i + 1]) == 1 then\n" +
+            "    redis.call('ZADD', KEYS[i], ARGV[1], ARGV[2])\n" +
+            "    redis.call('ZREMRANGEBYRANK', KEYS[i], 0, -(tonumber(ARGV[3]) + 1))\n" +
+            "    redis.call('EXPIRE', KEYS[i], ARGV[4])\n" +
+            "    appended = appended + 1\n" +
+            "  end\n" +
+            "end\n" +
+            "return appended", Long.class);
+
+    // Newest first; ties broken by id so the merge order is stable
+    private static final Comparator<TimelineEntry> NEWEST_FIRST = Comparator
+            .comparingDouble((TimelineEntry entry) -> entry.score).reversed()
+            .thenComparing(entry -> entry.activityId, Comparator.reverseOrder());
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private FriendGraph friendGraph;
+
+    @Autowired
+    private ActivityFeedRepository activityFeedRepository;
+
+    @Value("${app.feed.timeline.max-size:500}")
+    private int maxSize = 500;
+
+    @Value("${app.feed.timeline.ttl-hours:72}")
+    private long ttlHours = 72;
+
+    @Value("${app.feed.timeline.high-fanout-threshold:1000}")
+    private int highFanoutThreshold = 1000;
+
+    /**
+     * Deliver a new activity once the surrounding transaction commits
+     */
+    public void append(ActivityFeed activity) {
+        afterCommit(() -> fanOut(activity));
+    }
+
+    private void fanOut(ActivityFeed activity) {
+        Long authorId = activity.getUser().getId();
+        try {
+            List<Long> readerIds = friendGraph.getFriendIds(authorId);
+            if (readerIds.size() > highFanoutThreshold) {
+                writeToOutbox(authorId, readerIds, activity);
+                return;
+            }
+            if (readerIds.isEmpty()) {
+                return;
+            }
+            List<String> keys = new ArrayList<>(readerIds.size() * 2);
+            for (Long readerId : readerIds) {
+                keys.add(timelineKey(readerId));
+                keys.add(pullKey(readerId));
+            }
+            appendToSortedSets(keys, activity);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to fan out activity {} to timelines: {}", activity.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Pull-mode delivery: one write to the author's outbox instead of one per reader.
+     * Membership of the high-fanout set is sticky so readers never miss activity
+     * written while an author was in pull mode.
+     */
+    private void writeToOutbox(Long authorId, List<Long> readerIds, ActivityFeed activity) {
+        Long added = redisTemplate.opsForSet().add(HIGH_FANOUT_AUTHORS_KEY, String.valueOf(authorId));
+        if (added != null && added > 0) {
+            // Author just switched to pull mode: readers must rebuild to learn to pull from the outbox
+            logger.info("Author {} has {} readers, switching to pull delivery", authorId, readerIds.size());
+            deleteTimelines(readerIds);
+        }
+        String outbox = outboxKey(authorId);
+        appendToSortedSets(List.of(outbox, outbox), activity);
+    }
+
+    private void appendToSortedSets(List<String> keys, ActivityFeed activity) {
+        redisTemplate.execute(APPEND_SCRIPT, keys,
+                String.valueOf(score(activity.getCreatedAt())),
+                String.valueOf(activity.getId()),
+                String.valueOf(maxSize),
+                String.valueOf(ttl().getSeconds()));
+    }
+
+    /**
+     * Whether a page lies entirely within the cached part of a timeline
+     */
+    public boolean covers(Pageable pageable) {
+        return pageable.getOffset() + pageable.getPageSize() <= maxSize;
+    }
+
+    /**
+     * Activity ids for one page of a reader's feed, newest first
+     *
+     * @return empty if the feed could not be served from Redis
+     */
+    public Optional<List<Long>> readPage(Long userId, long offset, int size) {
+        try {
+            String pull = redisTemplate.opsForValue().get(pullKey(userId));
+            if (pull == null) {
+                pull = rebuild(userId);
+                if (pull == null) {
+                    return Optional.of(Collections.emptyList());
+                }
+            }
+
+            List<Long> pulledAuthors = parseIds(pull);
+            if (pulledAuthors.isEmpty()) {
+                // Pure push timeline: a single range read
+                return Optional.of(toIds(redisTemplate.opsForZSet()
+                        .reverseRangeWithScores(timelineKey(userId), offset, offset + size - 1)));
+            }
+            return Optional.of(mergePage(userId, pulledAuthors, offset, size));
+        } catch (RuntimeException e) {
+            logger.warn("Timeline read failed for user {}, falling back to database: {}", userId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * K-way merge of the reader's own timeline with the outboxes of the
+     * high-fanout authors they follow. Every source is already sorted newest
+     * first, so only the first offset + size entries of each are needed.
+     */
+    private List<Long> mergePage(Long userId, List<Long> pulledAuthors, long offset, int size) {
+        long window = offset + size;
+        PriorityQueue<SourceCursor> heads = new PriorityQueue<>(
+                Comparator.comparing(SourceCursor::head, NEWEST_FIRST));
+
+        addSource(heads, toEntries(redisTemplate.opsForZSet()
+                .reverseRangeWithScores(timelineKey(userId), 0, window - 1)));
+        for (Long authorId : pulledAuthors) {
+            addSource(heads, readOutbox(authorId, window));
+        }
+
+        List<Long> page = new ArrayList<>(size);
+        Set<Long> seen = new HashSet<>();
+        long skipped = 0;
+        while (!heads.isEmpty() && page.size() < size) {
+            SourceCursor cursor = heads.poll();
+            TimelineEntry entry = cursor.head();
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+            if (!seen.add(entry.activityId)) {
+                continue; // Pushed before the author switched to pull mode
+            }
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                page.add(entry.activityId);
+            }
+        }
+        return page;
+    }
+
+    private List<TimelineEntry> readOutbox(Long authorId, long window) {
+        String outbox = outboxKey(authorId);
+        Set<TypedTuple<String>> tuples = redisTemplate.opsForZSet().reverseRangeWithScores(outbox, 0, window - 1);
+        if (tuples != null && !tuples.isEmpty()) {
+            return toEntries(tuples);
+        }
+        List<Object[]> rows = activityFeedRepository.findTimelineEntriesByFriendIds(List.of(authorId),
+                PageRequest.of(0, maxSize));
+        storeSortedSet(outbox, rows);
+        List<TimelineEntry> entries = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            entries.add(new TimelineEntry((Long) row[0], score((LocalDateTime) row[1])));
+        }
+        return entries.size() > window ? entries.subList(0, (int) window) : entries;
+    }
+
+    /**
+     * Total feed size when it can be answered from Redis alone, i.e. the reader
+     * pulls from no outboxes and their timeline has not been truncated
+     */
+    public OptionalLong cachedTotal(Long userId) {
+        try {
+            String pull = redisTemplate.opsForValue().get(pullKey(userId));
+            if (pull == null || !pull.isEmpty()) {
+                return OptionalLong.empty();
+            }
+            Long size = redisTemplate.opsForZSet().zCard(timelineKey(userId));
+            return size != null && size < maxSize ? OptionalLong.of(size) : OptionalLong.empty();
+        } catch (RuntimeException e) {
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * Drop the timelines of both users once a friendship change commits;
+     * they are rebuilt on next read
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        deleteTimelines(List.of(event.getUserId(), event.getOtherUserId()));
+    }
+
+    private void deleteTimelines(List<Long> userIds) {
+        try {
+            List<String> keys = new ArrayList<>(userIds.size() * 2);
+            for (Long userId : userIds) {
+                keys.add(timelineKey(userId));
+                keys.add(pullKey(userId));
+            }
+            redisTemplate.delete(keys);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to evict timelines: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Load the newest max-size activities of a reader's push-mode friends into Redis
+     * and record which high-fanout friends they pull from
+     *
+     * @return the stored pull list, or null if the reader has no friends
+     */
+    private String rebuild(Long userId) {
+        List<Long> friendIds = friendGraph.getFriendIds(userId);
+        if (friendIds.isEmpty()) {
+            return null;
+        }
+        Set<String> highFanoutAuthors = redisTemplate.opsForSet().members(HIGH_FANOUT_AUTHORS_KEY);
+        List<Long> pushed = new ArrayList<>();
+        List<Long> pulled = new ArrayList<>();
+        for (Long friendId : friendIds) {
+            if (highFanoutAuthors != null && highFanoutAuthors.contains(String.valueOf(friendId))) {
+                pulled.add(friendId);
+            } else {
+                pushed.add(friendId);
+            }
+        }
+
+        String timeline = timelineKey(userId);
+        redisTemplate.delete(timeline);
+        if (!pushed.isEmpty()) {
+            storeSortedSet(timeline, activityFeedRepository.findTimelineEntriesByFriendIds(pushed,
+                    PageRequest.of(0, maxSize)));
+        }
+        String pull = pulled.stream().map(String::valueOf).collect(Collectors.joining(","));
+        redisTemplate.opsForValue().set(pullKey(userId), pull, ttl());
+        return pull;
+    }
+
+    private void storeSortedSet(String key, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Set<TypedTuple<String>> tuples = new HashSet<>();
+        for (Object[] row : rows) {
+            tuples.add(new DefaultTypedTuple<>(String.valueOf(row[0]), (double) score((LocalDateTime) row[1])));
+        }
+        redisTemplate.opsForZSet().add(key, tuples);
+        redisTemplate.expire(key, ttl());
+    }
+
+    private void addSource(PriorityQueue<SourceCursor> heads, List<TimelineEntry> entries) {
+        if (!entries.isEmpty()) {
+            heads.add(new SourceCursor(entries));
+        }
+    }
+
+    private static List<TimelineEntry> toEntries(Set<TypedTuple<String>> tuples) {
+        if (tuples == null) {
+            return Collections.emptyList();
+        }
+        List<TimelineEntry> entries = new ArrayList<>(tuples.size());
+        for (TypedTuple<String> tuple : tuples) {
+            entries.add(new TimelineEntry(Long.valueOf(tuple.getValue()),
+                    tuple.getScore() != null ? tuple.getScore() : 0));
+        }
+        return entries;
+    }
+
+    private static List<Long> toIds(Set<TypedTuple<String>> tuples) {
+        return toEntries(tuples).stream().map(entry -> entry.activityId).collect(Collectors.toList());
+    }
+
+    private static List<Long> parseIds(String csv) {
+        if (csv.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>();
+        for (String id : csv.split(",")) {
+            ids.add(Long.valueOf(id));
+        }
+        return ids;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private Duration ttl() {
+        return Duration.ofHours(ttlHours);
+    }
+
+    private static long score(LocalDateTime createdAt) {
+        LocalDateTime timestamp = createdAt != null ? createdAt : LocalDateTime.now();
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    static String timelineKey(Long userId) {
+        return TIMELINE_PREFIX + userId;
+    }
+
+    static String pullKey(Long userId) {
+        return PULL_PREFIX + userId;
+    }
+
+    static String outboxKey(Long authorId) {
+        return OUTBOX_PREFIX + authorId;
+    }
+
+    private static final class TimelineEntry {
+        private final Long activityId;
+        private final double score;
+
+        private TimelineEntry(Long activityId, double score) {
+            this.activityId = activityId;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Position within one newest-first source during the merge
+     */
+    private static final class SourceCursor {
+        private final List<TimelineEntry> entries;
+        private int position;
+
+        private SourceCursor(List<TimelineEntry> entries) {
+            this.entries = entries;
+        }
+
+        private TimelineEntry head() {
+            return entries.get(position);
+        }
+
+        private boolean advance() {
+            return ++position < entries.size();
+        }
+    }
+}
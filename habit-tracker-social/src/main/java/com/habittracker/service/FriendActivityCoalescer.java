@@ -0,0 +1,200 @@
+package com.habittracker.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Friend Activity Coalescer
+ *
+ * Buffers friend-completion notifications per recipient in Redis so a burst of
+ * completions turns into one notification per recipient per window. A recipient's
+ * window opens with the first buffered completion and closes window-seconds later;
+ * notification:coalesce:due holds recipients by window end.
+ *
+ * Buffers are hashes of friend name -> latest habit name, with the most recent
+ * friend under the empty field (usernames are never blank). Draining claims due
+ * recipients atomically, so each window is emitted by one node: the buffer is
+ * renamed to a claimed key and the recipient moves to notification:coalesce:claimed,
+ * scored by when the claim lapses. The caller acknowledges once its notifications
+ * are committed; claims that lapse instead (failed insert, crashed node) are merged
+ * back into the recipient's buffer and emitted by a later drain.
+ */
+@Component
+public class FriendActivityCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(FriendActivityCoalescer.class);
+
+    static final String DUE_KEY = "notification:coalesce:due";
+    static final String BUFFER_PREFIX = "notification:coalesce:";
+    static final String CLAIMED_KEY = "notification:coalesce:claimed";
+    static final String CLAIMED_PREFIX = "notification:coalesce:claimed:";
+    static final String LAST_FIELD = "";
+
+    // KEYS = due set, buffers; ARGV = friend name, habit name, window end (ms), ttl seconds, recipient ids
+    private static final RedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>(
+            "for i = 2, #KEYS do\n" +
+            "  redis.call('HSET', KEYS[i], ARGV[1], ARGV[2], '', ARGV[1])\n" +
+            "  redis.call('EXPIRE', KEYS[i], ARGV[4])\n" +
+            "  redis.call('ZADD', KEYS[1], 'NX', ARGV[3], ARGV[i + 3])\n" +
+            "end\n" +
+            "return #KEYS - 1", Long.class);
+
+    // KEYS = due set, claimed set; ARGV = now (ms), limit, buffer key prefix, claimed key prefix,
+    // claim lapse (ms), ttl seconds; returns recipient id, HGETALL pairs
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> DRAIN_SCRIPT = new DefaultRedisScript<>(
+            "local lapsed = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])\n" +
+            "for _, id in ipairs(lapsed) do\n" +
+            "  redis.call('ZREM', KEYS[2], id)\n" +
+            "  local claimed = ARGV[4] .. id\n" +
+            "  local buffer = ARGV[3] .. id\n" +
+            "  local fields = redis.call('HGETALL', claimed)\n" +
+            "  for i = 1, #fields, 2 do\n" +
+            "    redis.call('HSETNX', buffer, fields[i], fields[i + 1])\n" +
+            "  end\n" +
+            "  redis.call('DEL', claimed)\n" +
+            "  if #fields > 0 then\n" +
+            "    redis.call('EXPIRE', buffer, ARGV[6])\n" +
+            "    redis.call('ZADD', KEYS[1], 'NX', ARGV[1], id)\n" +
+            "  end\n" +
+            "end\n" +
+            "local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])\n" +
+            "local result = {}\n" +
+            "for _, id in ipairs(due) do\n" +
+            "  local claimed = ARGV[4] .. id\n" +
+            // An earlier window of this recipient is still being emitted; wait for it
+            "  if redis.call('EXISTS', claimed) == 0 then\n" +
+            "    redis.call('ZREM', KEYS[1], id)\n" +
+            "    local buffer = ARGV[3] .. id\n" +
+            "    table.insert(result, id)\n" +
+            "    table.insert(result, redis.call('HGETALL', buffer))\n" +
+            "    if redis.call('EXISTS', buffer) == 1 then\n" +
+            "      redis.call('RENAME', buffer, claimed)\n" +
+            "      redis.call('EXPIRE', claimed, ARGV[6])\n" +
+            "      redis.call('ZADD', KEYS[2], tonumber(ARGV[1]) + tonumber(ARGV[5]), id)\n" +
+            "    end\n" +
+            "  end\n" +
+            "end\n" +
+            "return result", List.class);
+
+    /**
+     * Completions buffered for one recipient during a closed window
+     */
+    public record CoalescedActivity(Long recipientId, String lastFriendName, String lastHabitName, int friendCount) {
+    }
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${app.notifications.coalescing.window-seconds:300}")
+    private long windowSeconds = 300;
+
+    @Value("${app.notifications.coalescing.claim-seconds:120}")
+    private long claimSeconds = 120;
+
+    /**
+     * Buffer a friend's completion for each recipient
+     *
+     * @return false if Redis is unavailable and the caller should notify directly
+     */
+    public boolean add(Collection<Long> recipientIds, String friendName, String habitName) {
+        if (recipientIds.isEmpty()) {
+            return true;
+        }
+        List<String> keys = new ArrayList<>(recipientIds.size() + 1);
+        keys.add(DUE_KEY);
+        List<String> args = new ArrayList<>(recipientIds.size() + 4);
+        args.add(friendName);
+        args.add(habitName);
+        args.add(String.valueOf(System.currentTimeMillis() + windowSeconds * 1000));
+        args.add(String.valueOf(bufferTtlSeconds()));
+        for (Long recipientId : recipientIds) {
+            keys.add(BUFFER_PREFIX + recipientId);
+            args.add(String.valueOf(recipientId));
+        }
+        try {
+            redisTemplate.execute(ADD_SCRIPT, keys, args.toArray());
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Failed to buffer friend activity from {}: {}", friendName, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Claim up to limit recipients whose window has closed, with their buffered
+     * activity; acknowledge them once their notifications are committed
+     */
+    @SuppressWarnings("unchecked")
+    public List<CoalescedActivity> drainDue(int limit) {
+        List<Object> raw = redisTemplate.execute(DRAIN_SCRIPT, List.of(DUE_KEY, CLAIMED_KEY),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(limit), BUFFER_PREFIX, CLAIMED_PREFIX,
+                String.valueOf(claimSeconds * 1000), String.valueOf(bufferTtlSeconds()));
+        List<CoalescedActivity> drained = new ArrayList<>();
+        if (raw == null) {
+            return drained;
+        }
+        for (int i = 0; i + 1 < raw.size(); i += 2) {
+            CoalescedActivity activity = toActivity(Long.valueOf((String) raw.get(i)), (List<String>) raw.get(i + 1));
+            if (activity != null) {
+                drained.add(activity);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Release the claims of recipients whose notifications have been committed
+     */
+    public void acknowledge(Collection<Long> recipientIds) {
+        if (recipientIds.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(recipientIds.size());
+        List<String> members = new ArrayList<>(recipientIds.size());
+        for (Long recipientId : recipientIds) {
+            keys.add(CLAIMED_PREFIX + recipientId);
+            members.add(String.valueOf(recipientId));
+        }
+        redisTemplate.opsForZSet().remove(CLAIMED_KEY, members.toArray());
+        redisTemplate.delete(keys);
+    }
+
+    // Outlives both a window and a claim
+    private long bufferTtlSeconds() {
+        return Math.max(windowSeconds, claimSeconds) * 2 + 60;
+    }
+
+    private static CoalescedActivity toActivity(Long recipientId, List<String> fields) {
+        String lastFriend = null;
+        String lastHabit = null;
+        int friends = 0;
+        for (int i = 0; i + 1 < fields.size(); i += 2) {
+            if (LAST_FIELD.equals(fields.get(i))) {
+                lastFriend = fields.get(i + 1);
+            } else {
+                friends++;
+            }
+        }
+        if (lastFriend == null || friends == 0) {
+            // Buffer expired before the window closed
+            return null;
+        }
+        for (int i = 0; i + 1 < fields.size(); i += 2) {
+            if (lastFriend.equals(fields.get(i))) {
+                lastHabit = fields.get(i + 1);
+            }
+        }
+        return new CoalescedActivity(recipientId, lastFriend, lastHabit, friends);
+    }
+}
@@ -0,0 +1,210 @@
+package com.habittracker.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.habittracker.event.FriendshipChangedEvent;
+import com.habittracker.repository.FriendshipRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Friend Graph
+ *
+ * Read-optimised view of who is friends with whom, as ids only. Friendship is
+ * treated as mutual: a user's friends are the other side of every ACCEPTED
+ * friendship, whoever sent the request.
+ *
+ * Each user's friend ids are held as a sorted long[] in an in-process Caffeine
+ * cache (L1), backed by a Redis set friends:{userId} shared by all nodes (L2),
+ * and loaded from a single ids-only query on a miss. Both levels are dropped for
+ * the two users involved when a FriendshipChangedEvent commits; the short L1 TTL
+ * bounds staleness on other nodes. Redis failures fall through to the database.
+ *
+ * Every drop also bumps the user's version, friends:ver:{userId}. A miss reads the
+ * version before querying and only writes its result back if the version is
+ * unchanged and no set exists, so a load that read the database before a change
+ * committed cannot cache the old friends after the change's delete.
+ */
+@Service
+public class FriendGraph {
+
+    private static final Logger logger = LoggerFactory.getLogger(FriendGraph.class);
+
+    static final String KEY_PREFIX = "friends:";
+    static final String VERSION_PREFIX = "friends:ver:";
+
+    // Redis cannot store an empty set, so users without friends get this member instead
+    static final String EMPTY_MARKER = "-";
+
+    // KEYS = set, version; ARGV = version read before loading, ttl seconds, members
+    private static final RedisScript<Long> WRITE_BACK_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('GET', KEYS[2]) or '0'\n" +
+            "if current ~= ARGV[1] or redis.call('EXISTS', KEYS[1]) == 1 then return 0 end\n" +
+            "for i = 3, #ARGV, 1000 do\n" +
+            "  redis.call('SADD', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV)))\n" +
+            "end\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2])\n" +
+            "return 1", Long.class);
+
+    // KEYS = set, version; ARGV = version ttl seconds
+    private static final RedisScript<Long> INVALIDATE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1])\n" +
+            "redis.call('INCR', KEYS[2])\n" +
+            "redis.call('EXPIRE', KEYS[2], ARGV[1])\n" +
+            "return 1", Long.class);
+
+    @Autowired
+    private FriendshipRepository friendshipRepository;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.friend-graph.local-max-size:100000}")
+    private long localMaxSize = 100000;
+
+    @Value("${app.friend-graph.local-ttl-seconds:60}")
+    private long localTtlSeconds = 60;
+
+    @Value("${app.friend-graph.redis-ttl-hours:6}")
+    private long redisTtlHours = 6;
+
+    private Cache<Long, long[]> localCache;
+
+    @PostConstruct
+    void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "friendGraph");
+    }
+
+    /**
+     * Sorted friend ids of a user. The returned array is shared and must not be modified.
+     */
+    public long[] friendIds(Long userId) {
+        return localCache.get(userId, this::loadShared);
+    }
+
+    /**
+     * Friend ids of a user, e.g. for IN (...) query parameters
+     */
+    public List<Long> getFriendIds(Long userId) {
+        long[] ids = friendIds(userId);
+        List<Long> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    public boolean areFriends(Long userId, Long otherUserId) {
+        return Arrays.binarySearch(friendIds(userId), otherUserId) >= 0;
+    }
+
+    public int friendCount(Long userId) {
+        return friendIds(userId).length;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        invalidate(event.getUserId());
+        invalidate(event.getOtherUserId());
+    }
+
+    public void invalidate(Long userId) {
+        localCache.invalidate(userId);
+        try {
+            // Versions outlive the sets they guard
+            redisTemplate.execute(INVALIDATE_SCRIPT, List.of(key(userId), versionKey(userId)),
+                    String.valueOf(Duration.ofHours(redisTtlHours * 2).getSeconds()));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to drop cached friend set for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private long[] loadShared(Long userId) {
+        String key = key(userId);
+        String version;
+        try {
+            Set<String> members = redisTemplate.opsForSet().members(key);
+            if (members != null && !members.isEmpty()) {
+                return toSortedArray(members);
+            }
+            version = redisTemplate.opsForValue().get(versionKey(userId));
+        } catch (RuntimeException e) {
+            logger.warn("Friend set read failed for user {}, loading from database: {}", userId, e.getMessage());
+            return loadFromDatabase(userId);
+        }
+
+        long[] ids = loadFromDatabase(userId);
+        try {
+            List<String> args = new ArrayList<>(ids.length + 2);
+            args.add(version == null ? "0" : version);
+            args.add(String.valueOf(Duration.ofHours(redisTtlHours).getSeconds()));
+            if (ids.length == 0) {
+                args.add(EMPTY_MARKER);
+            } else {
+                Collections.addAll(args, toStrings(ids));
+            }
+            redisTemplate.execute(WRITE_BACK_SCRIPT, List.of(key, versionKey(userId)), args.toArray());
+        } catch (RuntimeException e) {
+            logger.warn("Failed to cache friend set for user {}: {}", userId, e.getMessage());
+        }
+        return ids;
+    }
+
+    private long[] loadFromDatabase(Long userId) {
+        return friendshipRepository.findAcceptedFriendIds(userId).stream()
+                .mapToLong(Long::longValue)
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    private static long[] toSortedArray(Set<String> members) {
+        return members.stream()
+                .filter(member -> !EMPTY_MARKER.equals(member))
+                .mapToLong(Long::parseLong)
+                .sorted()
+                .toArray();
+    }
+
+    private static String[] toStrings(long[] ids) {
+        String[] members = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            members[i] = String.valueOf(ids[i]);
+        }
+        return members;
+    }
+
+    static String key(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    static String versionKey(Long userId) {
+        return VERSION_PREFIX + userId;
+    }
+}
@@ -1,11 +1,13 @@
 package com.habittracker.service;
 
+import com.habittracker.event.FriendshipChangedEvent;
 import com.habittracker.model.Friendship;
 import com.habittracker.model.FriendshipStatus;
 import com.habittracker.model.User;
 import com.habittracker.repository.FriendshipRepository;
 import com.habittracker.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,6 +27,12 @@ public class FriendshipService {
     @Autowired
     private NotificationService notificationService;
     
+    @Autowired
+    private FriendGraph friendGraph;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     public Friendship sendFriendRequest(Long requesterId, Long addresseeId) {
         if (requesterId.equals(addresseeId)) {
             throw new RuntimeException("Cannot send friend request to yourself");
@@ -72,7 +80,10 @@ public class FriendshipService {
         }
         
         friendship.setStatus(FriendshipStatus.ACCEPTED);
-        return friendshipRepository.save(friendship);
+        Friendship savedFriendship = friendshipRepository.save(friendship);
+        eventPublisher.publishEvent(new FriendshipChangedEvent(friendship.getRequester().getId(),
+                friendship.getAddressee().getId()));
+        return savedFriendship;
     }
     
     public Friendship declineFriendRequest(Long friendshipId, Long userId) {
@@ -102,6 +113,8 @@ public class FriendshipService {
         }
         
         friendshipRepository.delete(friendship);
+        eventPublisher.publishEvent(new FriendshipChangedEvent(friendship.getRequester().getId(),
+                friendship.getAddressee().getId()));
     }
     
     public List<Friendship> getPendingRequests(Long userId) {
@@ -117,7 +130,7 @@ public class FriendshipService {
     }
     
     public List<User> getFriends(Long userId) {
-        return userRepository.findFriendsByUserId(userId);
+        return userRepository.findAllById(friendGraph.getFriendIds(userId));
     }
     
     public boolean areFriends(Long userId1, Long userId2) {
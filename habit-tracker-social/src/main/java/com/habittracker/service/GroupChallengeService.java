@@ -1,17 +1,23 @@
 package com.habittracker.service;
 
+import com.habittracker.dto.ChallengeLeaderboardEntry;
+import com.habittracker.dto.TeamLeaderboardEntry;
 import com.habittracker.model.*;
 import com.habittracker.repository.ChallengeParticipationRepository;
 import com.habittracker.repository.GroupChallengeRepository;
 import com.habittracker.websocket.NotificationWebSocketHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -38,6 +44,12 @@ public class GroupChallengeService {
     @Autowired
     private NotificationWebSocketHandler webSocketHandler;
 
+    @Autowired
+    private ChallengeLeaderboardService leaderboardService;
+
+    @Autowired
+    private ChallengeTeamLeaderboardService teamLeaderboardService;
+
     /**
      * Create a new challenge
      */
@@ -79,6 +91,8 @@ public class GroupChallengeService {
 
         ChallengeParticipation participation = new ChallengeParticipation(challenge, user, teamName);
         ChallengeParticipation saved = participationRepository.save(participation);
+        leaderboardService.recordJoin(challengeId, user);
+        teamLeaderboardService.onMemberJoined(challengeId, teamName);
 
         // Create activity feed entry
         activityFeedService.createActivity(user, ActivityType.CHALLENGE_JOINED,
@@ -87,6 +101,19 @@ public class GroupChallengeService {
         return saved;
     }
 
+    /**
+     * Leave a challenge
+     */
+    public void leaveChallenge(Long challengeId, Long userId) {
+        ChallengeParticipation participation = participationRepository.findByChallengeIdAndUserId(challengeId, userId)
+                .orElseThrow(() -> new RuntimeException("Not participating in this challenge"));
+
+        participationRepository.delete(participation);
+        leaderboardService.recordLeave(challengeId, userId);
+        teamLeaderboardService.onMemberLeft(challengeId, participation.getTeamName(),
+                participation.getCompletionCount());
+    }
+
     /**
      * Invite a friend to challenge
      */
@@ -109,16 +136,20 @@ public class GroupChallengeService {
      * Record habit completion for challenge
      */
     public void recordCompletion(Long challengeId, Long userId) {
-        Optional<ChallengeParticipation> participationOpt = participationRepository
-                .findByChallengeIdAndUserId(challengeId, userId);
-
-        if (participationOpt.isPresent()) {
-            ChallengeParticipation participation = participationOpt.get();
-            participation.incrementCompletion();
-            participationRepository.save(participation);
+        if (participationRepository.incrementCompletionCount(challengeId, userId) > 0) {
+            // Ranks are derived from the live leaderboard; the rank column is materialised later
+            leaderboardService.recordProgress(challengeId, userId, 1);
+            teamLeaderboardService.onCompletion(challengeId, userId);
+        }
+    }
 
-            // Update ranks for all participants
-            updateRanks(challengeId);
+    /**
+     * Count a habit completion toward every active challenge the user takes part in
+     * (completion pipeline: COMPETITIONS stage)
+     */
+    public void onHabitCompleted(Long userId, LocalDate completionDate) {
+        for (Long challengeId : participationRepository.findActiveChallengeIdsByUserId(userId, completionDate)) {
+            recordCompletion(challengeId, userId);
         }
     }
 
@@ -164,18 +195,32 @@ public class GroupChallengeService {
         return participationRepository.findLeaderboardByChallengeId(challengeId, pageable);
     }
 
+    /**
+     * Get the top of the live leaderboard
+     */
+    public List<ChallengeLeaderboardEntry> getTopParticipants(Long challengeId, int limit) {
+        return leaderboardService.getTop(challengeId, limit);
+    }
+
+    /**
+     * Get the participants ranked around a user
+     */
+    public List<ChallengeLeaderboardEntry> getParticipantsAround(Long challengeId, Long userId, int radius) {
+        return leaderboardService.getAround(challengeId, userId, radius);
+    }
+
     /**
      * Get team leaderboard
      */
-    public List<Object[]> getTeamLeaderboard(Long challengeId) {
-        return participationRepository.findTeamLeaderboardByChallengeId(challengeId);
+    public List<TeamLeaderboardEntry> getTeamLeaderboard(Long challengeId) {
+        return teamLeaderboardService.getTeamLeaderboard(challengeId);
     }
 
     /**
      * Get user's rank in challenge
      */
     public Integer getUserRank(Long challengeId, Long userId) {
-        return participationRepository.findUserRankInChallenge(challengeId, userId);
+        return leaderboardService.getRank(challengeId, userId);
     }
 
     /**
@@ -209,64 +254,74 @@ public class GroupChallengeService {
         }
 
         challengeRepository.delete(challenge);
+        leaderboardService.evict(challengeId);
+        teamLeaderboardService.evict(challengeId);
     }
 
     /**
-     * Update ranks for all participants in a challenge
+     * Start one batch of pending challenges whose start date has arrived
+     *
+     * @return the challenges started, most overdue first
      */
-    private void updateRanks(Long challengeId) {
-        List<ChallengeParticipation> leaderboard = participationRepository.findLeaderboardByChallengeId(challengeId);
-        int rank = 1;
-        for (ChallengeParticipation p : leaderboard) {
-            p.setRank(rank++);
-            participationRepository.save(p);
+    public List<GroupChallenge> startPendingChallenges(LocalDate today, int batchSize) {
+        List<GroupChallenge> ready = challengeRepository.findPendingChallengesReadyToStart(today,
+                PageRequest.of(0, batchSize));
+        if (ready.isEmpty()) {
+            return ready;
         }
-    }
-
-    /**
-     * Start pending challenges that are ready
-     */
-    public void startPendingChallenges() {
-        List<GroupChallenge> pendingChallenges = challengeRepository.findPendingChallengesReadyToStart(LocalDate.now());
 
-        for (GroupChallenge challenge : pendingChallenges) {
+        Map<Long, String> messages = new HashMap<>();
+        for (GroupChallenge challenge : ready) {
             challenge.setStatus(ChallengeStatus.ACTIVE);
-            challengeRepository.save(challenge);
-
-            // Notify all participants
-            for (ChallengeParticipation p : challenge.getParticipants()) {
-                String title = "Challenge Started! 🚀";
-                String message = String.format("'%s' has begun! Good luck!", challenge.getName());
-                notificationService.createNotification(p.getUser(), title, message,
-                        NotificationType.CHALLENGE_UPDATE);
-            }
+            messages.put(challenge.getId(), String.format("'%s' has begun! Good luck!", challenge.getName()));
         }
+        notifyParticipants(messages, "Challenge Started! 🚀");
+        return ready;
     }
 
     /**
-     * End active challenges that are complete
+     * End one batch of active challenges whose end date has arrived
+     *
+     * @return the challenges ended, most overdue first
      */
-    public void endActiveChallenges() {
-        List<GroupChallenge> activeChallenges = challengeRepository.findActiveChallengesReadyToEnd(LocalDate.now());
+    public List<GroupChallenge> endActiveChallenges(LocalDate today, int batchSize) {
+        List<GroupChallenge> ready = challengeRepository.findActiveChallengesReadyToEnd(today,
+                PageRequest.of(0, batchSize));
+        if (ready.isEmpty()) {
+            return ready;
+        }
 
-        for (GroupChallenge challenge : activeChallenges) {
+        Map<Long, String> messages = new HashMap<>();
+        for (GroupChallenge challenge : ready) {
             challenge.setStatus(ChallengeStatus.COMPLETED);
-            challengeRepository.save(challenge);
+            participationRepository.applyRanks(challenge.getId());
 
             // Determine winner
-            List<ChallengeParticipation> leaderboard = getLeaderboard(challenge.getId());
-            if (!leaderboard.isEmpty()) {
-                ChallengeParticipation winner = leaderboard.get(0);
-
-                // Notify all participants
-                for (ChallengeParticipation p : challenge.getParticipants()) {
-                    String title = "Challenge Complete! 🏆";
-                    String message = String.format("'%s' has ended! Winner: %s with %d completions!",
-                            challenge.getName(), winner.getUser().getUsername(), winner.getCompletionCount());
-                    notificationService.createNotification(p.getUser(), title, message,
-                            NotificationType.CHALLENGE_UPDATE);
-                }
+            List<ChallengeParticipation> top = participationRepository
+                    .findLeaderboardByChallengeId(challenge.getId(), PageRequest.of(0, 1)).getContent();
+            if (!top.isEmpty()) {
+                ChallengeParticipation winner = top.get(0);
+                messages.put(challenge.getId(), String.format("'%s' has ended! Winner: %s with %d completions!",
+                        challenge.getName(), winner.getUser().getUsername(), winner.getCompletionCount()));
             }
         }
+        notifyParticipants(messages, "Challenge Complete! 🏆");
+        return ready;
+    }
+
+    /**
+     * One notification per participant of each challenge, saved as a single batch
+     */
+    private void notifyParticipants(Map<Long, String> messagesByChallenge, String title) {
+        if (messagesByChallenge.isEmpty()) {
+            return;
+        }
+        List<Notification> notifications = new ArrayList<>();
+        for (ChallengeParticipation p : participationRepository
+                .findWithUserByChallengeIdIn(messagesByChallenge.keySet())) {
+            String message = messagesByChallenge.get(p.getChallenge().getId());
+            notifications.add(new Notification(p.getUser(), title, message, NotificationType.CHALLENGE_UPDATE));
+        }
+        notificationService.createNotifications(notifications);
     }
 }
@@ -1,15 +1,22 @@
 package com.habittracker.service;
 
+import com.habittracker.dto.CursorPage;
+import com.habittracker.event.CompletionRecordedEvent;
+import com.habittracker.model.CompletionEvent;
 import com.habittracker.model.Habit;
 import com.habittracker.model.HabitCompletion;
 import com.habittracker.model.HabitType;
+import com.habittracker.repository.CompletionEventRepository;
 import com.habittracker.repository.HabitRepository;
 import com.habittracker.repository.HabitCompletionRepository;
+import com.habittracker.util.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -27,11 +34,14 @@ public class HabitService {
     @Autowired
     private HabitCompletionRepository habitCompletionRepository;
 
+    @Autowired
+    private CompletionEventRepository completionEventRepository;
+
     @Autowired
     private StreakService streakService;
 
     @Autowired
-    private ActivityFeedService activityFeedService;
+    private ApplicationEventPublisher eventPublisher;
 
     public Habit createHabit(Habit habit) {
         Habit savedHabit = habitRepository.save(habit);
@@ -45,6 +55,13 @@ public class HabitService {
         return habitRepository.findById(id);
     }
 
+    /**
+     * Uncached load for callers that modify the habit before saving it
+     */
+    public Optional<Habit> findByIdForUpdate(Long id) {
+        return habitRepository.findById(id);
+    }
+
     public List<Habit> findByUserId(Long userId) {
         return habitRepository.findByUserId(userId);
     }
@@ -85,11 +102,11 @@ public class HabitService {
 
         HabitCompletion savedCompletion = habitCompletionRepository.save(completion);
 
-        // Update streak
-        streakService.updateStreak(habit);
-
-        // Create activity feed entry for friends
-        activityFeedService.createHabitCompletionActivity(habit.getUser(), habit.getName());
+        // Streak, activity feed, notifications and WebSocket fan-out run asynchronously
+        // in CompletionPipelineService once this transaction has committed
+        CompletionEvent event = completionEventRepository.save(
+                new CompletionEvent(savedCompletion, habit.getUser().getId()));
+        eventPublisher.publishEvent(new CompletionRecordedEvent(event.getId()));
 
         return savedCompletion;
     }
@@ -103,6 +120,14 @@ public class HabitService {
         return habitCompletionRepository.findByHabitIdOrderByCompletionDateDesc(habitId, pageable);
     }
 
+    // Keyset version: constant cost per page, no total count
+    public CursorPage<HabitCompletion> getHabitCompletions(Long habitId, String cursor, int limit) {
+        PageCursor position = PageCursor.decode(cursor);
+        Slice<HabitCompletion> slice = habitCompletionRepository.findByHabitIdAfter(habitId,
+                position.getTimestamp(), position.getId(), PageCursor.limit(limit));
+        return CursorPage.of(slice, completion -> new PageCursor(completion.getCompletionDate(), completion.getId()));
+    }
+
     public List<HabitCompletion> getHabitCompletionsByDateRange(Long habitId, LocalDateTime startDate,
             LocalDateTime endDate) {
         return habitCompletionRepository.findByHabitIdAndDateRange(habitId, startDate, endDate);
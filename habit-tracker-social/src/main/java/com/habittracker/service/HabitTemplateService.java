@@ -3,7 +3,6 @@ package com.habittracker.service;
 import com.habittracker.model.*;
 import com.habittracker.repository.HabitRepository;
 import com.habittracker.repository.HabitTemplateRepository;
-import com.habittracker.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -12,7 +11,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * Habit Template Service
@@ -30,10 +28,10 @@ public class HabitTemplateService {
     private HabitRepository habitRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private ActivityFeedService activityFeedService;
 
     @Autowired
-    private ActivityFeedService activityFeedService;
+    private FriendGraph friendGraph;
 
     /**
      * Create a template from existing habit
@@ -119,10 +117,7 @@ public class HabitTemplateService {
      * Get templates from friends
      */
     public Page<HabitTemplate> getTemplatesFromFriends(Long userId, Pageable pageable) {
-        List<User> friends = userRepository.findFriendsByUserId(userId);
-        List<Long> friendIds = friends.stream()
-                .map(User::getId)
-                .collect(Collectors.toList());
+        List<Long> friendIds = friendGraph.getFriendIds(userId);
 
         if (friendIds.isEmpty()) {
             return Page.empty(pageable);
@@ -1,42 +1,203 @@
 package com.habittracker.service;
 
+import com.habittracker.dto.CursorPage;
+import com.habittracker.dto.NotificationSummary;
+import com.habittracker.dto.NotificationTemplate;
 import com.habittracker.model.Notification;
 import com.habittracker.model.NotificationStatus;
 import com.habittracker.model.NotificationType;
 import com.habittracker.model.User;
+import com.habittracker.repository.NotificationJdbcRepository;
+import com.habittracker.repository.FriendshipRepository;
 import com.habittracker.repository.NotificationRepository;
+import com.habittracker.util.PageCursor;
 import com.habittracker.websocket.NotificationWebSocketHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Service
 @Transactional
 public class NotificationService {
 
+    private static final Logger logger = LoggerFactory.getLogger(NotificationService.class);
+
+    // Upper bound on ids accepted by one bulk request
+    static final int MAX_BULK_IDS = 1000;
+
     @Autowired
     private NotificationRepository notificationRepository;
 
     @Autowired
     private NotificationWebSocketHandler webSocketHandler;
 
+    @Autowired
+    private NotificationJdbcRepository notificationJdbcRepository;
+
+    @Autowired
+    private FriendActivityCoalescer friendActivityCoalescer;
+
+    @Autowired
+    private FriendshipRepository friendshipRepository;
+
+    @Autowired
+    private UnreadNotificationCounter unreadCounter;
+
+    @Autowired
+    private ColdArchive coldArchive;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.notifications.coalescing.enabled:true}")
+    private boolean coalescingEnabled = true;
+
+    @Value("${app.notifications.coalescing.drain-batch-size:1000}")
+    private int drainBatchSize = 1000;
+
+    @Value("${app.notifications.digest.batch-size:1000}")
+    private int digestBatchSize = 1000;
+
+    @Value("${app.notifications.unread-counter.reconcile-max-age-ms:300000}")
+    private long reconcileMaxAgeMs = 300000;
+
+    @Value("${app.notifications.unread-counter.reconcile-batch-size:500}")
+    private int reconcileBatchSize = 500;
+
     public Notification createNotification(User user, String title, String message, NotificationType type) {
         Notification notification = new Notification(user, title, message, type);
         Notification savedNotification = notificationRepository.save(notification);
 
         // Send real-time notification via WebSocket
         webSocketHandler.sendNotificationToUser(user.getId(), savedNotification);
+        afterCommit(() -> adjustUnreadCounts(Map.of(user.getId(), 1L)));
 
         return savedNotification;
     }
 
+    /**
+     * Send the same notification to many users: one multi-row insert per
+     * insert-batch-size recipients, pushed in one pass once the transaction commits
+     */
+    public List<Notification> createNotifications(Collection<Long> userIds, NotificationTemplate template) {
+        List<Notification> notifications = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            // Only the id is known; the recipient is not loaded
+            User recipient = new User();
+            recipient.setId(userId);
+            notifications.add(new Notification(recipient, template.getTitle(), template.getMessage(),
+                    template.getType()));
+        }
+        return createNotifications(notifications);
+    }
+
+    /**
+     * Save a batch of notifications with multi-row inserts and push them once the transaction commits
+     */
+    public List<Notification> createNotifications(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return notifications;
+        }
+        List<NotificationJdbcRepository.Row> rows = new ArrayList<>(notifications.size());
+        for (Notification n : notifications) {
+            rows.add(new NotificationJdbcRepository.Row(n.getUser().getId(), n.getTitle(), n.getMessage(),
+                    n.getType()));
+        }
+        LocalDateTime createdAt = LocalDateTime.now();
+        List<Long> ids = notificationJdbcRepository.insertAll(rows, createdAt);
+        for (int i = 0; i < notifications.size(); i++) {
+            Notification n = notifications.get(i);
+            n.setId(ids.get(i));
+            n.setCreatedAt(createdAt);
+        }
+        Map<Long, Long> unreadDeltas = new HashMap<>();
+        for (Notification n : notifications) {
+            unreadDeltas.merge(n.getUser().getId(), 1L, Long::sum);
+        }
+        afterCommit(() -> {
+            webSocketHandler.sendNotifications(notifications);
+            adjustUnreadCounts(unreadDeltas);
+        });
+        return notifications;
+    }
+
+    public Notification createNotification(User user, NotificationTemplate template) {
+        return createNotification(user, template.getTitle(), template.getMessage(), template.getType());
+    }
+
     public List<Notification> getUserNotifications(Long userId) {
         return notificationRepository.findByUserIdOrderByCreatedAtDesc(userId);
     }
 
+    /**
+     * Keyset-paginated notifications, newest first; once the table runs out the
+     * pages continue into the cold archive
+     */
+    public CursorPage<NotificationSummary> getUserNotifications(Long userId, String cursor, int limit) {
+        PageCursor position = PageCursor.decode(cursor);
+        Pageable pageable = PageCursor.limit(limit);
+        Slice<NotificationSummary> slice = notificationRepository.findSummariesByUserIdAfter(userId,
+                position.getTimestamp(), position.getId(), pageable);
+        if (!slice.hasNext()) {
+            slice = withArchived(slice, userId, position, pageable);
+        }
+        return CursorPage.of(slice, notification -> new PageCursor(notification.getCreatedAt(), notification.getId()));
+    }
+
+    /**
+     * Keyset-paginated unread notifications, newest first
+     */
+    public CursorPage<NotificationSummary> getUnreadNotifications(Long userId, String cursor, int limit) {
+        PageCursor position = PageCursor.decode(cursor);
+        Slice<NotificationSummary> slice = notificationRepository.findUnreadSummariesByUserIdAfter(userId,
+                position.getTimestamp(), position.getId(), PageCursor.limit(limit));
+        return CursorPage.of(slice, notification -> new PageCursor(notification.getCreatedAt(), notification.getId()));
+    }
+
+    private Slice<NotificationSummary> withArchived(Slice<NotificationSummary> slice, Long userId,
+            PageCursor position, Pageable pageable) {
+        List<NotificationSummary> items = new ArrayList<>(slice.getContent());
+        PageCursor from = items.isEmpty() ? position
+                : new PageCursor(items.get(items.size() - 1).getCreatedAt(), items.get(items.size() - 1).getId());
+        int remaining = pageable.getPageSize() - items.size();
+        // One extra row tells whether another page follows
+        List<Map<String, Object>> archived = coldArchive.readUserHistory(RetentionService.NOTIFICATIONS, userId,
+                from.getTimestamp(), from.getId(), remaining + 1);
+        if (archived.isEmpty()) {
+            return slice;
+        }
+        for (Map<String, Object> row : archived.subList(0, Math.min(remaining, archived.size()))) {
+            items.add(toSummary(row));
+        }
+        return new SliceImpl<>(items, pageable, archived.size() > remaining);
+    }
+
+    private static NotificationSummary toSummary(Map<String, Object> row) {
+        return new NotificationSummary(((Number) row.get("id")).longValue(),
+                NotificationType.valueOf((String) row.get("type")), (String) row.get("title"),
+                (String) row.get("message"), NotificationStatus.valueOf((String) row.get("status")),
+                ColdArchive.dateTime(row.get("created_at")));
+    }
+
     public List<Notification> getUnreadNotifications(Long userId) {
         return notificationRepository.findUnreadNotificationsByUserId(userId);
     }
@@ -51,27 +212,126 @@ public class NotificationService {
 
     public void markAsRead(Long notificationId) {
         notificationRepository.findById(notificationId).ifPresent(notification -> {
+            boolean wasUnread = notification.getStatus() == NotificationStatus.UNREAD;
             notification.setStatus(NotificationStatus.READ);
             notification.setReadAt(LocalDateTime.now());
             notificationRepository.save(notification);
+            if (wasUnread) {
+                Long userId = notification.getUser().getId();
+                afterCommit(() -> adjustUnreadCounts(Map.of(userId, -1L)));
+            }
         });
     }
 
     public void markAllAsRead(Long userId) {
-        List<Notification> unreadNotifications = getUnreadNotifications(userId);
-        for (Notification notification : unreadNotifications) {
-            notification.setStatus(NotificationStatus.READ);
-            notification.setReadAt(LocalDateTime.now());
+        int updated = notificationRepository.markAllAsReadByUserId(userId, LocalDateTime.now());
+        onUnreadRemoved(userId, updated);
+    }
+
+    /**
+     * Mark the user's notifications with the given ids read
+     *
+     * @return number of notifications that were unread
+     */
+    public int markAsRead(Long userId, Collection<Long> notificationIds) {
+        if (notificationIds.isEmpty()) {
+            return 0;
         }
-        notificationRepository.saveAll(unreadNotifications);
+        checkBulkSize(notificationIds);
+        int updated = notificationRepository.markAsReadByUserIdAndIdIn(userId, notificationIds, LocalDateTime.now());
+        onUnreadRemoved(userId, updated);
+        return updated;
+    }
+
+    /**
+     * Mark the given notification and every older one of the user's read
+     *
+     * @return number of notifications that were unread
+     */
+    public int markAsReadUpTo(Long userId, Long notificationId) {
+        int updated = notificationRepository.markAsReadByUserIdUpToId(userId, notificationId, LocalDateTime.now());
+        onUnreadRemoved(userId, updated);
+        return updated;
     }
 
     public void deleteNotification(Long notificationId) {
+        Optional<Notification> notification = notificationRepository.findById(notificationId);
         notificationRepository.deleteById(notificationId);
+        notification.filter(n -> n.getStatus() == NotificationStatus.UNREAD).ifPresent(n -> {
+            Long userId = n.getUser().getId();
+            afterCommit(() -> adjustUnreadCounts(Map.of(userId, -1L)));
+        });
+    }
+
+    /**
+     * Delete the user's notifications with the given ids
+     *
+     * @return number of notifications deleted
+     */
+    public int deleteNotifications(Long userId, Collection<Long> notificationIds) {
+        if (notificationIds.isEmpty()) {
+            return 0;
+        }
+        checkBulkSize(notificationIds);
+        long unread = notificationRepository.countUnreadByUserIdAndIdIn(userId, notificationIds);
+        int deleted = notificationRepository.bulkDeleteByUserIdAndIdIn(userId, notificationIds);
+        onUnreadRemoved(userId, unread);
+        return deleted;
+    }
+
+    /**
+     * Delete the user's notifications created before the given time
+     *
+     * @return number of notifications deleted
+     */
+    public int deleteNotificationsBefore(Long userId, LocalDateTime before) {
+        long unread = notificationRepository.countUnreadByUserIdCreatedBefore(userId, before);
+        int deleted = notificationRepository.bulkDeleteByUserIdCreatedBefore(userId, before);
+        onUnreadRemoved(userId, unread);
+        return deleted;
     }
 
+    /**
+     * Unread count from the user's Redis counter, created from SQL on first read
+     */
     public Long getUnreadCount(Long userId) {
-        return notificationRepository.countUnreadNotificationsByUserId(userId);
+        Long cached = unreadCounter.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        Long count = notificationRepository.countUnreadNotificationsByUserId(userId);
+        unreadCounter.initialize(userId, count);
+        return count;
+    }
+
+    /**
+     * Compare the least recently checked unread counters with SQL, fix any that
+     * drifted and push the corrected badge
+     */
+    @Scheduled(fixedDelayString = "${app.notifications.unread-counter.reconcile-interval-ms:60000}")
+    @Transactional(readOnly = true)
+    public void reconcileUnreadCounts() {
+        List<Long> userIds;
+        try {
+            userIds = unreadCounter.claimStale(reconcileMaxAgeMs, reconcileBatchSize);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to claim unread counters for reconciliation: {}", e.getMessage());
+            return;
+        }
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> counts = new HashMap<>();
+        for (Long userId : userIds) {
+            counts.put(userId, 0L);
+        }
+        for (Object[] row : notificationRepository.countUnreadNotificationsByUserIdIn(userIds)) {
+            counts.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        int drifted = replaceUnreadCounts(counts);
+        if (drifted > 0) {
+            logger.info("Reconciled {} of {} unread counters", drifted, userIds.size());
+        }
     }
 
     public void createStreakMilestoneNotification(User user, String habitName, Integer streakCount) {
@@ -113,19 +373,105 @@ public class NotificationService {
      * Notify user when a friend completes a habit
      */
     public void createFriendCompletedHabitNotification(User user, String friendName, String habitName) {
-        String title = "Friend Activity! 🎯";
-        String message = String.format("%s just completed '%s'!", friendName, habitName);
-        createNotification(user, title, message, NotificationType.FRIEND_COMPLETED_HABIT);
+        createNotification(user, NotificationTemplate.friendCompletedHabit(friendName, habitName));
     }
 
     /**
      * Daily summary of friend activities (social proof)
      */
     public void createFriendsActiveTodayNotification(User user, int friendCount) {
-        String title = "Friends Are Active! 🔥";
-        String message = String.format("%d of your friends completed habits today. Don't get left behind!",
-                friendCount);
-        createNotification(user, title, message, NotificationType.FRIENDS_ACTIVE_TODAY);
+        createNotification(user, NotificationTemplate.friendsActiveToday(friendCount));
+    }
+
+    /**
+     * Tell a friend's friends they completed a habit. Coalesced per recipient: each
+     * recipient gets one notification per window, naming the latest friend
+     * ("Alex and 4 others completed habits!"). Sent immediately when coalescing is
+     * off or Redis is unavailable.
+     */
+    public void queueFriendCompletedHabitNotifications(Collection<Long> recipientIds, String friendName,
+            String habitName) {
+        if (recipientIds.isEmpty()) {
+            return;
+        }
+        if (coalescingEnabled && friendActivityCoalescer.add(recipientIds, friendName, habitName)) {
+            return;
+        }
+        createNotifications(recipientIds, NotificationTemplate.friendCompletedHabit(friendName, habitName));
+    }
+
+    /**
+     * Emit one notification per recipient whose coalescing window has closed.
+     * Each batch commits (and is pushed) on its own before its windows are
+     * acknowledged; a batch that fails stays claimed and is retried once the claim lapses.
+     */
+    @Scheduled(fixedDelayString = "${app.notifications.coalescing.flush-interval-ms:10000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void flushCoalescedNotifications() {
+        List<FriendActivityCoalescer.CoalescedActivity> due;
+        do {
+            try {
+                due = friendActivityCoalescer.drainDue(drainBatchSize);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to drain coalesced friend activity: {}", e.getMessage());
+                return;
+            }
+            List<Notification> notifications = new ArrayList<>(due.size());
+            List<Long> recipientIds = new ArrayList<>(due.size());
+            for (FriendActivityCoalescer.CoalescedActivity activity : due) {
+                recipientIds.add(activity.recipientId());
+                NotificationTemplate template = activity.friendCount() == 1
+                        ? NotificationTemplate.friendCompletedHabit(activity.lastFriendName(), activity.lastHabitName())
+                        : NotificationTemplate.friendsCompletedHabits(activity.lastFriendName(),
+                                activity.friendCount() - 1);
+                User recipient = new User();
+                recipient.setId(activity.recipientId());
+                notifications.add(new Notification(recipient, template.getTitle(), template.getMessage(),
+                        template.getType()));
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> createNotifications(notifications));
+            } catch (RuntimeException e) {
+                logger.warn("Failed to emit {} coalesced notifications, retrying when their claim lapses: {}",
+                        notifications.size(), e.getMessage());
+                return;
+            }
+            try {
+                friendActivityCoalescer.acknowledge(recipientIds);
+            } catch (RuntimeException e) {
+                // The lapsed claims will be sent a second time
+                logger.warn("Failed to acknowledge {} coalesced windows: {}", recipientIds.size(), e.getMessage());
+            }
+        } while (due.size() == drainBatchSize);
+    }
+
+    /**
+     * Send every user whose friends completed habits since the given time one
+     * FRIENDS_ACTIVE_TODAY notification, a batch of recipients at a time
+     * (each batch commits and is pushed before the next is read)
+     *
+     * @return number of notifications sent
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int sendFriendsActiveDigest(LocalDateTime since) {
+        int sent = 0;
+        long afterRecipientId = 0;
+        List<Object[]> page;
+        do {
+            page = friendshipRepository.countActiveFriendsSince(since, afterRecipientId, digestBatchSize);
+            List<Notification> notifications = new ArrayList<>(page.size());
+            for (Object[] row : page) {
+                User recipient = new User();
+                recipient.setId(((Number) row[0]).longValue());
+                NotificationTemplate template = NotificationTemplate.friendsActiveToday(((Number) row[1]).intValue());
+                notifications.add(new Notification(recipient, template.getTitle(), template.getMessage(),
+                        template.getType()));
+                afterRecipientId = recipient.getId();
+            }
+            transactionTemplate.executeWithoutResult(status -> createNotifications(notifications));
+            sent += notifications.size();
+        } while (page.size() == digestBatchSize);
+        return sent;
     }
 
     /**
@@ -133,10 +479,7 @@ public class NotificationService {
      */
     public void createFriendStreakMilestoneNotification(User user, String friendName, String habitName,
             Integer streakCount) {
-        String title = "Friend Milestone! 🏆";
-        String message = String.format("%s reached a %d-day streak for '%s'! Send them encouragement!",
-                friendName, streakCount, habitName);
-        createNotification(user, title, message, NotificationType.FRIEND_STREAK_MILESTONE);
+        createNotification(user, NotificationTemplate.friendStreakMilestone(friendName, habitName, streakCount));
     }
 
     /**
@@ -147,4 +490,48 @@ public class NotificationService {
         String message = String.format("%s hasn't completed their habits today. Send them a message!", partnerName);
         createNotification(user, title, message, NotificationType.PARTNER_NEEDS_ENCOURAGEMENT);
     }
+
+    private void onUnreadRemoved(Long userId, long removed) {
+        if (removed > 0) {
+            afterCommit(() -> adjustUnreadCounts(Map.of(userId, -removed)));
+        }
+    }
+
+    private static void checkBulkSize(Collection<Long> notificationIds) {
+        if (notificationIds.size() > MAX_BULK_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_IDS + " notification ids per request");
+        }
+    }
+
+    private void adjustUnreadCounts(Map<Long, Long> deltas) {
+        unreadCounter.adjust(deltas).forEach(webSocketHandler::sendUnreadCount);
+    }
+
+    /**
+     * @return number of counters whose value changed
+     */
+    private int replaceUnreadCounts(Map<Long, Long> counts) {
+        int changed = 0;
+        for (Map.Entry<Long, Long> previous : unreadCounter.replace(counts).entrySet()) {
+            long count = counts.get(previous.getKey());
+            if (previous.getValue() != count) {
+                webSocketHandler.sendUnreadCount(previous.getKey(), count);
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
 }
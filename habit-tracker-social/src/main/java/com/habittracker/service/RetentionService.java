@@ -0,0 +1,148 @@
+package com.habittracker.service;
+
+import com.habittracker.repository.PartitionJdbcRepository;
+import com.habittracker.repository.PartitionJdbcRepository.Partition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSetMetaData;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Retention Service
+ *
+ * Keeps notifications and activity_feed to a rolling window of monthly partitions:
+ * months-ahead empty partitions are kept pre-created (one month per run, split off
+ * an empty p_future so no rows move), and partitions entirely older
+ * than horizon-months are written to the cold archive (mode "archive") and dropped,
+ * or just dropped (mode "drop"). Dropping a partition is a metadata operation, so
+ * expiring a month costs no row deletes.
+ *
+ * Not transactional: partition DDL commits implicitly. The initial split of existing
+ * rows into months is done by migration V16, never by this job.
+ */
+@Service
+public class RetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetentionService.class);
+
+    public static final String NOTIFICATIONS = "notifications";
+    public static final String ACTIVITY_FEED = "activity_feed";
+
+    static final List<String> TABLES = List.of(NOTIFICATIONS, ACTIVITY_FEED);
+
+    @Autowired
+    private PartitionJdbcRepository partitionRepository;
+
+    @Autowired
+    private ColdArchive coldArchive;
+
+    @Value("${app.retention.horizon-months:12}")
+    private int horizonMonths = 12;
+
+    @Value("${app.retention.months-ahead:3}")
+    private int monthsAhead = 3;
+
+    @Value("${app.retention.mode:archive}")
+    private String mode = "archive";
+
+    /**
+     * Pre-create upcoming partitions and expire old ones for every retained table
+     *
+     * @return number of partitions expired
+     */
+    public int maintain(LocalDate today) {
+        int expired = 0;
+        for (String table : TABLES) {
+            List<Partition> partitions = partitionRepository.findPartitions(table);
+            if (partitions.isEmpty()) {
+                logger.warn("Table {} is not partitioned; skipping retention", table);
+                continue;
+            }
+            addUpcomingPartitions(table, partitions, today);
+            expired += expirePartitions(table, partitionRepository.findPartitions(table), today);
+        }
+        return expired;
+    }
+
+    /**
+     * Add the next monthly partition if fewer than months-ahead are pre-created
+     */
+    void addUpcomingPartitions(String table, List<Partition> partitions, LocalDate today) {
+        LocalDate target = today.withDayOfMonth(1).plusMonths(monthsAhead);
+        LocalDate next = null;
+        for (Partition partition : partitions) {
+            if (partition.upperBound() != null) {
+                next = partition.upperBound();
+            }
+        }
+        if (next == null) {
+            logger.error("Table {} has no monthly partitions; split p_future with migration V16 (offline), "
+                    + "the retention job will not reorganize existing rows", table);
+            return;
+        }
+        if (next.isAfter(target)) {
+            return;
+        }
+        // Splitting a p_future that holds rows copies them under a table lock
+        LocalDateTime oldest = partitionRepository.findOldestCreatedAt(table, PartitionJdbcRepository.FUTURE_PARTITION);
+        if (oldest != null) {
+            logger.error("Partition {} of {} holds rows from {}; add the missing months offline",
+                    PartitionJdbcRepository.FUTURE_PARTITION, table, oldest);
+            return;
+        }
+        partitionRepository.splitFuturePartition(table, next);
+        logger.info("Added partition {} to {}", PartitionJdbcRepository.monthlyPartitionName(next), table);
+    }
+
+    int expirePartitions(String table, List<Partition> partitions, LocalDate today) {
+        LocalDate cutoff = today.withDayOfMonth(1).minusMonths(horizonMonths);
+        int expired = 0;
+        for (Partition partition : partitions) {
+            if (partition.upperBound() == null || partition.upperBound().isAfter(cutoff)) {
+                continue;
+            }
+            if ("archive".equals(mode)) {
+                archive(table, partition);
+            }
+            partitionRepository.dropPartition(table, partition.name());
+            logger.info("Dropped partition {} of {} (rows before {})", partition.name(), table,
+                    partition.upperBound());
+            expired++;
+        }
+        return expired;
+    }
+
+    private void archive(String table, Partition partition) {
+        YearMonth month = YearMonth.from(partition.upperBound().minusMonths(1));
+        try (ColdArchive.ArchiveWriter writer = coldArchive.openWriter(table, month)) {
+            partitionRepository.streamPartition(table, partition.name(), rs -> {
+                ResultSetMetaData meta = rs.getMetaData();
+                Map<String, Object> row = new LinkedHashMap<>();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    row.put(meta.getColumnLabel(i), rs.getObject(i));
+                }
+                try {
+                    writer.append(rs.getLong("user_id"), row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.commit();
+            logger.info("Archived {} rows of {} for {}", writer.getRowCount(), table, month);
+        } catch (IOException e) {
+            // The partition is only dropped once its archive is committed
+            throw new UncheckedIOException("Failed to archive " + table + " partition " + partition.name(), e);
+        }
+    }
+}
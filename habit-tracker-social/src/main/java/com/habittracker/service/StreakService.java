@@ -1,16 +1,17 @@
 package com.habittracker.service;
 
 import com.habittracker.model.Habit;
+import com.habittracker.model.HabitFrequency;
 import com.habittracker.model.Streak;
-import com.habittracker.model.HabitCompletion;
 import com.habittracker.repository.StreakRepository;
 import com.habittracker.repository.HabitCompletionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,48 +30,139 @@ public class StreakService {
         streakRepository.save(streak);
     }
     
-    public void updateStreak(Habit habit) {
-        Optional<Streak> streakOpt = streakRepository.findByHabitIdAndUserId(habit.getId(), habit.getUser().getId());
-        if (streakOpt.isEmpty()) {
-            initializeStreak(habit);
-            streakOpt = streakRepository.findByHabitIdAndUserId(habit.getId(), habit.getUser().getId());
+    /**
+     * Apply a single new completion to the stored streak state.
+     *
+     * Runs in O(1): only the stored lastCompletionDate/currentStreak are consulted.
+     * A completion in the same period (day, week or month depending on the habit's
+     * frequency) as the last one changes nothing; one period later extends the streak;
+     * a larger gap starts a new streak. A back-dated completion that lands in an
+     * earlier period may bridge a gap, so only then is the streak recomputed from history.
+     */
+    public void updateStreak(Habit habit, LocalDateTime completionDate) {
+        Streak streak = streakRepository.findByHabitIdAndUserId(habit.getId(), habit.getUser().getId())
+                .orElseGet(() -> new Streak(habit, habit.getUser()));
+
+        LocalDateTime lastCompletion = streak.getLastCompletionDate();
+        if (lastCompletion == null) {
+            // First completion
+            startNewStreak(streak, completionDate);
+            streakRepository.save(streak);
+            return;
         }
-        
-        Streak streak = streakOpt.get();
-        LocalDateTime now = LocalDateTime.now();
-        
-        // Get the last completion date
-        List<HabitCompletion> completions = habitCompletionRepository.findByHabitIdOrderByCompletionDateDesc(habit.getId());
-        if (completions.isEmpty()) {
+
+        HabitFrequency frequency = habit.getFrequency();
+        long periodsBetween = periodIndex(frequency, completionDate) - periodIndex(frequency, lastCompletion);
+
+        if (periodsBetween < 0) {
+            // Out-of-order completion in an earlier period - repair from history
+            recomputeStreak(habit, streak);
             return;
         }
-        
-        LocalDateTime lastCompletion = completions.get(0).getCompletionDate();
-        
-        // Check if this is a consecutive day
-        if (streak.getLastCompletionDate() != null) {
-            long daysBetween = ChronoUnit.DAYS.between(streak.getLastCompletionDate().toLocalDate(), lastCompletion.toLocalDate());
-            
-            if (daysBetween == 1) {
-                // Consecutive day - increment streak
-                streak.setCurrentStreak(streak.getCurrentStreak() + 1);
-                if (streak.getCurrentStreak() > streak.getLongestStreak()) {
-                    streak.setLongestStreak(streak.getCurrentStreak());
-                }
-            } else if (daysBetween > 1) {
-                // Streak broken - reset to 1
-                streak.setCurrentStreak(1);
-                streak.setStreakStartDate(lastCompletion);
+
+        if (periodsBetween == 0) {
+            // Same period as the last completion - streak unchanged
+            if (completionDate.isAfter(lastCompletion)) {
+                streak.setLastCompletionDate(completionDate);
+                streakRepository.save(streak);
             }
+            return;
+        }
+
+        if (periodsBetween == 1) {
+            // Consecutive period - increment streak
+            streak.setCurrentStreak(streak.getCurrentStreak() + 1);
+            if (streak.getCurrentStreak() > streak.getLongestStreak()) {
+                streak.setLongestStreak(streak.getCurrentStreak());
+            }
+            streak.setLastCompletionDate(completionDate);
         } else {
-            // First completion
-            streak.setCurrentStreak(1);
-            streak.setStreakStartDate(lastCompletion);
+            // Streak broken - reset to 1
+            startNewStreak(streak, completionDate);
+        }
+        streakRepository.save(streak);
+    }
+
+    /**
+     * Rebuild a habit's streak from its full completion history (repair path)
+     */
+    public void recomputeStreak(Habit habit) {
+        Streak streak = streakRepository.findByHabitIdAndUserId(habit.getId(), habit.getUser().getId())
+                .orElseGet(() -> new Streak(habit, habit.getUser()));
+        recomputeStreak(habit, streak);
+    }
+
+    private void recomputeStreak(Habit habit, Streak streak) {
+        // Newest first; only timestamps are loaded
+        List<LocalDateTime> completionDates = habitCompletionRepository.findCompletionDatesByHabitId(habit.getId());
+        if (completionDates.isEmpty()) {
+            streak.setCurrentStreak(0);
+            streak.setLastCompletionDate(null);
+            streak.setStreakStartDate(null);
+            streakRepository.save(streak);
+            return;
+        }
+
+        HabitFrequency frequency = habit.getFrequency();
+        int currentStreak = 0;
+        int longestStreak = 0;
+        int run = 0;
+        boolean inCurrentRun = true;
+        LocalDateTime streakStart = null;
+        Long previousPeriod = null;
+
+        for (LocalDateTime date : completionDates) {
+            long period = periodIndex(frequency, date);
+            if (previousPeriod != null && period == previousPeriod) {
+                if (inCurrentRun) {
+                    streakStart = date;
+                }
+                continue;
+            }
+            if (previousPeriod == null || previousPeriod - period == 1) {
+                run++;
+            } else {
+                inCurrentRun = false;
+                run = 1;
+            }
+            if (inCurrentRun) {
+                currentStreak = run;
+                streakStart = date;
+            }
+            longestStreak = Math.max(longestStreak, run);
+            previousPeriod = period;
         }
-        
-        streak.setLastCompletionDate(lastCompletion);
+
+        streak.setCurrentStreak(currentStreak);
+        streak.setLongestStreak(Math.max(longestStreak, streak.getLongestStreak()));
+        streak.setLastCompletionDate(completionDates.get(0));
+        streak.setStreakStartDate(streakStart);
         streakRepository.save(streak);
     }
+
+    private void startNewStreak(Streak streak, LocalDateTime completionDate) {
+        streak.setCurrentStreak(1);
+        streak.setStreakStartDate(completionDate);
+        streak.setLastCompletionDate(completionDate);
+        if (streak.getLongestStreak() < 1) {
+            streak.setLongestStreak(1);
+        }
+    }
+
+    /**
+     * Index of the streak period containing the given date; consecutive periods
+     * differ by exactly one. CUSTOM habits are tracked per day.
+     */
+    static long periodIndex(HabitFrequency frequency, LocalDateTime date) {
+        LocalDate day = date.toLocalDate();
+        if (frequency == HabitFrequency.WEEKLY) {
+            return Math.floorDiv(day.with(DayOfWeek.MONDAY).toEpochDay(), 7);
+        }
+        if (frequency == HabitFrequency.MONTHLY) {
+            return day.getYear() * 12L + day.getMonthValue() - 1;
+        }
+        return day.toEpochDay();
+    }
     
     public Optional<Streak> getStreak(Long habitId, Long userId) {
         return streakRepository.findByHabitIdAndUserId(habitId, userId);
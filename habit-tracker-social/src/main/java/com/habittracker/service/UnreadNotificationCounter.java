@@ -0,0 +1,221 @@
+package com.habittracker.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unread Notification Counter
+ *
+ * Per-user unread counts in Redis (notification:unread:{userId}), so the badge is
+ * one GET instead of a COUNT over the user's notifications. A counter is created
+ * from SQL on first read and then only adjusted; adjustments to users without a
+ * counter are dropped, since the next read loads the committed count anyway.
+ *
+ * Counters can drift (Redis errors, a load racing a commit), so
+ * notification:unread:checked tracks when each counter was last compared with SQL
+ * and NotificationService periodically reconciles the oldest ones. Counters expire
+ * ttl-hours after the user's last notification activity.
+ */
+@Component
+public class UnreadNotificationCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnreadNotificationCounter.class);
+
+    static final String COUNTER_PREFIX = "notification:unread:";
+    static final String CHECKED_KEY = "notification:unread:checked";
+
+    private static final int SCRIPT_BATCH_SIZE = 500;
+
+    // KEYS = checked set, counter; ARGV = count, ttl seconds, now (ms); returns 1 if created
+    private static final RedisScript<Long> INITIALIZE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('SET', KEYS[2], ARGV[1], 'NX', 'EX', ARGV[2]) then\n" +
+            "  redis.call('ZADD', KEYS[1], ARGV[3], string.sub(KEYS[2], " + (COUNTER_PREFIX.length() + 1) + "))\n" +
+            "  return 1\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    // KEYS = counters; ARGV = ttl seconds, deltas; returns new counts, -1 where there is no counter
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ADJUST_SCRIPT = new DefaultRedisScript<>(
+            "local result = {}\n" +
+            "for i = 1, #KEYS do\n" +
+            "  if redis.call('EXISTS', KEYS[i]) == 1 then\n" +
+            "    local count = redis.call('INCRBY', KEYS[i], ARGV[i + 1])\n" +
+            "    if count < 0 then\n" +
+            "      redis.call('SET', KEYS[i], 0)\n" +
+            "      count = 0\n" +
+            "    end\n" +
+            "    redis.call('EXPIRE', KEYS[i], ARGV[1])\n" +
+            "    result[i] = count\n" +
+            "  else\n" +
+            "    result[i] = -1\n" +
+            "  end\n" +
+            "end\n" +
+            "return result", List.class);
+
+    // KEYS = checked set, counters; ARGV = now (ms), counts; returns previous counts, -1 where
+    // there is no counter. Existing counters are shifted, not SET, so they keep their TTL.
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> REPLACE_SCRIPT = new DefaultRedisScript<>(
+            "local result = {}\n" +
+            "for i = 2, #KEYS do\n" +
+            "  local current = redis.call('GET', KEYS[i])\n" +
+            "  if current then\n" +
+            "    redis.call('INCRBY', KEYS[i], tonumber(ARGV[i]) - tonumber(current))\n" +
+            "    redis.call('ZADD', KEYS[1], ARGV[1], string.sub(KEYS[i], " + (COUNTER_PREFIX.length() + 1) + "))\n" +
+            "    result[i - 1] = tonumber(current)\n" +
+            "  else\n" +
+            "    result[i - 1] = -1\n" +
+            "  end\n" +
+            "end\n" +
+            "return result", List.class);
+
+    // KEYS = checked set; ARGV = checked-before (ms), limit, now (ms), counter key prefix.
+    // Claims users checked before the cutoff by bumping their score, so nodes split the work;
+    // users whose counter has expired are dropped from the set.
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_STALE_SCRIPT = new DefaultRedisScript<>(
+            "local stale = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])\n" +
+            "local result = {}\n" +
+            "for _, id in ipairs(stale) do\n" +
+            "  if redis.call('EXISTS', ARGV[4] .. id) == 1 then\n" +
+            "    redis.call('ZADD', KEYS[1], ARGV[3], id)\n" +
+            "    table.insert(result, id)\n" +
+            "  else\n" +
+            "    redis.call('ZREM', KEYS[1], id)\n" +
+            "  end\n" +
+            "end\n" +
+            "return result", List.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${app.notifications.unread-counter.ttl-hours:24}")
+    private long ttlHours = 24;
+
+    /**
+     * Current count, or null if the user has no counter or Redis is unavailable
+     */
+    public Long get(Long userId) {
+        try {
+            String value = redisTemplate.opsForValue().get(COUNTER_PREFIX + userId);
+            return value == null ? null : Long.valueOf(value);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to read unread count for user {}: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Create a user's counter from a SQL count, unless another request already has
+     */
+    public void initialize(Long userId, long count) {
+        try {
+            redisTemplate.execute(INITIALIZE_SCRIPT, List.of(CHECKED_KEY, COUNTER_PREFIX + userId),
+                    String.valueOf(count), String.valueOf(ttlSeconds()), String.valueOf(System.currentTimeMillis()));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to initialize unread count for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Shift existing counters (never below zero)
+     *
+     * @return new count per user that has a counter; empty if Redis is unavailable
+     */
+    public Map<Long, Long> adjust(Map<Long, Long> deltas) {
+        Map<Long, Long> counts = new LinkedHashMap<>();
+        List<Long> userIds = new ArrayList<>(deltas.keySet());
+        for (int from = 0; from < userIds.size(); from += SCRIPT_BATCH_SIZE) {
+            List<Long> chunk = userIds.subList(from, Math.min(from + SCRIPT_BATCH_SIZE, userIds.size()));
+            List<String> keys = new ArrayList<>(chunk.size());
+            List<String> args = new ArrayList<>(chunk.size() + 1);
+            args.add(String.valueOf(ttlSeconds()));
+            for (Long userId : chunk) {
+                keys.add(COUNTER_PREFIX + userId);
+                args.add(String.valueOf(deltas.get(userId)));
+            }
+            List<?> result;
+            try {
+                result = redisTemplate.execute(ADJUST_SCRIPT, keys, args.toArray());
+            } catch (RuntimeException e) {
+                logger.warn("Failed to adjust unread counts for {} users: {}", chunk.size(), e.getMessage());
+                return counts;
+            }
+            collect(chunk, result, counts);
+        }
+        return counts;
+    }
+
+    /**
+     * Overwrite existing counters with authoritative counts
+     *
+     * @return previous count per user that had a counter; empty if Redis is unavailable
+     */
+    public Map<Long, Long> replace(Map<Long, Long> counts) {
+        if (counts.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Long> userIds = new ArrayList<>(counts.keySet());
+        List<String> keys = new ArrayList<>(userIds.size() + 1);
+        keys.add(CHECKED_KEY);
+        List<String> args = new ArrayList<>(userIds.size() + 1);
+        args.add(String.valueOf(System.currentTimeMillis()));
+        for (Long userId : userIds) {
+            keys.add(COUNTER_PREFIX + userId);
+            args.add(String.valueOf(counts.get(userId)));
+        }
+        Map<Long, Long> previous = new LinkedHashMap<>();
+        try {
+            collect(userIds, redisTemplate.execute(REPLACE_SCRIPT, keys, args.toArray()), previous);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to replace unread counts for {} users: {}", userIds.size(), e.getMessage());
+        }
+        return previous;
+    }
+
+    /**
+     * Claim up to limit users whose counters were last compared with SQL more than maxAgeMs ago
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> claimStale(long maxAgeMs, int limit) {
+        long now = System.currentTimeMillis();
+        List<Object> raw = redisTemplate.execute(CLAIM_STALE_SCRIPT, List.of(CHECKED_KEY),
+                String.valueOf(now - maxAgeMs), String.valueOf(limit), String.valueOf(now), COUNTER_PREFIX);
+        List<Long> userIds = new ArrayList<>();
+        if (raw != null) {
+            for (Object id : raw) {
+                userIds.add(Long.valueOf((String) id));
+            }
+        }
+        return userIds;
+    }
+
+    private long ttlSeconds() {
+        return ttlHours * 3600;
+    }
+
+    private static void collect(List<Long> userIds, List<?> result, Map<Long, Long> into) {
+        if (result == null) {
+            return;
+        }
+        for (int i = 0; i < userIds.size() && i < result.size(); i++) {
+            long count = ((Number) result.get(i)).longValue();
+            if (count >= 0) {
+                into.put(userIds.get(i), count);
+            }
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package com.habittracker.service;
 
+import com.habittracker.event.UserChangedEvent;
 import com.habittracker.model.User;
+import com.habittracker.repository.ActivityFeedRepository;
+import com.habittracker.repository.NotificationRepository;
 import com.habittracker.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -26,6 +31,18 @@ public class UserService implements UserDetailsService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private FriendGraph friendGraph;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private ActivityFeedRepository activityFeedRepository;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         return userRepository.findByUsername(username)
@@ -63,12 +80,54 @@ public class UserService implements UserDetailsService {
     }
 
     public List<User> getFriends(Long userId) {
-        return userRepository.findFriendsByUserId(userId);
+        return userRepository.findAllById(friendGraph.getFriendIds(userId));
     }
 
     @CacheEvict(value = "users", key = "#user.id")
     public User updateUser(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(saved.getId()));
+        return saved;
+    }
+
+    /**
+     * Update the editable profile fields of a user
+     */
+    @CacheEvict(value = "users", key = "#userId")
+    public User updateProfile(Long userId, String firstName, String lastName, String email) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setEmail(email);
+        User saved = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
+        return saved;
+    }
+
+    /**
+     * Revoke every JWT issued to a user so far by bumping their token version
+     */
+    @CacheEvict(value = "users", key = "#userId")
+    public void revokeTokens(Long userId) {
+        userRepository.incrementTokenVersion(userId);
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
+    }
+
+    /**
+     * Change a user's password and sign them out everywhere, so a stolen token
+     * does not outlive the password it was obtained with
+     */
+    @CacheEvict(value = "users", key = "#userId")
+    public void changePassword(Long userId, String currentPassword, String newPassword) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        if (!passwordEncoder.matches(currentPassword, user.getPassword())) {
+            throw new BadCredentialsException("Current password is incorrect");
+        }
+        user.setPassword(passwordEncoder.encode(newPassword));
+        userRepository.save(user);
+        revokeTokens(userId);
     }
 
     public void updateLastLogin(Long userId) {
@@ -80,7 +139,11 @@ public class UserService implements UserDetailsService {
 
     @CacheEvict(value = "users", key = "#id")
     public void deleteUser(Long id) {
+        // Partitioned tables carry no foreign key, so no ON DELETE CASCADE
+        notificationRepository.bulkDeleteByUserId(id);
+        activityFeedRepository.bulkDeleteByUserId(id);
         userRepository.deleteById(id);
+        eventPublisher.publishEvent(new UserChangedEvent(id));
     }
 
     public boolean existsByUsername(String username) {
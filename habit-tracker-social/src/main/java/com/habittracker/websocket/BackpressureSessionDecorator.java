@@ -0,0 +1,230 @@
+package com.habittracker.websocket;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Backpressure Session Decorator
+ *
+ * Thread-safe outbound buffer for one WebSocket session, modelled on Spring's
+ * ConcurrentWebSocketSessionDecorator: the thread that gets the flush lock writes
+ * the buffer out, the others queue and return. Unlike Spring's, the buffer knows
+ * each frame's STOMP destination, so OutboundBackpressure can coalesce superseded
+ * frames and drop the oldest ones instead of only closing the session.
+ */
+public class BackpressureSessionDecorator extends WebSocketSessionDecorator {
+
+    private static final String MESSAGE_COMMAND = "MESSAGE\n";
+    private static final String DESTINATION_HEADER = "\ndestination:";
+    // STOMP headers precede the body; destinations sit well within this many bytes
+    private static final int HEADER_SCAN_BYTES = 1024;
+
+    private record Frame(String destination, WebSocketMessage<?> message) {
+    }
+
+    private final int sendTimeLimit;
+    private final int bufferSizeLimit;
+    private final OutboundBackpressure policy;
+
+    // Guarded by itself
+    private final Deque<Frame> buffer = new ArrayDeque<>();
+    private final AtomicInteger bufferSize = new AtomicInteger();
+
+    private final Lock flushLock = new ReentrantLock();
+    private final Lock closeLock = new ReentrantLock();
+
+    private volatile long sendStartTime;
+    private volatile boolean limitExceeded;
+    private volatile boolean closeInProgress;
+
+    BackpressureSessionDecorator(WebSocketSession delegate, int sendTimeLimit, int bufferSizeLimit,
+            OutboundBackpressure policy) {
+        super(delegate);
+        this.sendTimeLimit = sendTimeLimit;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.policy = policy;
+    }
+
+    public int getBufferSize() {
+        return bufferSize.get();
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (shouldNotSend()) {
+            return;
+        }
+        String destination = destinationOf(message);
+        synchronized (buffer) {
+            if (destination != null && policy.isCoalesced(destination)) {
+                removeQueued(destination);
+            }
+            buffer.add(new Frame(destination, message));
+            bufferSize.addAndGet(message.getPayloadLength());
+        }
+        do {
+            if (!tryFlushBuffer()) {
+                checkLimits();
+                break;
+            }
+        } while (!isBufferEmpty() && !shouldNotSend());
+    }
+
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        closeLock.lock();
+        try {
+            if (closeInProgress) {
+                return;
+            }
+            closeInProgress = true;
+        } finally {
+            closeLock.unlock();
+        }
+        discardBuffer();
+        super.close(limitExceeded ? CloseStatus.SESSION_NOT_RELIABLE : status);
+    }
+
+    void discardBuffer() {
+        synchronized (buffer) {
+            buffer.clear();
+            bufferSize.set(0);
+        }
+    }
+
+    private boolean tryFlushBuffer() throws IOException {
+        if (!flushLock.tryLock()) {
+            return false;
+        }
+        try {
+            while (!shouldNotSend()) {
+                Frame frame;
+                synchronized (buffer) {
+                    frame = buffer.poll();
+                    if (frame == null) {
+                        break;
+                    }
+                    bufferSize.addAndGet(-frame.message().getPayloadLength());
+                }
+                sendStartTime = System.currentTimeMillis();
+                getDelegate().sendMessage(frame.message());
+                sendStartTime = 0;
+            }
+        } finally {
+            sendStartTime = 0;
+            flushLock.unlock();
+        }
+        return true;
+    }
+
+    private void checkLimits() {
+        if (shouldNotSend() || !closeLock.tryLock()) {
+            return;
+        }
+        try {
+            long sendStarted = sendStartTime;
+            if (sendStarted > 0 && System.currentTimeMillis() - sendStarted > sendTimeLimit) {
+                exceeded("send-time", String.format("send has taken more than %d ms", sendTimeLimit));
+            } else if (bufferSize.get() > bufferSizeLimit) {
+                if (policy.dropsOnOverflow()) {
+                    dropOldest();
+                } else {
+                    exceeded("buffer-size", String.format("%d bytes queued, limit %d", bufferSize.get(),
+                            bufferSizeLimit));
+                }
+            }
+        } finally {
+            closeLock.unlock();
+        }
+    }
+
+    /**
+     * Drop MESSAGE frames oldest first until the buffer fits; control frames are kept
+     */
+    private void dropOldest() {
+        synchronized (buffer) {
+            Iterator<Frame> frames = buffer.iterator();
+            while (bufferSize.get() > bufferSizeLimit && frames.hasNext()) {
+                Frame frame = frames.next();
+                if (frame.destination() != null) {
+                    frames.remove();
+                    bufferSize.addAndGet(-frame.message().getPayloadLength());
+                    policy.recordDropped(frame.destination(), "overflow");
+                }
+            }
+        }
+    }
+
+    private void removeQueued(String destination) {
+        Iterator<Frame> frames = buffer.iterator();
+        while (frames.hasNext()) {
+            Frame frame = frames.next();
+            if (destination.equals(frame.destination())) {
+                frames.remove();
+                bufferSize.addAndGet(-frame.message().getPayloadLength());
+                policy.recordDropped(destination, "coalesced");
+            }
+        }
+    }
+
+    private void exceeded(String reason, String detail) {
+        limitExceeded = true;
+        discardBuffer();
+        policy.recordDisconnected(getId(), reason, detail);
+        // SubProtocolWebSocketHandler closes the session when it sees this
+        throw new SessionLimitExceededException(detail, CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    private boolean isBufferEmpty() {
+        synchronized (buffer) {
+            return buffer.isEmpty();
+        }
+    }
+
+    private boolean shouldNotSend() {
+        return limitExceeded || closeInProgress;
+    }
+
+    /**
+     * Destination header of a STOMP MESSAGE frame, or null for any other frame
+     */
+    static String destinationOf(WebSocketMessage<?> message) {
+        String head;
+        if (message instanceof TextMessage text) {
+            head = text.getPayload();
+        } else if (message instanceof BinaryMessage binary) {
+            ByteBuffer payload = binary.getPayload().duplicate();
+            byte[] bytes = new byte[Math.min(payload.remaining(), HEADER_SCAN_BYTES)];
+            payload.get(bytes);
+            head = new String(bytes, StandardCharsets.ISO_8859_1);
+        } else {
+            return null;
+        }
+        if (!head.startsWith(MESSAGE_COMMAND)) {
+            return null;
+        }
+        int headersEnd = head.indexOf("\n\n");
+        int start = head.indexOf(DESTINATION_HEADER);
+        if (start < 0 || (headersEnd >= 0 && start > headersEnd)) {
+            return null;
+        }
+        start += DESTINATION_HEADER.length();
+        int end = head.indexOf('\n', start);
+        return end < 0 ? null : head.substring(start, end);
+    }
+}
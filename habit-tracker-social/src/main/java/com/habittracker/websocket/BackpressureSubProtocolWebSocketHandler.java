@@ -0,0 +1,33 @@
+package com.habittracker.websocket;
+
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+/**
+ * STOMP session handler that buffers outbound frames per OutboundBackpressure
+ * instead of Spring's ConcurrentWebSocketSessionDecorator
+ */
+public class BackpressureSubProtocolWebSocketHandler extends SubProtocolWebSocketHandler {
+
+    private final OutboundBackpressure outboundBackpressure;
+
+    public BackpressureSubProtocolWebSocketHandler(MessageChannel clientInboundChannel,
+            SubscribableChannel clientOutboundChannel, OutboundBackpressure outboundBackpressure) {
+        super(clientInboundChannel, clientOutboundChannel);
+        this.outboundBackpressure = outboundBackpressure;
+    }
+
+    @Override
+    protected WebSocketSession decorateSession(WebSocketSession session) {
+        return outboundBackpressure.decorate(session, getSendTimeLimit(), getSendBufferSizeLimit());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+        outboundBackpressure.release(session.getId());
+        super.afterConnectionClosed(session, closeStatus);
+    }
+}
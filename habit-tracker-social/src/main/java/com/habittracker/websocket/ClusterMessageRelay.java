@@ -0,0 +1,489 @@
+package com.habittracker.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cluster Message Relay
+ *
+ * Delivers user-destined STOMP messages wherever the user is connected. The
+ * in-memory broker only reaches sessions on this JVM, so a send goes to the local
+ * broker directly and, for every other node WebSocketSessionRegistry lists for
+ * the user, onto that node's outbound queue. Queues are flushed every
+ * flush-interval-ms (or as soon as one reaches max-batch-size) as one Redis
+ * PUBLISH per node on ws:relay:{nodeId}; the receiving node hands each message to
+ * its local broker. Broadcasts go to every node over ws:relay:broadcast.
+ *
+ * Recipients are filtered by presence before anything is serialized: users with
+ * no session on this node are not handed to the local broker, and users connected
+ * nowhere are dropped without touching their payload. fanOut() sends one payload
+ * to many users (friend activity); it is serialized to JSON once, the same bytes
+ * go to every local recipient, and each remote node gets a single relayed copy
+ * listing its recipients.
+ *
+ * Messages for replayable destinations (StreamReplayBuffer) are also given the
+ * user's next stream sequence number, carried in a "seq" STOMP header, and
+ * buffered; users who disconnected within the resume window still get them
+ * buffered. resume() replays a reconnecting client's gap.
+ *
+ * Delivery is best effort, like the local broker: messages for a node that left
+ * are dropped. Metrics: websocket.delivery{route=local|remote}, websocket.delivery.skipped,
+ * websocket.resume{outcome}, websocket.relay.sent, websocket.relay.received and websocket.relay.batch.size.
+ */
+@Component
+public class ClusterMessageRelay implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterMessageRelay.class);
+
+    static final String CHANNEL_PREFIX = "ws:relay:";
+    public static final String BROADCAST_CHANNEL = CHANNEL_PREFIX + "broadcast";
+
+    // SimpMessagingTemplate's default; resolved to the user's sessions by the broker
+    static final String USER_DESTINATION_PREFIX = "/user/";
+
+    public static final String RESUME_DESTINATION = "/queue/resume";
+    public static final String SEQUENCE_HEADER = "seq";
+
+    /**
+     * A message for one user
+     */
+    public record UserMessage(Long userId, String destination, Object payload) {
+    }
+
+    // Wire format: userId for one user, userIds for a fan-out, neither for a broadcast;
+    // seqs are the recipients' stream sequence numbers (null if unsequenced).
+    // Payloads are serialized once on the sending node.
+    record RelayedMessage(Long userId, List<Long> userIds, List<Long> seqs, String destination, JsonNode payload) {
+    }
+
+    record RelayBatch(String from, List<RelayedMessage> messages) {
+    }
+
+    @Autowired
+    private WebSocketSessionRegistry sessionRegistry;
+
+    @Autowired
+    private StreamReplayBuffer replayBuffer;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.websocket.relay.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.websocket.relay.flush-interval-ms:20}")
+    private long flushIntervalMs = 20;
+
+    @Value("${app.websocket.relay.max-batch-size:200}")
+    private int maxBatchSize = 200;
+
+    private final Map<String, Queue<RelayedMessage>> outbound = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> outboundSizes = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    private Counter localDeliveries;
+    private Counter remoteDeliveries;
+    private Counter skipped;
+    private Counter resumedComplete;
+    private Counter resumedIncomplete;
+    private Counter relayed;
+    private Counter received;
+    private DistributionSummary batchSizes;
+
+    @PostConstruct
+    void init() {
+        localDeliveries = Counter.builder("websocket.delivery").tag("route", "local")
+                .description("User messages handed to this node's broker").register(meterRegistry);
+        remoteDeliveries = Counter.builder("websocket.delivery").tag("route", "remote")
+                .description("User messages relayed to another node").register(meterRegistry);
+        skipped = Counter.builder("websocket.delivery.skipped")
+                .description("User messages not sent because the user has no session").register(meterRegistry);
+        resumedComplete = Counter.builder("websocket.resume").tag("outcome", "complete")
+                .description("Reconnects whose gap was replayed from the buffer").register(meterRegistry);
+        resumedIncomplete = Counter.builder("websocket.resume").tag("outcome", "incomplete")
+                .description("Reconnects whose gap the buffer no longer covers").register(meterRegistry);
+        relayed = Counter.builder("websocket.relay.sent")
+                .description("Messages published to other nodes").register(meterRegistry);
+        received = Counter.builder("websocket.relay.received")
+                .description("Messages received from other nodes").register(meterRegistry);
+        batchSizes = DistributionSummary.builder("websocket.relay.batch.size")
+                .description("Messages per relay publish").register(meterRegistry);
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "websocket-relay-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAll, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flusher.shutdown();
+        flushAll();
+    }
+
+    public String getNodeChannel() {
+        return CHANNEL_PREFIX + sessionRegistry.getNodeId();
+    }
+
+    public void sendToUser(Long userId, String destination, Object payload) {
+        sendToUsers(List.of(new UserMessage(userId, destination, payload)));
+    }
+
+    /**
+     * Deliver messages to their users on every node; one registry lookup for the batch
+     */
+    public void sendToUsers(Collection<UserMessage> messages) {
+        List<Long> userIds = new ArrayList<>(messages.size());
+        for (UserMessage message : messages) {
+            userIds.add(message.userId());
+        }
+        Map<Long, Set<String>> remoteNodes = remoteNodes(userIds);
+        // Offline recipients of replayable messages are still buffered if they only just left
+        List<Long> offline = new ArrayList<>();
+        for (UserMessage message : messages) {
+            if (replayBuffer.isReplayable(message.destination()) && !isConnected(message.userId(), remoteNodes)) {
+                offline.add(message.userId());
+            }
+        }
+        Set<Long> away = sessionRegistry.awayUsers(offline);
+
+        List<UserMessage> sequenced = new ArrayList<>();
+        for (UserMessage message : messages) {
+            boolean local = sessionRegistry.hasLocalSessions(message.userId());
+            Set<String> nodes = remoteNodes.get(message.userId());
+            if (replayBuffer.isReplayable(message.destination())) {
+                if (local || nodes != null || away.contains(message.userId())) {
+                    sequenced.add(message);
+                } else {
+                    skipped.increment();
+                }
+                continue;
+            }
+            if (!local && nodes == null) {
+                skipped.increment();
+                continue;
+            }
+            if (local) {
+                messagingTemplate.convertAndSendToUser(message.userId().toString(), message.destination(),
+                        message.payload());
+                localDeliveries.increment();
+            }
+            if (nodes != null) {
+                RelayedMessage relayedMessage = new RelayedMessage(message.userId(), null, null,
+                        message.destination(), objectMapper.valueToTree(message.payload()));
+                for (String node : nodes) {
+                    enqueue(node, relayedMessage);
+                    remoteDeliveries.increment();
+                }
+            }
+        }
+        if (!sequenced.isEmpty()) {
+            sendSequenced(sequenced, remoteNodes);
+        }
+    }
+
+    /**
+     * Deliver one payload to many users on every node, serializing it at most once
+     * for local recipients and once for all remote ones; nothing is serialized if
+     * none of the users is connected (or, for replayable destinations, away)
+     */
+    public void fanOut(Collection<Long> userIds, String destination, Object payload) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Set<String>> remoteNodes = remoteNodes(userIds);
+        List<Long> localUsers = new ArrayList<>();
+        Map<String, List<Long>> usersByNode = new HashMap<>();
+        List<Long> offline = new ArrayList<>();
+        for (Long userId : userIds) {
+            boolean local = sessionRegistry.hasLocalSessions(userId);
+            Set<String> nodes = remoteNodes.get(userId);
+            if (local) {
+                localUsers.add(userId);
+            } else if (nodes == null) {
+                offline.add(userId);
+            }
+            if (nodes != null) {
+                for (String node : nodes) {
+                    usersByNode.computeIfAbsent(node, n -> new ArrayList<>()).add(userId);
+                }
+            }
+        }
+        boolean replayable = replayBuffer.isReplayable(destination);
+        Set<Long> away = replayable ? sessionRegistry.awayUsers(offline) : Set.of();
+        skipped.increment(offline.size() - away.size());
+        if (localUsers.isEmpty() && usersByNode.isEmpty() && away.isEmpty()) {
+            return;
+        }
+
+        // The object is converted once; local bytes, buffered frames and remote copies are written from the tree
+        JsonNode tree = objectMapper.valueToTree(payload);
+        String json = toJson(tree);
+        Map<Long, Long> seqs = null;
+        if (replayable) {
+            Set<Long> recipients = new LinkedHashSet<>(localUsers);
+            usersByNode.values().forEach(recipients::addAll);
+            recipients.addAll(away);
+            List<StreamReplayBuffer.Entry> entries = new ArrayList<>(recipients.size());
+            for (Long userId : recipients) {
+                entries.add(new StreamReplayBuffer.Entry(userId, destination, json));
+            }
+            seqs = zip(recipients, replayBuffer.append(entries));
+        }
+        if (!localUsers.isEmpty()) {
+            deliverLocally(localUsers, seqsOf(localUsers, seqs), destination, json.getBytes(StandardCharsets.UTF_8));
+        }
+        for (Map.Entry<String, List<Long>> node : usersByNode.entrySet()) {
+            enqueue(node.getKey(), new RelayedMessage(null, node.getValue(), seqsOf(node.getValue(), seqs),
+                    destination, tree));
+            remoteDeliveries.increment(node.getValue().size());
+        }
+    }
+
+    /**
+     * Replay the frames a reconnecting user missed after lastSeq to their sessions on
+     * this node, then send the outcome on /queue/resume; if it is not complete the
+     * client refetches over REST. Frames may reach the user's other sessions too, so
+     * clients drop sequence numbers they have already seen.
+     */
+    public StreamReplayBuffer.Replay resume(Long userId, long lastSeq) {
+        StreamReplayBuffer.Replay replay = replayBuffer.replay(userId, lastSeq);
+        for (StreamReplayBuffer.Frame frame : replay.frames()) {
+            deliverLocally(List.of(userId), List.of(frame.seq()), frame.destination(),
+                    frame.json().getBytes(StandardCharsets.UTF_8));
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("latestSeq", replay.latestSeq());
+        status.put("complete", replay.complete());
+        status.put("replayed", replay.frames().size());
+        messagingTemplate.convertAndSendToUser(userId.toString(), RESUME_DESTINATION, status);
+        (replay.complete() ? resumedComplete : resumedIncomplete).increment();
+        return replay;
+    }
+
+    /**
+     * Send to a broadcast destination on this node and every other node
+     */
+    public void broadcast(String destination, Object payload) {
+        messagingTemplate.convertAndSend(destination, payload);
+        if (!enabled) {
+            return;
+        }
+        RelayedMessage message = new RelayedMessage(null, null, null, destination,
+                objectMapper.valueToTree(payload));
+        publish(BROADCAST_CHANNEL, List.of(message));
+    }
+
+    /**
+     * Relayed batch from another node (or a broadcast, possibly our own)
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        RelayBatch batch;
+        try {
+            batch = objectMapper.readValue(message.getBody(), RelayBatch.class);
+        } catch (IOException e) {
+            logger.warn("Dropping unreadable relay message: {}", e.getMessage());
+            return;
+        }
+        if (sessionRegistry.getNodeId().equals(batch.from())) {
+            return;
+        }
+        for (RelayedMessage relayedMessage : batch.messages()) {
+            if (relayedMessage.userIds() != null) {
+                deliverLocally(relayedMessage.userIds(), relayedMessage.seqs(), relayedMessage.destination(),
+                        toJson(relayedMessage.payload()).getBytes(StandardCharsets.UTF_8));
+            } else if (relayedMessage.userId() != null && relayedMessage.seqs() != null) {
+                deliverLocally(List.of(relayedMessage.userId()), relayedMessage.seqs(), relayedMessage.destination(),
+                        toJson(relayedMessage.payload()).getBytes(StandardCharsets.UTF_8));
+            } else if (relayedMessage.userId() != null) {
+                messagingTemplate.convertAndSendToUser(relayedMessage.userId().toString(),
+                        relayedMessage.destination(), relayedMessage.payload());
+            } else {
+                messagingTemplate.convertAndSend(relayedMessage.destination(), relayedMessage.payload());
+            }
+        }
+        received.increment(batch.messages().size());
+    }
+
+    /**
+     * Sequence, buffer and deliver messages for replayable destinations
+     */
+    private void sendSequenced(List<UserMessage> messages, Map<Long, Set<String>> remoteNodes) {
+        List<JsonNode> trees = new ArrayList<>(messages.size());
+        List<StreamReplayBuffer.Entry> entries = new ArrayList<>(messages.size());
+        for (UserMessage message : messages) {
+            JsonNode tree = objectMapper.valueToTree(message.payload());
+            trees.add(tree);
+            entries.add(new StreamReplayBuffer.Entry(message.userId(), message.destination(), toJson(tree)));
+        }
+        List<Long> seqs = replayBuffer.append(entries);
+        for (int i = 0; i < messages.size(); i++) {
+            UserMessage message = messages.get(i);
+            List<Long> seq = seqs == null ? null : List.of(seqs.get(i));
+            if (sessionRegistry.hasLocalSessions(message.userId())) {
+                deliverLocally(List.of(message.userId()), seq, message.destination(),
+                        entries.get(i).json().getBytes(StandardCharsets.UTF_8));
+            }
+            Set<String> nodes = remoteNodes.get(message.userId());
+            if (nodes != null) {
+                RelayedMessage relayedMessage = new RelayedMessage(message.userId(), null, seq,
+                        message.destination(), trees.get(i));
+                for (String node : nodes) {
+                    enqueue(node, relayedMessage);
+                    remoteDeliveries.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Hand pre-serialized JSON to the local broker for each user. Unsequenced, one
+     * message is built and the template only copies headers per destination; with
+     * sequence numbers (parallel to userIds) each user's message carries its own seq
+     * header around the same payload bytes.
+     */
+    private void deliverLocally(List<Long> userIds, List<Long> seqs, String destination, byte[] json) {
+        org.springframework.messaging.Message<byte[]> shared = seqs == null ? jsonMessage(json, null) : null;
+        for (int i = 0; i < userIds.size(); i++) {
+            messagingTemplate.send(USER_DESTINATION_PREFIX + userIds.get(i) + destination,
+                    shared != null ? shared : jsonMessage(json, seqs.get(i)));
+        }
+        localDeliveries.increment(userIds.size());
+    }
+
+    private static org.springframework.messaging.Message<byte[]> jsonMessage(byte[] json, Long seq) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (seq != null) {
+            accessor.setNativeHeader(SEQUENCE_HEADER, seq.toString());
+        }
+        return MessageBuilder.createMessage(json, accessor.getMessageHeaders());
+    }
+
+    private String toJson(JsonNode tree) {
+        try {
+            return objectMapper.writeValueAsString(tree);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean isConnected(Long userId, Map<Long, Set<String>> remoteNodes) {
+        return sessionRegistry.hasLocalSessions(userId) || remoteNodes.containsKey(userId);
+    }
+
+    private static Map<Long, Long> zip(Collection<Long> userIds, List<Long> seqs) {
+        if (seqs == null) {
+            return null;
+        }
+        Map<Long, Long> byUser = new HashMap<>();
+        int i = 0;
+        for (Long userId : userIds) {
+            byUser.put(userId, seqs.get(i++));
+        }
+        return byUser;
+    }
+
+    private static List<Long> seqsOf(List<Long> userIds, Map<Long, Long> seqs) {
+        if (seqs == null) {
+            return null;
+        }
+        List<Long> result = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            result.add(seqs.get(userId));
+        }
+        return result;
+    }
+
+    private Map<Long, Set<String>> remoteNodes(Collection<Long> userIds) {
+        return enabled ? sessionRegistry.remoteNodes(userIds) : Map.of();
+    }
+
+    private void enqueue(String node, RelayedMessage message) {
+        outbound.computeIfAbsent(node, n -> new ConcurrentLinkedQueue<>()).add(message);
+        if (outboundSizes.computeIfAbsent(node, n -> new AtomicInteger()).incrementAndGet() >= maxBatchSize) {
+            flush(node);
+        }
+    }
+
+    void flushAll() {
+        for (String node : outbound.keySet()) {
+            flush(node);
+        }
+    }
+
+    private void flush(String node) {
+        Queue<RelayedMessage> queue = outbound.get(node);
+        AtomicInteger size = outboundSizes.get(node);
+        while (true) {
+            List<RelayedMessage> batch = new ArrayList<>();
+            RelayedMessage next;
+            while (batch.size() < maxBatchSize && (next = queue.poll()) != null) {
+                batch.add(next);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            size.addAndGet(-batch.size());
+            publish(CHANNEL_PREFIX + node, batch);
+        }
+    }
+
+    private void publish(String channel, List<RelayedMessage> batch) {
+        try {
+            redisTemplate.convertAndSend(channel,
+                    objectMapper.writeValueAsString(new RelayBatch(sessionRegistry.getNodeId(), batch)));
+            relayed.increment(batch.size());
+            batchSizes.record(batch.size());
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to relay {} WebSocket messages on {}: {}", batch.size(), channel, e.getMessage());
+        }
+    }
+}
@@ -1,20 +1,32 @@
 package com.habittracker.websocket;
 
+import com.habittracker.dto.ActivityEvent;
+import com.habittracker.dto.NotificationEvent;
+import com.habittracker.model.ActivityFeed;
 import com.habittracker.model.Notification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * WebSocket Notification Handler
  * 
- * Sends real-time notifications to connected clients via WebSocket
+ * Sends real-time notifications to connected clients via WebSocket. Entities are
+ * converted to compact event records (NotificationEvent, ActivityEvent) first and
+ * are never serialized themselves.
  */
 @Component
 public class NotificationWebSocketHandler {
 
+    private static final Logger logger = LoggerFactory.getLogger(NotificationWebSocketHandler.class);
+
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private ClusterMessageRelay messageRelay;
 
     /**
      * Send notification to specific user
@@ -25,13 +37,42 @@ public class NotificationWebSocketHandler {
     public void sendNotificationToUser(Long userId, Notification notification) {
         try {
             // Send to user-specific queue
-            messagingTemplate.convertAndSendToUser(
-                    userId.toString(),
-                    "/queue/notifications",
-                    notification);
+            messageRelay.sendToUser(userId, "/queue/notifications", NotificationEvent.from(notification));
         } catch (Exception e) {
             // Log error but don't fail the notification creation
-            System.err.println("Failed to send WebSocket notification to user " + userId + ": " + e.getMessage());
+            logger.warn("Failed to send WebSocket notification to user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Send a batch of notifications, each to its recipient, in one pass
+     *
+     * @param notifications Saved notifications; only the recipient's id is read
+     */
+    public void sendNotifications(Collection<Notification> notifications) {
+        List<ClusterMessageRelay.UserMessage> messages = new ArrayList<>(notifications.size());
+        for (Notification notification : notifications) {
+            messages.add(new ClusterMessageRelay.UserMessage(notification.getUser().getId(), "/queue/notifications",
+                    NotificationEvent.from(notification)));
+        }
+        try {
+            messageRelay.sendToUsers(messages);
+        } catch (Exception e) {
+            logger.warn("Failed to send {} WebSocket notifications: {}", messages.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Send a user's current unread notification count (the badge)
+     * 
+     * @param userId User ID to notify
+     * @param count  Unread notifications
+     */
+    public void sendUnreadCount(Long userId, long count) {
+        try {
+            messageRelay.sendToUser(userId, "/queue/unread-count", count);
+        } catch (Exception e) {
+            logger.warn("Failed to send unread count to user {}: {}", userId, e.getMessage());
         }
     }
 
@@ -42,43 +83,52 @@ public class NotificationWebSocketHandler {
      */
     public void broadcastNotification(Notification notification) {
         try {
-            messagingTemplate.convertAndSend("/topic/notifications", notification);
+            messageRelay.broadcast("/topic/notifications", NotificationEvent.from(notification));
         } catch (Exception e) {
-            System.err.println("Failed to broadcast WebSocket notification: " + e.getMessage());
+            logger.warn("Failed to broadcast WebSocket notification: {}", e.getMessage());
         }
     }
 
     /**
      * Send friend activity update
      * 
-     * @param userId       User ID to notify
-     * @param activityData Activity data (friend completed habit, etc.)
+     * @param userId   User ID to notify
+     * @param activity Activity (friend completed habit, etc.)
+     */
+    public void sendFriendActivity(Long userId, ActivityFeed activity) {
+        try {
+            messageRelay.sendToUser(userId, "/queue/friend-activity", ActivityEvent.from(activity));
+        } catch (Exception e) {
+            logger.warn("Failed to send friend activity to user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Send the same friend activity update to many users; offline users are skipped
+     * and the payload is serialized once for all of them
+     * 
+     * @param userIds  User IDs to notify
+     * @param activity Activity (friend completed habit, etc.)
      */
-    public void sendFriendActivity(Long userId, Object activityData) {
+    public void sendFriendActivity(Collection<Long> userIds, ActivityFeed activity) {
         try {
-            messagingTemplate.convertAndSendToUser(
-                    userId.toString(),
-                    "/queue/friend-activity",
-                    activityData);
+            messageRelay.fanOut(userIds, "/queue/friend-activity", ActivityEvent.from(activity));
         } catch (Exception e) {
-            System.err.println("Failed to send friend activity to user " + userId + ": " + e.getMessage());
+            logger.warn("Failed to send friend activity to {} users: {}", userIds.size(), e.getMessage());
         }
     }
 
     /**
      * Send streak milestone celebration
      * 
-     * @param userId     User ID to notify
-     * @param streakData Streak milestone data
+     * @param userId       User ID to notify
+     * @param notification Streak milestone notification
      */
-    public void sendStreakMilestone(Long userId, Object streakData) {
+    public void sendStreakMilestone(Long userId, Notification notification) {
         try {
-            messagingTemplate.convertAndSendToUser(
-                    userId.toString(),
-                    "/queue/streak-milestone",
-                    streakData);
+            messageRelay.sendToUser(userId, "/queue/streak-milestone", NotificationEvent.from(notification));
         } catch (Exception e) {
-            System.err.println("Failed to send streak milestone to user " + userId + ": " + e.getMessage());
+            logger.warn("Failed to send streak milestone to user {}: {}", userId, e.getMessage());
         }
     }
 }
@@ -0,0 +1,110 @@
+package com.habittracker.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Outbound Backpressure
+ *
+ * Slow-consumer policy for STOMP sessions. Every session's outbound frames wait in
+ * a BackpressureSessionDecorator bounded by the transport's send buffer size limit:
+ * a queued frame for a coalesced destination (e.g. the unread badge) is replaced by
+ * a newer one, and when the buffer is still over the limit the oldest MESSAGE frames
+ * are dropped (overflow-policy "drop") or the session is closed (overflow-policy
+ * "disconnect"). A send blocked past the send time limit always closes the session.
+ * Dropped frames of sequenced streams show up as a gap the client can resume.
+ *
+ * Metrics: websocket.outbound.queued.bytes (all sessions),
+ * websocket.outbound.dropped{destination,reason=coalesced|overflow} and
+ * websocket.outbound.disconnected{reason}.
+ */
+@Component
+public class OutboundBackpressure {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundBackpressure.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.websocket.outbound.overflow-policy:drop}")
+    private String overflowPolicy = "drop";
+
+    @Value("${app.websocket.outbound.coalesce-destinations:/user/queue/unread-count}")
+    private Set<String> coalesceDestinations = Set.of("/user/queue/unread-count");
+
+    private final Map<String, BackpressureSessionDecorator> sessions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("websocket.outbound.queued.bytes", sessions, OutboundBackpressure::queuedBytes)
+                .description("Bytes of outbound frames waiting for slow WebSocket sessions")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Wrap a newly connected session; replaces Spring's ConcurrentWebSocketSessionDecorator
+     */
+    public WebSocketSession decorate(WebSocketSession session, int sendTimeLimit, int bufferSizeLimit) {
+        BackpressureSessionDecorator decorator = new BackpressureSessionDecorator(session, sendTimeLimit,
+                bufferSizeLimit, this);
+        sessions.put(session.getId(), decorator);
+        return decorator;
+    }
+
+    /**
+     * Forget a closed session and discard whatever it still had queued
+     */
+    public void release(String sessionId) {
+        BackpressureSessionDecorator decorator = sessions.remove(sessionId);
+        if (decorator != null) {
+            decorator.discardBuffer();
+        }
+    }
+
+    boolean isCoalesced(String destination) {
+        return coalesceDestinations.contains(destination);
+    }
+
+    boolean dropsOnOverflow() {
+        return "drop".equalsIgnoreCase(overflowPolicy);
+    }
+
+    void recordDropped(String destination, String reason) {
+        Counter.builder("websocket.outbound.dropped")
+                .tag("destination", destination)
+                .tag("reason", reason)
+                .description("Outbound frames not sent to a slow WebSocket session")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    void recordDisconnected(String sessionId, String reason, String detail) {
+        logger.warn("Closing slow WebSocket session {}: {}", sessionId, detail);
+        Counter.builder("websocket.outbound.disconnected")
+                .tag("reason", reason)
+                .description("WebSocket sessions closed for not keeping up")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static double queuedBytes(Map<String, BackpressureSessionDecorator> sessions) {
+        long total = 0;
+        for (BackpressureSessionDecorator decorator : sessions.values()) {
+            total += decorator.getBufferSize();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,141 @@
+package com.habittracker.websocket;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Payload Format Negotiator
+ *
+ * Lets a client ask for CBOR instead of JSON bodies by sending
+ * "payload-format:cbor" on STOMP CONNECT. Only sessions opened on the native
+ * WebSocket endpoint qualify: SockJS frames are text, and STOMP only sends a body
+ * as a binary frame when its content type is application/octet-stream. Frames for
+ * such sessions are transcoded on the client outbound channel and carry
+ * "payload-format:cbor"; everything else stays JSON.
+ *
+ * Fan-out sends share one payload array across recipients, so transcoded bodies
+ * are cached by array identity and each payload is transcoded at most once.
+ */
+@Component
+public class PayloadFormatNegotiator implements ChannelInterceptor, HandshakeInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayloadFormatNegotiator.class);
+
+    public static final String FORMAT_HEADER = "payload-format";
+    public static final String CBOR = "cbor";
+
+    static final String BINARY_CAPABLE_ATTRIBUTE = "binaryFramesSupported";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final CBORFactory CBOR_FACTORY = new CBORFactory();
+
+    private final Set<String> cborSessions = ConcurrentHashMap.newKeySet();
+
+    // Weak keys compare by identity
+    private final Cache<byte[], byte[]> transcoded = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(1024)
+            .build();
+
+    /**
+     * Marks sessions of the endpoint this is registered on as able to take binary frames
+     */
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler,
+            Map<String, Object> attributes) {
+        attributes.put(BINARY_CAPABLE_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler,
+            Exception exception) {
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, SimpMessageHeaderAccessor.class);
+        if (accessor == null || accessor.getSessionId() == null) {
+            return message;
+        }
+        if (accessor instanceof StompHeaderAccessor stomp && stomp.getCommand() == StompCommand.CONNECT) {
+            negotiate(stomp);
+            return message;
+        }
+        if (accessor.getMessageType() == SimpMessageType.MESSAGE && cborSessions.contains(accessor.getSessionId())
+                && message.getPayload() instanceof byte[] json
+                && MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(accessor.getContentType())) {
+            return toCbor(message, json);
+        }
+        return message;
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        cborSessions.remove(event.getSessionId());
+    }
+
+    private void negotiate(StompHeaderAccessor connect) {
+        Map<String, Object> attributes = connect.getSessionAttributes();
+        boolean binaryCapable = attributes != null && Boolean.TRUE.equals(attributes.get(BINARY_CAPABLE_ATTRIBUTE));
+        if (binaryCapable && CBOR.equalsIgnoreCase(connect.getFirstNativeHeader(FORMAT_HEADER))) {
+            cborSessions.add(connect.getSessionId());
+        }
+    }
+
+    private Message<?> toCbor(Message<?> message, byte[] json) {
+        byte[] cbor;
+        try {
+            cbor = transcoded.get(json, PayloadFormatNegotiator::transcode);
+        } catch (RuntimeException e) {
+            logger.warn("Sending JSON to session expecting CBOR, transcoding failed: {}", e.getMessage());
+            return message;
+        }
+        SimpMessageHeaderAccessor accessor = (SimpMessageHeaderAccessor) MessageHeaderAccessor.getMutableAccessor(message);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setNativeHeader(FORMAT_HEADER, CBOR);
+        return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+    }
+
+    static byte[] transcode(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = JSON_FACTORY.createParser(json);
+                JsonGenerator generator = CBOR_FACTORY.createGenerator(out)) {
+            while (parser.nextToken() != null) {
+                generator.copyCurrentEvent(parser);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Payload is not valid JSON", e);
+        }
+        return out.toByteArray();
+    }
+}
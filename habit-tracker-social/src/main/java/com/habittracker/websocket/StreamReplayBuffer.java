@@ -0,0 +1,181 @@
+package com.habittracker.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stream Replay Buffer
+ *
+ * Numbers each user's real-time stream and keeps its most recent frames so a
+ * reconnecting client can ask for what it missed instead of refetching over REST.
+ * ws:seq:{userId} is the user's last sequence number (INCR, so numbers are
+ * monotonic across nodes) and ws:replay:{userId} a list of the last capacity frames,
+ * each "{seq} {destination} {json}". The buffer expires resume-window-seconds after
+ * the user's last frame; the sequence key lives much longer so numbering does not
+ * restart under an idle client.
+ *
+ * Only destinations in app.websocket.replay.destinations are sequenced; the rest
+ * (e.g. the unread badge, which is resent on resume anyway) stay fire-and-forget.
+ */
+@Component
+public class StreamReplayBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamReplayBuffer.class);
+
+    static final String SEQUENCE_PREFIX = "ws:seq:";
+    static final String BUFFER_PREFIX = "ws:replay:";
+
+    private static final int SCRIPT_BATCH_SIZE = 500;
+
+    // KEYS = sequence, buffer per frame; ARGV = capacity, buffer ttl, sequence ttl, then
+    // destination, json per frame; returns the assigned sequence numbers
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> APPEND_SCRIPT = new DefaultRedisScript<>(
+            "local result = {}\n" +
+            "for i = 1, #KEYS / 2 do\n" +
+            "  local seq = redis.call('INCR', KEYS[2 * i - 1])\n" +
+            "  redis.call('EXPIRE', KEYS[2 * i - 1], ARGV[3])\n" +
+            "  redis.call('RPUSH', KEYS[2 * i], seq .. ' ' .. ARGV[2 * i + 2] .. ' ' .. ARGV[2 * i + 3])\n" +
+            "  redis.call('LTRIM', KEYS[2 * i], -tonumber(ARGV[1]), -1)\n" +
+            "  redis.call('EXPIRE', KEYS[2 * i], ARGV[2])\n" +
+            "  result[i] = seq\n" +
+            "end\n" +
+            "return result", List.class);
+
+    /**
+     * A frame to sequence for one user
+     */
+    public record Entry(Long userId, String destination, String json) {
+    }
+
+    public record Frame(long seq, String destination, String json) {
+    }
+
+    /**
+     * Frames after the client's last seen sequence. complete is false when the buffer
+     * no longer reaches back that far (or numbering restarted), in which case the
+     * client must refetch over REST.
+     */
+    public record Replay(long latestSeq, boolean complete, List<Frame> frames) {
+    }
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${app.websocket.replay.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.websocket.replay.capacity:200}")
+    private int capacity = 200;
+
+    @Value("${app.websocket.replay.resume-window-seconds:300}")
+    private long resumeWindowSeconds = 300;
+
+    @Value("${app.websocket.replay.sequence-ttl-hours:168}")
+    private long sequenceTtlHours = 168;
+
+    @Value("${app.websocket.replay.destinations:/queue/notifications,/queue/friend-activity,/queue/streak-milestone}")
+    private Set<String> destinations = Set.of("/queue/notifications", "/queue/friend-activity",
+            "/queue/streak-milestone");
+
+    public boolean isReplayable(String destination) {
+        return enabled && destinations.contains(destination);
+    }
+
+    /**
+     * Assign each entry the next sequence number of its user and buffer it
+     *
+     * @return sequence numbers in entry order, or null if Redis is unavailable (the
+     *         frames are then sent unsequenced)
+     */
+    public List<Long> append(List<Entry> entries) {
+        List<Long> seqs = new ArrayList<>(entries.size());
+        for (int from = 0; from < entries.size(); from += SCRIPT_BATCH_SIZE) {
+            List<Entry> chunk = entries.subList(from, Math.min(from + SCRIPT_BATCH_SIZE, entries.size()));
+            List<String> keys = new ArrayList<>(chunk.size() * 2);
+            List<String> args = new ArrayList<>(chunk.size() * 2 + 3);
+            args.add(String.valueOf(capacity));
+            args.add(String.valueOf(resumeWindowSeconds));
+            args.add(String.valueOf(sequenceTtlHours * 3600));
+            for (Entry entry : chunk) {
+                keys.add(SEQUENCE_PREFIX + entry.userId());
+                keys.add(BUFFER_PREFIX + entry.userId());
+                args.add(entry.destination());
+                args.add(entry.json());
+            }
+            List<?> result;
+            try {
+                result = redisTemplate.execute(APPEND_SCRIPT, keys, args.toArray());
+            } catch (RuntimeException e) {
+                logger.warn("Failed to sequence {} WebSocket frames: {}", chunk.size(), e.getMessage());
+                return null;
+            }
+            if (result == null || result.size() != chunk.size()) {
+                return null;
+            }
+            for (Object seq : result) {
+                seqs.add(((Number) seq).longValue());
+            }
+        }
+        return seqs;
+    }
+
+    /**
+     * Buffered frames of a user with a sequence number greater than afterSeq, oldest first
+     */
+    public Replay replay(Long userId, long afterSeq) {
+        List<Object> results;
+        try {
+            results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                redis.get(SEQUENCE_PREFIX + userId);
+                redis.lRange(BUFFER_PREFIX + userId, 0, -1);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Failed to read replay buffer for user {}: {}", userId, e.getMessage());
+            return new Replay(0, false, Collections.emptyList());
+        }
+        long latestSeq = results.get(0) == null ? 0 : Long.parseLong((String) results.get(0));
+        if (afterSeq >= latestSeq) {
+            // Up to date, unless the client has seen numbers we no longer have
+            return new Replay(latestSeq, afterSeq == latestSeq, Collections.emptyList());
+        }
+        List<Frame> frames = new ArrayList<>();
+        if (results.get(1) instanceof Collection<?> buffered) {
+            for (Object value : buffered) {
+                Frame frame = parse((String) value);
+                if (frame.seq() > afterSeq) {
+                    frames.add(frame);
+                }
+            }
+        }
+        boolean complete = !frames.isEmpty() && frames.get(0).seq() == afterSeq + 1;
+        return new Replay(latestSeq, complete, frames);
+    }
+
+    public long getResumeWindowSeconds() {
+        return resumeWindowSeconds;
+    }
+
+    static Frame parse(String value) {
+        int first = value.indexOf(' ');
+        int second = value.indexOf(' ', first + 1);
+        return new Frame(Long.parseLong(value.substring(0, first)), value.substring(first + 1, second),
+                value.substring(second + 1));
+    }
+}
@@ -0,0 +1,40 @@
+package com.habittracker.websocket;
+
+import java.security.Principal;
+
+/**
+ * User Id Principal
+ *
+ * Principal of a STOMP session, named after the user's id. The broker resolves
+ * /user/{name}/... destinations by principal name, and presence and relaying are
+ * keyed by user id, so both have to agree. The HTTP authentication from the
+ * handshake is kept for handlers that need the full user.
+ */
+public final class UserIdPrincipal implements Principal {
+
+    private final Long userId;
+    private final Principal authentication;
+
+    public UserIdPrincipal(Long userId, Principal authentication) {
+        this.userId = userId;
+        this.authentication = authentication;
+    }
+
+    @Override
+    public String getName() {
+        return String.valueOf(userId);
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Principal getAuthentication() {
+        return authentication;
+    }
+
+    @Override
+    public String toString() {
+        return "UserIdPrincipal[" + userId + "]";
+    }
+}
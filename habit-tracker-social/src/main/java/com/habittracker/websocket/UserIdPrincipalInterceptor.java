@@ -0,0 +1,40 @@
+package com.habittracker.websocket;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+
+/**
+ * User Id Principal Interceptor
+ *
+ * Replaces the handshake principal (named after the username) with a
+ * UserIdPrincipal on STOMP CONNECT, so messages sent to /user/{userId}/... reach
+ * the user's sessions. Done on CONNECT rather than in the handshake handler so it
+ * covers the SockJS HTTP transports too.
+ */
+@Component
+public class UserIdPrincipalInterceptor implements ChannelInterceptor {
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT || !accessor.isMutable()) {
+            return message;
+        }
+        Principal user = accessor.getUser();
+        if (user == null || user instanceof UserIdPrincipal) {
+            return message;
+        }
+        Long userId = WebSocketSessionRegistry.userIdOf(user);
+        if (userId != null) {
+            accessor.setUser(new UserIdPrincipal(userId, user));
+        }
+        return message;
+    }
+}
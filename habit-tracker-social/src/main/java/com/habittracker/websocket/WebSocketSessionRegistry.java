@@ -0,0 +1,256 @@
+package com.habittracker.websocket;
+
+import com.habittracker.model.User;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WebSocket Session Registry
+ *
+ * Tracks which nodes hold STOMP sessions for which users. Local sessions are kept
+ * in memory; the cluster view is one Redis sorted set per user
+ * (ws:user:{userId}, node id -> last heartbeat in ms). Every node re-announces its
+ * connected users each heartbeat, so entries of a node that died without
+ * cleaning up stop being returned after three missed heartbeats and the key expires.
+ *
+ * When a user's last session here closes (or the node shuts down) ws:away:{userId}
+ * is set for the replay resume window, so frames sent while the client reconnects
+ * are still sequenced and buffered for it.
+ */
+@Component
+public class WebSocketSessionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketSessionRegistry.class);
+
+    static final String USER_PREFIX = "ws:user:";
+    static final String AWAY_PREFIX = "ws:away:";
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // userId -> local STOMP session ids
+    private final Map<Long, Set<String>> localSessions = new ConcurrentHashMap<>();
+    private final Map<String, Long> sessionUsers = new ConcurrentHashMap<>();
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${app.websocket.relay.heartbeat-ms:15000}")
+    private long heartbeatMs = 15000;
+
+    @Value("${app.websocket.replay.resume-window-seconds:300}")
+    private long resumeWindowSeconds = 300;
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean hasLocalSessions(Long userId) {
+        return localSessions.containsKey(userId);
+    }
+
+    public int getLocalUserCount() {
+        return localSessions.size();
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Long userId = userIdOf(event.getUser());
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        if (userId == null || sessionId == null) {
+            return;
+        }
+        sessionUsers.put(sessionId, userId);
+        boolean[] first = { false };
+        localSessions.compute(userId, (id, sessions) -> {
+            if (sessions == null) {
+                sessions = ConcurrentHashMap.newKeySet();
+                first[0] = true;
+            }
+            sessions.add(sessionId);
+            return sessions;
+        });
+        if (first[0]) {
+            announce(List.of(userId));
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Long userId = sessionUsers.remove(event.getSessionId());
+        if (userId == null) {
+            return;
+        }
+        boolean last = localSessions.computeIfPresent(userId, (id, sessions) -> {
+            sessions.remove(event.getSessionId());
+            return sessions.isEmpty() ? null : sessions;
+        }) == null;
+        if (last) {
+            withdraw(List.of(userId));
+        }
+    }
+
+    /**
+     * Nodes other than this one with a live session for each user; users connected
+     * nowhere else are absent. Empty if Redis is unavailable.
+     */
+    public Map<Long, Set<String>> remoteNodes(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Long> ids = new ArrayList<>(new HashSet<>(userIds));
+        double minScore = System.currentTimeMillis() - staleAfterMs();
+        List<Object> results;
+        try {
+            results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                for (Long userId : ids) {
+                    redis.zRangeByScore(USER_PREFIX + userId, minScore, Double.POSITIVE_INFINITY);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Failed to look up WebSocket nodes for {} users: {}", ids.size(), e.getMessage());
+            return Collections.emptyMap();
+        }
+        Map<Long, Set<String>> nodes = new HashMap<>();
+        for (int i = 0; i < ids.size() && i < results.size(); i++) {
+            if (results.get(i) instanceof Collection<?> members) {
+                Set<String> remote = new HashSet<>();
+                for (Object member : members) {
+                    if (!nodeId.equals(member)) {
+                        remote.add((String) member);
+                    }
+                }
+                if (!remote.isEmpty()) {
+                    nodes.put(ids.get(i), remote);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Users among userIds that disconnected within the resume window; empty if Redis
+     * is unavailable
+     */
+    public Set<Long> awayUsers(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<Long> ids = new ArrayList<>(userIds);
+        List<String> keys = new ArrayList<>(ids.size());
+        for (Long userId : ids) {
+            keys.add(AWAY_PREFIX + userId);
+        }
+        List<String> values;
+        try {
+            values = redisTemplate.opsForValue().multiGet(keys);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to look up {} away WebSocket users: {}", ids.size(), e.getMessage());
+            return Collections.emptySet();
+        }
+        Set<Long> away = new HashSet<>();
+        for (int i = 0; values != null && i < ids.size() && i < values.size(); i++) {
+            if (values.get(i) != null) {
+                away.add(ids.get(i));
+            }
+        }
+        return away;
+    }
+
+    /**
+     * Re-announce every locally connected user
+     */
+    @Scheduled(fixedDelayString = "${app.websocket.relay.heartbeat-ms:15000}")
+    public void heartbeat() {
+        if (!localSessions.isEmpty()) {
+            announce(new ArrayList<>(localSessions.keySet()));
+        }
+    }
+
+    @PreDestroy
+    void withdrawAll() {
+        if (!localSessions.isEmpty()) {
+            withdraw(new ArrayList<>(localSessions.keySet()));
+        }
+    }
+
+    private void announce(List<Long> userIds) {
+        double now = System.currentTimeMillis();
+        long ttlSeconds = staleAfterMs() / 1000 + 1;
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                for (Long userId : userIds) {
+                    redis.zAdd(USER_PREFIX + userId, now, nodeId);
+                    redis.expire(USER_PREFIX + userId, ttlSeconds);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // Remote senders miss these users until the next heartbeat
+            logger.warn("Failed to announce {} WebSocket users: {}", userIds.size(), e.getMessage());
+        }
+    }
+
+    private void withdraw(List<Long> userIds) {
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                for (Long userId : userIds) {
+                    redis.zRem(USER_PREFIX + userId, nodeId);
+                    redis.setEx(AWAY_PREFIX + userId, resumeWindowSeconds, nodeId);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Failed to withdraw {} WebSocket users: {}", userIds.size(), e.getMessage());
+        }
+    }
+
+    private long staleAfterMs() {
+        return heartbeatMs * 3;
+    }
+
+    public static Long userIdOf(Principal principal) {
+        if (principal instanceof UserIdPrincipal userIdPrincipal) {
+            return userIdPrincipal.getUserId();
+        }
+        if (principal instanceof Authentication authentication && authentication.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        if (principal != null) {
+            try {
+                return Long.valueOf(principal.getName());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
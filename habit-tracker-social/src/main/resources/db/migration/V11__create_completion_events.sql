@@ -0,0 +1,21 @@
+-- Create completion_events table (transactional outbox for the completion pipeline)
+-- A row is written in the same transaction as the habit_completions row; the
+-- post-completion stages (streak, activity feed, notifications, real-time
+-- fan-out) are then driven asynchronously from it.
+CREATE TABLE completion_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    completion_id BIGINT NOT NULL,
+    habit_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    completion_date DATETIME(6) NOT NULL,
+    stage VARCHAR(30) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    activity_id BIGINT,
+    attempts INT NOT NULL DEFAULT 0,
+    last_error VARCHAR(1000),
+    next_attempt_at DATETIME(6) NOT NULL,
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    CONSTRAINT fk_completion_events_completion FOREIGN KEY (completion_id) REFERENCES habit_completions(id) ON DELETE CASCADE,
+    INDEX idx_completion_events_due (status, next_attempt_at)
+);
@@ -0,0 +1,3 @@
+-- Supports keyset (cursor) pagination of a user's notifications:
+-- WHERE user_id = ? AND (created_at, id) < (?, ?) ORDER BY created_at DESC, id DESC
+CREATE INDEX idx_notifications_user_created ON notifications(user_id, created_at DESC, id DESC);
@@ -0,0 +1,3 @@
+-- Version stamped into issued JWTs ("tv" claim). Incrementing it revokes all of
+-- a user's outstanding tokens without a per-request user lookup.
+ALTER TABLE users ADD COLUMN token_version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,18 @@
+-- Running per-team totals for group challenges, maintained on join, leave and each
+-- recorded completion so the team leaderboard no longer aggregates every participant.
+CREATE TABLE challenge_team_totals (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    challenge_id BIGINT NOT NULL,
+    team_name VARCHAR(100) NOT NULL,
+    total_completions INT NOT NULL DEFAULT 0,
+    member_count INT NOT NULL DEFAULT 0,
+    FOREIGN KEY (challenge_id) REFERENCES group_challenge(id) ON DELETE CASCADE,
+    UNIQUE KEY unique_challenge_team (challenge_id, team_name),
+    INDEX idx_challenge_team_total (challenge_id, total_completions DESC)
+);
+
+INSERT INTO challenge_team_totals (challenge_id, team_name, total_completions, member_count)
+SELECT challenge_id, team_name, COALESCE(SUM(completion_count), 0), COUNT(*)
+FROM challenge_participation
+WHERE team_name IS NOT NULL
+GROUP BY challenge_id, team_name;
@@ -0,0 +1,7 @@
+-- Named leases for scheduled jobs that must run on exactly one node. A node holds
+-- a lease while lease_until is in the future and renews it on every run.
+CREATE TABLE scheduler_leases (
+    name VARCHAR(100) PRIMARY KEY,
+    owner VARCHAR(255),
+    lease_until TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+);
@@ -0,0 +1,71 @@
+-- Monthly range partitions on created_at for the two append-only history tables,
+-- so retention can archive and drop a month with ALTER TABLE ... DROP PARTITION
+-- instead of row-by-row DELETEs.
+--
+-- MySQL requires the partitioning column in every unique key and does not allow
+-- foreign keys on partitioned tables: the primary keys become (id, created_at) and
+-- the user foreign keys go (UserService.deleteUser removes a user's rows instead).
+--
+-- The tables are rebuilt (and locked) once here, straight into monthly partitions
+-- from the oldest row's month through three months ahead, plus an empty p_future.
+-- From then on RetentionService only carves the next month off the empty p_future,
+-- which moves no rows.
+--
+-- Both tables are copied while this runs: apply it in a maintenance window.
+
+SET SESSION group_concat_max_len = 1048576;
+SET SESSION cte_max_recursion_depth = 100000;
+
+-- notifications
+ALTER TABLE notifications DROP FOREIGN KEY fk_notifications_user;
+
+UPDATE notifications SET created_at = CURRENT_TIMESTAMP(6) WHERE created_at IS NULL;
+
+ALTER TABLE notifications
+    MODIFY created_at DATETIME(6) NOT NULL,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, created_at);
+
+SET @partitions = (
+    WITH RECURSIVE months (month_start) AS (
+        SELECT CAST(DATE_FORMAT(COALESCE(MIN(created_at), CURRENT_DATE), '%Y-%m-01') AS DATE) FROM notifications
+        UNION ALL
+        SELECT month_start + INTERVAL 1 MONTH FROM months
+        WHERE month_start < CAST(DATE_FORMAT(CURRENT_DATE, '%Y-%m-01') AS DATE) + INTERVAL 3 MONTH
+    )
+    SELECT GROUP_CONCAT(CONCAT('PARTITION p', DATE_FORMAT(month_start, '%Y%m'),
+            ' VALUES LESS THAN (''', month_start + INTERVAL 1 MONTH, ''')') ORDER BY month_start SEPARATOR ', ')
+    FROM months
+);
+
+SET @ddl = CONCAT('ALTER TABLE notifications PARTITION BY RANGE COLUMNS(created_at) (', @partitions,
+        ', PARTITION p_future VALUES LESS THAN (MAXVALUE))');
+PREPARE partition_table FROM @ddl;
+EXECUTE partition_table;
+DEALLOCATE PREPARE partition_table;
+
+-- activity_feed (RANGE COLUMNS does not accept TIMESTAMP columns)
+ALTER TABLE activity_feed DROP FOREIGN KEY activity_feed_ibfk_1;
+
+ALTER TABLE activity_feed
+    MODIFY created_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, created_at);
+
+SET @partitions = (
+    WITH RECURSIVE months (month_start) AS (
+        SELECT CAST(DATE_FORMAT(COALESCE(MIN(created_at), CURRENT_DATE), '%Y-%m-01') AS DATE) FROM activity_feed
+        UNION ALL
+        SELECT month_start + INTERVAL 1 MONTH FROM months
+        WHERE month_start < CAST(DATE_FORMAT(CURRENT_DATE, '%Y-%m-01') AS DATE) + INTERVAL 3 MONTH
+    )
+    SELECT GROUP_CONCAT(CONCAT('PARTITION p', DATE_FORMAT(month_start, '%Y%m'),
+            ' VALUES LESS THAN (''', month_start + INTERVAL 1 MONTH, ''')') ORDER BY month_start SEPARATOR ', ')
+    FROM months
+);
+
+SET @ddl = CONCAT('ALTER TABLE activity_feed PARTITION BY RANGE COLUMNS(created_at) (', @partitions,
+        ', PARTITION p_future VALUES LESS THAN (MAXVALUE))');
+PREPARE partition_table FROM @ddl;
+EXECUTE partition_table;
+DEALLOCATE PREPARE partition_table;
@@ -0,0 +1,134 @@
+package com.habittracker.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.habittracker.model.Habit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TwoLevelCacheTest {
+
+    @Mock
+    private Cache remote;
+
+    @Mock
+    private TwoLevelCache.InvalidationPublisher publisher;
+
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new TwoLevelCache("users", Caffeine.newBuilder().maximumSize(100).build(), remote, publisher,
+                new GenericJackson2JsonRedisSerializer());
+    }
+
+    @Test
+    void testGet_SecondReadIsServedFromLocalCache() {
+        // Given
+        when(remote.get(1L)).thenReturn(new SimpleValueWrapper("alice"));
+
+        // When
+        Cache.ValueWrapper first = cache.get(1L);
+        Cache.ValueWrapper second = cache.get(1L);
+
+        // Then
+        assertEquals("alice", first.get());
+        assertEquals("alice", second.get());
+        verify(remote, times(1)).get(1L);
+    }
+
+    @Test
+    void testEvict_RemovesBothLevelsAndBroadcasts() {
+        // Given
+        cache.put(1L, "alice");
+
+        // When
+        cache.evict(1L);
+
+        // Then
+        verify(remote).evict(1L);
+        verify(publisher).publish("users", "1");
+        when(remote.get(1L)).thenReturn(null);
+        assertNull(cache.get(1L));
+    }
+
+    @Test
+    void testEvictLocal_DropsOnlyNearCacheEntry() {
+        // Given
+        cache.put(1L, "alice");
+        when(remote.get(1L)).thenReturn(new SimpleValueWrapper("alice v2"));
+
+        // When
+        cache.evictLocal("1");
+
+        // Then
+        assertEquals("alice v2", cache.get(1L).get());
+        verify(remote, never()).evict(any());
+        verifyNoInteractions(publisher);
+    }
+
+    @Test
+    void testGetWithLoader_PopulatesLocalCache() {
+        // Given
+        when(remote.get(eq("username:alice"), any(Callable.class))).thenReturn("alice");
+
+        // When
+        String first = cache.get("username:alice", () -> "alice");
+        String second = cache.get("username:alice", () -> "alice");
+
+        // Then
+        assertEquals("alice", first);
+        assertEquals("alice", second);
+        verify(remote, times(1)).get(eq("username:alice"), any(Callable.class));
+    }
+
+    @Test
+    void testGet_MutatingReturnedValueDoesNotLeakIntoLaterReads() {
+        // Given
+        Habit habit = new Habit();
+        habit.setId(7L);
+        habit.setName("Morning run");
+        when(remote.get(7L)).thenReturn(new SimpleValueWrapper(habit));
+        Habit first = (Habit) cache.get(7L).get();
+
+        // When - a caller edits its copy, e.g. before a save that then fails
+        first.setName("Evening run");
+        Habit second = (Habit) cache.get(7L).get();
+        second.setName("Midday run");
+
+        // Then - later reads still see the cached state, each as its own instance
+        Habit third = (Habit) cache.get(7L).get();
+        assertEquals("Morning run", third.getName());
+        assertNotSame(second, third);
+        verify(remote, times(1)).get(7L);
+    }
+
+    @Test
+    void testPut_LaterChangesToPutValueAreNotCached() {
+        // Given
+        Habit habit = new Habit();
+        habit.setId(8L);
+        habit.setName("Read");
+        cache.put(8L, habit);
+
+        // When
+        habit.setName("Write");
+
+        // Then
+        assertEquals("Read", cache.get(8L, Habit.class).getName());
+        verify(remote, never()).get(8L);
+    }
+}
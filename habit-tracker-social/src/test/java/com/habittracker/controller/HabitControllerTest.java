@@ -159,7 +159,7 @@ public class HabitControllerTest {
         habitDTO.setTargetValue(2);
         habitDTO.setTargetUnit("times");
 
-        when(habitService.findById(1L)).thenReturn(Optional.of(habit));
+        when(habitService.findByIdForUpdate(1L)).thenReturn(Optional.of(habit));
         when(habitService.updateHabit(any(Habit.class))).thenReturn(habit);
 
         // When & Then
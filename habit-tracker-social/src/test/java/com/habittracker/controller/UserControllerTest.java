@@ -18,6 +18,7 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -76,7 +77,8 @@ public class UserControllerTest {
         updatedUser.setEmail("updated@example.com");
 
         when(userService.findByUsername("testuser")).thenReturn(Optional.of(user));
-        when(userService.updateUser(any(User.class))).thenReturn(updatedUser);
+        when(userService.updateProfile(any(), eq("Updated"), eq("Name"), eq("updated@example.com")))
+                .thenReturn(updatedUser);
 
         // When & Then
         mockMvc.perform(put("/users/profile")
@@ -0,0 +1,122 @@
+package com.habittracker.repository;
+
+import com.habittracker.model.NotificationType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of notification fan-out cost for 10, 100 and 1,000 recipients.
+ *
+ * perRowInsert issues one INSERT with generated-key retrieval per recipient, which is
+ * what saving IDENTITY entities one by one costs; multiRowInsert is
+ * NotificationJdbcRepository.insertAll. Runs against in-memory H2 over one connection,
+ * so there is no network round trip per statement and the gap shown is a lower bound
+ * of the gap against MySQL.
+ *
+ * Not part of the unit test run; after mvn test-compile, run main() from the IDE
+ * or org.openjdk.jmh.Main NotificationFanOutBenchmark on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotificationFanOutBenchmark {
+
+    private static final String INSERT_ONE =
+            "INSERT INTO notifications (user_id, title, message, type, status, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    @Param({ "10", "100", "1000" })
+    public int recipients;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private NotificationJdbcRepository repository;
+    private List<NotificationJdbcRepository.Row> rows;
+
+    @Setup
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:fanout;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS notifications (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "user_id BIGINT NOT NULL, title VARCHAR(255) NOT NULL, message VARCHAR(1000) NOT NULL, "
+                + "type VARCHAR(30) NOT NULL, status VARCHAR(20) NOT NULL, created_at TIMESTAMP, read_at TIMESTAMP)");
+        repository = new NotificationJdbcRepository(jdbcTemplate, 500);
+
+        rows = new ArrayList<>(recipients);
+        for (long userId = 1; userId <= recipients; userId++) {
+            rows.add(new NotificationJdbcRepository.Row(userId, "Friend Activity! 🎯", "benchmark just completed 'Read'!",
+                    NotificationType.FRIEND_COMPLETED_HABIT));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() {
+        jdbcTemplate.execute("TRUNCATE TABLE notifications");
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public List<Long> perRowInsert() {
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (NotificationJdbcRepository.Row row : rows) {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(INSERT_ONE, Statement.RETURN_GENERATED_KEYS);
+                ps.setLong(1, row.userId());
+                ps.setString(2, row.title());
+                ps.setString(3, row.message());
+                ps.setString(4, row.type().name());
+                ps.setString(5, "UNREAD");
+                ps.setTimestamp(6, createdAt);
+                return ps;
+            }, keyHolder);
+            ids.add(keyHolder.getKey().longValue());
+        }
+        return ids;
+    }
+
+    @Benchmark
+    public List<Long> multiRowInsert() {
+        return repository.insertAll(rows, LocalDateTime.now());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(NotificationFanOutBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
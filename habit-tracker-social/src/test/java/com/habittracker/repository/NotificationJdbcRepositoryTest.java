@@ -0,0 +1,52 @@
+package com.habittracker.repository;
+
+import com.habittracker.model.NotificationType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotificationJdbcRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private NotificationJdbcRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:notifications-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("CREATE TABLE notifications (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "user_id BIGINT NOT NULL, title VARCHAR(255) NOT NULL, message VARCHAR(1000) NOT NULL, "
+                + "type VARCHAR(30) NOT NULL, status VARCHAR(20) NOT NULL, created_at TIMESTAMP, read_at TIMESTAMP)");
+        repository = new NotificationJdbcRepository(jdbcTemplate, 4);
+    }
+
+    @Test
+    void testInsertAll_ReturnsIdsInRowOrderAcrossChunks() {
+        // Given
+        List<NotificationJdbcRepository.Row> rows = new ArrayList<>();
+        for (long userId = 1; userId <= 10; userId++) {
+            rows.add(new NotificationJdbcRepository.Row(userId, "Friend Activity!", "done " + userId,
+                    NotificationType.FRIEND_COMPLETED_HABIT));
+        }
+
+        // When
+        List<Long> ids = repository.insertAll(rows, LocalDateTime.now());
+
+        // Then
+        assertEquals(10, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Long userId = jdbcTemplate.queryForObject("SELECT user_id FROM notifications WHERE id = ?",
+                    Long.class, ids.get(i));
+            assertEquals(i + 1L, userId);
+        }
+        assertEquals(10, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM notifications WHERE status = 'UNREAD'", Integer.class));
+    }
+}
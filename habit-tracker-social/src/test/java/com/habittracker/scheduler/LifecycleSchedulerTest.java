@@ -0,0 +1,114 @@
+package com.habittracker.scheduler;
+
+import com.habittracker.model.ChallengeStatus;
+import com.habittracker.model.GroupChallenge;
+import com.habittracker.service.CompetitionService;
+import com.habittracker.service.GroupChallengeService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LifecycleSchedulerTest {
+
+    @Mock
+    private SchedulerLeaseManager leaseManager;
+
+    @Mock
+    private GroupChallengeService challengeService;
+
+    @Mock
+    private CompetitionService competitionService;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private LifecycleScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(scheduler, "batchSize", 2);
+        scheduler.registerMetrics();
+    }
+
+    @Test
+    void testRun_SkipsWhenAnotherNodeHoldsTheLease() {
+        // Given
+        when(leaseManager.tryAcquire(eq(LifecycleScheduler.LEASE_NAME), any(Duration.class))).thenReturn(false);
+
+        // When
+        scheduler.run();
+
+        // Then
+        verifyNoInteractions(challengeService, competitionService);
+        assertEquals(0.0, meterRegistry.get("lifecycle.leader").gauge().value());
+    }
+
+    @Test
+    void testRun_DrainsFullBatchesAndRecordsLag() {
+        // Given
+        when(leaseManager.tryAcquire(eq(LifecycleScheduler.LEASE_NAME), any(Duration.class))).thenReturn(true);
+        LocalDate today = LocalDate.now();
+        when(challengeService.startPendingChallenges(any(LocalDate.class), eq(2)))
+                .thenReturn(List.of(challenge(today.minusDays(2)), challenge(today)))
+                .thenReturn(List.of(challenge(today)));
+        when(challengeService.endActiveChallenges(any(LocalDate.class), anyInt())).thenReturn(Collections.emptyList());
+        when(competitionService.endExpiredCompetitions(any(), anyInt())).thenReturn(Collections.emptyList());
+
+        // When
+        scheduler.run();
+
+        // Then
+        verify(challengeService, times(2)).startPendingChallenges(any(LocalDate.class), eq(2));
+        verify(challengeService, times(1)).endActiveChallenges(any(LocalDate.class), eq(2));
+        assertEquals(3.0, meterRegistry.get("lifecycle.transitions").tag("kind", "challenge.start").counter().count());
+        double lag = meterRegistry.get("lifecycle.lag.seconds").tag("kind", "challenge.start").gauge().value();
+        assertTrue(lag >= Duration.ofDays(2).getSeconds());
+        assertEquals(1.0, meterRegistry.get("lifecycle.leader").gauge().value());
+    }
+
+    @Test
+    void testRun_StopsDrainingWhenLeaseIsLost() {
+        // Given - lease held for the run, lost before the second batch
+        when(leaseManager.tryAcquire(eq(LifecycleScheduler.LEASE_NAME), any(Duration.class)))
+                .thenReturn(true, false, true, true);
+        LocalDate today = LocalDate.now();
+        when(challengeService.startPendingChallenges(any(LocalDate.class), eq(2)))
+                .thenReturn(List.of(challenge(today), challenge(today)));
+        when(challengeService.endActiveChallenges(any(LocalDate.class), anyInt())).thenReturn(Collections.emptyList());
+        when(competitionService.endExpiredCompetitions(any(), anyInt())).thenReturn(Collections.emptyList());
+
+        // When
+        scheduler.run();
+
+        // Then
+        verify(challengeService, times(1)).startPendingChallenges(any(LocalDate.class), eq(2));
+    }
+
+    private static GroupChallenge challenge(LocalDate startDate) {
+        GroupChallenge challenge = new GroupChallenge();
+        challenge.setStartDate(startDate);
+        challenge.setEndDate(startDate.plusDays(7));
+        challenge.setStatus(ChallengeStatus.PENDING);
+        return challenge;
+    }
+}
@@ -0,0 +1,200 @@
+package com.habittracker.security;
+
+import com.habittracker.cache.TwoLevelCacheManager;
+import com.habittracker.model.Role;
+import com.habittracker.model.User;
+import com.habittracker.repository.UserRepository;
+import com.habittracker.service.UserService;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AuthTokenFilterTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private TwoLevelCacheManager cacheManager;
+
+    private JwtUtils jwtUtils;
+    private PrincipalCache principalCache;
+    private AuthTokenFilter filter;
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", "test-secret-that-is-at-least-32-bytes-long");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 60000);
+        jwtUtils.init();
+
+        principalCache = new PrincipalCache();
+        ReflectionTestUtils.setField(principalCache, "userRepository", userRepository);
+        ReflectionTestUtils.setField(principalCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(principalCache, "cacheManager", cacheManager);
+        principalCache.init();
+
+        filter = new AuthTokenFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(filter, "userService", userService);
+        ReflectionTestUtils.setField(filter, "principalCache", principalCache);
+
+        testUser = new User();
+        testUser.setId(1L);
+        testUser.setUsername("testuser");
+        testUser.setRole(Role.ADMIN);
+        testUser.setTokenVersion(3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testVersionedToken_LoadsUserOnceThenServesFromCache() throws Exception {
+        // Given
+        String token = jwtUtils.generateTokenForUser(testUser);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // When
+        Authentication first = authenticate(token);
+        Authentication second = authenticate(token);
+
+        // Then
+        assertNotNull(first);
+        assertSame(testUser, second.getPrincipal());
+        assertTrue(second.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN")));
+        verify(userRepository, times(1)).findById(1L);
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void testRevokedToken_IsRejected() throws Exception {
+        // Given
+        String token = jwtUtils.generateTokenForUser(testUser);
+        User current = new User();
+        current.setId(1L);
+        current.setUsername("testuser");
+        current.setTokenVersion(4);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(current));
+
+        // When
+        Authentication authentication = authenticate(token);
+
+        // Then
+        assertNull(authentication);
+    }
+
+    @Test
+    void testTamperedToken_IsRejectedWithoutLookup() throws Exception {
+        // Given
+        String token = jwtUtils.generateTokenForUser(testUser);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        // When
+        Authentication authentication = authenticate(tampered);
+
+        // Then
+        assertNull(authentication);
+        verifyNoInteractions(userRepository, userService);
+    }
+
+    @Test
+    void testLegacyToken_FallsBackToUsernameLookupBeforeCutoff() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(filter, "unversionedTokenCutoff", Instant.now().plusSeconds(60).toString());
+        String token = jwtUtils.generateTokenFromUsername("testuser");
+        when(userService.loadUserByUsername(anyString())).thenReturn(testUser);
+
+        // When
+        Authentication authentication = authenticate(token);
+
+        // Then
+        assertSame(testUser, authentication.getPrincipal());
+        verify(userService).loadUserByUsername("testuser");
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testLegacyToken_IsRejectedWithoutCutoff() throws Exception {
+        // Given
+        String token = jwtUtils.generateTokenFromUsername("testuser");
+
+        // When
+        Authentication authentication = authenticate(token);
+
+        // Then
+        assertNull(authentication);
+        verifyNoInteractions(userService, userRepository);
+    }
+
+    @Test
+    void testLegacyToken_IssuedAfterCutoffIsRejected() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(filter, "unversionedTokenCutoff", Instant.now().minusSeconds(60).toString());
+        String token = jwtUtils.generateTokenFromUsername("testuser");
+
+        // When
+        Authentication authentication = authenticate(token);
+
+        // Then
+        assertNull(authentication);
+        verifyNoInteractions(userService, userRepository);
+    }
+
+    @Test
+    void testTokenWithoutVersion_IsNotTreatedAsVersionZero() throws Exception {
+        // Given - a user id but no tv claim, for a user who has never been revoked
+        testUser.setTokenVersion(0);
+        String token = Jwts.builder()
+                .setSubject("testuser")
+                .claim(JwtUtils.CLAIM_USER_ID, 1L)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(Keys.hmacShaKeyFor("test-secret-that-is-at-least-32-bytes-long".getBytes()),
+                        SignatureAlgorithm.HS256)
+                .compact();
+
+        // When
+        Authentication authentication = authenticate(token);
+
+        // Then
+        assertNull(authentication);
+        verifyNoInteractions(userService, userRepository);
+    }
+
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
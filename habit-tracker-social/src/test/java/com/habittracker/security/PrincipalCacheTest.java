@@ -0,0 +1,105 @@
+package com.habittracker.security;
+
+import com.habittracker.cache.TwoLevelCacheManager;
+import com.habittracker.cache.TwoLevelCacheProperties;
+import com.habittracker.event.UserChangedEvent;
+import com.habittracker.model.User;
+import com.habittracker.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PrincipalCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private CacheManager remoteCacheManager;
+
+    private TwoLevelCacheManager cacheManager;
+    private PrincipalCache principalCache;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new TwoLevelCacheManager(remoteCacheManager, redisTemplate, new TwoLevelCacheProperties(),
+                new SimpleMeterRegistry(), null);
+
+        principalCache = new PrincipalCache();
+        ReflectionTestUtils.setField(principalCache, "userRepository", userRepository);
+        ReflectionTestUtils.setField(principalCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(principalCache, "cacheManager", cacheManager);
+        principalCache.init();
+    }
+
+    @Test
+    void testOnUserChanged_BroadcastsUserIdToOtherNodes() {
+        // When
+        principalCache.onUserChanged(new UserChangedEvent(1L));
+
+        // Then
+        verify(redisTemplate).convertAndSend(eq("cache:invalidation"), endsWith("|authPrincipals|1"));
+    }
+
+    @Test
+    void testInvalidationFromAnotherNode_RejectsRevokedTokenRightAway() {
+        // Given - this node cached the user at version 3
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(3)), Optional.of(user(4)));
+        assertTrue(principalCache.get(1L, 3).isPresent());
+
+        // When - another node revoked the user's tokens
+        cacheManager.onMessage(message("other-node|authPrincipals|1"), null);
+
+        // Then
+        assertTrue(principalCache.get(1L, 3).isEmpty());
+        assertTrue(principalCache.get(1L, 4).isPresent());
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void testNewerTokenVersion_ReloadsStaleEntry() {
+        // Given - cached at version 3 and the invalidation has not arrived
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(3)), Optional.of(user(4)));
+        principalCache.get(1L, 3);
+
+        // When
+        Optional<User> principal = principalCache.get(1L, 4);
+
+        // Then
+        assertTrue(principal.isPresent());
+        assertTrue(principalCache.get(1L, 3).isEmpty());
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+    private static User user(int tokenVersion) {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("testuser");
+        user.setTokenVersion(tokenVersion);
+        return user;
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("cache:invalidation".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,93 @@
+package com.habittracker.security;
+
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.distributed.BucketProxy;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.RemoteBucketBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RedisRateLimitBucketStoreTest {
+
+    @Mock
+    private ProxyManager<String> proxyManager;
+
+    @Mock
+    private RemoteBucketBuilder<String> bucketBuilder;
+
+    @Mock
+    private BucketProxy bucketProxy;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LocalRateLimitBucketStore localStore;
+    private RedisRateLimitBucketStore store;
+
+    @BeforeEach
+    void setUp() {
+        localStore = new LocalRateLimitBucketStore(1000);
+        store = new RedisRateLimitBucketStore(proxyManager, localStore, new RateLimitProperties.Redis(),
+                meterRegistry);
+        lenient().when(proxyManager.builder()).thenReturn(bucketBuilder);
+        lenient().when(bucketBuilder.build(anyString(), any(BucketConfiguration.class))).thenReturn(bucketProxy);
+    }
+
+    @Test
+    void testTryConsume_UsesSharedBucket() {
+        // Given
+        ConsumptionProbe probe = ConsumptionProbe.consumed(99, 0);
+        when(bucketProxy.tryConsumeAndReturnRemaining(1)).thenReturn(probe);
+
+        // When
+        ConsumptionProbe result = store.tryConsume(RateLimitTier.API, "10.0.0.1");
+
+        // Then
+        assertSame(probe, result);
+        verify(bucketBuilder).build(eq("rate-limit:api:10.0.0.1"), any(BucketConfiguration.class));
+    }
+
+    @Test
+    void testTryConsume_FallsBackToLocalBucketsWhileRedisIsDown() {
+        // Given
+        when(bucketProxy.tryConsumeAndReturnRemaining(anyLong()))
+                .thenThrow(new RuntimeException("Command timed out after 50 millisecond(s)"));
+
+        // When
+        ConsumptionProbe first = store.tryConsume(RateLimitTier.API, "10.0.0.1");
+        ConsumptionProbe second = store.tryConsume(RateLimitTier.API, "10.0.0.1");
+
+        // Then
+        assertTrue(first.isConsumed());
+        assertEquals(98, second.getRemainingTokens());
+        verify(bucketProxy, times(1)).tryConsumeAndReturnRemaining(1);
+        assertEquals(2.0, meterRegistry.counter("rate.limit.redis.fallback").count());
+    }
+
+    @Test
+    void testLocalStore_RejectsOnceBudgetIsSpent() {
+        // Given
+        for (int i = 0; i < RateLimitTier.AUTH.getCapacity(); i++) {
+            assertTrue(localStore.tryConsume(RateLimitTier.AUTH, "10.0.0.2").isConsumed());
+        }
+
+        // When
+        ConsumptionProbe probe = localStore.tryConsume(RateLimitTier.AUTH, "10.0.0.2");
+
+        // Then
+        assertFalse(probe.isConsumed());
+        assertTrue(localStore.tryConsume(RateLimitTier.AUTH, "10.0.0.3").isConsumed());
+    }
+}
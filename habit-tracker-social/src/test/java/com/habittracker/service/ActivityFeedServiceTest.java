@@ -0,0 +1,150 @@
+package com.habittracker.service;
+
+import com.habittracker.model.ActivityFeed;
+import com.habittracker.model.ActivityType;
+import com.habittracker.model.User;
+import com.habittracker.repository.ActivityFeedRepository;
+import com.habittracker.repository.UserRepository;
+import com.habittracker.websocket.NotificationWebSocketHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ActivityFeedServiceTest {
+
+    @Mock
+    private ActivityFeedRepository activityFeedRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private NotificationWebSocketHandler webSocketHandler;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private FeedTimelineService feedTimelineService;
+
+    @Mock
+    private FriendGraph friendGraph;
+
+    @InjectMocks
+    private ActivityFeedService activityFeedService;
+
+    private User author;
+    private ActivityFeed older;
+    private ActivityFeed newer;
+
+    @BeforeEach
+    void setUp() {
+        author = new User();
+        author.setId(2L);
+        author.setUsername("friend");
+
+        older = new ActivityFeed(author, ActivityType.HABIT_COMPLETED, "Run", "friend completed 'Run'");
+        older.setId(10L);
+        newer = new ActivityFeed(author, ActivityType.HABIT_COMPLETED, "Read", "friend completed 'Read'");
+        newer.setId(11L);
+    }
+
+    @Test
+    void testGetFriendActivityFeed_ServedFromTimeline() {
+        // Given
+        Pageable pageable = PageRequest.of(0, 20);
+        when(feedTimelineService.covers(pageable)).thenReturn(true);
+        when(feedTimelineService.readPage(1L, 0, 20)).thenReturn(Optional.of(Arrays.asList(11L, 10L)));
+        when(activityFeedRepository.findAllById(Arrays.asList(11L, 10L))).thenReturn(Arrays.asList(older, newer));
+
+        // When
+        Page<ActivityFeed> result = activityFeedService.getFriendActivityFeed(1L, pageable);
+
+        // Then
+        assertEquals(Arrays.asList(newer, older), result.getContent());
+        assertEquals(2, result.getTotalElements());
+        verify(activityFeedRepository, never()).findByFriendIdsOrderByCreatedAtDesc(any(), any());
+        verify(friendGraph, never()).getFriendIds(anyLong());
+    }
+
+    @Test
+    void testGetFriendActivityFeed_DeepPageFallsBackToDatabase() {
+        // Given
+        Pageable pageable = PageRequest.of(100, 20);
+        List<Long> friendIds = Arrays.asList(2L);
+        when(feedTimelineService.covers(pageable)).thenReturn(false);
+        when(friendGraph.getFriendIds(1L)).thenReturn(friendIds);
+        when(activityFeedRepository.findByFriendIdsOrderByCreatedAtDesc(friendIds, pageable))
+                .thenReturn(new PageImpl<>(Arrays.asList(older)));
+
+        // When
+        Page<ActivityFeed> result = activityFeedService.getFriendActivityFeed(1L, pageable);
+
+        // Then
+        assertEquals(1, result.getContent().size());
+        verify(feedTimelineService, never()).readPage(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void testGetFriendActivityFeed_RedisUnavailableFallsBackToDatabase() {
+        // Given
+        Pageable pageable = PageRequest.of(0, 20);
+        List<Long> friendIds = Arrays.asList(2L);
+        when(feedTimelineService.covers(pageable)).thenReturn(true);
+        when(feedTimelineService.readPage(1L, 0, 20)).thenReturn(Optional.empty());
+        when(friendGraph.getFriendIds(1L)).thenReturn(friendIds);
+        when(activityFeedRepository.findByFriendIdsOrderByCreatedAtDesc(friendIds, pageable))
+                .thenReturn(new PageImpl<>(Arrays.asList(newer, older)));
+
+        // When
+        Page<ActivityFeed> result = activityFeedService.getFriendActivityFeed(1L, pageable);
+
+        // Then
+        assertEquals(2, result.getContent().size());
+    }
+
+    @Test
+    void testRecordHabitCompletionActivity_AppendsToTimelines() {
+        // Given
+        when(activityFeedRepository.save(any(ActivityFeed.class))).thenReturn(newer);
+
+        // When
+        activityFeedService.recordHabitCompletionActivity(author, "Read");
+
+        // Then
+        verify(feedTimelineService).append(newer);
+    }
+
+    @Test
+    void testNotifyFriendsOfHabitCompletion_QueuesOneBatchForCachedFriendIds() {
+        // Given
+        when(friendGraph.getFriendIds(2L)).thenReturn(Arrays.asList(1L, 3L));
+
+        // When
+        activityFeedService.notifyFriendsOfHabitCompletion(newer);
+
+        // Then
+        verify(notificationService).queueFriendCompletedHabitNotifications(Arrays.asList(1L, 3L), "friend", "Read");
+        verify(notificationService, never()).createFriendCompletedHabitNotification(any(), anyString(), anyString());
+        verify(userRepository, never()).findFriendsByUserId(anyLong());
+    }
+}
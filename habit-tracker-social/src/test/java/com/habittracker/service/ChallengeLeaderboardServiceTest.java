@@ -0,0 +1,187 @@
+package com.habittracker.service;
+
+import com.habittracker.dto.ChallengeLeaderboardEntry;
+import com.habittracker.model.User;
+import com.habittracker.repository.ChallengeParticipationRepository;
+import com.habittracker.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ChallengeLeaderboardServiceTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    @Mock
+    private ChallengeParticipationRepository participationRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private ChallengeLeaderboardService leaderboardService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        lenient().when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        lenient().doAnswer(invocation -> {
+            ((Consumer<Object>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRecordProgress_IncrementsSortedSetAndDefersRankWrite() {
+        // When
+        leaderboardService.recordProgress(3L, 7L, 1);
+        leaderboardService.recordProgress(3L, 8L, 1);
+        leaderboardService.materializeChangedRanks();
+        leaderboardService.materializeChangedRanks();
+
+        // Then
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("challenge:leaderboard:3")),
+                eq("1"), eq("7"), eq("3600"));
+        verify(participationRepository, times(1)).applyRanks(3L);
+        verify(participationRepository, never()).save(any());
+    }
+
+    @Test
+    void testGetRank_ReadsSharedSortedSetWithTiesSharingARank() {
+        // Given
+        when(redisTemplate.hasKey("challenge:leaderboard:3")).thenReturn(true);
+        when(zSetOperations.score("challenge:leaderboard:3", "9")).thenReturn(4.0);
+        when(zSetOperations.count("challenge:leaderboard:3", Math.nextUp(4.0), Double.POSITIVE_INFINITY))
+                .thenReturn(1L);
+
+        // When
+        Integer rank = leaderboardService.getRank(3L, 9L);
+
+        // Then
+        assertEquals(2, rank);
+        verifyNoInteractions(participationRepository);
+    }
+
+    @Test
+    void testGetRank_NullForNonParticipantAndSqlWhenRedisIsDown() {
+        // Given
+        when(redisTemplate.hasKey("challenge:leaderboard:3")).thenReturn(true, true);
+        when(zSetOperations.score("challenge:leaderboard:3", "5")).thenReturn(null);
+        when(zSetOperations.score("challenge:leaderboard:3", "7"))
+                .thenThrow(new RuntimeException("Connection refused"));
+        when(participationRepository.findUserRankInChallenge(3L, 7L)).thenReturn(4);
+
+        // When / Then
+        assertNull(leaderboardService.getRank(3L, 5L));
+        assertEquals(4, leaderboardService.getRank(3L, 7L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetTop_RebuildsColdLeaderboardFromDatabase() {
+        // Given
+        when(redisTemplate.hasKey("challenge:leaderboard:3")).thenReturn(false);
+        when(participationRepository.findCompletionCountsByChallengeId(3L))
+                .thenReturn(List.of(new Object[] { 7L, 5 }, new Object[] { 8L, 5 }, new Object[] { 9L, 2 }));
+        when(zSetOperations.reverseRangeWithScores("challenge:leaderboard:3", 0, 9))
+                .thenReturn(tuples("7", 5, "8", 5, "9", 2, ChallengeLeaderboardService.LOADED_MARKER, -1));
+        when(zSetOperations.count(eq("challenge:leaderboard:3"), anyDouble(), anyDouble())).thenReturn(0L);
+        when(userRepository.findAllById(any())).thenReturn(List.of(user(7L, "ann"), user(8L, "bob"), user(9L, "cy")));
+
+        // When
+        List<ChallengeLeaderboardEntry> top = leaderboardService.getTop(3L, 10);
+
+        // Then
+        verify(zSetOperations).add(eq("challenge:leaderboard:3"), any(Set.class));
+        verify(redisTemplate).expire("challenge:leaderboard:3", Duration.ofMinutes(60));
+        assertEquals(3, top.size());
+        assertEquals("ann", top.get(0).getUsername());
+        assertEquals(1, top.get(0).getRank());
+        assertEquals(1, top.get(1).getRank());
+        assertEquals(3, top.get(2).getRank());
+    }
+
+    @Test
+    void testGetAround_TiesAboveTheWindowDoNotShiftLowerRanks() {
+        // Given - scores [10, 10, 10, 5], user 4 at position 3, window is positions 2..4
+        when(redisTemplate.hasKey("challenge:leaderboard:3")).thenReturn(true);
+        when(zSetOperations.reverseRank("challenge:leaderboard:3", "4")).thenReturn(3L);
+        when(zSetOperations.reverseRangeWithScores("challenge:leaderboard:3", 2, 4))
+                .thenReturn(tuples("3", 10, "4", 5, ChallengeLeaderboardService.LOADED_MARKER, -1));
+        when(zSetOperations.count("challenge:leaderboard:3", Math.nextUp(10.0), Double.POSITIVE_INFINITY))
+                .thenReturn(0L);
+        when(userRepository.findAllById(any())).thenReturn(List.of(user(3L, "cy"), user(4L, "dee")));
+
+        // When
+        List<ChallengeLeaderboardEntry> around = leaderboardService.getAround(3L, 4L, 1);
+
+        // Then
+        assertEquals(2, around.size());
+        assertEquals(1, around.get(0).getRank());
+        assertEquals("dee", around.get(1).getUsername());
+        assertEquals(4, around.get(1).getRank());
+    }
+
+    @Test
+    void testGetTop_FallsBackToDatabaseWhenRedisIsDown() {
+        // Given
+        when(redisTemplate.hasKey(anyString())).thenThrow(new RuntimeException("Connection refused"));
+        when(participationRepository.findLeaderboardByChallengeId(eq(3L), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of()));
+
+        // When
+        List<ChallengeLeaderboardEntry> top = leaderboardService.getTop(3L, 10);
+
+        // Then
+        assertTrue(top.isEmpty());
+    }
+
+    private static Set<TypedTuple<String>> tuples(Object... memberScorePairs) {
+        Set<TypedTuple<String>> tuples = new LinkedHashSet<>();
+        for (int i = 0; i < memberScorePairs.length; i += 2) {
+            tuples.add(new DefaultTypedTuple<>((String) memberScorePairs[i],
+                    ((Number) memberScorePairs[i + 1]).doubleValue()));
+        }
+        return tuples;
+    }
+
+    private static User user(Long id, String username) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        return user;
+    }
+}
@@ -0,0 +1,76 @@
+package com.habittracker.service;
+
+import com.habittracker.dto.TeamLeaderboardEntry;
+import com.habittracker.model.ChallengeTeamTotal;
+import com.habittracker.repository.ChallengeTeamTotalRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ChallengeTeamLeaderboardServiceTest {
+
+    @Mock
+    private ChallengeTeamTotalRepository teamTotalRepository;
+
+    @InjectMocks
+    private ChallengeTeamLeaderboardService teamLeaderboardService;
+
+    @Test
+    void testGetTeamLeaderboard_RanksTeamsFromRunningTotals() {
+        // Given
+        when(teamTotalRepository.findLeaderboardByChallengeId(3L)).thenReturn(List.of(
+                total("owls", 40, 4), total("bears", 25, 3), total("foxes", 25, 5), total("hawks", 10, 1)));
+
+        // When
+        List<TeamLeaderboardEntry> teams = teamLeaderboardService.getTeamLeaderboard(3L);
+
+        // Then
+        assertEquals(4, teams.size());
+        assertEquals("owls", teams.get(0).getTeamName());
+        assertEquals(4, teams.get(0).getMemberCount());
+        assertEquals(1, teams.get(0).getRank());
+        assertEquals(2, teams.get(1).getRank());
+        assertEquals(2, teams.get(2).getRank());
+        assertEquals(4, teams.get(3).getRank());
+    }
+
+    @Test
+    void testOnMemberJoinedAndLeft_AdjustTeamRow() {
+        // When
+        teamLeaderboardService.onMemberJoined(3L, "owls");
+        teamLeaderboardService.onMemberLeft(3L, "owls", 6);
+
+        // Then
+        verify(teamTotalRepository).addMember(3L, "owls");
+        verify(teamTotalRepository).removeMember(3L, "owls", 6);
+    }
+
+    @Test
+    void testOnMemberJoined_IgnoresSoloParticipants() {
+        // When
+        teamLeaderboardService.onMemberJoined(3L, null);
+        teamLeaderboardService.onMemberLeft(3L, null, 2);
+
+        // Then
+        verify(teamTotalRepository, never()).addMember(anyLong(), anyString());
+        verify(teamTotalRepository, never()).removeMember(anyLong(), anyString(), anyInt());
+    }
+
+    private static ChallengeTeamTotal total(String teamName, int completions, int members) {
+        ChallengeTeamTotal total = new ChallengeTeamTotal(3L, teamName);
+        total.setTotalCompletions(completions);
+        total.setMemberCount(members);
+        return total;
+    }
+}
@@ -0,0 +1,152 @@
+package com.habittracker.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ColdArchiveTest {
+
+    @TempDir
+    Path archiveDir;
+
+    private ColdArchive coldArchive;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        coldArchive = new ColdArchive(archiveDir.toString());
+        // Rows arrive grouped by user, newest first within a user
+        try (ColdArchive.ArchiveWriter writer = coldArchive.openWriter("notifications", YearMonth.of(2025, 2))) {
+            writer.append(1L, row(12, 1, "2025-02-20T09:00"));
+            writer.append(1L, row(11, 1, "2025-02-03T09:00"));
+            writer.append(2L, row(13, 2, "2025-02-10T09:00"));
+            writer.commit();
+        }
+        try (ColdArchive.ArchiveWriter writer = coldArchive.openWriter("notifications", YearMonth.of(2025, 1))) {
+            writer.append(1L, row(5, 1, "2025-01-15T09:00"));
+            writer.commit();
+        }
+    }
+
+    @Test
+    void testReadUserHistory_PagesAcrossMonthsNewestFirst() {
+        // When
+        List<Map<String, Object>> firstPage = coldArchive.readUserHistory("notifications", 1L,
+                LocalDateTime.of(2025, 3, 1, 0, 0), Long.MAX_VALUE, 2);
+        List<Map<String, Object>> secondPage = coldArchive.readUserHistory("notifications", 1L,
+                LocalDateTime.of(2025, 2, 3, 9, 0), 11L, 2);
+
+        // Then
+        assertEquals(List.of(12, 11), ids(firstPage));
+        assertEquals(List.of(5), ids(secondPage));
+        assertEquals("2025-01-15T09:00", secondPage.get(0).get("created_at"));
+    }
+
+    @Test
+    void testReadUserHistory_ReadsOnlyTheUsersMember() {
+        // When
+        List<Map<String, Object>> rows = coldArchive.readUserHistory("notifications", 2L,
+                LocalDateTime.of(2025, 3, 1, 0, 0), Long.MAX_VALUE, 10);
+
+        // Then
+        assertEquals(List.of(13), ids(rows));
+        assertTrue(coldArchive.readUserHistory("notifications", 3L, LocalDateTime.of(2025, 3, 1, 0, 0),
+                Long.MAX_VALUE, 10).isEmpty());
+    }
+
+    @Test
+    void testArchiveFile_IsOneReadableGzipStream() throws Exception {
+        // When
+        long lines;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(
+                Files.newInputStream(archiveDir.resolve("notifications/2025-02.jsonl.gz"))), StandardCharsets.UTF_8))) {
+            lines = reader.lines().count();
+        }
+
+        // Then
+        assertEquals(3, lines);
+        assertEquals(List.of(YearMonth.of(2025, 2), YearMonth.of(2025, 1)), coldArchive.archivedMonths("notifications"));
+    }
+
+    @Test
+    void testUncommittedWriter_LeavesNothingVisible() throws Exception {
+        // When
+        try (ColdArchive.ArchiveWriter writer = coldArchive.openWriter("activity_feed", YearMonth.of(2025, 1))) {
+            writer.append(1L, row(1, 1, "2025-01-01T00:00"));
+        }
+
+        // Then
+        assertTrue(coldArchive.archivedMonths("activity_feed").isEmpty());
+        try (var files = Files.list(archiveDir.resolve("activity_feed"))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testVerifySharedVolume_FirstNodeRegistersTheVolume() throws Exception {
+        // Given
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(values.get(ColdArchive.ARCHIVE_ID_KEY)).thenReturn(null);
+        when(values.setIfAbsent(eq(ColdArchive.ARCHIVE_ID_KEY), anyString())).thenReturn(true);
+        withRedis(coldArchive, values);
+
+        // When
+        coldArchive.verifySharedVolume();
+
+        // Then
+        String id = Files.readString(archiveDir.resolve(ColdArchive.ARCHIVE_ID_FILE));
+        verify(values).setIfAbsent(ColdArchive.ARCHIVE_ID_KEY, id);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testVerifySharedVolume_RefusesNodeWithItsOwnDisk(@TempDir Path otherDisk) {
+        // Given - another node registered a volume this node has not mounted
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(values.get(ColdArchive.ARCHIVE_ID_KEY)).thenReturn("volume-1");
+        ColdArchive otherNode = new ColdArchive(otherDisk.toString());
+        withRedis(otherNode, values);
+
+        // When / Then
+        assertThrows(IllegalStateException.class, otherNode::verifySharedVolume);
+    }
+
+    private static void withRedis(ColdArchive archive, ValueOperations<String, String> values) {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        ReflectionTestUtils.setField(archive, "redisTemplate", redisTemplate);
+    }
+
+    private static Map<String, Object> row(long id, long userId, String createdAt) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", id);
+        row.put("user_id", userId);
+        row.put("created_at", Timestamp.valueOf(LocalDateTime.parse(createdAt)));
+        return row;
+    }
+
+    private static List<Integer> ids(List<Map<String, Object>> rows) {
+        return rows.stream().map(row -> ((Number) row.get("id")).intValue()).toList();
+    }
+}
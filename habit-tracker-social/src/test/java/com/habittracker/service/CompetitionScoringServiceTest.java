@@ -0,0 +1,168 @@
+package com.habittracker.service;
+
+import com.habittracker.model.Competition;
+import com.habittracker.model.CompetitionType;
+import com.habittracker.model.Habit;
+import com.habittracker.repository.CompetitionParticipantRepository;
+import com.habittracker.repository.CompetitionRepository;
+import com.habittracker.repository.HabitCompletionRepository;
+import com.habittracker.repository.StreakRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CompetitionScoringServiceTest {
+
+    @Mock
+    private CompetitionRepository competitionRepository;
+
+    @Mock
+    private CompetitionParticipantRepository participantRepository;
+
+    @Mock
+    private HabitCompletionRepository completionRepository;
+
+    @Mock
+    private StreakRepository streakRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private CompetitionScoringService scoringService;
+
+    private Competition testCompetition;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        Habit habit = new Habit();
+        habit.setId(5L);
+
+        testCompetition = new Competition();
+        testCompetition.setId(1L);
+        testCompetition.setHabit(habit);
+        testCompetition.setType(CompetitionType.CONSISTENCY);
+        testCompetition.setStartDate(LocalDateTime.now().minusDays(3));
+        testCompetition.setEndDate(LocalDateTime.now().plusDays(10));
+
+        lenient().doAnswer(invocation -> {
+            ((Consumer<Object>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void testRefreshCompetition_ScoresWholeCompetitionInOneStatement() {
+        // Given
+        when(competitionRepository.findById(1L)).thenReturn(Optional.of(testCompetition));
+
+        // When
+        scoringService.refreshCompetition(1L);
+
+        // Then
+        verify(participantRepository).applyConsistencyScores(eq(1L), eq(5L),
+                eq(testCompetition.getStartDate()), any(LocalDateTime.class), eq(4L));
+        verify(participantRepository, never()).save(any());
+        verifyNoInteractions(streakRepository, completionRepository);
+    }
+
+    @Test
+    void testOnHabitCompleted_UpdatesOneScoreAndDefersRanking() {
+        // Given
+        when(competitionRepository.findActiveCompetitionsByHabitId(5L)).thenReturn(List.of(testCompetition));
+        when(completionRepository.countActiveDaysByHabitIdAndDateRange(eq(5L), any(), any())).thenReturn(2L);
+        when(participantRepository.updateScore(1L, 7L, 50)).thenReturn(1);
+
+        // When
+        scoringService.onHabitCompleted(5L, 7L, LocalDateTime.now());
+        scoringService.onHabitCompleted(5L, 7L, LocalDateTime.now());
+        scoringService.flushRanks();
+        scoringService.flushRanks();
+
+        // Then
+        verify(participantRepository, times(2)).updateScore(1L, 7L, 50);
+        verify(participantRepository, times(1)).applyRanks(1L);
+    }
+
+    @Test
+    void testOnHabitCompleted_MarksDirtyOnlyAfterCommit() {
+        // Given
+        when(competitionRepository.findActiveCompetitionsByHabitId(5L)).thenReturn(List.of(testCompetition));
+        when(completionRepository.countActiveDaysByHabitIdAndDateRange(eq(5L), any(), any())).thenReturn(2L);
+        when(participantRepository.updateScore(1L, 7L, 50)).thenReturn(1);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When - the flush runs while the score update is still uncommitted
+            scoringService.onHabitCompleted(5L, 7L, LocalDateTime.now());
+            scoringService.flushRanks();
+            verify(participantRepository, never()).applyRanks(anyLong());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        scoringService.flushRanks();
+
+        // Then
+        verify(participantRepository).applyRanks(1L);
+    }
+
+    @Test
+    void testMarkActiveCompetitionsDirty_ReRanksAfterRestart() {
+        // Given
+        when(competitionRepository.findActiveCompetitionsByDate(any())).thenReturn(List.of(testCompetition));
+
+        // When
+        scoringService.markActiveCompetitionsDirty();
+        scoringService.flushRanks();
+
+        // Then
+        verify(participantRepository).applyRanks(1L);
+    }
+
+    @Test
+    void testOnHabitCompleted_IgnoresCompletionsOutsideTheWindow() {
+        // Given
+        when(competitionRepository.findActiveCompetitionsByHabitId(5L)).thenReturn(List.of(testCompetition));
+
+        // When
+        scoringService.onHabitCompleted(5L, 7L, LocalDateTime.now().minusDays(5));
+        scoringService.flushRanks();
+
+        // Then
+        verify(participantRepository, never()).updateScore(anyLong(), anyLong(), anyInt());
+        verify(participantRepository, never()).applyRanks(anyLong());
+    }
+
+    @Test
+    void testElapsedDays_StopsAtCompetitionEnd() {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 18, 0);
+        testCompetition.setStartDate(start);
+        testCompetition.setEndDate(start.plusDays(6));
+
+        // Then
+        assertEquals(1, CompetitionScoringService.elapsedDays(testCompetition, start.plusHours(1)));
+        assertEquals(3, CompetitionScoringService.elapsedDays(testCompetition, start.plusDays(2)));
+        assertEquals(7, CompetitionScoringService.elapsedDays(testCompetition, start.plusDays(30)));
+    }
+}
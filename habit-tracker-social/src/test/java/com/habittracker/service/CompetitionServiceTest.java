@@ -40,6 +40,9 @@ public class CompetitionServiceTest {
     @Mock
     private NotificationService notificationService;
 
+    @Mock
+    private CompetitionScoringService scoringService;
+
     @InjectMocks
     private CompetitionService competitionService;
 
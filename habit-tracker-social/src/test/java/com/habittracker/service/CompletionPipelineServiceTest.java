@@ -0,0 +1,191 @@
+package com.habittracker.service;
+
+import com.habittracker.model.ActivityFeed;
+import com.habittracker.model.ActivityType;
+import com.habittracker.model.CompletionEvent;
+import com.habittracker.model.CompletionEventStatus;
+import com.habittracker.model.CompletionStage;
+import com.habittracker.model.Habit;
+import com.habittracker.model.User;
+import com.habittracker.repository.ActivityFeedRepository;
+import com.habittracker.repository.CompletionEventRepository;
+import com.habittracker.repository.HabitRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CompletionPipelineServiceTest {
+
+    @Mock
+    private CompletionEventRepository eventRepository;
+
+    @Mock
+    private HabitRepository habitRepository;
+
+    @Mock
+    private ActivityFeedRepository activityFeedRepository;
+
+    @Mock
+    private StreakService streakService;
+
+    @Mock
+    private CompetitionScoringService competitionScoringService;
+
+    @Mock
+    private GroupChallengeService groupChallengeService;
+
+    @Mock
+    private ActivityFeedService activityFeedService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private TaskExecutor executor;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private CompletionPipelineService pipelineService;
+
+    private User testUser;
+    private Habit testHabit;
+    private CompletionEvent testEvent;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        testUser = new User();
+        testUser.setId(1L);
+        testUser.setUsername("testuser");
+
+        testHabit = new Habit();
+        testHabit.setId(1L);
+        testHabit.setName("Test Habit");
+        testHabit.setUser(testUser);
+
+        testEvent = new CompletionEvent();
+        testEvent.setId(10L);
+        testEvent.setHabitId(1L);
+        testEvent.setUserId(1L);
+        testEvent.setCompletionId(100L);
+        testEvent.setCompletionDate(LocalDateTime.now());
+        testEvent.setStatus(CompletionEventStatus.PROCESSING);
+
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        lenient().doAnswer(invocation -> {
+            ((Consumer<Object>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        pipelineService.registerMetrics();
+    }
+
+    @Test
+    void testProcess_RunsAllStagesInOrder() {
+        // Given
+        ActivityFeed activity = new ActivityFeed(testUser, ActivityType.HABIT_COMPLETED, "Test Habit", "done");
+        activity.setId(50L);
+
+        when(eventRepository.claim(eq(10L), any(LocalDateTime.class))).thenReturn(1);
+        when(eventRepository.findById(10L)).thenReturn(Optional.of(testEvent));
+        when(eventRepository.save(any(CompletionEvent.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(testHabit));
+        when(activityFeedService.recordHabitCompletionActivity(testUser, "Test Habit")).thenReturn(activity);
+        when(activityFeedRepository.findById(50L)).thenReturn(Optional.of(activity));
+
+        // When
+        pipelineService.process(10L);
+
+        // Then
+        verify(streakService).updateStreak(testHabit, testEvent.getCompletionDate());
+        verify(competitionScoringService).onHabitCompleted(1L, 1L, testEvent.getCompletionDate());
+        verify(groupChallengeService).onHabitCompleted(1L, testEvent.getCompletionDate().toLocalDate());
+        verify(activityFeedService).notifyFriendsOfHabitCompletion(activity);
+        verify(activityFeedService).pushActivityToFriends(activity);
+        assertEquals(CompletionStage.DONE, testEvent.getStage());
+        assertEquals(CompletionEventStatus.COMPLETED, testEvent.getStatus());
+        assertEquals(50L, testEvent.getActivityId());
+    }
+
+    @Test
+    void testProcess_FailedStageIsScheduledForRetry() {
+        // Given
+        testEvent.setStage(CompletionStage.NOTIFICATIONS);
+        testEvent.setActivityId(50L);
+        ActivityFeed activity = new ActivityFeed(testUser, ActivityType.HABIT_COMPLETED, "Test Habit", "done");
+
+        when(eventRepository.claim(eq(10L), any(LocalDateTime.class))).thenReturn(1);
+        when(eventRepository.findById(10L)).thenReturn(Optional.of(testEvent));
+        when(activityFeedRepository.findById(50L)).thenReturn(Optional.of(activity));
+        doThrow(new RuntimeException("database unavailable"))
+                .when(activityFeedService).notifyFriendsOfHabitCompletion(activity);
+
+        // When
+        pipelineService.process(10L);
+
+        // Then
+        assertEquals(CompletionStage.NOTIFICATIONS, testEvent.getStage());
+        assertEquals(CompletionEventStatus.PENDING, testEvent.getStatus());
+        assertEquals(1, testEvent.getAttempts());
+        assertTrue(testEvent.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        verify(activityFeedService, never()).pushActivityToFriends(any());
+        verify(streakService, never()).updateStreak(any(), any());
+    }
+
+    @Test
+    void testProcess_SkipsEventClaimedByAnotherWorker() {
+        // Given
+        when(eventRepository.claim(eq(10L), any(LocalDateTime.class))).thenReturn(0);
+
+        // When
+        pipelineService.process(10L);
+
+        // Then
+        verify(eventRepository, never()).findById(anyLong());
+        verifyNoInteractions(streakService, activityFeedService);
+    }
+
+    @Test
+    void testDispatch_ReturnsFalseWhenPoolIsSaturated() {
+        // Given
+        doThrow(new TaskRejectedException("queue full")).when(executor).execute(any(Runnable.class));
+
+        // When
+        boolean dispatched = pipelineService.dispatch(10L);
+
+        // Then
+        assertFalse(dispatched);
+        assertEquals(1.0, meterRegistry.counter("completion.pipeline.rejected").count());
+    }
+
+    @Test
+    void testBackoffGrowsExponentially() {
+        assertEquals(2000, pipelineService.backoffMillis(1));
+        assertEquals(4000, pipelineService.backoffMillis(2));
+        assertEquals(128000, pipelineService.backoffMillis(10));
+    }
+}
@@ -0,0 +1,145 @@
+package com.habittracker.service;
+
+import com.habittracker.model.ActivityFeed;
+import com.habittracker.model.ActivityType;
+import com.habittracker.model.User;
+import com.habittracker.repository.ActivityFeedRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FeedTimelineServiceTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    @Mock
+    private FriendGraph friendGraph;
+
+    @Mock
+    private ActivityFeedRepository activityFeedRepository;
+
+    @InjectMocks
+    private FeedTimelineService feedTimelineService;
+
+    private User author;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        lenient().when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        ReflectionTestUtils.setField(feedTimelineService, "highFanoutThreshold", 2);
+
+        author = new User();
+        author.setId(7L);
+        author.setUsername("coach");
+    }
+
+    @Test
+    void testReadPage_MergesTimelineWithHighFanoutOutboxes() {
+        // Given - reader 1 pulls from author 7; activity 3 was pushed before 7 switched to pull mode
+        when(valueOperations.get("feed:pull:1")).thenReturn("7");
+        when(zSetOperations.reverseRangeWithScores("feed:timeline:1", 0, 3))
+                .thenReturn(tuples("3", 300, "1", 100));
+        when(zSetOperations.reverseRangeWithScores("feed:outbox:7", 0, 3))
+                .thenReturn(tuples("4", 400, "3", 300, "2", 200));
+
+        // When
+        Optional<List<Long>> page = feedTimelineService.readPage(1L, 1, 3);
+
+        // Then
+        assertTrue(page.isPresent());
+        assertEquals(Arrays.asList(3L, 2L, 1L), page.get());
+        verifyNoInteractions(activityFeedRepository);
+    }
+
+    @Test
+    void testAppend_HighFanoutAuthorWritesOnlyToOutbox() {
+        // Given
+        ActivityFeed activity = new ActivityFeed(author, ActivityType.HABIT_COMPLETED, "Run", "coach completed 'Run'");
+        activity.setId(50L);
+        when(friendGraph.getFriendIds(7L)).thenReturn(Arrays.asList(1L, 2L, 3L));
+        when(setOperations.add(FeedTimelineService.HIGH_FANOUT_AUTHORS_KEY, "7")).thenReturn(1L);
+
+        // When
+        feedTimelineService.append(activity);
+
+        // Then - readers rebuild once to start pulling, and no per-reader writes happen
+        verify(redisTemplate).delete(Arrays.asList("feed:timeline:1", "feed:pull:1", "feed:timeline:2",
+                "feed:pull:2", "feed:timeline:3", "feed:pull:3"));
+        verify(redisTemplate).execute(any(RedisScript.class), eq(Arrays.asList("feed:outbox:7", "feed:outbox:7")),
+                any(), any(), any(), any());
+    }
+
+    @Test
+    void testAppend_OrdinaryAuthorPushesToReaderTimelines() {
+        // Given
+        ActivityFeed activity = new ActivityFeed(author, ActivityType.HABIT_COMPLETED, "Run", "coach completed 'Run'");
+        activity.setId(50L);
+        when(friendGraph.getFriendIds(7L)).thenReturn(Arrays.asList(1L, 2L));
+
+        // When
+        feedTimelineService.append(activity);
+
+        // Then
+        verify(redisTemplate).execute(any(RedisScript.class), eq(Arrays.asList("feed:timeline:1", "feed:pull:1",
+                "feed:timeline:2", "feed:pull:2")), any(), any(), any(), any());
+        verify(setOperations, never()).add(any(), any());
+    }
+
+    @Test
+    void testReadPage_RedisFailureIsReportedAsMiss() {
+        // Given
+        when(valueOperations.get("feed:pull:1")).thenThrow(new RuntimeException("connection refused"));
+
+        // When
+        Optional<List<Long>> page = feedTimelineService.readPage(1L, 0, 20);
+
+        // Then
+        assertFalse(page.isPresent());
+        verify(friendGraph, never()).getFriendIds(anyLong());
+    }
+
+    private static Set<TypedTuple<String>> tuples(Object... idsAndScores) {
+        Set<TypedTuple<String>> tuples = new LinkedHashSet<>();
+        for (int i = 0; i < idsAndScores.length; i += 2) {
+            tuples.add(new DefaultTypedTuple<>((String) idsAndScores[i],
+                    ((Integer) idsAndScores[i + 1]).doubleValue()));
+        }
+        return tuples;
+    }
+}
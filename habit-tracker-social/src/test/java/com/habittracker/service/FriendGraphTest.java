@@ -0,0 +1,152 @@
+package com.habittracker.service;
+
+import com.habittracker.event.FriendshipChangedEvent;
+import com.habittracker.repository.FriendshipRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FriendGraphTest {
+
+    @Mock
+    private FriendshipRepository friendshipRepository;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private FriendGraph friendGraph;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        friendGraph.init();
+    }
+
+    @Test
+    void testFriendIds_LoadedOnceThenServedLocally() {
+        // Given
+        when(setOperations.members("friends:1")).thenReturn(Collections.emptySet());
+        when(friendshipRepository.findAcceptedFriendIds(1L)).thenReturn(Arrays.asList(5L, 3L));
+
+        // When
+        long[] first = friendGraph.friendIds(1L);
+        long[] second = friendGraph.friendIds(1L);
+
+        // Then
+        assertArrayEquals(new long[] {3L, 5L}, first);
+        assertSame(first, second);
+        verify(friendshipRepository, times(1)).findAcceptedFriendIds(1L);
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("friends:1", "friends:ver:1")),
+                eq("0"), eq("21600"), eq("3"), eq("5"));
+    }
+
+    @Test
+    void testFriendIds_ServedFromRedisWithoutDatabase() {
+        // Given
+        when(setOperations.members("friends:1")).thenReturn(Set.of("9", "4"));
+
+        // When
+        boolean friends = friendGraph.areFriends(1L, 9L);
+
+        // Then
+        assertTrue(friends);
+        assertEquals(Arrays.asList(4L, 9L), friendGraph.getFriendIds(1L));
+        verifyNoInteractions(friendshipRepository);
+    }
+
+    @Test
+    void testFriendIds_EmptySetIsCachedWithMarker() {
+        // Given
+        when(setOperations.members("friends:1")).thenReturn(Collections.emptySet());
+        when(friendshipRepository.findAcceptedFriendIds(1L)).thenReturn(Collections.emptyList());
+
+        // When
+        long[] ids = friendGraph.friendIds(1L);
+
+        // Then
+        assertEquals(0, ids.length);
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("friends:1", "friends:ver:1")),
+                eq("0"), eq("21600"), eq(FriendGraph.EMPTY_MARKER));
+    }
+
+    @Test
+    void testFriendIds_WriteBackCarriesVersionReadBeforeLoading() {
+        // Given - the set was dropped by a change that bumped the version to 4
+        when(setOperations.members("friends:1")).thenReturn(Collections.emptySet());
+        when(valueOperations.get("friends:ver:1")).thenReturn("4");
+        when(friendshipRepository.findAcceptedFriendIds(1L)).thenReturn(List.of(2L));
+
+        // When
+        friendGraph.friendIds(1L);
+
+        // Then - the script only writes if the version is still 4
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("friends:1", "friends:ver:1")),
+                eq("4"), eq("21600"), eq("2"));
+        verify(setOperations, never()).add(any(), any(String[].class));
+    }
+
+    @Test
+    void testFriendshipChanged_InvalidatesBothUsers() {
+        // Given
+        when(setOperations.members(any())).thenReturn(Collections.emptySet());
+        when(friendshipRepository.findAcceptedFriendIds(anyLong())).thenReturn(Collections.emptyList());
+        friendGraph.friendIds(1L);
+
+        // When
+        friendGraph.onFriendshipChanged(new FriendshipChangedEvent(1L, 2L));
+        friendGraph.friendIds(1L);
+
+        // Then - each user's set is dropped and its version bumped in one script
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("friends:1", "friends:ver:1")),
+                eq("43200"));
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("friends:2", "friends:ver:2")),
+                eq("43200"));
+        verify(friendshipRepository, times(2)).findAcceptedFriendIds(1L);
+    }
+
+    @Test
+    void testFriendIds_RedisDownFallsBackToDatabase() {
+        // Given
+        when(setOperations.members("friends:1")).thenThrow(new RuntimeException("connection refused"));
+        when(friendshipRepository.findAcceptedFriendIds(1L)).thenReturn(Arrays.asList(2L));
+
+        // When
+        long[] ids = friendGraph.friendIds(1L);
+
+        // Then
+        assertArrayEquals(new long[] {2L}, ids);
+    }
+}
@@ -1,5 +1,6 @@
 package com.habittracker.service;
 
+import com.habittracker.event.FriendshipChangedEvent;
 import com.habittracker.model.Friendship;
 import com.habittracker.model.FriendshipStatus;
 import com.habittracker.model.Role;
@@ -12,6 +13,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.Arrays;
 import java.util.List;
@@ -19,6 +21,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,6 +36,12 @@ public class FriendshipServiceTest {
     @Mock
     private NotificationService notificationService;
 
+    @Mock
+    private FriendGraph friendGraph;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private FriendshipService friendshipService;
 
@@ -112,6 +121,7 @@ public class FriendshipServiceTest {
         assertNotNull(result);
         assertEquals(FriendshipStatus.ACCEPTED, result.getStatus());
         verify(friendshipRepository).save(friendship);
+        verify(eventPublisher).publishEvent(any(FriendshipChangedEvent.class));
     }
 
     @Test
@@ -153,6 +163,7 @@ public class FriendshipServiceTest {
 
         // Then
         verify(friendshipRepository).delete(friendship);
+        verify(eventPublisher).publishEvent(any(FriendshipChangedEvent.class));
     }
 
     @Test
@@ -173,14 +184,15 @@ public class FriendshipServiceTest {
     void testGetFriends() {
         // Given
         List<User> friends = Arrays.asList(user1);
-        when(userRepository.findFriendsByUserId(2L)).thenReturn(friends);
+        when(friendGraph.getFriendIds(2L)).thenReturn(Arrays.asList(1L));
+        when(userRepository.findAllById(Arrays.asList(1L))).thenReturn(friends);
 
         // When
         List<User> result = friendshipService.getFriends(2L);
 
         // Then
         assertEquals(1, result.size());
-        verify(userRepository).findFriendsByUserId(2L);
+        verify(userRepository, never()).findFriendsByUserId(anyLong());
     }
 
     @Test
@@ -0,0 +1,79 @@
+package com.habittracker.service;
+
+import com.habittracker.repository.ChallengeParticipationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class GroupChallengeServiceTest {
+
+    @Mock
+    private ChallengeParticipationRepository participationRepository;
+
+    @Mock
+    private ChallengeTeamLeaderboardService teamLeaderboardService;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @InjectMocks
+    private GroupChallengeService challengeService;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        // The real leaderboard, so the test shows the completion reaching Redis
+        ChallengeLeaderboardService leaderboardService = new ChallengeLeaderboardService();
+        ReflectionTestUtils.setField(leaderboardService, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(leaderboardService, "participationRepository", participationRepository);
+        ReflectionTestUtils.setField(challengeService, "leaderboardService", leaderboardService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOnHabitCompleted_MovesLeaderboardOfEveryActiveChallenge() {
+        // Given
+        when(participationRepository.findActiveChallengeIdsByUserId(7L, today)).thenReturn(List.of(3L, 4L));
+        when(participationRepository.incrementCompletionCount(3L, 7L)).thenReturn(1);
+        when(participationRepository.incrementCompletionCount(4L, 7L)).thenReturn(1);
+
+        // When
+        challengeService.onHabitCompleted(7L, today);
+
+        // Then
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("challenge:leaderboard:3")),
+                eq("1"), eq("7"), eq("3600"));
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("challenge:leaderboard:4")),
+                eq("1"), eq("7"), eq("3600"));
+        verify(teamLeaderboardService).onCompletion(3L, 7L);
+        verify(teamLeaderboardService).onCompletion(4L, 7L);
+    }
+
+    @Test
+    void testOnHabitCompleted_LeavesLeaderboardAloneWithoutParticipation() {
+        // Given - the user left between the lookup and the increment
+        when(participationRepository.findActiveChallengeIdsByUserId(7L, today)).thenReturn(List.of(3L));
+        when(participationRepository.incrementCompletionCount(3L, 7L)).thenReturn(0);
+
+        // When
+        challengeService.onHabitCompleted(7L, today);
+
+        // Then
+        verifyNoInteractions(redisTemplate, teamLeaderboardService);
+    }
+}
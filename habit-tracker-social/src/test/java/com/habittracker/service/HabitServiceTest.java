@@ -1,23 +1,34 @@
 package com.habittracker.service;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 
+import com.habittracker.dto.CursorPage;
 import com.habittracker.model.Habit;
+import com.habittracker.model.HabitCompletion;
 import com.habittracker.model.HabitFrequency;
 import com.habittracker.model.HabitType;
 import com.habittracker.model.User;
@@ -136,4 +147,34 @@ public class HabitServiceTest {
         // Then
         verify(habitRepository).deleteById(1L);
     }
+
+    @Test
+    void testGetHabitCompletions_CursorPage() {
+        // Given
+        HabitCompletion newer = new HabitCompletion(testHabit, LocalDateTime.of(2024, 3, 2, 8, 0), 1);
+        newer.setId(20L);
+        HabitCompletion older = new HabitCompletion(testHabit, LocalDateTime.of(2024, 3, 1, 8, 0), 1);
+        older.setId(19L);
+        when(habitCompletionRepository.findByHabitIdAfter(eq(1L), any(LocalDateTime.class), eq(Long.MAX_VALUE),
+                any(Pageable.class))).thenReturn(new SliceImpl<>(Arrays.asList(newer, older), PageRequest.of(0, 2), true));
+        when(habitCompletionRepository.findByHabitIdAfter(1L, older.getCompletionDate(), 19L, PageRequest.of(0, 2)))
+                .thenReturn(new SliceImpl<>(Collections.emptyList(), PageRequest.of(0, 2), false));
+
+        // When
+        CursorPage<HabitCompletion> first = habitService.getHabitCompletions(1L, null, 2);
+        CursorPage<HabitCompletion> second = habitService.getHabitCompletions(1L, first.getNextCursor(), 2);
+
+        // Then
+        assertEquals(2, first.getItems().size());
+        assertTrue(first.isHasNext());
+        assertNotNull(first.getNextCursor());
+        assertTrue(second.getItems().isEmpty());
+        assertFalse(second.isHasNext());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void testGetHabitCompletions_InvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> habitService.getHabitCompletions(1L, "not-a-cursor", 20));
+    }
 }
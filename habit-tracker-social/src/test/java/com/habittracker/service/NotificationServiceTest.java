@@ -1,24 +1,47 @@
 package com.habittracker.service;
 
+import com.habittracker.dto.CursorPage;
+import com.habittracker.dto.NotificationSummary;
+import com.habittracker.dto.NotificationTemplate;
 import com.habittracker.model.Notification;
 import com.habittracker.model.NotificationStatus;
 import com.habittracker.model.NotificationType;
 import com.habittracker.model.Role;
 import com.habittracker.model.User;
+import com.habittracker.repository.FriendshipRepository;
+import com.habittracker.repository.NotificationJdbcRepository;
 import com.habittracker.repository.NotificationRepository;
+import com.habittracker.websocket.NotificationWebSocketHandler;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +50,27 @@ public class NotificationServiceTest {
     @Mock
     private NotificationRepository notificationRepository;
 
+    @Mock
+    private NotificationWebSocketHandler webSocketHandler;
+
+    @Mock
+    private NotificationJdbcRepository notificationJdbcRepository;
+
+    @Mock
+    private FriendActivityCoalescer friendActivityCoalescer;
+
+    @Mock
+    private FriendshipRepository friendshipRepository;
+
+    @Mock
+    private UnreadNotificationCounter unreadCounter;
+
+    @Mock
+    private ColdArchive coldArchive;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private NotificationService notificationService;
 
@@ -34,6 +78,7 @@ public class NotificationServiceTest {
     private Notification testNotification;
 
     @BeforeEach
+    @SuppressWarnings("unchecked")
     void setUp() {
         testUser = new User();
         testUser.setId(1L);
@@ -49,6 +94,18 @@ public class NotificationServiceTest {
         testNotification.setType(NotificationType.SYSTEM);
         testNotification.setStatus(NotificationStatus.UNREAD);
         testNotification.setCreatedAt(LocalDateTime.now());
+
+        // Runs the callback as its own transaction, firing afterCommit when it returns
+        lenient().doAnswer(invocation -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                ((Consumer<Object>) invocation.getArgument(0)).accept(null);
+                TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
     }
 
     @Test
@@ -66,6 +123,109 @@ public class NotificationServiceTest {
         verify(notificationRepository).save(any(Notification.class));
     }
 
+    @Test
+    void testCreateNotifications_InsertsAllRecipientsInOneBatch() {
+        // Given
+        when(notificationJdbcRepository.insertAll(anyList(), any(LocalDateTime.class)))
+                .thenReturn(List.of(101L, 102L, 103L));
+
+        // When
+        List<Notification> result = notificationService.createNotifications(List.of(2L, 3L, 4L),
+                NotificationTemplate.friendCompletedHabit("testuser", "Read"));
+
+        // Then
+        assertEquals(List.of(101L, 102L, 103L), result.stream().map(Notification::getId).toList());
+        assertEquals(4L, result.get(2).getUser().getId());
+        assertEquals("testuser just completed 'Read'!", result.get(0).getMessage());
+        verify(notificationJdbcRepository, times(1)).insertAll(anyList(), any(LocalDateTime.class));
+        verify(notificationRepository, never()).save(any(Notification.class));
+        verify(webSocketHandler).sendNotifications(result);
+    }
+
+    @Test
+    void testQueueFriendCompletedHabitNotifications_BuffersInsteadOfInserting() {
+        // Given
+        when(friendActivityCoalescer.add(List.of(2L, 3L), "testuser", "Read")).thenReturn(true);
+
+        // When
+        notificationService.queueFriendCompletedHabitNotifications(List.of(2L, 3L), "testuser", "Read");
+
+        // Then
+        verifyNoInteractions(notificationJdbcRepository, webSocketHandler);
+    }
+
+    @Test
+    void testQueueFriendCompletedHabitNotifications_SendsDirectlyWhenBufferIsDown() {
+        // Given
+        when(friendActivityCoalescer.add(List.of(2L), "testuser", "Read")).thenReturn(false);
+        when(notificationJdbcRepository.insertAll(anyList(), any(LocalDateTime.class))).thenReturn(List.of(101L));
+
+        // When
+        notificationService.queueFriendCompletedHabitNotifications(List.of(2L), "testuser", "Read");
+
+        // Then
+        verify(notificationJdbcRepository).insertAll(anyList(), any(LocalDateTime.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlushCoalescedNotifications_EmitsOneAggregatedNotificationPerRecipient() {
+        // Given
+        when(friendActivityCoalescer.drainDue(anyInt())).thenReturn(List.of(
+                new FriendActivityCoalescer.CoalescedActivity(2L, "alex", "Run", 5),
+                new FriendActivityCoalescer.CoalescedActivity(3L, "sam", "Read", 1)));
+        when(notificationJdbcRepository.insertAll(anyList(), any(LocalDateTime.class))).thenReturn(List.of(1L, 2L));
+
+        // When
+        notificationService.flushCoalescedNotifications();
+
+        // Then
+        ArgumentCaptor<List<NotificationJdbcRepository.Row>> rows = ArgumentCaptor.forClass(List.class);
+        verify(notificationJdbcRepository).insertAll(rows.capture(), any(LocalDateTime.class));
+        assertEquals("alex and 4 others completed habits!", rows.getValue().get(0).message());
+        assertEquals(2L, rows.getValue().get(0).userId());
+        assertEquals("sam just completed 'Read'!", rows.getValue().get(1).message());
+        verify(friendActivityCoalescer).acknowledge(List.of(2L, 3L));
+    }
+
+    @Test
+    void testFlushCoalescedNotifications_KeepsClaimWhenInsertFails() {
+        // Given
+        when(friendActivityCoalescer.drainDue(anyInt())).thenReturn(List.of(
+                new FriendActivityCoalescer.CoalescedActivity(2L, "alex", "Run", 5)));
+        when(notificationJdbcRepository.insertAll(anyList(), any(LocalDateTime.class)))
+                .thenThrow(new RuntimeException("deadlock"));
+
+        // When
+        notificationService.flushCoalescedNotifications();
+
+        // Then - the window stays claimed, to be put back when the claim lapses
+        verify(friendActivityCoalescer, never()).acknowledge(any());
+        verifyNoInteractions(webSocketHandler);
+    }
+
+    @Test
+    void testSendFriendsActiveDigest_PagesThroughRecipients() {
+        // Given
+        ReflectionTestUtils.setField(notificationService, "digestBatchSize", 2);
+        LocalDateTime since = LocalDateTime.now().toLocalDate().atStartOfDay();
+        when(friendshipRepository.countActiveFriendsSince(since, 0L, 2))
+                .thenReturn(List.of(new Object[] { 4L, 3L }, new Object[] { 7L, 1L }));
+        when(friendshipRepository.countActiveFriendsSince(since, 7L, 2))
+                .thenReturn(List.<Object[]>of(new Object[] { 9L, 2L }));
+        when(notificationJdbcRepository.insertAll(anyList(), any(LocalDateTime.class)))
+                .thenReturn(List.of(1L, 2L), List.of(3L));
+
+        // When
+        int sent = notificationService.sendFriendsActiveDigest(since);
+
+        // Then - each batch is pushed when it commits
+        assertEquals(3, sent);
+        verify(notificationJdbcRepository, times(2)).insertAll(anyList(), any(LocalDateTime.class));
+        verify(transactionTemplate, times(2)).executeWithoutResult(any());
+        verify(webSocketHandler, times(2)).sendNotifications(anyList());
+    }
+
     @Test
     void testGetUserNotifications() {
         // Given
@@ -80,6 +240,55 @@ public class NotificationServiceTest {
         verify(notificationRepository).findByUserIdOrderByCreatedAtDesc(1L);
     }
 
+    @Test
+    void testGetUserNotificationsPage_ContinuesIntoArchiveWhenTableRunsOut() {
+        // Given - one row left in the table, older ones archived
+        when(notificationRepository.findSummariesByUserIdAfter(eq(1L), any(LocalDateTime.class), anyLong(),
+                any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(NotificationSummary.from(testNotification)), PageRequest.of(0, 2),
+                        false));
+        Map<String, Object> archived = new LinkedHashMap<>();
+        archived.put("id", 0);
+        archived.put("user_id", 1);
+        archived.put("title", "Old");
+        archived.put("message", "From last year");
+        archived.put("type", "SYSTEM");
+        archived.put("status", "READ");
+        archived.put("created_at", "2025-01-05T10:00");
+        archived.put("read_at", null);
+        when(coldArchive.readUserHistory(RetentionService.NOTIFICATIONS, 1L, testNotification.getCreatedAt(), 1L, 2))
+                .thenReturn(List.of(archived, archived));
+
+        // When
+        CursorPage<NotificationSummary> page = notificationService.getUserNotifications(1L, null, 2);
+
+        // Then
+        assertEquals(2, page.getItems().size());
+        assertEquals("From last year", page.getItems().get(1).getMessage());
+        assertEquals(NotificationStatus.READ, page.getItems().get(1).getStatus());
+        assertTrue(page.isHasNext());
+        assertNotNull(page.getNextCursor());
+    }
+
+    @Test
+    void testGetUnreadNotificationsPage_ReadsProjectionsOnly() {
+        // Given
+        when(notificationRepository.findUnreadSummariesByUserIdAfter(eq(1L), any(LocalDateTime.class), anyLong(),
+                any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(NotificationSummary.from(testNotification)), PageRequest.of(0, 1),
+                        true));
+
+        // When
+        CursorPage<NotificationSummary> page = notificationService.getUnreadNotifications(1L, null, 1);
+
+        // Then
+        assertEquals(1, page.getItems().size());
+        assertTrue(page.isHasNext());
+        assertNotNull(page.getNextCursor());
+        verify(notificationRepository, never()).findUnreadNotificationsByUserId(anyLong());
+        verifyNoInteractions(coldArchive);
+    }
+
     @Test
     void testGetUnreadNotifications() {
         // Given
@@ -111,16 +320,45 @@ public class NotificationServiceTest {
     @Test
     void testMarkAllAsRead() {
         // Given
-        List<Notification> notifications = Arrays.asList(testNotification);
-        when(notificationRepository.findUnreadNotificationsByUserId(1L)).thenReturn(notifications);
-        when(notificationRepository.saveAll(anyList())).thenReturn(notifications);
+        when(notificationRepository.markAllAsReadByUserId(eq(1L), any(LocalDateTime.class))).thenReturn(3);
+        when(unreadCounter.adjust(Map.of(1L, -3L))).thenReturn(Map.of(1L, 0L));
 
         // When
         notificationService.markAllAsRead(1L);
 
+        // Then - one UPDATE, no entities loaded
+        verify(notificationRepository, never()).findUnreadNotificationsByUserId(anyLong());
+        verify(notificationRepository, never()).saveAll(anyList());
+        verify(webSocketHandler).sendUnreadCount(1L, 0L);
+    }
+
+    @Test
+    void testDeleteNotifications_DecrementsCounterByUnreadDeleted() {
+        // Given
+        List<Long> ids = List.of(4L, 5L, 6L);
+        when(notificationRepository.countUnreadByUserIdAndIdIn(1L, ids)).thenReturn(2L);
+        when(notificationRepository.bulkDeleteByUserIdAndIdIn(1L, ids)).thenReturn(3);
+
+        // When
+        int deleted = notificationService.deleteNotifications(1L, ids);
+
         // Then
-        verify(notificationRepository).findUnreadNotificationsByUserId(1L);
-        verify(notificationRepository).saveAll(anyList());
+        assertEquals(3, deleted);
+        verify(unreadCounter).adjust(Map.of(1L, -2L));
+        verify(notificationRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void testMarkAsRead_RejectsOversizedBulkRequest() {
+        // Given
+        List<Long> ids = new ArrayList<>();
+        for (long i = 0; i <= NotificationService.MAX_BULK_IDS; i++) {
+            ids.add(i);
+        }
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> notificationService.markAsRead(1L, ids));
+        verifyNoInteractions(notificationRepository);
     }
 
     @Test
@@ -134,7 +372,8 @@ public class NotificationServiceTest {
 
     @Test
     void testGetUnreadCount() {
-        // Given
+        // Given - no counter yet
+        when(unreadCounter.get(1L)).thenReturn(null);
         when(notificationRepository.countUnreadNotificationsByUserId(1L)).thenReturn(5L);
 
         // When
@@ -143,6 +382,52 @@ public class NotificationServiceTest {
         // Then
         assertEquals(5L, count);
         verify(notificationRepository).countUnreadNotificationsByUserId(1L);
+        verify(unreadCounter).initialize(1L, 5L);
+    }
+
+    @Test
+    void testGetUnreadCount_ServedFromCounter() {
+        // Given
+        when(unreadCounter.get(1L)).thenReturn(3L);
+
+        // When
+        Long count = notificationService.getUnreadCount(1L);
+
+        // Then
+        assertEquals(3L, count);
+        verify(notificationRepository, never()).countUnreadNotificationsByUserId(anyLong());
+    }
+
+    @Test
+    void testMarkAsRead_DecrementsCounterAndPushesBadge() {
+        // Given
+        when(notificationRepository.findById(1L)).thenReturn(Optional.of(testNotification));
+        when(unreadCounter.adjust(Map.of(1L, -1L))).thenReturn(Map.of(1L, 4L));
+
+        // When
+        notificationService.markAsRead(1L);
+        notificationService.markAsRead(1L);
+
+        // Then - the second call finds it already read
+        verify(unreadCounter, times(1)).adjust(Map.of(1L, -1L));
+        verify(webSocketHandler).sendUnreadCount(1L, 4L);
+    }
+
+    @Test
+    void testReconcileUnreadCounts_FixesDriftedCountersOnly() {
+        // Given
+        when(unreadCounter.claimStale(anyLong(), anyInt())).thenReturn(List.of(1L, 2L, 3L));
+        when(notificationRepository.countUnreadNotificationsByUserIdIn(List.of(1L, 2L, 3L)))
+                .thenReturn(List.of(new Object[] { 1L, 2L }, new Object[] { 2L, 7L }));
+        when(unreadCounter.replace(Map.of(1L, 2L, 2L, 7L, 3L, 0L))).thenReturn(Map.of(1L, 2L, 2L, 6L, 3L, 1L));
+
+        // When
+        notificationService.reconcileUnreadCounts();
+
+        // Then
+        verify(webSocketHandler).sendUnreadCount(2L, 7L);
+        verify(webSocketHandler).sendUnreadCount(3L, 0L);
+        verify(webSocketHandler, never()).sendUnreadCount(eq(1L), anyLong());
     }
 
     @Test
@@ -0,0 +1,125 @@
+package com.habittracker.service;
+
+import com.habittracker.repository.PartitionJdbcRepository;
+import com.habittracker.repository.PartitionJdbcRepository.Partition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RetentionServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 18);
+
+    @Mock
+    private PartitionJdbcRepository partitionRepository;
+
+    @Mock
+    private ColdArchive coldArchive;
+
+    @Mock
+    private ColdArchive.ArchiveWriter writer;
+
+    @InjectMocks
+    private RetentionService retentionService;
+
+    @Test
+    void testAddUpcomingPartitions_AddsOnlyTheNextMonth() {
+        // When - partitions run to the end of November; the target is January 2027
+        retentionService.addUpcomingPartitions("notifications", List.of(
+                new Partition("p202611", LocalDate.of(2026, 12, 1)),
+                new Partition(PartitionJdbcRepository.FUTURE_PARTITION, null)), TODAY);
+
+        // Then
+        verify(partitionRepository).splitFuturePartition("notifications", LocalDate.of(2026, 12, 1));
+    }
+
+    @Test
+    void testAddUpcomingPartitions_NeverReorganizesExistingRows() {
+        // Given
+        when(partitionRepository.findOldestCreatedAt("notifications", PartitionJdbcRepository.FUTURE_PARTITION))
+                .thenReturn(LocalDateTime.of(2026, 12, 2, 8, 0));
+
+        // When - not yet split into months, then a p_future that rows have reached
+        retentionService.addUpcomingPartitions("notifications",
+                List.of(new Partition(PartitionJdbcRepository.FUTURE_PARTITION, null)), TODAY);
+        retentionService.addUpcomingPartitions("notifications", List.of(
+                new Partition("p202611", LocalDate.of(2026, 12, 1)),
+                new Partition(PartitionJdbcRepository.FUTURE_PARTITION, null)), TODAY);
+
+        // Then
+        verify(partitionRepository, never()).splitFuturePartition(anyString(), any(LocalDate.class));
+    }
+
+    @Test
+    void testAddUpcomingPartitions_NothingToDoWhenAlreadyAhead() {
+        // When
+        retentionService.addUpcomingPartitions("notifications", List.of(
+                new Partition("p202701", LocalDate.of(2027, 2, 1)),
+                new Partition(PartitionJdbcRepository.FUTURE_PARTITION, null)), TODAY);
+
+        // Then
+        verify(partitionRepository, never()).splitFuturePartition(anyString(), any(LocalDate.class));
+    }
+
+    @Test
+    void testExpirePartitions_ArchivesThenDropsMonthsPastHorizon() throws IOException {
+        // Given - horizon 12 months: everything before 2025-10-01 expires
+        when(coldArchive.openWriter("activity_feed", YearMonth.of(2025, 9))).thenReturn(writer);
+
+        // When
+        int expired = retentionService.expirePartitions("activity_feed", List.of(
+                new Partition("p202509", LocalDate.of(2025, 10, 1)),
+                new Partition("p202510", LocalDate.of(2025, 11, 1)),
+                new Partition(PartitionJdbcRepository.FUTURE_PARTITION, null)), TODAY);
+
+        // Then
+        assertEquals(1, expired);
+        var order = inOrder(writer, partitionRepository);
+        order.verify(partitionRepository).streamPartition(eq("activity_feed"), eq("p202509"), any());
+        order.verify(writer).commit();
+        order.verify(partitionRepository).dropPartition("activity_feed", "p202509");
+        verify(partitionRepository, never()).dropPartition("activity_feed", "p202510");
+    }
+
+    @Test
+    void testExpirePartitions_KeepsPartitionWhenArchiveFails() throws IOException {
+        // Given
+        when(coldArchive.openWriter("notifications", YearMonth.of(2025, 9))).thenReturn(writer);
+        doThrow(new IOException("disk full")).when(writer).commit();
+
+        // When & Then
+        assertThrows(RuntimeException.class, () -> retentionService.expirePartitions("notifications",
+                List.of(new Partition("p202509", LocalDate.of(2025, 10, 1))), TODAY));
+        verify(partitionRepository, never()).dropPartition(anyString(), anyString());
+    }
+
+    @Test
+    void testExpirePartitions_DropModeSkipsArchive() {
+        // Given
+        ReflectionTestUtils.setField(retentionService, "mode", "drop");
+
+        // When
+        retentionService.expirePartitions("notifications",
+                List.of(new Partition("p202509", LocalDate.of(2025, 10, 1))), TODAY);
+
+        // Then
+        verifyNoInteractions(coldArchive);
+        verify(partitionRepository).dropPartition("notifications", "p202509");
+    }
+}
@@ -1,7 +1,6 @@
 package com.habittracker.service;
 
 import com.habittracker.model.Habit;
-import com.habittracker.model.HabitCompletion;
 import com.habittracker.model.HabitFrequency;
 import com.habittracker.model.HabitType;
 import com.habittracker.model.Role;
@@ -12,6 +11,7 @@ import com.habittracker.repository.StreakRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -118,38 +118,102 @@ public class StreakServiceTest {
     @Test
     void testUpdateStreak_FirstCompletion() {
         // Given
-        HabitCompletion completion = new HabitCompletion();
-        completion.setCompletionDate(LocalDateTime.now());
-        List<HabitCompletion> completions = Arrays.asList(completion);
-
+        LocalDateTime now = LocalDateTime.now();
         when(streakRepository.findByHabitIdAndUserId(1L, 1L)).thenReturn(Optional.empty());
-        when(streakRepository.save(any(Streak.class))).thenReturn(testStreak);
-        when(habitCompletionRepository.findByHabitIdOrderByCompletionDateDesc(1L)).thenReturn(completions);
 
         // When
-        streakService.updateStreak(testHabit);
+        streakService.updateStreak(testHabit, now);
 
         // Then
-        verify(streakRepository, atLeastOnce()).save(any(Streak.class));
+        ArgumentCaptor<Streak> captor = ArgumentCaptor.forClass(Streak.class);
+        verify(streakRepository).save(captor.capture());
+        assertEquals(1, captor.getValue().getCurrentStreak());
+        assertEquals(1, captor.getValue().getLongestStreak());
+        assertEquals(now, captor.getValue().getStreakStartDate());
+        verifyNoInteractions(habitCompletionRepository);
     }
 
     @Test
     void testUpdateStreak_ConsecutiveDay() {
         // Given
         testStreak.setLastCompletionDate(LocalDateTime.now().minusDays(1));
-        HabitCompletion completion = new HabitCompletion();
-        completion.setCompletionDate(LocalDateTime.now());
-        List<HabitCompletion> completions = Arrays.asList(completion);
+        when(streakRepository.findByHabitIdAndUserId(1L, 1L)).thenReturn(Optional.of(testStreak));
+
+        // When
+        streakService.updateStreak(testHabit, LocalDateTime.now());
 
+        // Then
+        verify(streakRepository).save(testStreak);
+        assertEquals(6, testStreak.getCurrentStreak());
+        assertEquals(6, testStreak.getLongestStreak());
+        verifyNoInteractions(habitCompletionRepository);
+    }
+
+    @Test
+    void testUpdateStreak_SameDayDoesNotIncrement() {
+        // Given
+        LocalDateTime morning = LocalDateTime.now().withHour(8);
+        testStreak.setLastCompletionDate(morning);
         when(streakRepository.findByHabitIdAndUserId(1L, 1L)).thenReturn(Optional.of(testStreak));
-        when(streakRepository.save(any(Streak.class))).thenReturn(testStreak);
-        when(habitCompletionRepository.findByHabitIdOrderByCompletionDateDesc(1L)).thenReturn(completions);
 
         // When
-        streakService.updateStreak(testHabit);
+        streakService.updateStreak(testHabit, morning.plusHours(2));
 
         // Then
-        verify(streakRepository).save(any(Streak.class));
+        assertEquals(5, testStreak.getCurrentStreak());
+        assertEquals(morning.plusHours(2), testStreak.getLastCompletionDate());
     }
-}
 
+    @Test
+    void testUpdateStreak_GapResetsStreak() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        testStreak.setLastCompletionDate(now.minusDays(3));
+        when(streakRepository.findByHabitIdAndUserId(1L, 1L)).thenReturn(Optional.of(testStreak));
+
+        // When
+        streakService.updateStreak(testHabit, now);
+
+        // Then
+        assertEquals(1, testStreak.getCurrentStreak());
+        assertEquals(5, testStreak.getLongestStreak());
+        assertEquals(now, testStreak.getStreakStartDate());
+    }
+
+    @Test
+    void testUpdateStreak_WeeklyHabitCountsWeeks() {
+        // Given
+        testHabit.setFrequency(HabitFrequency.WEEKLY);
+        LocalDateTime monday = LocalDateTime.of(2024, 1, 8, 9, 0);
+        testStreak.setLastCompletionDate(monday);
+        when(streakRepository.findByHabitIdAndUserId(1L, 1L)).thenReturn(Optional.of(testStreak));
+
+        // When - Sunday of the following week
+        streakService.updateStreak(testHabit, LocalDateTime.of(2024, 1, 21, 20, 0));
+
+        // Then
+        assertEquals(6, testStreak.getCurrentStreak());
+    }
+
+    @Test
+    void testUpdateStreak_BackdatedCompletionRecomputesFromHistory() {
+        // Given - completions today and two days ago; yesterday is back-filled
+        LocalDateTime today = LocalDateTime.now();
+        testStreak.setCurrentStreak(1);
+        testStreak.setLongestStreak(1);
+        testStreak.setLastCompletionDate(today);
+        when(streakRepository.findByHabitIdAndUserId(1L, 1L)).thenReturn(Optional.of(testStreak));
+        when(habitCompletionRepository.findCompletionDatesByHabitId(1L))
+                .thenReturn(Arrays.asList(today, today.minusDays(1), today.minusDays(2)));
+
+        // When
+        streakService.updateStreak(testHabit, today.minusDays(1));
+
+        // Then
+        assertEquals(3, testStreak.getCurrentStreak());
+        assertEquals(3, testStreak.getLongestStreak());
+        assertEquals(today.minusDays(2), testStreak.getStreakStartDate());
+        assertEquals(today, testStreak.getLastCompletionDate());
+        verify(streakRepository).save(testStreak);
+    }
+}
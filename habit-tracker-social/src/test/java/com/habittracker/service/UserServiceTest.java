@@ -1,7 +1,10 @@
 package com.habittracker.service;
 
+import com.habittracker.event.UserChangedEvent;
 import com.habittracker.model.Role;
 import com.habittracker.model.User;
+import com.habittracker.repository.ActivityFeedRepository;
+import com.habittracker.repository.NotificationRepository;
 import com.habittracker.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,6 +12,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
@@ -29,6 +34,15 @@ public class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    @Mock
+    private ActivityFeedRepository activityFeedRepository;
+
     @InjectMocks
     private UserService userService;
 
@@ -171,6 +185,66 @@ public class UserServiceTest {
         verify(userRepository).save(testUser);
     }
 
+    @Test
+    void testUpdateProfile_UpdatesFreshlyLoadedUser() {
+        // Given
+        User managed = new User();
+        managed.setId(1L);
+        managed.setUsername("testuser");
+        when(userRepository.findById(1L)).thenReturn(Optional.of(managed));
+        when(userRepository.save(managed)).thenReturn(managed);
+
+        // When
+        User result = userService.updateProfile(1L, "Updated", "Name", "updated@example.com");
+
+        // Then
+        assertSame(managed, result);
+        assertEquals("Updated", managed.getFirstName());
+        assertEquals("updated@example.com", managed.getEmail());
+        assertEquals("Test", testUser.getFirstName());
+        verify(eventPublisher).publishEvent(any(UserChangedEvent.class));
+    }
+
+    @Test
+    void testRevokeTokens_BumpsTokenVersion() {
+        // When
+        userService.revokeTokens(1L);
+
+        // Then
+        verify(userRepository).incrementTokenVersion(1L);
+        verify(eventPublisher).publishEvent(any(UserChangedEvent.class));
+    }
+
+    @Test
+    void testChangePassword_StoresNewPasswordAndRevokesTokens() {
+        // Given
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(passwordEncoder.matches("password", "password")).thenReturn(true);
+        when(passwordEncoder.encode("newPassword")).thenReturn("encodedNewPassword");
+
+        // When
+        userService.changePassword(1L, "password", "newPassword");
+
+        // Then
+        assertEquals("encodedNewPassword", testUser.getPassword());
+        verify(userRepository).save(testUser);
+        verify(userRepository).incrementTokenVersion(1L);
+        verify(eventPublisher).publishEvent(any(UserChangedEvent.class));
+    }
+
+    @Test
+    void testChangePassword_WrongCurrentPasswordKeepsTokens() {
+        // Given
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(passwordEncoder.matches("wrong", "password")).thenReturn(false);
+
+        // When / Then
+        assertThrows(BadCredentialsException.class, () -> userService.changePassword(1L, "wrong", "newPassword"));
+        assertEquals("password", testUser.getPassword());
+        verify(userRepository, never()).save(any(User.class));
+        verify(userRepository, never()).incrementTokenVersion(1L);
+    }
+
     @Test
     void testUpdateLastLogin() {
         // Given
@@ -191,6 +265,8 @@ public class UserServiceTest {
         userService.deleteUser(1L);
 
         // Then
+        verify(notificationRepository).bulkDeleteByUserId(1L);
+        verify(activityFeedRepository).bulkDeleteByUserId(1L);
         verify(userRepository).deleteById(1L);
     }
 
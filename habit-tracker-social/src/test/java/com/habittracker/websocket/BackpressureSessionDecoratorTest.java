@@ -0,0 +1,155 @@
+package com.habittracker.websocket;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BackpressureSessionDecoratorTest {
+
+    @Mock
+    private WebSocketSession session;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private OutboundBackpressure outboundBackpressure;
+
+    private final CountDownLatch sending = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService slowSender = Executors.newSingleThreadExecutor();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(session.getId()).thenReturn("s1");
+        outboundBackpressure.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        slowSender.shutdownNow();
+    }
+
+    @Test
+    void testSendMessage_CoalescesSupersededFramesWhileSendInFlight() throws Exception {
+        // Given - a slow client is still receiving the first frame
+        BackpressureSessionDecorator decorator = decorate(10000);
+        blockFirstSend(decorator);
+
+        // When - three badge updates queue up behind it
+        decorator.sendMessage(frame("/user/queue/unread-count", "1"));
+        decorator.sendMessage(frame("/user/queue/unread-count", "2"));
+        decorator.sendMessage(frame("/user/queue/notifications", "{}"));
+        decorator.sendMessage(frame("/user/queue/unread-count", "3"));
+        finishSending(decorator);
+
+        // Then - only the latest badge is sent, after the notification
+        assertEquals(List.of("/user/queue/friend-activity", "/user/queue/notifications", "/user/queue/unread-count"),
+                sentDestinations());
+        assertEquals(2.0, meterRegistry.get("websocket.outbound.dropped")
+                .tag("destination", "/user/queue/unread-count").tag("reason", "coalesced").counter().count());
+    }
+
+    @Test
+    void testSendMessage_DropsOldestFramesOverBufferLimit() throws Exception {
+        // Given - room for roughly two frames
+        BackpressureSessionDecorator decorator = decorate(2 * frame("/user/queue/friend-activity", "x").getPayloadLength());
+        blockFirstSend(decorator);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            decorator.sendMessage(frame("/user/queue/friend-activity", "x"));
+        }
+
+        // Then - the queue stays bounded and the session stays open
+        assertTrue(decorator.getBufferSize() <= 2 * frame("/user/queue/friend-activity", "x").getPayloadLength());
+        assertEquals(3.0, meterRegistry.get("websocket.outbound.dropped")
+                .tag("destination", "/user/queue/friend-activity").tag("reason", "overflow").counter().count());
+        assertTrue(meterRegistry.get("websocket.outbound.queued.bytes").gauge().value() > 0);
+        finishSending(decorator);
+        verify(session, never()).close(any());
+    }
+
+    @Test
+    void testSendMessage_DisconnectPolicyClosesSlowSession() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(outboundBackpressure, "overflowPolicy", "disconnect");
+        BackpressureSessionDecorator decorator = decorate(10);
+        blockFirstSend(decorator);
+
+        // When / Then
+        assertThrows(SessionLimitExceededException.class,
+                () -> decorator.sendMessage(frame("/user/queue/friend-activity", "payload")));
+        assertEquals(0, decorator.getBufferSize());
+        assertEquals(1.0, meterRegistry.get("websocket.outbound.disconnected").tag("reason", "buffer-size")
+                .counter().count());
+    }
+
+    @Test
+    void testDestinationOf_OnlyMessageFrames() {
+        assertEquals("/user/queue/unread-count", BackpressureSessionDecorator.destinationOf(
+                frame("/user/queue/unread-count", "4")));
+        assertNull(BackpressureSessionDecorator.destinationOf(new TextMessage("CONNECTED\nversion:1.2\n\n\0")));
+        assertNull(BackpressureSessionDecorator.destinationOf(new TextMessage("\n")));
+    }
+
+    private BackpressureSessionDecorator decorate(int bufferSizeLimit) {
+        return (BackpressureSessionDecorator) outboundBackpressure.decorate(session, 60000, bufferSizeLimit);
+    }
+
+    private void blockFirstSend(BackpressureSessionDecorator decorator) throws Exception {
+        doAnswer(inv -> {
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).doNothing().when(session).sendMessage(any());
+        slowSender.submit(() -> {
+            decorator.sendMessage(frame("/user/queue/friend-activity", "first"));
+            return null;
+        });
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+    }
+
+    private void finishSending(BackpressureSessionDecorator decorator) throws Exception {
+        release.countDown();
+        slowSender.shutdown();
+        assertTrue(slowSender.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, decorator.getBufferSize());
+    }
+
+    private List<String> sentDestinations() throws Exception {
+        ArgumentCaptor<WebSocketMessage<?>> sent = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(session, atLeastOnce()).sendMessage(sent.capture());
+        return sent.getAllValues().stream().map(BackpressureSessionDecorator::destinationOf).toList();
+    }
+
+    private static TextMessage frame(String destination, String body) {
+        return new TextMessage("MESSAGE\ndestination:" + destination + "\ncontent-type:application/json\n"
+                + "subscription:sub-0\nmessage-id:1\ncontent-length:" + body.length() + "\n\n" + body + "\0");
+    }
+}
@@ -0,0 +1,306 @@
+package com.habittracker.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ClusterMessageRelayTest {
+
+    @Mock
+    private WebSocketSessionRegistry sessionRegistry;
+
+    @Mock
+    private StreamReplayBuffer replayBuffer;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private ClusterMessageRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(sessionRegistry.getNodeId()).thenReturn("node-a");
+        // Flush only when the test asks
+        ReflectionTestUtils.setField(relay, "flushIntervalMs", 60000L);
+        relay.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        relay.shutdown();
+    }
+
+    @Test
+    void testSendToUsers_BatchesRemoteMessagesPerNode() throws Exception {
+        // Given - user 1 is here and on node-b, users 2 and 3 only on node-b
+        when(sessionRegistry.hasLocalSessions(1L)).thenReturn(true);
+        when(sessionRegistry.remoteNodes(anyCollection()))
+                .thenReturn(Map.of(1L, Set.of("node-b"), 2L, Set.of("node-b"), 3L, Set.of("node-b")));
+
+        // When
+        relay.sendToUsers(List.of(
+                new ClusterMessageRelay.UserMessage(1L, "/queue/notifications", Map.of("id", 10)),
+                new ClusterMessageRelay.UserMessage(2L, "/queue/notifications", Map.of("id", 11)),
+                new ClusterMessageRelay.UserMessage(3L, "/queue/unread-count", 4)));
+        relay.flushAll();
+
+        // Then - one registry lookup, one publish carrying all three
+        verify(sessionRegistry, times(1)).remoteNodes(anyCollection());
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate, times(1)).convertAndSend(eq("ws:relay:node-b"), body.capture());
+        JsonNode batch = objectMapper.readTree(body.getValue());
+        assertEquals("node-a", batch.get("from").asText());
+        assertEquals(3, batch.get("messages").size());
+        assertEquals(3.0, meterRegistry.get("websocket.relay.sent").counter().count());
+        assertEquals(1.0, meterRegistry.get("websocket.delivery").tag("route", "local").counter().count());
+    }
+
+    @Test
+    void testSendToUsers_StaysLocalWhenNoOtherNodeHasTheUser() {
+        // Given
+        when(sessionRegistry.hasLocalSessions(1L)).thenReturn(true);
+        when(sessionRegistry.remoteNodes(anyCollection())).thenReturn(Map.of());
+
+        // When
+        relay.sendToUser(1L, "/queue/notifications", "hello");
+        relay.flushAll();
+
+        // Then
+        verify(messagingTemplate).convertAndSendToUser("1", "/queue/notifications", "hello");
+        verify(redisTemplate, never()).convertAndSend(anyString(), any());
+    }
+
+    @Test
+    void testSendToUsers_SkipsUsersConnectedNowhere() {
+        // Given
+        when(sessionRegistry.remoteNodes(anyCollection())).thenReturn(Map.of());
+
+        // When
+        relay.sendToUser(1L, "/queue/notifications", "hello");
+
+        // Then
+        verifyNoInteractions(messagingTemplate);
+        assertEquals(1.0, meterRegistry.get("websocket.delivery.skipped").counter().count());
+    }
+
+    @Test
+    void testFanOut_SerializesOnceForLocalAndRemoteRecipients() throws Exception {
+        // Given - users 1 and 2 are here, 3 is on node-b, 4 is offline
+        when(sessionRegistry.hasLocalSessions(anyLong())).thenAnswer(inv -> inv.getArgument(0, Long.class) <= 2L);
+        when(sessionRegistry.remoteNodes(anyCollection())).thenReturn(Map.of(3L, Set.of("node-b")));
+        Map<String, Object> activity = Map.of("id", 10, "type", "HABIT_COMPLETED");
+
+        // When
+        relay.fanOut(List.of(1L, 2L, 3L, 4L), "/queue/friend-activity", activity);
+        relay.flushAll();
+
+        // Then - one conversion, the same bytes to both local users, one relayed copy
+        verify(objectMapper, times(1)).valueToTree(activity);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<org.springframework.messaging.Message<byte[]>> sent =
+                ArgumentCaptor.forClass(org.springframework.messaging.Message.class);
+        verify(messagingTemplate).send(eq("/user/1/queue/friend-activity"), sent.capture());
+        verify(messagingTemplate).send(eq("/user/2/queue/friend-activity"), sent.capture());
+        assertSame(sent.getAllValues().get(0).getPayload(), sent.getAllValues().get(1).getPayload());
+        assertEquals(10, objectMapper.readTree(sent.getValue().getPayload()).get("id").asInt());
+        verify(messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(), any());
+
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq("ws:relay:node-b"), body.capture());
+        JsonNode relayed = objectMapper.readTree(body.getValue()).get("messages");
+        assertEquals(1, relayed.size());
+        assertEquals(3L, relayed.get(0).get("userIds").get(0).asLong());
+        assertEquals(1.0, meterRegistry.get("websocket.delivery.skipped").counter().count());
+    }
+
+    @Test
+    void testFanOut_SerializesNothingWhenAllRecipientsAreOffline() {
+        // Given
+        when(sessionRegistry.remoteNodes(anyCollection())).thenReturn(Map.of());
+
+        // When
+        relay.fanOut(List.of(1L, 2L, 3L), "/queue/friend-activity", Map.of("id", 10));
+
+        // Then
+        verifyNoInteractions(objectMapper, messagingTemplate);
+        assertEquals(3.0, meterRegistry.get("websocket.delivery.skipped").counter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFanOut_SequencesAndBuffersForConnectedAndAwayUsers() throws Exception {
+        // Given - user 1 is here, 2 on node-b, 3 just disconnected, 4 offline
+        when(replayBuffer.isReplayable("/queue/friend-activity")).thenReturn(true);
+        when(sessionRegistry.hasLocalSessions(anyLong())).thenAnswer(inv -> inv.getArgument(0, Long.class) == 1L);
+        when(sessionRegistry.remoteNodes(anyCollection())).thenReturn(Map.of(2L, Set.of("node-b")));
+        when(sessionRegistry.awayUsers(List.of(3L, 4L))).thenReturn(Set.of(3L));
+        when(replayBuffer.append(anyList())).thenReturn(List.of(11L, 21L, 31L));
+
+        // When
+        relay.fanOut(List.of(1L, 2L, 3L, 4L), "/queue/friend-activity", Map.of("id", 10));
+        relay.flushAll();
+
+        // Then - one buffered frame per recipient, including the away user
+        ArgumentCaptor<List<StreamReplayBuffer.Entry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(replayBuffer).append(entries.capture());
+        assertEquals(List.of(1L, 2L, 3L), entries.getValue().stream().map(StreamReplayBuffer.Entry::userId).toList());
+
+        ArgumentCaptor<org.springframework.messaging.Message<byte[]>> sent =
+                ArgumentCaptor.forClass(org.springframework.messaging.Message.class);
+        verify(messagingTemplate).send(eq("/user/1/queue/friend-activity"), sent.capture());
+        assertEquals("11", SimpMessageHeaderAccessor.wrap(sent.getValue())
+                .getFirstNativeHeader(ClusterMessageRelay.SEQUENCE_HEADER));
+
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq("ws:relay:node-b"), body.capture());
+        JsonNode relayed = objectMapper.readTree(body.getValue()).get("messages").get(0);
+        assertEquals(21L, relayed.get("seqs").get(0).asLong());
+        assertEquals(1.0, meterRegistry.get("websocket.delivery.skipped").counter().count());
+    }
+
+    @Test
+    void testSendToUsers_BuffersReplayableMessageForAwayUser() {
+        // Given
+        when(replayBuffer.isReplayable("/queue/notifications")).thenReturn(true);
+        when(sessionRegistry.remoteNodes(anyCollection())).thenReturn(Map.of());
+        when(sessionRegistry.awayUsers(List.of(1L))).thenReturn(Set.of(1L));
+        when(replayBuffer.append(anyList())).thenReturn(List.of(5L));
+
+        // When
+        relay.sendToUser(1L, "/queue/notifications", Map.of("id", 10));
+
+        // Then - buffered for the resume, but nothing to deliver now
+        verify(replayBuffer).append(List.of(new StreamReplayBuffer.Entry(1L, "/queue/notifications", "{\"id\":10}")));
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testResume_ReplaysMissedFramesThenSendsStatus() {
+        // Given
+        when(replayBuffer.replay(1L, 4L)).thenReturn(new StreamReplayBuffer.Replay(6L, true, List.of(
+                new StreamReplayBuffer.Frame(5L, "/queue/notifications", "{\"id\":10}"),
+                new StreamReplayBuffer.Frame(6L, "/queue/friend-activity", "{\"id\":11}"))));
+
+        // When
+        relay.resume(1L, 4L);
+
+        // Then
+        ArgumentCaptor<org.springframework.messaging.Message<byte[]>> sent =
+                ArgumentCaptor.forClass(org.springframework.messaging.Message.class);
+        verify(messagingTemplate).send(eq("/user/1/queue/notifications"), sent.capture());
+        verify(messagingTemplate).send(eq("/user/1/queue/friend-activity"), sent.capture());
+        assertEquals("6", SimpMessageHeaderAccessor.wrap(sent.getValue())
+                .getFirstNativeHeader(ClusterMessageRelay.SEQUENCE_HEADER));
+        ArgumentCaptor<Object> status = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSendToUser(eq("1"), eq(ClusterMessageRelay.RESUME_DESTINATION),
+                status.capture());
+        assertEquals(Map.of("latestSeq", 6L, "complete", true, "replayed", 2), status.getValue());
+        assertEquals(1.0, meterRegistry.get("websocket.resume").tag("outcome", "complete").counter().count());
+    }
+
+    @Test
+    void testSendToUsers_SplitsAtMaxBatchSize() {
+        // Given
+        ReflectionTestUtils.setField(relay, "maxBatchSize", 2);
+        when(sessionRegistry.remoteNodes(anyCollection())).thenReturn(Map.of(1L, Set.of("node-b")));
+
+        // When - the second message fills a batch and publishes inline
+        relay.sendToUsers(List.of(
+                new ClusterMessageRelay.UserMessage(1L, "/queue/notifications", "a"),
+                new ClusterMessageRelay.UserMessage(1L, "/queue/notifications", "b"),
+                new ClusterMessageRelay.UserMessage(1L, "/queue/notifications", "c")));
+
+        // Then
+        verify(redisTemplate, times(1)).convertAndSend(eq("ws:relay:node-b"), anyString());
+        relay.flushAll();
+        verify(redisTemplate, times(2)).convertAndSend(eq("ws:relay:node-b"), anyString());
+    }
+
+    @Test
+    void testOnMessage_DeliversRelayedMessagesToLocalBroker() {
+        // Given
+        String body = "{\"from\":\"node-b\",\"messages\":["
+                + "{\"userId\":7,\"destination\":\"/queue/notifications\",\"payload\":{\"id\":10}},"
+                + "{\"userId\":null,\"destination\":\"/topic/notifications\",\"payload\":\"all\"}]}";
+
+        // When
+        relay.onMessage(new DefaultMessage("ws:relay:node-a".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8)), null);
+
+        // Then
+        verify(messagingTemplate).convertAndSendToUser(eq("7"), eq("/queue/notifications"), any(JsonNode.class));
+        verify(messagingTemplate).convertAndSend(eq("/topic/notifications"), any(JsonNode.class));
+        assertEquals(2.0, meterRegistry.get("websocket.relay.received").counter().count());
+    }
+
+    @Test
+    void testOnMessage_DeliversRelayedFanOutToEachListedUser() {
+        // Given
+        String body = "{\"from\":\"node-b\",\"messages\":[{\"userIds\":[7,8],"
+                + "\"destination\":\"/queue/friend-activity\",\"payload\":{\"id\":10}}]}";
+
+        // When
+        relay.onMessage(new DefaultMessage("ws:relay:node-a".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8)), null);
+
+        // Then
+        verify(messagingTemplate).send(eq("/user/7/queue/friend-activity"), any());
+        verify(messagingTemplate).send(eq("/user/8/queue/friend-activity"), any());
+        assertEquals(1.0, meterRegistry.get("websocket.relay.received").counter().count());
+    }
+
+    @Test
+    void testOnMessage_IgnoresOwnBroadcast() {
+        // Given
+        String body = "{\"from\":\"node-a\",\"messages\":[{\"userId\":null,\"destination\":\"/topic/notifications\","
+                + "\"payload\":\"all\"}]}";
+
+        // When
+        relay.onMessage(new DefaultMessage(ClusterMessageRelay.BROADCAST_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8)), null);
+
+        // Then
+        verifyNoInteractions(messagingTemplate);
+    }
+}
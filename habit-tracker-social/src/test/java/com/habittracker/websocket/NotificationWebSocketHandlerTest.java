@@ -0,0 +1,77 @@
+package com.habittracker.websocket;
+
+import com.habittracker.dto.ActivityEvent;
+import com.habittracker.dto.NotificationEvent;
+import com.habittracker.model.ActivityFeed;
+import com.habittracker.model.ActivityType;
+import com.habittracker.model.Notification;
+import com.habittracker.model.NotificationType;
+import com.habittracker.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class NotificationWebSocketHandlerTest {
+
+    @Mock
+    private ClusterMessageRelay messageRelay;
+
+    @InjectMocks
+    private NotificationWebSocketHandler webSocketHandler;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(1L);
+        user.setUsername("alice");
+        user.setPassword("$2a$10$hash");
+    }
+
+    @Test
+    void testSendFriendActivity_PushesEventInsteadOfEntity() {
+        // Given
+        ActivityFeed activity = new ActivityFeed(user, ActivityType.HABIT_COMPLETED, "Run", "alice completed 'Run'");
+        activity.setId(10L);
+
+        // When
+        webSocketHandler.sendFriendActivity(List.of(2L, 3L), activity);
+
+        // Then
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(messageRelay).fanOut(eq(List.of(2L, 3L)), eq("/queue/friend-activity"), payload.capture());
+        ActivityEvent event = (ActivityEvent) payload.getValue();
+        assertEquals(10L, event.id());
+        assertEquals(1L, event.userId());
+        assertEquals("alice", event.username());
+        assertEquals("Run", event.habitName());
+    }
+
+    @Test
+    void testSendStreakMilestone_PushesEventInsteadOfEntity() {
+        // Given
+        Notification notification = new Notification(user, "Streak Milestone! 🔥", "7 days", NotificationType.STREAK_MILESTONE);
+        notification.setId(5L);
+        notification.setCreatedAt(LocalDateTime.of(2024, 1, 1, 12, 0));
+
+        // When
+        webSocketHandler.sendStreakMilestone(1L, notification);
+
+        // Then
+        verify(messageRelay).sendToUser(1L, "/queue/streak-milestone", new NotificationEvent(5L,
+                NotificationType.STREAK_MILESTONE, "Streak Milestone! 🔥", "7 days", LocalDateTime.of(2024, 1, 1, 12, 0)));
+    }
+}
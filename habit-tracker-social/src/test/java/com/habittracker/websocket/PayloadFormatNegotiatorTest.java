@@ -0,0 +1,90 @@
+package com.habittracker.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PayloadFormatNegotiatorTest {
+
+    private final PayloadFormatNegotiator negotiator = new PayloadFormatNegotiator();
+
+    private final byte[] json = "{\"id\":10,\"type\":\"HABIT_COMPLETED\",\"habitName\":\"Run\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testPreSend_TranscodesToCborAfterNegotiation() throws Exception {
+        // Given
+        negotiator.preSend(connect("s1", true, "cbor"), null);
+
+        // When
+        Message<?> sent = negotiator.preSend(outbound("s1", json), null);
+
+        // Then
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(sent);
+        assertEquals(MimeTypeUtils.APPLICATION_OCTET_STREAM, accessor.getContentType());
+        assertEquals("cbor", accessor.getFirstNativeHeader(PayloadFormatNegotiator.FORMAT_HEADER));
+        assertEquals(new ObjectMapper().readTree(json),
+                new ObjectMapper(new CBORFactory()).readTree((byte[]) sent.getPayload()));
+        assertTrue(((byte[]) sent.getPayload()).length < json.length);
+    }
+
+    @Test
+    void testPreSend_TranscodesSharedPayloadOnce() {
+        // Given
+        negotiator.preSend(connect("s1", true, "cbor"), null);
+        negotiator.preSend(connect("s2", true, "cbor"), null);
+
+        // When - a fan-out hands both sessions the same array
+        Message<?> first = negotiator.preSend(outbound("s1", json), null);
+        Message<?> second = negotiator.preSend(outbound("s2", json), null);
+
+        // Then
+        assertSame(first.getPayload(), second.getPayload());
+    }
+
+    @Test
+    void testPreSend_KeepsJsonForSockJsAndUnnegotiatedSessions() {
+        // Given - s1 asked for CBOR over SockJS, s2 did not ask
+        negotiator.preSend(connect("s1", false, "cbor"), null);
+        negotiator.preSend(connect("s2", true, null), null);
+
+        // When / Then
+        assertSame(json, negotiator.preSend(outbound("s1", json), null).getPayload());
+        assertSame(json, negotiator.preSend(outbound("s2", json), null).getPayload());
+    }
+
+    private static Message<byte[]> connect(String sessionId, boolean binaryCapable, String format) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        Map<String, Object> attributes = new HashMap<>();
+        if (binaryCapable) {
+            attributes.put(PayloadFormatNegotiator.BINARY_CAPABLE_ATTRIBUTE, Boolean.TRUE);
+        }
+        accessor.setSessionAttributes(attributes);
+        if (format != null) {
+            accessor.setNativeHeader(PayloadFormatNegotiator.FORMAT_HEADER, format);
+        }
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Message<byte[]> outbound(String sessionId, byte[] payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination("/user/queue/friend-activity");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,129 @@
+package com.habittracker.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.habittracker.dto.ActivityEvent;
+import com.habittracker.dto.NotificationEvent;
+import com.habittracker.model.ActivityFeed;
+import com.habittracker.model.ActivityType;
+import com.habittracker.model.Notification;
+import com.habittracker.model.NotificationType;
+import com.habittracker.model.Role;
+import com.habittracker.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of real-time payload encoding.
+ *
+ * *Entity benchmarks serialize the JPA entities the WebSocket handler used to push
+ * (with the author's User fully loaded, so no lazy-loading cost is included and
+ * the difference shown is a lower bound); *Event benchmarks serialize the event
+ * records pushed now, as JSON and as CBOR. main() also prints each payload's size.
+ *
+ * Not part of the unit test run; after mvn test-compile, run main() from the IDE
+ * or org.openjdk.jmh.Main RealtimePayloadBenchmark on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RealtimePayloadBenchmark {
+
+    private ObjectMapper json;
+    private ObjectMapper cbor;
+    private ActivityFeed activity;
+    private Notification notification;
+
+    @Setup
+    public void setUp() {
+        // Configured like Spring Boot's ObjectMapper
+        json = new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        cbor = new ObjectMapper(new CBORFactory()).findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        User user = new User();
+        user.setId(42L);
+        user.setUsername("benchmark");
+        user.setEmail("benchmark@example.com");
+        user.setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z5mC3/ntyOqQyWfzdH2qGIbu");
+        user.setFirstName("Bench");
+        user.setLastName("Mark");
+        user.setRole(Role.USER);
+        user.setCreatedAt(LocalDateTime.of(2024, 1, 1, 9, 0));
+
+        activity = new ActivityFeed(user, ActivityType.HABIT_COMPLETED, "Morning run",
+                "benchmark completed 'Morning run'");
+        activity.setId(123456L);
+        activity.setCreatedAt(LocalDateTime.of(2024, 6, 1, 7, 30, 15));
+
+        notification = new Notification(user, "Friend completed a habit",
+                "benchmark completed 'Morning run'", NotificationType.FRIEND_COMPLETED_HABIT);
+        notification.setId(654321L);
+        notification.setCreatedAt(LocalDateTime.of(2024, 6, 1, 7, 30, 16));
+    }
+
+    @Benchmark
+    public byte[] activityEntity() throws Exception {
+        return json.writeValueAsBytes(activity);
+    }
+
+    @Benchmark
+    public byte[] activityEventJson() throws Exception {
+        return json.writeValueAsBytes(ActivityEvent.from(activity));
+    }
+
+    @Benchmark
+    public byte[] activityEventCbor() throws Exception {
+        return cbor.writeValueAsBytes(ActivityEvent.from(activity));
+    }
+
+    @Benchmark
+    public byte[] notificationEntity() throws Exception {
+        return json.writeValueAsBytes(notification);
+    }
+
+    @Benchmark
+    public byte[] notificationEventJson() throws Exception {
+        return json.writeValueAsBytes(NotificationEvent.from(notification));
+    }
+
+    @Benchmark
+    public byte[] notificationEventCbor() throws Exception {
+        return cbor.writeValueAsBytes(NotificationEvent.from(notification));
+    }
+
+    public static void main(String[] args) throws Exception {
+        RealtimePayloadBenchmark sizes = new RealtimePayloadBenchmark();
+        sizes.setUp();
+        System.out.printf("Payload bytes: activity entity %d, event JSON %d, event CBOR %d; "
+                + "notification entity %d, event JSON %d, event CBOR %d%n",
+                sizes.activityEntity().length, sizes.activityEventJson().length, sizes.activityEventCbor().length,
+                sizes.notificationEntity().length, sizes.notificationEventJson().length,
+                sizes.notificationEventCbor().length);
+        run();
+    }
+
+    private static void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RealtimePayloadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,93 @@
+package com.habittracker.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StreamReplayBufferTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @InjectMocks
+    private StreamReplayBuffer replayBuffer;
+
+    @Test
+    void testReplay_ReturnsOnlyTheGap() {
+        // Given
+        buffered("7", List.of("5 /queue/notifications {\"id\":1}", "6 /queue/friend-activity {\"a\":\"b c\"}",
+                "7 /queue/notifications {\"id\":2}"));
+
+        // When
+        StreamReplayBuffer.Replay replay = replayBuffer.replay(1L, 5L);
+
+        // Then
+        assertTrue(replay.complete());
+        assertEquals(7L, replay.latestSeq());
+        assertEquals(2, replay.frames().size());
+        assertEquals(new StreamReplayBuffer.Frame(6L, "/queue/friend-activity", "{\"a\":\"b c\"}"),
+                replay.frames().get(0));
+    }
+
+    @Test
+    void testReplay_IncompleteWhenGapIsOlderThanBuffer() {
+        // Given - frames 1-4 have been trimmed
+        buffered("7", List.of("5 /queue/notifications {}", "6 /queue/notifications {}", "7 /queue/notifications {}"));
+
+        // When
+        StreamReplayBuffer.Replay replay = replayBuffer.replay(1L, 2L);
+
+        // Then
+        assertFalse(replay.complete());
+        assertEquals(3, replay.frames().size());
+    }
+
+    @Test
+    void testReplay_IncompleteWhenNumberingRestarted() {
+        // Given - sequence key expired since the client last saw 40
+        buffered(null, List.of());
+
+        // When
+        StreamReplayBuffer.Replay replay = replayBuffer.replay(1L, 40L);
+
+        // Then
+        assertFalse(replay.complete());
+        assertTrue(replay.frames().isEmpty());
+    }
+
+    @Test
+    void testReplay_CompleteAndEmptyWhenUpToDate() {
+        // Given
+        buffered("7", List.of("7 /queue/notifications {}"));
+
+        // When
+        StreamReplayBuffer.Replay replay = replayBuffer.replay(1L, 7L);
+
+        // Then
+        assertTrue(replay.complete());
+        assertTrue(replay.frames().isEmpty());
+    }
+
+    @Test
+    void testIsReplayable_OnlyConfiguredDestinations() {
+        assertTrue(replayBuffer.isReplayable("/queue/notifications"));
+        assertFalse(replayBuffer.isReplayable("/queue/unread-count"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void buffered(String latestSeq, List<String> frames) {
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(Arrays.asList(latestSeq, frames));
+    }
+}
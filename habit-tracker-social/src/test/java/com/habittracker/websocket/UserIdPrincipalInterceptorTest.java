@@ -0,0 +1,139 @@
+package com.habittracker.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.habittracker.model.Role;
+import com.habittracker.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.DefaultUserDestinationResolver;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.messaging.DefaultSimpUserRegistry;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserIdPrincipalInterceptorTest {
+
+    @Mock
+    private WebSocketSessionRegistry sessionRegistry;
+
+    @Mock
+    private StreamReplayBuffer replayBuffer;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private ClusterMessageRelay relay;
+
+    private final UserIdPrincipalInterceptor interceptor = new UserIdPrincipalInterceptor();
+    private final DefaultSimpUserRegistry userRegistry = new DefaultSimpUserRegistry();
+    private final ExecutorSubscribableChannel clientInboundChannel = new ExecutorSubscribableChannel();
+    private final List<Message<?>> brokered = new ArrayList<>();
+    private Principal handshakeUser;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("alice");
+        user.setRole(Role.USER);
+        handshakeUser = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+
+        // The broker template goes through the real user destination handling
+        ExecutorSubscribableChannel resolvedChannel = new ExecutorSubscribableChannel();
+        resolvedChannel.subscribe(brokered::add);
+        UserDestinationMessageHandler userDestinations = new UserDestinationMessageHandler(clientInboundChannel,
+                resolvedChannel, new DefaultUserDestinationResolver(userRegistry));
+        MessageChannel brokerChannel = (message, timeout) -> {
+            userDestinations.handleMessage(message);
+            return true;
+        };
+        ReflectionTestUtils.setField(relay, "messagingTemplate", new SimpMessagingTemplate(brokerChannel));
+        ReflectionTestUtils.setField(relay, "flushIntervalMs", 60000L);
+        lenient().when(sessionRegistry.getNodeId()).thenReturn("node-a");
+        relay.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        relay.shutdown();
+    }
+
+    @Test
+    void testConnect_NamesSessionPrincipalAfterUserId() {
+        // When
+        Principal user = connect("s1");
+
+        // Then
+        assertEquals("7", user.getName());
+        assertEquals(7L, WebSocketSessionRegistry.userIdOf(user));
+        assertSame(handshakeUser, ((UserIdPrincipal) user).getAuthentication());
+    }
+
+    @Test
+    void testFanOut_ReachesConnectedSessionThroughUserDestinationHandler() {
+        // Given - user 7 connected here over STOMP
+        Principal user = connect("s1");
+        userRegistry.onApplicationEvent(new SessionConnectedEvent(this, connectedMessage("s1"), user));
+        when(sessionRegistry.hasLocalSessions(7L)).thenReturn(true);
+
+        // When
+        relay.fanOut(List.of(7L), "/queue/friend-activity", "hello");
+
+        // Then - resolved to the session's own queue
+        assertEquals(1, brokered.size());
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(brokered.get(0));
+        assertEquals("/queue/friend-activity-users1", accessor.getDestination());
+        assertEquals("\"hello\"", new String((byte[]) brokered.get(0).getPayload(), StandardCharsets.UTF_8));
+    }
+
+    private Principal connect(String sessionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        accessor.setUser(handshakeUser);
+        accessor.setLeaveMutable(true);
+        Message<?> message = interceptor.preSend(
+                MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), clientInboundChannel);
+        return StompHeaderAccessor.wrap(message).getUser();
+    }
+
+    private static Message<byte[]> connectedMessage(String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT_ACK);
+        accessor.setSessionId(sessionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}